@@ -1,7 +1,17 @@
 <#macro footer users>
+    <#if usersVersion??>
+        <@fragment name="footer" key=usersPage version=usersVersion>
+            <@footerBody users=users />
+        </@fragment>
+    <#else>
+        <@footerBody users=users />
+    </#if>
+</#macro>
+
+<#macro footerBody users>
     <footer class="container">
-        <details>
-            <summary role="button" class="outline secondary">List Accounts</summary>
+        <details<#if usersAfter??> open</#if>>
+            <summary role="button" class="outline secondary">List Accounts<#if usersTotal??> (${usersTotal})</#if></summary>
             <table>
                 <thead>
                     <tr>
@@ -22,6 +32,14 @@
                     </#list>
                 </tbody>
             </table>
+            <#if usersAfter?? || usersNext??>
+                <nav>
+                    <ul>
+                        <#if usersAfter??><li><a href="?">First accounts</a></li></#if>
+                        <#if usersNext??><li><a href="?usersAfter=${usersNext?url('UTF-8')}">More accounts</a></li></#if>
+                    </ul>
+                </nav>
+            </#if>
         </details>
     </footer>
-</#macro>
\ No newline at end of file
+</#macro>
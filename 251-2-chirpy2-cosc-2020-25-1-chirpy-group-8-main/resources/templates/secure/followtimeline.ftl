@@ -42,6 +42,9 @@
                     </p>
                 </article>
             </#list>
+            <#if nextCursor??>
+                <p><a href="/followtimeline/?before=${nextCursor?url('UTF-8')}">Older chirps</a></p>
+            </#if>
             <#else>
                 <p>There's nothing here yet. <a href="/timeline/">Find people to follow!</a></p>
                 <#-- Debugging information -->
@@ -20,7 +20,8 @@
         <hgroup>
             <h1>Search</h1>
             <p>Find chirps that match your interests!</p>
-            <p>Enter a Chirper's username (@username) or a tag (#tag)</p>
+            <p>Enter a Chirper's username (@username), a tag (#tag), or words to search for.
+                Words must all match; use "quotes" for a phrase and OR for alternatives.</p>
         </hgroup>
         <hr />
     </header>
@@ -51,10 +52,27 @@
                     name="query"
                     value="${query!}"
                     placeholder="Enter your query here."
+                    list="usernames"
+                    autocomplete="off"
                     required>
+                <datalist id="usernames"></datalist>
+                <label for="order">Sort word searches by</label>
+                <select id="order" name="order">
+                    <option value="relevance" <#if (order!"") != "recency">selected</#if>>Relevance</option>
+                    <option value="recency" <#if (order!"") == "recency">selected</#if>>Newest</option>
+                </select>
                 <button type="submit">Search</button>
             </fieldset>
         </form>
+        <#if trending?? && (trending?size> 0)>
+            <p>
+                <strong>Trending this hour:</strong>
+                <#list trending as trendingTag>
+                    <a href="/search/?query=${('#' + trendingTag.tag)?url('UTF-8')}">#${trendingTag.tag}</a>
+                    <small>(${trendingTag.count})</small>
+                </#list>
+            </p>
+        </#if>
         <hr />
         <#if results?? && (results?size> 0)>
             <#list results as chirp>
@@ -78,10 +96,39 @@
                     </p>
                 </article>
             </#list>
+            <#if nextCursor??>
+                <p><a href="/search/?query=${query?url('UTF-8')}&amp;before=${nextCursor?url('UTF-8')}">Older results</a></p>
+            </#if>
             <#else>
                 <p>No results found for your search.</p>
         </#if>
     </main>
+    <script>
+        // Suggest usernames while a user search (@name) is typed
+        (function () {
+            var input = document.getElementById("query");
+            var list = document.getElementById("usernames");
+            input.addEventListener("input", function () {
+                var value = input.value;
+                if (value.charAt(0) !== "@" || value.length < 2 || value.indexOf(" ") >= 0) {
+                    list.innerHTML = "";
+                    return;
+                }
+                fetch("/autocomplete/?q=" + encodeURIComponent(value.substring(1)))
+                    .then(function (response) { return response.ok ? response.json() : []; })
+                    .then(function (usernames) {
+                        if (input.value !== value)
+                            return;
+                        list.innerHTML = "";
+                        usernames.forEach(function (username) {
+                            var option = document.createElement("option");
+                            option.value = "@" + username;
+                            list.appendChild(option);
+                        });
+                    });
+            });
+        })();
+    </script>
     <#if users??>
         <@footer users=users />
         <#else>
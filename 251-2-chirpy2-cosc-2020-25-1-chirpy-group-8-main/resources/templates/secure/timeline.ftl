@@ -60,6 +60,9 @@
                     </p>
                 </article>
             </#list>
+            <#if nextCursor??>
+                <p><a href="/timeline/?before=${nextCursor?url('UTF-8')}">Older chirps</a></p>
+            </#if>
             <#else>
                 <p>There's nothing here! <a href="/postchirp/">Start the conversation</a></p>
                 <#-- Debugging information -->
@@ -8,6 +8,8 @@ package edu.georgetown;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.FileHandler;
 import java.util.logging.Level;
@@ -29,18 +31,73 @@ import edu.georgetown.handler.secure.FollowTimelinePageHandler;
 import edu.georgetown.handler.secure.PostChirpHandler;
 import edu.georgetown.handler.secure.SearchPageHandler;
 import edu.georgetown.handler.secure.TimelinePageHandler;
+import edu.georgetown.handler.secure.TrendingTagsHandler;
+import edu.georgetown.handler.secure.UsernameAutocompleteHandler;
+import edu.georgetown.http.RequestExecutor;
 import edu.georgetown.logging.LoggerFactory;
 import edu.georgetown.model.Chirp;
 import edu.georgetown.model.Chirper;
 import edu.georgetown.model.Follow;
+import edu.georgetown.persistence.Checkpointer;
+import edu.georgetown.persistence.ChirpCodec;
+import edu.georgetown.persistence.ChirperCodec;
+import edu.georgetown.persistence.FollowCodec;
 import edu.georgetown.persistence.Serializer;
+import edu.georgetown.persistence.Serializer.Durability;
 import edu.georgetown.persistence.Serializer.NonSerializableClassException;
+import edu.georgetown.persistence.Serializer.StorageMode;
 import edu.georgetown.service.UserService;
+import edu.georgetown.service.HomeTimelineService;
+import edu.georgetown.service.SearchResultCache;
 import edu.georgetown.service.SearchService;
+import edu.georgetown.service.SessionStore;
 
 public class Chirpy {
 
   final static int PORT = 8080;
+  /** Directory of the FreeMarker templates */
+  final static String TEMPLATE_PATH = "resources/templates";
+  /** Minutes between snapshots of the saved state */
+  final static int CHECKPOINT_MINUTES = 10;
+  /**
+   * System properties that configure how requests are run, e.g.
+   * {@code -Dchirpy.executor=virtual}: {@code pool} (the default),
+   * {@code virtual} or {@code legacy}; see {@link RequestExecutor.Mode}
+   */
+  final static String EXECUTOR_PROPERTY = "chirpy.executor";
+  final static String EXECUTOR_THREADS_PROPERTY = "chirpy.executor.threads";
+  final static String EXECUTOR_QUEUE_PROPERTY = "chirpy.executor.queue";
+  /**
+   * System property for the follower count from which an author's chirps are
+   * merged into home timelines at read time instead of fanned out, e.g.
+   * {@code -Dchirpy.fanout.threshold=5000}
+   */
+  final static String FANOUT_THRESHOLD_PROPERTY = "chirpy.fanout.threshold";
+  /**
+   * System property that selects how follow timelines are read:
+   * {@code materialized} (the default) keeps a home timeline per reader, while
+   * {@code merge} merges the followed accounts' chirps on every read and keeps
+   * nothing in memory, e.g. {@code -Dchirpy.timeline=merge}
+   */
+  final static String TIMELINE_PROPERTY = "chirpy.timeline";
+  /**
+   * System property for the size of the search result cache in megabytes, e.g.
+   * {@code -Dchirpy.search.cache.mb=64}; {@code 0} turns the cache off
+   */
+  final static String SEARCH_CACHE_PROPERTY = "chirpy.search.cache.mb";
+  /**
+   * System property that selects how templates are loaded: {@code production}
+   * (the default) parses them all at startup, while {@code dev} reloads each
+   * one when its file changes, e.g. {@code -Dchirpy.templates=dev}
+   */
+  final static String TEMPLATES_PROPERTY = "chirpy.templates";
+  /**
+   * System properties for how long a session lasts without a request, in
+   * minutes, and how many sessions are kept before the least recently used are
+   * evicted, e.g. {@code -Dchirpy.session.minutes=60 -Dchirpy.session.max=50000}
+   */
+  final static String SESSION_MINUTES_PROPERTY = "chirpy.session.minutes";
+  final static String SESSION_MAX_PROPERTY = "chirpy.session.max";
 
   private static final Logger logger = LoggerFactory.getLogger();
   private TemplateRenderer templateRenderer;
@@ -61,7 +118,7 @@ public class Chirpy {
     logger.setLevel(Level.ALL);
 
     try {
-      templateRenderer = new TemplateRenderer();
+      templateRenderer = new TemplateRenderer(TEMPLATE_PATH, templateMode());
     } catch (IOException e) {
       logger.warning("failed to initialize display logic: " + e.getMessage());
       System.exit(1);
@@ -75,7 +132,8 @@ public class Chirpy {
    * Start the web service
    */
 
-  private void startService(UserService userService, FollowService followService, ChirpService chirpService, SearchService searchService) {
+  private void startService(UserService userService, FollowService followService, ChirpService chirpService, SearchService searchService,
+      RequestExecutor requestExecutor) {
     try {
       // initialize the web server
       HttpServer server = HttpServer.create(new InetSocketAddress("localhost", PORT), 0);
@@ -88,12 +146,16 @@ public class Chirpy {
       server.createContext("/followtimeline/", new FollowTimelinePageHandler(templateRenderer, chirpService, followService, userService));
       server.createContext("/postchirp/", new PostChirpHandler(templateRenderer, chirpService, userService));
       server.createContext("/search/", new SearchPageHandler(templateRenderer, searchService, userService));
-      server.createContext("/logout/", new LogoutHandler());
+      server.createContext("/autocomplete/", new UsernameAutocompleteHandler(userService));
+      server.createContext("/trending/", new TrendingTagsHandler(searchService, userService));
+      server.createContext("/logout/", new LogoutHandler(userService));
       server.createContext("/", new DefaultPageHandler(templateRenderer, userService));
       // you will need to add to the above list to add new functionality to the web
       // service. Just make sure that the handler for "/" is listed last.
 
-      server.setExecutor(null); // Use the default executor
+      // run requests on the configured executor, so that a slow request does not
+      // hold up the others
+      server.setExecutor(requestExecutor);
 
       // this next line effectively starts the web service and waits for requests. The
       // above "contexts" (created via `server.createContext`) will be used to handle
@@ -106,30 +168,175 @@ public class Chirpy {
     logger.info("Server started on port " + PORT);
   }
 
+  /**
+   * Runs each loader on its own thread and waits for all of them to finish.
+   * 
+   * @param loaders the DAO load methods to run
+   */
+  private static void loadConcurrently(Runnable... loaders) {
+    long startTime = System.currentTimeMillis();
+    Thread[] threads = new Thread[loaders.length];
+    for (int i = 0; i < loaders.length; i++) {
+      threads[i] = new Thread(loaders[i], "dao-load-" + i);
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        logger.warning("interrupted while loading saved state");
+        return;
+      }
+    }
+    logger.info("Loaded saved state in " + (System.currentTimeMillis() - startTime) + " ms");
+  }
+
+  /**
+   * Reads the template mode from the {@code chirpy.templates} system property.
+   * 
+   * @return the template mode
+   */
+  private static TemplateRenderer.Mode templateMode() {
+    TemplateRenderer.Mode mode = TemplateRenderer.Mode.PRODUCTION;
+    String modeName = System.getProperty(TEMPLATES_PROPERTY);
+    if (modeName != null) {
+      try {
+        mode = TemplateRenderer.Mode.parse(modeName);
+      } catch (IllegalArgumentException e) {
+        logger.warning("unknown template mode '" + modeName + "', using " + mode);
+      }
+    }
+    return mode;
+  }
+
+  /**
+   * Creates the request executor described by the {@code chirpy.executor*}
+   * system properties.
+   * 
+   * @return the request executor
+   */
+  private static RequestExecutor createRequestExecutor() {
+    RequestExecutor.Mode mode = RequestExecutor.Mode.POOL;
+    String modeName = System.getProperty(EXECUTOR_PROPERTY);
+    if (modeName != null) {
+      try {
+        mode = RequestExecutor.Mode.parse(modeName);
+      } catch (IllegalArgumentException e) {
+        logger.warning("unknown request executor '" + modeName + "', using " + mode);
+      }
+    }
+    int threads = Integer.getInteger(EXECUTOR_THREADS_PROPERTY, RequestExecutor.DEFAULT_THREADS);
+    int queueCapacity = Integer.getInteger(EXECUTOR_QUEUE_PROPERTY, RequestExecutor.DEFAULT_QUEUE_CAPACITY);
+    return new RequestExecutor(mode, threads, queueCapacity);
+  }
+
+  /**
+   * Creates the search result cache sized by the {@code chirpy.search.cache.mb}
+   * system property.
+   * 
+   * @return the cache, or null if it is turned off
+   */
+  private static SearchResultCache createSearchCache() {
+    long megabytes = Long.getLong(SEARCH_CACHE_PROPERTY, SearchResultCache.DEFAULT_CAPACITY_BYTES / (1024 * 1024));
+    if (megabytes <= 0) {
+      logger.info("search results are not cached");
+      return null;
+    }
+    return new SearchResultCache(megabytes * 1024 * 1024);
+  }
+
+  /**
+   * Creates the session store configured by the {@code chirpy.session.*}
+   * system properties, and starts sweeping expired sessions.
+   * 
+   * @return the session store
+   */
+  private static SessionStore createSessionStore() {
+    SessionStore sessions = new SessionStore(
+        Long.getLong(SESSION_MINUTES_PROPERTY, SessionStore.DEFAULT_IDLE_MINUTES), TimeUnit.MINUTES,
+        Integer.getInteger(SESSION_MAX_PROPERTY, SessionStore.DEFAULT_MAX_SESSIONS));
+    sessions.start();
+    return sessions;
+  }
+
   public static void main(String[] args) throws IOException, NonSerializableClassException {
 
     Chirpy ws = new Chirpy();
 
     // let's start up the various business logic services
-    Serializer<Chirper> chirperSerializer = new Serializer<Chirper>(Chirper.class, "data/users");
+    // (state is appended to segmented logs rather than one file per object, and
+    // encoded with compact binary codecs rather than Java serialization).
+    // Writes are batched by a background writer, and each one waits for its
+    // batch to reach disk, so nothing acknowledged is lost in a crash
+    Serializer<Chirper> chirperSerializer = new Serializer<Chirper>(Chirper.class, "data/users", StorageMode.SEGMENTED_LOG,
+        new ChirperCodec(), Durability.GROUP_COMMIT);
     ChirperDAO chirperDao = new ChirperDAO(chirperSerializer);
-    chirperDao.loadChirpers();
-    UserService userService = new UserService(chirperDao);
 
-    Serializer<Follow> followSerializer = new Serializer<Follow>(Follow.class, "data/follows");
+    Serializer<Follow> followSerializer = new Serializer<Follow>(Follow.class, "data/follows", StorageMode.SEGMENTED_LOG,
+        new FollowCodec(), Durability.GROUP_COMMIT);
     FollowDAO followDao = new FollowDAO(followSerializer);
-    followDao.loadFollows();
-    FollowService followService = new FollowService(followDao);
 
-    Serializer<Chirp> chirpSerializer = new Serializer<Chirp>(Chirp.class, "data/posts");
-    ChirpDAO chirpDAO = new ChirpDAO(chirpSerializer);
-    chirpDAO.loadChirps();
-    ChirpService chirpService = new ChirpService(chirpDAO);
+    Serializer<Chirp> chirpSerializer = new Serializer<Chirp>(Chirp.class, "data/posts", StorageMode.SEGMENTED_LOG,
+        new ChirpCodec(), Durability.GROUP_COMMIT);
+    ChirpDAO chirpDAO = new ChirpDAO(chirpSerializer, Path.of("data/search"));
+
+    // the three DAOs are independent, so load them at the same time
+    loadConcurrently(chirperDao::loadChirpers, followDao::loadFollows, chirpDAO::loadChirps);
+    // reopen the saved search index, indexing only what was posted since
+    chirpDAO.openSearchIndexes();
+
+    // home timelines are updated as chirps are posted and users follow each other,
+    // except for authors with many followers, whose chirps are merged on read;
+    // without them, follow timelines are merged on every read
+    HomeTimelineService homeTimelineService = null;
+    if ("merge".equalsIgnoreCase(System.getProperty(TIMELINE_PROPERTY)))
+      logger.info("follow timelines are merged at read time");
+    else
+      homeTimelineService = new HomeTimelineService(chirpDAO, followDao,
+          Integer.getInteger(FANOUT_THRESHOLD_PROPERTY, HomeTimelineService.DEFAULT_FANOUT_THRESHOLD));
+    FollowService followService = new FollowService(followDao, homeTimelineService);
+    // popular searches are answered from a cache; each new chirp evicts only
+    // the results it belongs in
+    SearchResultCache searchCache = createSearchCache();
+    ChirpService chirpService = new ChirpService(chirpDAO, homeTimelineService, searchCache);
+    // username suggestions are ranked by follower count; logins are tracked
+    // by opaque session tokens, expired by a timer wheel
+    SessionStore sessions = createSessionStore();
+    UserService userService = new UserService(chirperDao, followService, sessions);
+
+    // periodically compact each log into a snapshot so restarts only replay
+    // what was written since the last one
+    Checkpointer checkpointer = new Checkpointer(CHECKPOINT_MINUTES, TimeUnit.MINUTES, chirperSerializer,
+        followSerializer, chirpSerializer);
+    checkpointer.start();
+
+    RequestExecutor requestExecutor = createRequestExecutor();
+
+    // let running requests finish, take a final snapshot, write out queued
+    // changes, then sync and close the logs when the server is stopped
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      requestExecutor.close();
+      chirpDAO.closeSearchIndex();
+      if (searchCache != null)
+        logger.info(searchCache.toString());
+      logger.info(ws.templateRenderer.getFragmentCache().toString());
+      sessions.close();
+      logger.info(sessions.toString());
+      checkpointer.close();
+      for (Serializer<?> serializer : new Serializer<?>[] { chirperSerializer, followSerializer, chirpSerializer }) {
+        try {
+          serializer.close();
+        } catch (IOException e) {
+          logger.warning("failed to close serializer: " + e.getMessage());
+        }
+      }
+    }));
 
-    SearchService searchService = new SearchService(chirpService);
+    SearchService searchService = new SearchService(chirpService, searchCache);
     
     // finally, let's begin the web service so that we can start handling requests
-    ws.startService(userService, followService, chirpService, searchService);
+    ws.startService(userService, followService, chirpService, searchService, requestExecutor);
   }
 
 }
@@ -1,100 +1,483 @@
 package edu.georgetown.dao;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NavigableSet;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 import edu.georgetown.logging.LoggerFactory;
 import edu.georgetown.model.Chirp;
+import edu.georgetown.model.ChirpCursor;
+import edu.georgetown.model.ChirpPage;
+import edu.georgetown.model.TrendingTag;
 import edu.georgetown.persistence.Serializer;
+import edu.georgetown.search.FullTextIndex;
+import edu.georgetown.search.TextQuery;
+import edu.georgetown.search.TrendingTags;
 
 /**
  * Chirp Data Access Object
  * This class is responsible for managing the chirps of users.
  * It provides methods to add, retrieve, and load chirps from persistent
  * storage.
- * It uses a HashMap to store chirps by user and a Serializer for state
- * persistence.
+ * It uses a ConcurrentHashMap to store chirps by user and a Serializer for
+ * state persistence.
+ *
+ * <p>
+ * Only each user's most recent chirps (up to
+ * {@value #RECENT_CHIRPS_PER_USER}) are kept as {@link Chirp} objects. For
+ * older chirps only a {@link ChirpCursor} (time and storage key) is kept, and
+ * the chirp is read back through
+ * the serializer whenever it is needed. With a segmented log these reads are
+ * served from memory-mapped segment files, so the page cache rather than the
+ * heap holds the archive.
+ * </p>
+ *
+ * <p>
+ * Chirps are stored under the key {@code <username>_<epoch millis>}, which lets
+ * {@link #loadChirps()} group and order the archive without reading it.
+ * </p>
+ *
+ * <p>
+ * Every chirp is also indexed in a global, time-ordered skip list of
+ * {@link ChirpCursor}s, so a page of the newest chirps (or of the chirps just
+ * before a cursor) can be read in time proportional to the page size.
+ * </p>
+ *
+ * <p>
+ * The hashtags and words of every chirp are indexed in a {@link SearchIndex},
+ * so a page of the chirps with a tag costs time proportional to the page size,
+ * and a free-text search time proportional to the postings of its terms. The
+ * index is updated as chirps are added. If it is given a directory, it is saved
+ * there as segment files, and {@link #openSearchIndexes()} reopens it after
+ * loading and only indexes the chirps posted since it was last saved;
+ * otherwise it is rebuilt from every chirp.
+ * </p>
+ *
+ * <p>
+ * The hashtags of new chirps are also counted by a {@link TrendingTags}, which
+ * keeps the most used tags of the last hour and day in fixed memory.
+ * </p>
+ *
+ * <p>
+ * The DAO is safe to use from several request threads at once. Chirps by
+ * different users are added in parallel; chirps by the same user are added
+ * while holding that user's cursor list, so the list stays in time order and the
+ * in-memory window of recent chirps is trimmed consistently. Readers work on
+ * copies of the cursor lists and on the weakly consistent timeline, so they never
+ * block writers.
+ * </p>
  */
 public class ChirpDAO {
-    private HashMap<String, Vector<Chirp>> chirpsByUser;
+    /** Cursors of each user's chirps, oldest first */
+    private ConcurrentHashMap<String, Vector<ChirpCursor>> cursorsByUser;
+    /** The newest chirps of each user, by storage key */
+    private ConcurrentHashMap<String, Chirp> recentChirps;
+    /** Every chirp, ordered by time */
+    private ConcurrentSkipListSet<ChirpCursor> timeline;
+    /** Every chirp, by hashtag and by word */
+    private SearchIndex searchIndex;
+    /** Recent hashtag counts */
+    private TrendingTags trendingTags;
     private Logger logger = LoggerFactory.getLogger();
     private Serializer<Chirp> serializer;
+    /** Millis used in the most recent key, so that keys stay unique */
+    private AtomicLong lastKeyMillis;
+
+    /** How many of each user's newest chirps are kept as objects */
+    public static final int RECENT_CHIRPS_PER_USER = 20;
+    private static final char KEY_SEPARATOR = '_';
+    /**
+     * How far before the newest saved chirp to look for chirps that were not
+     * saved, as chirps by different users may be indexed slightly out of order
+     */
+    private static final long SEARCH_RECOVERY_MILLIS = TimeUnit.MINUTES.toMillis(1);
 
     /**
      * ChirpDAO constructor.
-     * Initializes the chirpsByUser HashMap and the serializer.
-     * 
+     * Initializes the chirp maps, the timeline index and the serializer. The
+     * search index is kept in memory only.
+     *
      * @param chirpSerializer Serializer object for Chirp objects
-     * 
+     *
      */
     public ChirpDAO(Serializer<Chirp> chirpSerializer) {
-        chirpsByUser = new HashMap<String, Vector<Chirp>>();
+        this(chirpSerializer, null);
+    }
+
+    /**
+     * ChirpDAO constructor that saves the search index in a directory.
+     *
+     * @param chirpSerializer      Serializer object for Chirp objects
+     * @param searchIndexDirectory Directory of the search index segments, or
+     *                             null to keep the index in memory only
+     */
+    public ChirpDAO(Serializer<Chirp> chirpSerializer, Path searchIndexDirectory) {
+        cursorsByUser = new ConcurrentHashMap<String, Vector<ChirpCursor>>();
+        recentChirps = new ConcurrentHashMap<String, Chirp>();
+        timeline = new ConcurrentSkipListSet<ChirpCursor>();
+        searchIndex = new SearchIndex(searchIndexDirectory, SearchIndex.DEFAULT_FLUSH_DOCUMENTS);
+        trendingTags = new TrendingTags();
+        lastKeyMillis = new AtomicLong();
         this.serializer = chirpSerializer;
         logger.info("ChirpDAO object created successfully.");
     }
 
     /**
      * Loads chirps from the persistent storage using the serializer.
-     * It iterates through the saved chirps and adds them to the chirpsByUser
-     * HashMap.
-     * If no saved chirps exist, it returns early.
+     * Only the stored keys are listed; the owner and time of each chirp are
+     * taken from its key, so no chirp has to be read. The chirps themselves are
+     * read lazily by {@link #getChirpsByUser(String)}.
      */
     public void loadChirps() {
-        Vector<Chirp> savedChirps = serializer.loadDirectory();
-
-        if (savedChirps == null)
+        long startTime = System.currentTimeMillis();
+        Vector<String> keys;
+        try {
+            keys = serializer.listFileNames();
+        } catch (IOException e) {
+            logger.warning("ChirpDAO.loadChirps: Could not list saved chirps: " + e.getMessage());
             return;
+        }
+
+        int indexed = 0;
+        for (String key : keys) {
+            int separator = key.lastIndexOf(KEY_SEPARATOR);
+            String owner = null;
+            Long millis = null;
+            if (separator > 0) {
+                owner = key.substring(0, separator);
+                millis = parseMillis(key.substring(separator + 1));
+            }
+            if (millis == null) {
+                // Not a key this DAO wrote; fall back to reading the chirp
+                Chirp chirp = readChirp(key);
+                if (chirp == null)
+                    continue;
+                owner = chirp.getOwnerUsername();
+                millis = chirp.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            }
+            ChirpCursor cursor = new ChirpCursor(millis, key);
+            lastKeyMillis.accumulateAndGet(millis, Math::max);
+            timeline.add(cursor);
+            cursorsByUser.computeIfAbsent(owner, k -> new Vector<>()).add(cursor);
+            indexed++;
+        }
 
-        for (Chirp chirp : savedChirps) {
-            chirpsByUser.computeIfAbsent(chirp.getOwnerUsername(), k -> new Vector<>()).add(chirp);
+        for (Vector<ChirpCursor> userCursors : cursorsByUser.values()) {
+            userCursors.sort(null);
         }
+        logger.info("ChirpDAO.loadChirps: " + indexed + " chirps from " + cursorsByUser.size()
+                + " users indexed in " + (System.currentTimeMillis() - startTime) + " ms");
     }
 
     /**
-     * Adds a new chirp to the chirpsByUser HashMap.
-     * It creates a new Chirp object and adds it to the vector of chirps for the
-     * given username.
-     * It also attempts to save the chirp state using the serializer.
-     * If the save operation is unsuccessful, it logs a warning.
-     * 
-     * @param username The username of the user who created the chirp
-     * @param content  The content of the chirp
+     * Brings the search index up to date with the loaded chirps, and counts the
+     * trending tags of the last day. A saved index is reopened and only the
+     * chirps posted since it was saved are read; otherwise every chirp is read
+     * and indexed, and the index is saved. Reading chirps is the one step of
+     * loading that can touch the whole archive, so it is kept apart from
+     * {@link #loadChirps()} and run once, after it.
      */
-    public void addChirp(String username, String content) {
-        Chirp newChirp = new Chirp(username, content);
-        chirpsByUser.computeIfAbsent(username, k -> new Vector<>()).add(newChirp);
+    public void openSearchIndexes() {
+        long startTime = System.currentTimeMillis();
+        boolean reopened = false;
         try {
-            serializer.createState(newChirp, username + "_" + System.currentTimeMillis());
+            reopened = searchIndex.open();
         } catch (IOException e) {
-            logger.warning("ChirpDAO.addChirp: Could not save the state of chirp for user " + username);
+            logger.warning("ChirpDAO.openSearchIndexes: Could not open the search index: " + e.getMessage());
+        }
+
+        int indexed = 0;
+        if (reopened) {
+            ChirpCursor newest = searchIndex.getNewestSavedCursor();
+            NavigableSet<ChirpCursor> unsaved = newest == null ? timeline
+                    : timeline.tailSet(new ChirpCursor(newest.getMillis() - SEARCH_RECOVERY_MILLIS, ""), true);
+            for (ChirpCursor cursor : unsaved) {
+                Chirp chirp = searchIndex.contains(cursor) ? null : getChirp(cursor.getKey());
+                if (chirp != null) {
+                    searchIndex.add(chirp.getContent(), cursor);
+                    indexed++;
+                }
+            }
+        } else {
+            // Reads are independent and the index is concurrent, so read in parallel
+            indexed = (int) timeline.parallelStream().filter(cursor -> {
+                Chirp chirp = getChirp(cursor.getKey());
+                if (chirp != null)
+                    searchIndex.add(chirp.getContent(), cursor);
+                return chirp != null;
+            }).count();
+            try {
+                searchIndex.flush();
+            } catch (IOException e) {
+                logger.warning("ChirpDAO.openSearchIndexes: Could not save the search index: " + e.getMessage());
+            }
+        }
+
+        long dayAgo = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1);
+        for (ChirpCursor cursor : timeline.tailSet(new ChirpCursor(dayAgo, ""), true)) {
+            Chirp chirp = getChirp(cursor.getKey());
+            if (chirp != null)
+                trendingTags.record(HashtagIndex.extractTags(chirp.getContent()), cursor.getMillis());
+        }
+        logger.info("ChirpDAO.openSearchIndexes: " + (reopened ? "reopened, " : "rebuilt, ") + indexed
+                + " chirps indexed; " + searchIndex.getDocumentCount() + " chirps in "
+                + searchIndex.getSegmentCount() + " segment(s), ready in "
+                + (System.currentTimeMillis() - startTime) + " ms");
+    }
+
+    /**
+     * Saves the search index's in-memory delta and stops its background flushes,
+     * e.g. at shutdown.
+     */
+    public void closeSearchIndex() {
+        searchIndex.close();
+    }
+
+    /**
+     * Adds a new chirp for the given user.
+     * It creates a new Chirp object, adds it to the user's chirps, to the
+     * timeline index and to the search indexes. If the user now has more than
+     * {@value #RECENT_CHIRPS_PER_USER} chirps in memory, the oldest is dropped
+     * and will be read back from storage when needed.
+     * The chirp is saved using the serializer before it is published, so that a
+     * chirp dropped from memory can always be read back. If the save operation
+     * is unsuccessful, it logs a warning and the chirp is not published at all.
+     *
+     * @param username The username of the user who created the chirp
+     * @param content  The content of the chirp
+     * @return The cursor of the new chirp, or null if it could not be saved
+     */
+    public ChirpCursor addChirp(String username, String content) {
+        Vector<ChirpCursor> userCursors = cursorsByUser.computeIfAbsent(username, k -> new Vector<>());
+        ChirpCursor cursor;
+        // Only chirps by the same user wait for each other here
+        synchronized (userCursors) {
+            Chirp newChirp = new Chirp(username, content);
+            long millis = lastKeyMillis.updateAndGet(last -> Math.max(System.currentTimeMillis(), last + 1));
+            String key = username + KEY_SEPARATOR + millis;
+            try {
+                serializer.createState(newChirp, key);
+            } catch (IOException e) {
+                logger.warning("ChirpDAO.addChirp: Could not save the state of chirp for user " + username
+                        + "; it is not published");
+                return null;
+            }
+            recentChirps.put(key, newChirp);
+            cursor = new ChirpCursor(millis, key);
+            userCursors.add(cursor);
+            if (userCursors.size() > RECENT_CHIRPS_PER_USER)
+                recentChirps.remove(userCursors.get(userCursors.size() - 1 - RECENT_CHIRPS_PER_USER).getKey());
         }
+        timeline.add(cursor);
+        searchIndex.add(content, cursor);
+        trendingTags.record(HashtagIndex.extractTags(content), cursor.getMillis());
+        return cursor;
     }
 
     /**
-     * Retrieves all chirps for a given user from the chirpsByUser HashMap.
+     * Retrieves all chirps for a given user, oldest first.
+     * Chirps that are no longer held in memory are read from storage.
      * If the user has no chirps, it returns an empty vector.
-     * 
+     *
      * @param username The username of the user whose chirps are to be retrieved
      * @return A vector of Chirp objects for the given user
      */
     public Vector<Chirp> getChirpsByUser(String username) {
-        return chirpsByUser.getOrDefault(username, new Vector<>());
+        Vector<ChirpCursor> userCursors = username == null ? null : cursorsByUser.get(username);
+        if (userCursors == null)
+            return new Vector<>();
+
+        // Copied (under the list's lock) so that new chirps can be added meanwhile
+        return getChirps(new Vector<>(userCursors));
+    }
+
+    /**
+     * Retrieves the cursors of a user's newest chirps, newest first. Only the
+     * requested cursors are copied, however many chirps the user has.
+     *
+     * @param username The username of the user
+     * @param limit    The maximum number of cursors to return
+     * @return The cursors, newest first; empty if the user has no chirps
+     */
+    public Vector<ChirpCursor> getLatestCursorsByUser(String username, int limit) {
+        return getCursorsByUserBefore(username, null, limit);
     }
 
     /**
-     * Retrieves all chirps from all users.
-     * It iterates through the chirpsByUser HashMap and adds all chirps to a single
-     * vector.
-     * 
+     * Retrieves the cursors of a user's chirps that come strictly before the
+     * given cursor, newest first. The starting point is found by binary search,
+     * so only the requested cursors are visited.
+     *
+     * @param username The username of the user
+     * @param before   The cursor to start before, or null to start from the
+     *                 user's newest chirp
+     * @param limit    The maximum number of cursors to return
+     * @return The cursors, newest first; empty if there are none
+     */
+    public Vector<ChirpCursor> getCursorsByUserBefore(String username, ChirpCursor before, int limit) {
+        Vector<ChirpCursor> userCursors = username == null ? null : cursorsByUser.get(username);
+        Vector<ChirpCursor> cursors = new Vector<>();
+        if (userCursors == null)
+            return cursors;
+
+        synchronized (userCursors) {
+            int end = userCursors.size();
+            if (before != null) {
+                int index = Collections.binarySearch(userCursors, before);
+                end = index >= 0 ? index : -index - 1;
+            }
+            for (int i = end - 1; i >= 0 && cursors.size() < limit; i--) {
+                cursors.add(userCursors.get(i));
+            }
+        }
+        return cursors;
+    }
+
+    /**
+     * Looks up the chirps for a list of cursors, in the same order. Chirps that
+     * cannot be read are left out.
+     *
+     * @param cursors The cursors of the chirps
+     * @return The chirps
+     */
+    public Vector<Chirp> getChirps(Collection<ChirpCursor> cursors) {
+        Vector<Chirp> chirps = new Vector<>(cursors.size());
+        for (ChirpCursor cursor : cursors) {
+            Chirp chirp = getChirp(cursor.getKey());
+            if (chirp != null)
+                chirps.add(chirp);
+        }
+        return chirps;
+    }
+
+    /**
+     * Retrieves all chirps from all users, oldest first.
+     * It walks the timeline index, so the result is in time order.
+     *
      * @return A vector of all Chirp objects from all users
      */
     public Vector<Chirp> getAllChirps() {
-        Vector<Chirp> allChirps = new Vector<>();
-        for (Vector<Chirp> userChirps : chirpsByUser.values()) {
-            allChirps.addAll(userChirps);
+        return getChirps(timeline);
+    }
+
+    /**
+     * Retrieves a page of chirps from all users, newest first, starting just
+     * before the given cursor. Only the chirps on the page are read.
+     *
+     * @param before The cursor of the last chirp already seen, or null to start
+     *               from the newest chirp
+     * @param limit  The maximum number of chirps to return
+     * @return The page, with the cursor to use for the following page
+     */
+    public ChirpPage getChirpsBefore(ChirpCursor before, int limit) {
+        NavigableSet<ChirpCursor> older = before == null ? timeline.descendingSet()
+                : timeline.headSet(before, false).descendingSet();
+
+        Vector<Chirp> chirps = new Vector<>(limit);
+        ChirpCursor last = null;
+        Iterator<ChirpCursor> cursors = older.iterator();
+        while (chirps.size() < limit && cursors.hasNext()) {
+            last = cursors.next();
+            Chirp chirp = getChirp(last.getKey());
+            if (chirp != null)
+                chirps.add(chirp);
+        }
+        return new ChirpPage(chirps, cursors.hasNext() ? last : null);
+    }
+
+    /**
+     * Retrieves a page of the chirps with a hashtag, newest first, starting just
+     * before the given cursor. Only the chirps on the page are read.
+     *
+     * @param tag    The hashtag, with or without the leading {@code '#'}; case is
+     *               ignored
+     * @param before The cursor of the last chirp already seen, or null to start
+     *               from the newest chirp with the tag
+     * @param limit  The maximum number of chirps to return
+     * @return The page, with the cursor to use for the following page
+     */
+    public ChirpPage getChirpsByTag(String tag, ChirpCursor before, int limit) {
+        // One more than a page tells whether there is a next page
+        Vector<ChirpCursor> cursors = searchIndex.getTagCursorsBefore(tag, before, limit + 1);
+        boolean more = cursors.size() > limit;
+        if (more)
+            cursors.setSize(limit);
+        return new ChirpPage(getChirps(cursors), more ? cursors.lastElement() : null);
+    }
+
+    /**
+     * Finds the best chirps matching a free-text query, through the full-text
+     * index. Only the chirps returned are read.
+     *
+     * @param query The query, parsed with {@link TextQuery#parse(String)}
+     * @param limit The maximum number of chirps to return
+     * @param order Whether the newest or the most relevant chirps come first
+     * @return The best matching chirps, best first
+     */
+    public Vector<Chirp> searchText(String query, int limit, FullTextIndex.Order order) {
+        return getChirps(searchIndex.search(TextQuery.parse(query), limit, order));
+    }
+
+    /**
+     * Finds the most used hashtags of a recent window. The counts are kept as
+     * chirps are added, so no chirp is read.
+     *
+     * @param window The window, e.g. the last hour
+     * @param limit  The maximum number of tags to return
+     * @return The top tags with their estimated counts, most used first
+     */
+    public Vector<TrendingTag> getTrendingTags(TrendingTags.Window window, int limit) {
+        return trendingTags.getTrending(window, limit);
+    }
+
+    /**
+     * Looks up a chirp by storage key, from memory if it is recent and from
+     * storage otherwise.
+     *
+     * @param key The storage key of the chirp
+     * @return The chirp, or null if it cannot be read
+     */
+    private Chirp getChirp(String key) {
+        Chirp chirp = recentChirps.get(key);
+        return chirp != null ? chirp : readChirp(key);
+    }
+
+    /**
+     * Reads a stored chirp, logging and returning null if it cannot be read.
+     *
+     * @param key The storage key of the chirp
+     * @return The chirp, or null
+     */
+    private Chirp readChirp(String key) {
+        try {
+            return serializer.readFile(key);
+        } catch (Exception e) {
+            logger.warning("ChirpDAO.readChirp: Could not read chirp " + key + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Parses the epoch millis at the end of a chirp key.
+     *
+     * @param text The text after the last separator
+     * @return The millis, or null if the text is not a number
+     */
+    private static Long parseMillis(String text) {
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            return null;
         }
-        return allChirps;
     }
-}
\ No newline at end of file
+}
@@ -1,8 +1,10 @@
 package edu.georgetown.dao;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
+import java.util.function.ToIntFunction;
+import java.util.HashMap;
 import java.util.Set;
 import java.util.Vector;
 import java.io.IOException;
@@ -10,28 +12,53 @@ import java.io.IOException;
 import edu.georgetown.logging.LoggerFactory;
 import edu.georgetown.model.Chirper;
 import edu.georgetown.persistence.Serializer;
+import edu.georgetown.persistence.Serializer.LoadStatistics;
 
 /**
  * Chirper Data Access Object
  * This class is responsible for managing the chirpers of users.
  * It provides methods to add, retrieve, and load chirpers from persistent
  * storage.
- * It uses a HashMap to store chirpers by username and a Serializer for state
- * persistence.
+ * It uses a ConcurrentHashMap to store chirpers by username and a Serializer
+ * for state persistence.
+ *
+ * <p>
+ * The DAO is safe to use from several request threads at once. Registration is
+ * an atomic put-if-absent, so two requests for the same username cannot both
+ * succeed. Changes to a chirper are made while holding that chirper's monitor,
+ * so an update and the write that persists it are never interleaved with
+ * another update of the same chirper.
+ * </p>
+ *
+ * <p>
+ * Usernames are also kept in a sorted {@link UsernameIndex}, updated on
+ * registration and built once after loading, for prefix lookups.
+ * </p>
+ *
+ * <p>
+ * Every user and password is also published as an immutable
+ * {@link UserDirectory}, replaced copy-on-write when a user registers or
+ * changes their password, so listing users never copies the map.
+ * </p>
  */
 public class ChirperDAO {
-    private HashMap<String, Chirper> userList;
+    private ConcurrentHashMap<String, Chirper> userList;
     private Logger logger = LoggerFactory.getLogger();
     private Serializer<Chirper> serializer;
+    /** Every username, sorted for prefix lookups */
+    private UsernameIndex usernameIndex;
+    /** Every user and password, replaced whenever one of them changes */
+    private volatile UserDirectory userDirectory = UserDirectory.EMPTY;
 
     /**
      * ChirperDAO constructor
-     * Initializes the userList HashMap and the serializer.
+     * Initializes the userList map and the serializer.
      * 
      * @param chirpSerializer: Serializer object for Chirper objects
      */
     public ChirperDAO(Serializer<Chirper> chirpSerializer) {
-        userList = new HashMap<String, Chirper>();
+        userList = new ConcurrentHashMap<String, Chirper>();
+        usernameIndex = new UsernameIndex();
         this.serializer = chirpSerializer;
         logger.info("ChirperDao object created successfully.");
 
@@ -41,31 +68,36 @@ public class ChirperDAO {
 
     /**
      * This method loads chirpers from the persistent storage using the serializer.
-     * It iterates through the saved chirpers and adds them to the userList HashMap.
-     * If no saved chirpers exist, it returns early.
+     * Saved chirpers are streamed from a parallel load straight into the userList
+     * map. They are not passed through addChirper, so stored passwords are not
+     * hashed a second time and nothing is persisted again. The username index is
+     * then built in one pass.
      */
     public void loadChirpers() {
-        Vector<Chirper> savedChirpers = serializer.loadDirectory();
-
-        // Exit early if no saved files exist
-        if (savedChirpers == null)
-            return;
-
-        for (Chirper chirper : savedChirpers) {
-            // This will need to change if we add password hashing
-            addChirper(chirper.getUsername(), chirper.getPassword(), chirper.getPublicStatus());
+        LoadStatistics statistics = serializer.loadDirectory(
+                chirper -> userList.put(chirper.getUsername(), chirper),
+                Serializer.DEFAULT_LOAD_PARALLELISM);
+        usernameIndex.addAll(userList.keySet());
+        HashMap<String, String> passwords = new HashMap<String, String>();
+        for (Chirper chirper : userList.values()) {
+            passwords.put(chirper.getUsername(), chirper.getPassword());
+        }
+        synchronized (this) {
+            userDirectory = userDirectory.withAll(passwords);
         }
+        logger.info("ChirperDAO.loadChirpers: " + statistics);
     }
 
     /**
-     * Retrieves a Chirper object from the userList HashMap.
+     * Checks whether a chirper is in the userList map.
      * 
-     * @param username The username of the chirper to retrieve
+     * @param username The username of the chirper to check
      * 
-     * @return Chirper object if found, null otherwise
+     * @return true if the chirper exists, false otherwise (including for a null
+     *         username)
      */
     public boolean chirperExists(String username) {
-        return userList.containsKey(username);
+        return getChirper(username) != null;
     }
 
     /**
@@ -81,9 +113,11 @@ public class ChirperDAO {
     public boolean passwordMatches(String username, String plaintext_password) {
         String password = hashPassword(plaintext_password);
 
-        Chirper user = userList.get(username);
+        Chirper user = getChirper(username);
         if (user != null) {
-            return (user.getPassword().equals(password));
+            synchronized (user) {
+                return (user.getPassword().equals(password));
+            }
         } else
             return false;
     }
@@ -103,15 +137,18 @@ public class ChirperDAO {
         // more design needed
         String password = hashPassword(plaintext_password);
 
-        Chirper user = userList.get(username);
+        Chirper user = getChirper(username);
         if (user != null) {
-            user.setPassword(password);
-            try {
-                serializer.createState(user, username);
-            } catch (IOException e) {
-                logger.warning("ChirperDao.setChirperPassword: Could not save the state of chirper " + username
-                        + "upon update.");
-                // Suggestion: add to list of unsaved Chirpers for future reattempts?
+            synchronized (user) {
+                user.setPassword(password);
+                updateDirectory(username, password);
+                try {
+                    serializer.updateState(user, username);
+                } catch (IOException e) {
+                    logger.warning("ChirperDao.setChirperPassword: Could not save the state of chirper " + username
+                            + "upon update.");
+                    // Suggestion: add to list of unsaved Chirpers for future reattempts?
+                }
             }
             return true;
         } else
@@ -129,8 +166,11 @@ public class ChirperDAO {
      * @return The stored password if the chirper exists, null otherwise
      */
     public String getChirperPassword(String username) {
-        if (chirperExists(username)) {
-            return userList.get(username).getPassword();
+        Chirper user = getChirper(username);
+        if (user != null) {
+            synchronized (user) {
+                return user.getPassword();
+            }
         } else
             return null;
     }
@@ -145,8 +185,11 @@ public class ChirperDAO {
      * @return The public status of the chirper if it exists, false otherwise
      */
     public boolean getChirperPublicStatus(String username) {
-        if (chirperExists(username)) {
-            return userList.get(username).getPublicStatus();
+        Chirper user = getChirper(username);
+        if (user != null) {
+            synchronized (user) {
+                return user.getPublicStatus();
+            }
         } else {
             logger.warning("ChirperDao.getChirperPublicStatus: Tried to access public status of user " + username
                     + " which doesn't exist.");
@@ -167,8 +210,11 @@ public class ChirperDAO {
      * @return true if the public status was set successfully, false otherwise
      */
     public boolean setChirperPublicStatus(String username, boolean status) {
-        if (chirperExists(username)) {
-            userList.get(username).setPublicStatus(status);
+        Chirper user = getChirper(username);
+        if (user != null) {
+            synchronized (user) {
+                user.setPublicStatus(status);
+            }
             return true;
         } else {
             logger.warning("ChirperDao.getChirperPublicStatus: Tried to set public status of user " + username
@@ -178,9 +224,10 @@ public class ChirperDAO {
     }
 
     /**
-     * Adds a new chirper to the userList HashMap.
+     * Adds a new chirper to the userList map.
      * It creates a new Chirper object and attempts to save the state using the
-     * serializer.
+     * serializer. The username is claimed with an atomic put-if-absent, so when
+     * several threads register the same username only one of them succeeds.
      * If the save operation is unsuccessful, it logs a warning.
      * 
      * @param username           The username of the chirper to add
@@ -195,9 +242,16 @@ public class ChirperDAO {
     public boolean addChirper(String username, String plaintext_password, boolean publicChirps) {
 
         String password = hashPassword(plaintext_password);
-        if (!chirperExists(username)) {
-            Chirper newChirper = new Chirper(username, password, publicChirps);
-            userList.put(username, newChirper);
+        Chirper newChirper = new Chirper(username, password, publicChirps);
+        // Held from before the chirper is visible, so that no update of it can be
+        // persisted before its creation
+        synchronized (newChirper) {
+            if (userList.putIfAbsent(username, newChirper) != null) {
+                logger.info("ChirperDao.addChirper: Chirper " + username + "already exists.");
+                return false;
+            }
+            usernameIndex.add(username);
+            updateDirectory(username, password);
             logger.info("ChirperDao.addChirper: user " + username + "successfully created.");
             try {
                 serializer.createState(newChirper, username);
@@ -208,11 +262,7 @@ public class ChirperDAO {
                 return false;
                 // Suggestion: add to list of unsaved Chirpers for future reattempts?
             }
-        } else {
-            logger.info("ChirperDao.addChirper: Chirper " + username + "already exists.");
-            return false;
         }
-
     }
 
     /**
@@ -229,7 +279,7 @@ public class ChirperDAO {
     }
 
     /**
-     * Deletes a chirper from the userList HashMap.
+     * Deletes a chirper from the userList map.
      * It attempts to remove the chirper and save the state using the serializer.
      * If the save operation is unsuccessful, it logs a warning.
      * 
@@ -245,7 +295,33 @@ public class ChirperDAO {
     }
 
     /**
-     * Retrieves the set of usernames from the userList HashMap.
+     * Finds the usernames that start with a prefix, ignoring case, through the
+     * username index.
+     * 
+     * @param prefix The prefix; a leading '@' is ignored
+     * @param limit  The maximum number of usernames to return
+     * @param score  Scores the matches, highest first; null for alphabetical
+     *               order
+     * @return The best matching usernames, best first
+     */
+    public Vector<String> findUsernamesByPrefix(String prefix, int limit, ToIntFunction<String> score) {
+        return usernameIndex.findByPrefix(prefix, limit, score);
+    }
+
+    /**
+     * Retrieves the current snapshot of all users and passwords. It is shared,
+     * not copied, and never changes; a new one replaces it after each change.
+     * 
+     * @return The user directory
+     */
+    public UserDirectory getUserDirectory() {
+        return userDirectory;
+    }
+
+    /**
+     * Retrieves the set of usernames from the userList map.
+     * The set is a live view: iterating it while users register is safe, and
+     * may or may not include users added during the iteration.
      * 
      * @return A set of usernames
      */
@@ -253,6 +329,29 @@ public class ChirperDAO {
         return userList.keySet();
     }
 
+    /**
+     * Publishes a new user directory with a user added or their password
+     * replaced. Changes are applied one at a time, so none is lost.
+     * 
+     * @param username The username of the chirper
+     * 
+     * @param password The chirper's stored password
+     */
+    private synchronized void updateDirectory(String username, String password) {
+        userDirectory = userDirectory.with(username, password);
+    }
+
+    /**
+     * Looks up a chirper, treating a null username as unknown.
+     * 
+     * @param username The username of the chirper
+     * 
+     * @return The chirper, or null if there is none
+     */
+    private Chirper getChirper(String username) {
+        return username == null ? null : userList.get(username);
+    }
+
     /** Inner exception classes */
     public static class SaveUnsuccessfulException extends IOException {
         public SaveUnsuccessfulException(String message) {
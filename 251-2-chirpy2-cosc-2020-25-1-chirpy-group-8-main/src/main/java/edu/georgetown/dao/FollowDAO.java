@@ -1,24 +1,38 @@
 package edu.georgetown.dao;
 
+import java.util.Set;
 import java.util.Vector;
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 import edu.georgetown.logging.LoggerFactory;
 import edu.georgetown.model.Follow;
 import edu.georgetown.persistence.Serializer;
+import edu.georgetown.persistence.Serializer.LoadStatistics;
 
 /**
  * Responsible for managing the follow relationships between users.
  * It provides methods to add, retrieve, and delete follow relationships.
- * It uses a double adjacency list (two HashMaps) to store the relationships.
+ * It uses a double adjacency list (two ConcurrentHashMaps) to store the
+ * relationships.
  * It also uses a Serializer for state persistence.
+ *
+ * <p>
+ * The DAO is safe to use from several request threads at once. Each user's
+ * adjacency list is a concurrent set, so updates never lock more than the set
+ * they touch, and readers copy them without locking. The set of accounts a user
+ * follows is the source of truth: creating or deleting a relationship locks the
+ * follower's set while both lists are updated and the change is persisted, so
+ * when several threads create or delete the same relationship exactly one of
+ * them succeeds, and storage ends up in the same state as memory. If the
+ * change cannot be persisted, it is undone in memory under the same lock.
+ * </p>
  */
 public class FollowDAO {
     // Double adjacency list
-    private HashMap<String, Vector<String>> accountsFollowingUser = new HashMap<String, Vector<String>>();
-    private HashMap<String, Vector<String>> accountsUserFollows = new HashMap<String, Vector<String>>();
+    private ConcurrentHashMap<String, Set<String>> accountsFollowingUser = new ConcurrentHashMap<String, Set<String>>();
+    private ConcurrentHashMap<String, Set<String>> accountsUserFollows = new ConcurrentHashMap<String, Set<String>>();
 
     private Logger logger = LoggerFactory.getLogger();
     private Serializer<Follow> serializer;
@@ -39,21 +53,20 @@ public class FollowDAO {
     /**
      * This method loads follow relationships from the persistent storage using the
      * serializer.
-     * It iterates through the saved follow relationships and adds them to the
-     * userFollowers and userFollowees HashMaps.
-     * If no saved follow relationships exist, it returns early.
+     * Saved follow relationships are streamed from a parallel load straight into
+     * the userFollowers and userFollowees HashMaps, without being persisted again.
+     * 
+     * @return true if at least one follow relationship was loaded, false otherwise
      */
     public boolean loadFollows() {
-        // Load Follow objects from file
-        Vector<Follow> savedFollows = serializer.loadDirectory();
-        // Exit early if no saved files exist
-        if (savedFollows == null || savedFollows.isEmpty())
-            return false;
-        // Add relationship´to adjacency lists
-        for (Follow follow : savedFollows)
-            createRelationship(follow.getFollower(), follow.getFollowee());
+        // Stream Follow objects from storage into the adjacency lists
+        LoadStatistics statistics = serializer.loadDirectory(
+                follow -> addToAdjacencyLists(follow.getFollower(), follow.getFollowee()),
+                Serializer.DEFAULT_LOAD_PARALLELISM);
+        logger.info("FollowDAO.loadFollows: " + statistics);
 
-        return true;
+        // Report whether any saved relationships existed
+        return statistics != null && statistics.getLoaded() > 0;
     }
 
     /**
@@ -67,8 +80,7 @@ public class FollowDAO {
      *           prevent external modification of internal data.
      */
     public Vector<String> getAccountsFollowingUser(String username) {
-        Vector<String> followers = accountsFollowingUser.getOrDefault(username, new Vector<>());
-        return new Vector<>(followers); // Return a copy of the followers list
+        return copyOf(accountsFollowingUser, username); // Return a copy of the followers list
     }
 
     /**
@@ -84,8 +96,56 @@ public class FollowDAO {
      */
     public Vector<String> getAccountsUserFollows(String username) {
         logger.info("Retrieving followees of " + username);
-        Vector<String> followees = accountsUserFollows.getOrDefault(username, new Vector<>());
-        return new Vector<>(followees);
+        return copyOf(accountsUserFollows, username);
+    }
+
+    /**
+     * Counts the followers of a user without copying them.
+     * 
+     * @param username the username of the Chirper being followed
+     * @return the number of followers; 0 if the user has none
+     */
+    public int getFollowerCount(String username) {
+        Set<String> followers = username == null ? null : accountsFollowingUser.get(username);
+        return followers == null ? 0 : followers.size();
+    }
+
+    /**
+     * Counts the accounts a user follows without copying them.
+     * 
+     * @param username the username of the Chirper who follows others
+     * @return the number of accounts followed; 0 if the user follows none
+     */
+    public int getFollowingCount(String username) {
+        Set<String> followees = username == null ? null : accountsUserFollows.get(username);
+        return followees == null ? 0 : followees.size();
+    }
+
+    /**
+     * Checks whether one user follows another, without copying any list.
+     * 
+     * @param followerUsername username of the possible follower
+     * @param followeeUsername username of the possibly followed user
+     * @return true if the relationship exists
+     */
+    public boolean relationshipExists(String followerUsername, String followeeUsername) {
+        Set<String> followees = followerUsername == null ? null : accountsUserFollows.get(followerUsername);
+        return followees != null && followeeUsername != null && followees.contains(followeeUsername);
+    }
+
+    /**
+     * Retrieves the users who have at least the given number of followers.
+     * 
+     * @param minimum the smallest follower count to include
+     * @return a new Vector with the usernames of those users
+     */
+    public Vector<String> getAccountsWithFollowers(int minimum) {
+        Vector<String> accounts = new Vector<String>();
+        accountsFollowingUser.forEach((username, followers) -> {
+            if (followers.size() >= minimum)
+                accounts.add(username);
+        });
+        return accounts;
     }
 
     /**
@@ -107,25 +167,35 @@ public class FollowDAO {
      * 
      * @param followerUsername username of the prospective follower
      * @param followeeUsername username of the prospective followee
+     * @return true if the relationship was added and saved, false if it already
+     *         existed or could not be saved
      */
     public boolean createRelationship(String followerUsername, String followeeUsername) {
 
         logger.info("Attempting to create relationship: " + followerUsername + " follows " + followeeUsername);
 
-        // Update double-adjacency lists
-        accountsUserFollows.computeIfAbsent(followerUsername, username -> new Vector<String>()).add(followeeUsername);
-        accountsFollowingUser.computeIfAbsent(followeeUsername, username -> new Vector<String>()).add(followerUsername);
+        Set<String> followees = followeesOf(followerUsername);
+        synchronized (followees) {
+            // Update double-adjacency lists
+            if (!addToAdjacencyLists(followerUsername, followeeUsername)) {
+                logger.info("FollowDAO.createRelationship: " + followerUsername + " already follows "
+                        + followeeUsername);
+                return false;
+            }
 
-        // Attempt to serialize follow relationship
-        try {
-            Follow follow = new Follow(followerUsername, followeeUsername);
-            String fileName = generateFilename(followerUsername, followeeUsername);
-            serializer.createState(follow, fileName);
+            // Attempt to serialize follow relationship
+            try {
+                Follow follow = new Follow(followerUsername, followeeUsername);
+                String fileName = generateFilename(followerUsername, followeeUsername);
+                serializer.createState(follow, fileName);
 
-            return true;
-        } catch (IOException e) {
-            logger.info(e.getMessage());
-            return false;
+                return true;
+            } catch (IOException e) {
+                logger.info(e.getMessage());
+                // Roll back, so that memory matches storage
+                removeFromAdjacencyLists(followerUsername, followeeUsername);
+                return false;
+            }
         }
     }
 
@@ -135,23 +205,91 @@ public class FollowDAO {
      * 
      * @param followerUsername username of the proposed follower
      * @param followeeUsername username of the proposed followee
+     * @return true if the relationship was removed and the removal saved, false
+     *         if it did not exist or could not be removed from storage
      */
     public boolean deleteRelationship(String followerUsername, String followeeUsername) {
 
-        // Update double-adjacency lists
-        accountsUserFollows.get(followerUsername).remove(followeeUsername);
-        accountsFollowingUser.get(followeeUsername).remove(followerUsername);
+        Set<String> followees = followeesOf(followerUsername);
+        synchronized (followees) {
+            // Update double-adjacency lists
+            if (!removeFromAdjacencyLists(followerUsername, followeeUsername)) {
+                logger.info("FollowDAO.deleteRelationship: " + followerUsername + " does not follow "
+                        + followeeUsername);
+                return false;
+            }
 
-        // Attempt to delete file
-        try {
-            String fileName = generateFilename(followerUsername, followeeUsername);
-            serializer.deleteState(fileName);
+            // Attempt to delete file
+            try {
+                String fileName = generateFilename(followerUsername, followeeUsername);
+                serializer.deleteState(fileName);
 
-            return true;
-        } catch (IOException e) {
-            logger.info(e.getMessage());
-            return false;
+                return true;
+            } catch (IOException e) {
+                logger.info(e.getMessage());
+                // Roll back, so that memory matches storage
+                addToAdjacencyLists(followerUsername, followeeUsername);
+                return false;
+            }
         }
     }
 
+    /**
+     * Records a follow relationship in both adjacency lists, without persisting
+     * it.
+     * 
+     * @param followerUsername username of the follower
+     * @param followeeUsername username of the followee
+     * @return true if the relationship was added, false if it already existed
+     */
+    private boolean addToAdjacencyLists(String followerUsername, String followeeUsername) {
+        // The follower's set decides which thread adds the relationship
+        if (!followeesOf(followerUsername).add(followeeUsername))
+            return false;
+        accountsFollowingUser.computeIfAbsent(followeeUsername, username -> ConcurrentHashMap.newKeySet())
+                .add(followerUsername);
+        return true;
+    }
+
+    /**
+     * Removes a follow relationship from both adjacency lists, without
+     * persisting the removal.
+     * 
+     * @param followerUsername username of the follower
+     * @param followeeUsername username of the followee
+     * @return true if the relationship was removed, false if it did not exist
+     */
+    private boolean removeFromAdjacencyLists(String followerUsername, String followeeUsername) {
+        if (!followeesOf(followerUsername).remove(followeeUsername))
+            return false;
+        Set<String> followers = accountsFollowingUser.get(followeeUsername);
+        if (followers != null)
+            followers.remove(followerUsername);
+        return true;
+    }
+
+    /**
+     * Returns the set of accounts a user follows, creating it if needed. Creates
+     * and deletes for the same follower lock this set, so that the adjacency
+     * lists and the persisted state change in the same order.
+     * 
+     * @param followerUsername username of the follower
+     * @return the follower's live set of followees
+     */
+    private Set<String> followeesOf(String followerUsername) {
+        return accountsUserFollows.computeIfAbsent(followerUsername, username -> ConcurrentHashMap.newKeySet());
+    }
+
+    /**
+     * Copies one user's adjacency list.
+     * 
+     * @param adjacency the adjacency list to read
+     * @param username  the user whose list is copied
+     * @return a new Vector with the usernames, empty if there are none
+     */
+    private static Vector<String> copyOf(ConcurrentHashMap<String, Set<String>> adjacency, String username) {
+        Set<String> usernames = username == null ? null : adjacency.get(username);
+        return usernames == null ? new Vector<String>() : new Vector<String>(usernames);
+    }
+
 }
\ No newline at end of file
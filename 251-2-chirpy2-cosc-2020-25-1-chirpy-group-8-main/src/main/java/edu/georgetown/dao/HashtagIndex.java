@@ -0,0 +1,162 @@
+package edu.georgetown.dao;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import edu.georgetown.model.ChirpCursor;
+
+/**
+ * An inverted index from hashtags to the chirps that use them.
+ *
+ * <p>
+ * A hashtag is a {@code '#'} followed by one or more letters, digits or
+ * underscores, and not preceded by one of those (so {@code a#b} is not a tag).
+ * Tags are normalized to lower case without the {@code '#'}, so {@code #Java}
+ * and {@code #java} are the same tag, while {@code #foo} never matches
+ * {@code #foobar}.
+ * </p>
+ *
+ * <p>
+ * Each tag maps to a time-ordered set of {@link ChirpCursor}s, so a page of the
+ * newest chirps with a tag (or of the ones just before a cursor) is found in
+ * time proportional to the page size, whatever the number of chirps. The index
+ * is safe to update and read from several threads at once.
+ * </p>
+ *
+ * <p>
+ * Usage example:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * HashtagIndex index = new HashtagIndex();
+ * index.add("Learning #Java today", cursor);
+ * Vector<ChirpCursor> page = index.getCursorsBefore("#java", null, 50);
+ * }
+ * </pre>
+ */
+public class HashtagIndex {
+
+    /** Cursors of the chirps using each normalized tag, oldest first */
+    private final ConcurrentHashMap<String, ConcurrentSkipListSet<ChirpCursor>> postings = new ConcurrentHashMap<String, ConcurrentSkipListSet<ChirpCursor>>();
+
+    /**
+     * Indexes a chirp under each distinct tag in its content.
+     *
+     * @param content The content of the chirp
+     * @param cursor  The cursor of the chirp
+     */
+    public void add(String content, ChirpCursor cursor) {
+        for (String tag : extractTags(content)) {
+            postings.computeIfAbsent(tag, k -> new ConcurrentSkipListSet<ChirpCursor>()).add(cursor);
+        }
+    }
+
+    /**
+     * Retrieves the cursors of the chirps with a tag that come strictly before
+     * the given cursor, newest first.
+     *
+     * @param tag    The tag, with or without the leading {@code '#'}, in any case
+     * @param before The cursor to start before, or null to start from the newest
+     *               chirp with the tag
+     * @param limit  The maximum number of cursors to return
+     * @return The cursors, newest first; empty if the tag is unknown or invalid
+     */
+    public Vector<ChirpCursor> getCursorsBefore(String tag, ChirpCursor before, int limit) {
+        Vector<ChirpCursor> cursors = new Vector<ChirpCursor>();
+        String normalized = normalize(tag);
+        ConcurrentSkipListSet<ChirpCursor> tagged = normalized == null ? null : postings.get(normalized);
+        if (tagged == null)
+            return cursors;
+
+        NavigableSet<ChirpCursor> older = before == null ? tagged.descendingSet()
+                : tagged.headSet(before, false).descendingSet();
+        Iterator<ChirpCursor> iterator = older.iterator();
+        while (cursors.size() < limit && iterator.hasNext()) {
+            cursors.add(iterator.next());
+        }
+        return cursors;
+    }
+
+    /**
+     * @return a read-only view of the cursors of the chirps with each
+     *         normalized tag, e.g. to write them to an
+     *         {@link edu.georgetown.search.IndexSegment}
+     */
+    public Map<String, ? extends Collection<ChirpCursor>> asMap() {
+        return Collections.unmodifiableMap(postings);
+    }
+
+    /**
+     * @return the number of distinct tags in the index
+     */
+    public int size() {
+        return postings.size();
+    }
+
+    /**
+     * Extracts the distinct normalized tags from the content of a chirp, in the
+     * order they first appear.
+     *
+     * @param content The content of the chirp
+     * @return The normalized tags, without the {@code '#'}
+     */
+    public static Set<String> extractTags(String content) {
+        Set<String> tags = new LinkedHashSet<String>();
+        if (content == null)
+            return tags;
+
+        int length = content.length();
+        int i = 0;
+        while (i < length) {
+            int start = i + 1;
+            if (content.charAt(i) == '#' && (i == 0 || !isTagChar(content.charAt(i - 1)))) {
+                int end = start;
+                while (end < length && isTagChar(content.charAt(end))) {
+                    end++;
+                }
+                if (end > start)
+                    tags.add(content.substring(start, end).toLowerCase(Locale.ROOT));
+                i = Math.max(end, start);
+            } else {
+                i++;
+            }
+        }
+        return tags;
+    }
+
+    /**
+     * Normalizes a tag as typed in a query: the leading {@code '#'} is optional
+     * and case is ignored.
+     *
+     * @param tag The tag
+     * @return The normalized tag, or null if it is not a valid tag
+     */
+    public static String normalize(String tag) {
+        if (tag == null)
+            return null;
+        String text = tag.trim();
+        if (text.startsWith("#"))
+            text = text.substring(1);
+        if (text.isEmpty())
+            return null;
+        for (int i = 0; i < text.length(); i++) {
+            if (!isTagChar(text.charAt(i)))
+                return null;
+        }
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isTagChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+}
@@ -0,0 +1,464 @@
+package edu.georgetown.dao;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+
+import edu.georgetown.logging.LoggerFactory;
+import edu.georgetown.model.ChirpCursor;
+import edu.georgetown.search.FullTextIndex;
+import edu.georgetown.search.IndexSegment;
+import edu.georgetown.search.Segment;
+import edu.georgetown.search.TextQuery;
+
+/**
+ * The hashtag and full-text indexes of all chirps, kept as immutable segment
+ * files plus an in-memory delta, so that a restart reopens the index instead of
+ * reading every chirp again.
+ *
+ * <p>
+ * New chirps go into the delta, a {@link FullTextIndex} and a
+ * {@link HashtagIndex}. Once the delta holds {@code flushDocuments} chirps, a
+ * background thread freezes it, starts a new delta, and writes the frozen one
+ * as an {@link IndexSegment} file; the frozen delta is searched until the file
+ * is ready. When there are more than {@value #MAX_SEGMENTS} segments, the small
+ * ones are merged into one, so searches visit few segments and the largest
+ * segment is only rewritten once the others have grown as large.
+ * </p>
+ *
+ * <p>
+ * A small text manifest lists the segment files in use. It is replaced
+ * atomically after each flush or merge, so after a crash the index reopens at
+ * its last manifest, and files it does not list (from a merge in progress) are
+ * deleted. Searches read the segments, the frozen delta and the delta together
+ * and never wait for a flush.
+ * </p>
+ *
+ * <p>
+ * An index without a directory is kept in memory only and never flushed.
+ * </p>
+ *
+ * <p>
+ * Usage example:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * SearchIndex index = new SearchIndex(Path.of("data/search"), SearchIndex.DEFAULT_FLUSH_DOCUMENTS);
+ * if (!index.open()) {
+ *     // first start: index every chirp, then save
+ *     index.flush();
+ * }
+ * index.add("Learning #Java", cursor);
+ * index.getTagCursorsBefore("java", null, 50);
+ * index.close(); // saves the delta
+ * }
+ * </pre>
+ */
+public class SearchIndex implements Closeable {
+
+    /** Chirps held in memory before the delta is written to a segment */
+    public static final int DEFAULT_FLUSH_DOCUMENTS = 10000;
+    /** Segments kept before the small ones are merged */
+    public static final int MAX_SEGMENTS = 8;
+
+    private static final String MANIFEST = "MANIFEST";
+    private static final String MANIFEST_HEADER = "chirpy-search-index 1";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_EXTENSION = ".idx";
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    private final Logger logger = LoggerFactory.getLogger();
+    private final Path directory;
+    private final int flushDocuments;
+    /** Adds share it; freezing the delta takes it exclusively */
+    private final ReentrantReadWriteLock deltaLock = new ReentrantReadWriteLock();
+    private final ExecutorService flusher;
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private volatile State state = new State(new Vector<IndexSegment>(), null, new Delta());
+    /** Set once the index has been opened or saved, so deltas may be flushed */
+    private volatile boolean persistent;
+    private long nextSegmentId = 1;
+
+    /**
+     * Creates an index kept in memory only.
+     */
+    public SearchIndex() {
+        this(null, DEFAULT_FLUSH_DOCUMENTS);
+    }
+
+    /**
+     * Creates an index stored in a directory. Nothing is read until
+     * {@link #open()}.
+     *
+     * @param directory      The directory of the segment files and manifest, or
+     *                       null to keep the index in memory only
+     * @param flushDocuments Chirps held in the delta before it is written
+     */
+    public SearchIndex(Path directory, int flushDocuments) {
+        this.directory = directory;
+        this.flushDocuments = flushDocuments;
+        this.flusher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "search-index-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens the segments listed in the manifest, if there is one.
+     *
+     * @return true if a saved index was opened; false if there is none (or it
+     *         cannot be read), so every chirp must be added and the index saved
+     *         with {@link #flush()}
+     * @throws IOException If the directory cannot be read.
+     */
+    public synchronized boolean open() throws IOException {
+        if (directory == null)
+            return false;
+        Files.createDirectories(directory);
+        Path manifest = directory.resolve(MANIFEST);
+
+        HashSet<String> listed = new HashSet<String>();
+        Vector<IndexSegment> segments = new Vector<IndexSegment>();
+        boolean opened = false;
+        if (Files.exists(manifest)) {
+            List<String> lines = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+            if (lines.isEmpty() || !lines.get(0).equals(MANIFEST_HEADER)) {
+                logger.warning("SearchIndex.open: unknown manifest format in " + manifest);
+            } else {
+                try {
+                    for (String name : lines.subList(1, lines.size())) {
+                        if (name.isBlank())
+                            continue;
+                        segments.add(IndexSegment.open(directory.resolve(name)));
+                        listed.add(name);
+                    }
+                    opened = true;
+                } catch (IOException e) {
+                    logger.warning("SearchIndex.open: cannot open segment, rebuilding: " + e.getMessage());
+                    listed.clear();
+                    segments.clear();
+                }
+            }
+        }
+
+        // Number new segments after every file present, and drop the ones not in
+        // use (left by a merge or flush that did not finish)
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX)) {
+                    String id = name.substring(SEGMENT_PREFIX.length()).replace(TEMP_EXTENSION, "")
+                            .replace(SEGMENT_EXTENSION, "");
+                    try {
+                        nextSegmentId = Math.max(nextSegmentId, Long.parseLong(id) + 1);
+                    } catch (NumberFormatException e) {
+                        continue;
+                    }
+                    if (opened && !listed.contains(name))
+                        Files.deleteIfExists(file);
+                }
+            }
+        }
+        if (!opened)
+            return false;
+
+        state = new State(segments, state.frozen, state.active);
+        persistent = true;
+        logger.info("SearchIndex.open: " + segments.size() + " segment(s) with " + getDocumentCount()
+                + " chirps opened from " + directory);
+        return true;
+    }
+
+    /**
+     * Indexes a chirp's hashtags and words in the delta. If the delta is full,
+     * it is written to a segment in the background.
+     *
+     * @param content The content of the chirp
+     * @param cursor  The cursor of the chirp
+     */
+    public void add(String content, ChirpCursor cursor) {
+        int size;
+        deltaLock.readLock().lock();
+        try {
+            Delta active = state.active;
+            active.text.add(content, cursor);
+            active.tags.add(content, cursor);
+            size = active.text.getDocumentCount();
+        } finally {
+            deltaLock.readLock().unlock();
+        }
+        if (persistent && size >= flushDocuments && flushQueued.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushQueued.set(false);
+                try {
+                    flush();
+                } catch (IOException e) {
+                    logger.warning("SearchIndex.add: could not save the delta: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Retrieves the cursors of the chirps with a tag that come strictly before
+     * the given cursor, newest first, from every segment and the delta.
+     *
+     * @param tag    The tag, with or without the leading {@code '#'}, in any case
+     * @param before The cursor to start before, or null to start from the newest
+     *               chirp with the tag
+     * @param limit  The maximum number of cursors to return
+     * @return The cursors, newest first; empty if the tag is unknown or invalid
+     */
+    public Vector<ChirpCursor> getTagCursorsBefore(String tag, ChirpCursor before, int limit) {
+        Vector<ChirpCursor> page = new Vector<ChirpCursor>();
+        String normalized = HashtagIndex.normalize(tag);
+        if (normalized == null)
+            return page;
+
+        // Each part gives its own newest; the page is the newest of those
+        State current = state;
+        TreeSet<ChirpCursor> newest = new TreeSet<ChirpCursor>(Collections.reverseOrder());
+        for (IndexSegment segment : current.segments) {
+            newest.addAll(segment.getTagCursorsBefore(normalized, before, limit));
+        }
+        if (current.frozen != null)
+            newest.addAll(current.frozen.tags.getCursorsBefore(normalized, before, limit));
+        newest.addAll(current.active.tags.getCursorsBefore(normalized, before, limit));
+
+        for (ChirpCursor cursor : newest) {
+            if (page.size() == limit)
+                break;
+            page.add(cursor);
+        }
+        return page;
+    }
+
+    /**
+     * Finds the best chirps matching a free-text query in every segment and the
+     * delta.
+     *
+     * @param query The query
+     * @param limit The maximum number of chirps to return
+     * @param order How to rank the matches
+     * @return The cursors of the best matches, best first
+     */
+    public Vector<ChirpCursor> search(TextQuery query, int limit, FullTextIndex.Order order) {
+        State current = state;
+        Vector<Segment> parts = new Vector<Segment>(current.segments);
+        if (current.frozen != null)
+            parts.add(current.frozen.text);
+        parts.add(current.active.text);
+        return FullTextIndex.search(parts, query, limit, order);
+    }
+
+    /**
+     * @param cursor A chirp's cursor
+     * @return true if the chirp is in a saved segment
+     */
+    public boolean contains(ChirpCursor cursor) {
+        for (IndexSegment segment : state.segments) {
+            if (segment.contains(cursor))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the cursor of the newest chirp in a saved segment, or null if none
+     *         has been saved
+     */
+    public ChirpCursor getNewestSavedCursor() {
+        ChirpCursor newest = null;
+        for (IndexSegment segment : state.segments) {
+            ChirpCursor cursor = segment.getNewestCursor();
+            if (cursor != null && (newest == null || cursor.compareTo(newest) > 0))
+                newest = cursor;
+        }
+        return newest;
+    }
+
+    /**
+     * @return the number of chirps with words in the index
+     */
+    public int getDocumentCount() {
+        State current = state;
+        int count = current.active.text.getDocumentCount();
+        if (current.frozen != null)
+            count += current.frozen.text.getDocumentCount();
+        for (IndexSegment segment : current.segments) {
+            count += segment.getDocumentCount();
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of saved segments
+     */
+    public int getSegmentCount() {
+        return state.segments.size();
+    }
+
+    /**
+     * Writes the delta to a new segment and starts a new delta, then merges
+     * segments if there are too many. Does nothing for an in-memory index. If
+     * writing fails, the frozen delta stays searchable and is written by the next
+     * flush.
+     *
+     * @throws IOException If a file cannot be written.
+     */
+    public synchronized void flush() throws IOException {
+        if (directory == null)
+            return;
+        Files.createDirectories(directory);
+
+        if (state.frozen == null) {
+            deltaLock.writeLock().lock();
+            try {
+                State current = state;
+                if (current.active.text.getDocumentCount() > 0 || current.active.tags.size() > 0)
+                    state = new State(current.segments, current.active, new Delta());
+            } finally {
+                deltaLock.writeLock().unlock();
+            }
+        }
+
+        Delta frozen = state.frozen;
+        if (frozen == null) {
+            // Nothing new; make sure there is a manifest, so the index reopens
+            if (!persistent)
+                writeManifest(state.segments);
+            persistent = true;
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        IndexSegment segment = IndexSegment.write(nextSegmentPath(), List.of(frozen.text), frozen.tags.asMap());
+        Vector<IndexSegment> segments = new Vector<IndexSegment>(state.segments);
+        segments.add(segment);
+        writeManifest(segments);
+        state = new State(segments, null, state.active);
+        persistent = true;
+        logger.info("SearchIndex.flush: " + segment.getDocumentCount() + " chirps saved to "
+                + segment.getPath().getFileName() + " in " + (System.currentTimeMillis() - startTime) + " ms");
+
+        if (segments.size() > MAX_SEGMENTS)
+            mergeSegments();
+    }
+
+    /**
+     * Stops background flushes and saves the delta.
+     */
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!persistent)
+            return;
+        try {
+            flush();
+        } catch (IOException e) {
+            logger.warning("SearchIndex.close: could not save the delta: " + e.getMessage());
+        }
+    }
+
+    // ======= //
+    // Helpers //
+    // ======= //
+
+    /**
+     * Merges every segment but the largest, or all of them once the others
+     * together are at least as large, into one.
+     */
+    private void mergeSegments() throws IOException {
+        long startTime = System.currentTimeMillis();
+        Vector<IndexSegment> old = state.segments;
+        IndexSegment largest = old.get(0);
+        long total = 0;
+        for (IndexSegment segment : old) {
+            total += segment.getDocumentCount();
+            if (segment.getDocumentCount() > largest.getDocumentCount())
+                largest = segment;
+        }
+        Vector<IndexSegment> merging = new Vector<IndexSegment>(old);
+        if (total - largest.getDocumentCount() < largest.getDocumentCount())
+            merging.remove(largest);
+
+        IndexSegment merged = IndexSegment.merge(nextSegmentPath(), merging);
+        Vector<IndexSegment> segments = new Vector<IndexSegment>(old);
+        segments.removeAll(merging);
+        segments.add(merged);
+        writeManifest(segments);
+        state = new State(segments, state.frozen, state.active);
+        // Searches still using the old segments keep their mappings
+        for (IndexSegment segment : merging) {
+            Files.deleteIfExists(segment.getPath());
+        }
+        logger.info("SearchIndex.mergeSegments: " + merging.size() + " segments merged into "
+                + merged.getPath().getFileName() + " in " + (System.currentTimeMillis() - startTime) + " ms");
+    }
+
+    private Path nextSegmentPath() {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, nextSegmentId++, SEGMENT_EXTENSION));
+    }
+
+    private void writeManifest(Vector<IndexSegment> segments) throws IOException {
+        Vector<String> lines = new Vector<String>();
+        lines.add(MANIFEST_HEADER);
+        for (IndexSegment segment : segments) {
+            lines.add(segment.getPath().getFileName().toString());
+        }
+        Path tempPath = directory.resolve(MANIFEST + TEMP_EXTENSION);
+        Files.write(tempPath, lines, StandardCharsets.UTF_8);
+        Files.move(tempPath, directory.resolve(MANIFEST), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // ============= //
+    // Inner classes //
+    // ============= //
+
+    /**
+     * The chirps added since the last flush.
+     */
+    private static class Delta {
+        final FullTextIndex text = new FullTextIndex();
+        final HashtagIndex tags = new HashtagIndex();
+    }
+
+    /**
+     * What a search reads, replaced as a whole when it changes.
+     */
+    private static class State {
+        final Vector<IndexSegment> segments;
+        /** The delta being written to a segment, or null */
+        final Delta frozen;
+        final Delta active;
+
+        State(Vector<IndexSegment> segments, Delta frozen, Delta active) {
+            this.segments = segments;
+            this.frozen = frozen;
+            this.active = active;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package edu.georgetown.dao;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of every user and their password, sorted by username,
+ * as listed in the page footer.
+ *
+ * <p>
+ * {@link ChirperDAO} publishes a new snapshot each time a user registers or
+ * changes their password, copying the arrays once (copy-on-write), and every
+ * request shares the current one by reference. Reading a snapshot never locks
+ * or allocates in proportion to the number of users: {@link #page(String, int)}
+ * finds its first entry by binary search and copies only the page. Each
+ * snapshot has a version, one more than the snapshot it replaced, so that
+ * anything derived from it can tell whether it is still current.
+ * </p>
+ *
+ * <p>
+ * Usage example:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * UserDirectory directory = chirperDAO.getUserDirectory();
+ * UserDirectory.Page page = directory.page(null, 50);
+ * page.getUsers(); // the first 50 users, by username
+ * directory.page(page.getNextCursor(), 50); // the next 50
+ * }
+ * </pre>
+ */
+public class UserDirectory {
+
+    /** A directory without users */
+    public static final UserDirectory EMPTY = new UserDirectory(new String[0], new String[0], 0);
+
+    private final String[] usernames;
+    /** The password of each username, at the same index */
+    private final String[] passwords;
+    private final long version;
+
+    private UserDirectory(String[] usernames, String[] passwords, long version) {
+        this.usernames = usernames;
+        this.passwords = passwords;
+        this.version = version;
+    }
+
+    /**
+     * Builds a directory from all users at once.
+     *
+     * @param users The password of each username
+     * @return The directory, at version 1
+     */
+    public static UserDirectory of(Map<String, String> users) {
+        return EMPTY.withAll(users);
+    }
+
+    /**
+     * Returns a copy of this directory holding exactly the given users, e.g.
+     * after loading, sorting them once.
+     *
+     * @param users The password of each username
+     * @return The new directory, one version later
+     */
+    public UserDirectory withAll(Map<String, String> users) {
+        String[] usernames = users.keySet().toArray(new String[0]);
+        Arrays.sort(usernames);
+        String[] passwords = new String[usernames.length];
+        for (int i = 0; i < usernames.length; i++) {
+            passwords[i] = users.get(usernames[i]);
+        }
+        return new UserDirectory(usernames, passwords, version + 1);
+    }
+
+    /**
+     * Returns a copy of this directory with a user added, or with their
+     * password replaced. This directory is not changed.
+     *
+     * @param username The username
+     * @param password The password
+     * @return The new directory, one version later
+     */
+    public UserDirectory with(String username, String password) {
+        int index = Arrays.binarySearch(usernames, username);
+        if (index >= 0) {
+            String[] replaced = passwords.clone();
+            replaced[index] = password;
+            return new UserDirectory(usernames, replaced, version + 1);
+        }
+        int insertAt = -index - 1;
+        String[] addedNames = new String[usernames.length + 1];
+        String[] addedPasswords = new String[usernames.length + 1];
+        System.arraycopy(usernames, 0, addedNames, 0, insertAt);
+        System.arraycopy(passwords, 0, addedPasswords, 0, insertAt);
+        addedNames[insertAt] = username;
+        addedPasswords[insertAt] = password;
+        System.arraycopy(usernames, insertAt, addedNames, insertAt + 1, usernames.length - insertAt);
+        System.arraycopy(passwords, insertAt, addedPasswords, insertAt + 1, usernames.length - insertAt);
+        return new UserDirectory(addedNames, addedPasswords, version + 1);
+    }
+
+    /**
+     * Lists one page of users, by username.
+     *
+     * @param after The last username of the previous page, or null for the
+     *              first page
+     * @param limit The maximum number of users on the page
+     * @return The page, with the cursor of the next one
+     */
+    public Page page(String after, int limit) {
+        int start = 0;
+        if (after != null) {
+            int index = Arrays.binarySearch(usernames, after);
+            start = index >= 0 ? index + 1 : -index - 1;
+        }
+        int end = Math.min(usernames.length, start + Math.max(0, limit));
+        LinkedHashMap<String, String> users = new LinkedHashMap<String, String>();
+        for (int i = start; i < end; i++) {
+            users.put(usernames[i], passwords[i]);
+        }
+        String next = end < usernames.length && end > start ? usernames[end - 1] : null;
+        return new Page(Collections.unmodifiableMap(users), start, next);
+    }
+
+    /**
+     * @return the number of users
+     */
+    public int size() {
+        return usernames.length;
+    }
+
+    /**
+     * @return the number of changes since the directory was built
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    // ============= //
+    // Inner classes //
+    // ============= //
+
+    /**
+     * One page of users.
+     */
+    public static class Page {
+        private final Map<String, String> users;
+        private final int start;
+        private final String nextCursor;
+
+        Page(Map<String, String> users, int start, String nextCursor) {
+            this.users = users;
+            this.start = start;
+            this.nextCursor = nextCursor;
+        }
+
+        /**
+         * @return the password of each user on the page, by username
+         */
+        public Map<String, String> getUsers() {
+            return users;
+        }
+
+        /**
+         * @return the position of the page's first user in the directory, 0 for
+         *         the first page whatever cursor it was asked for with
+         */
+        public int getStart() {
+            return start;
+        }
+
+        /**
+         * @return the username to list the next page after, or null if this is
+         *         the last page
+         */
+        public String getNextCursor() {
+            return nextCursor;
+        }
+    }
+}
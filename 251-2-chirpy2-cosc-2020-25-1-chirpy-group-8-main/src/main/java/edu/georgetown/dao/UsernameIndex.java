@@ -0,0 +1,204 @@
+package edu.georgetown.dao;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Vector;
+import java.util.function.ToIntFunction;
+
+/**
+ * A sorted index of usernames for prefix lookups, such as autocompleting
+ * {@code @al} to {@code alice} and {@code alan}. Prefixes are matched ignoring
+ * case.
+ *
+ * <p>
+ * The usernames are kept in a sorted array, with a parallel array of their
+ * lower-case forms. A lookup finds the first match by binary search and then
+ * walks the matches, which are adjacent, so it costs O(log n + m) for m
+ * matches. Registrations are far rarer than lookups, so the arrays are
+ * copy-on-write: each addition builds new arrays under a lock and publishes them
+ * at once, and lookups read whichever arrays are current without locking.
+ * </p>
+ *
+ * <p>
+ * Ranked lookups score every match once and keep the best in a heap, so the
+ * ranking is exact. A prefix shorter than {@value #MIN_RANKED_PREFIX_LENGTH}
+ * characters, such as {@code @a}, matches too large a share of all users to
+ * score on every keystroke, so its matches are returned alphabetically
+ * instead.
+ * </p>
+ *
+ * <p>
+ * Usage example:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * UsernameIndex index = new UsernameIndex();
+ * index.addAll(List.of("alice", "Alan", "bob"));
+ * index.findByPrefix("al", 10, null); // [Alan, alice]
+ * index.findByPrefix("al", 10, followerCounts::get); // most followed first
+ * }
+ * </pre>
+ */
+public class UsernameIndex {
+
+    /** Shortest prefix whose matches are ranked rather than alphabetical */
+    public static final int MIN_RANKED_PREFIX_LENGTH = 2;
+
+    /** Lower case first, so that case is ignored; then exact, so order is total */
+    private static final Comparator<String> ORDER = Comparator.<String, String>comparing(UsernameIndex::key)
+            .thenComparing(Comparator.naturalOrder());
+
+    private volatile Snapshot snapshot = new Snapshot(new String[0]);
+
+    /**
+     * Adds a username. Adding one that is already present has no effect.
+     *
+     * @param username The username
+     */
+    public synchronized void add(String username) {
+        String[] usernames = snapshot.usernames;
+        int index = Arrays.binarySearch(usernames, username, ORDER);
+        if (index >= 0)
+            return;
+        int insertAt = -index - 1;
+        snapshot = new Snapshot(insert(usernames, insertAt, username), insert(snapshot.keys, insertAt, key(username)));
+    }
+
+    /**
+     * Adds many usernames at once, sorting once, e.g. when loading.
+     *
+     * @param usernames The usernames
+     */
+    public synchronized void addAll(Collection<String> usernames) {
+        String[] added = Arrays.copyOf(snapshot.usernames, snapshot.usernames.length + usernames.size());
+        int length = snapshot.usernames.length;
+        for (String username : usernames) {
+            added[length++] = username;
+        }
+        Arrays.sort(added, ORDER);
+        // Drop duplicates, which are now adjacent
+        int distinct = 0;
+        for (int i = 0; i < added.length; i++) {
+            if (distinct == 0 || !added[i].equals(added[distinct - 1]))
+                added[distinct++] = added[i];
+        }
+        snapshot = new Snapshot(Arrays.copyOf(added, distinct));
+    }
+
+    /**
+     * Finds usernames starting with a prefix, ignoring case.
+     *
+     * @param prefix The prefix; a leading {@code '@'} is ignored
+     * @param limit  The maximum number of usernames to return
+     * @param score  Scores the matches, highest first and alphabetically among
+     *               equals; called once per match. Null, or a prefix shorter
+     *               than {@value #MIN_RANKED_PREFIX_LENGTH} characters, for
+     *               alphabetical order
+     * @return The best {@code limit} matches, best first
+     */
+    public Vector<String> findByPrefix(String prefix, int limit, ToIntFunction<String> score) {
+        Vector<String> found = new Vector<String>();
+        if (prefix == null || limit <= 0)
+            return found;
+        String start = key(prefix.startsWith("@") ? prefix.substring(1) : prefix);
+
+        Snapshot current = snapshot;
+        int first = current.firstKeyAtLeast(start);
+        if (score == null || start.length() < MIN_RANKED_PREFIX_LENGTH) {
+            for (int i = first; i < current.keys.length && found.size() < limit
+                    && current.keys[i].startsWith(start); i++) {
+                found.add(current.usernames[i]);
+            }
+            return found;
+        }
+
+        // Score each match once, so the heap's order cannot change under it
+        int end = first;
+        while (end < current.keys.length && current.keys[end].startsWith(start))
+            end++;
+        int[] scores = new int[end - first];
+        for (int i = first; i < end; i++) {
+            scores[i - first] = score.applyAsInt(current.usernames[i]);
+        }
+
+        // The heap holds offsets of matches; its head is the worst one kept
+        Comparator<Integer> worstFirst = Comparator.<Integer>comparingInt(offset -> scores[offset])
+                .thenComparing(Comparator.reverseOrder());
+        PriorityQueue<Integer> best = new PriorityQueue<Integer>(limit + 1, worstFirst);
+        for (int offset = 0; offset < scores.length; offset++) {
+            best.add(offset);
+            if (best.size() > limit)
+                best.poll();
+        }
+        String[] ranked = new String[best.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = current.usernames[first + best.poll()];
+        }
+        found.addAll(Arrays.asList(ranked));
+        return found;
+    }
+
+    /**
+     * @return the number of usernames in the index
+     */
+    public int size() {
+        return snapshot.usernames.length;
+    }
+
+    private static String key(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    /** @return a copy of the array with one more element, at the given index */
+    private static String[] insert(String[] array, int index, String element) {
+        String[] inserted = new String[array.length + 1];
+        System.arraycopy(array, 0, inserted, 0, index);
+        inserted[index] = element;
+        System.arraycopy(array, index, inserted, index + 1, array.length - index);
+        return inserted;
+    }
+
+    // ============= //
+    // Inner classes //
+    // ============= //
+
+    /**
+     * The sorted usernames and their lower-case keys, never changed once
+     * published.
+     */
+    private static class Snapshot {
+        final String[] usernames;
+        final String[] keys;
+
+        Snapshot(String[] usernames) {
+            this.usernames = usernames;
+            this.keys = new String[usernames.length];
+            for (int i = 0; i < usernames.length; i++) {
+                keys[i] = key(usernames[i]);
+            }
+        }
+
+        Snapshot(String[] usernames, String[] keys) {
+            this.usernames = usernames;
+            this.keys = keys;
+        }
+
+        /** @return the index of the first key not less than the given one */
+        int firstKeyAtLeast(String key) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (keys[middle].compareTo(key) < 0)
+                    low = middle + 1;
+                else
+                    high = middle;
+            }
+            return low;
+        }
+    }
+}
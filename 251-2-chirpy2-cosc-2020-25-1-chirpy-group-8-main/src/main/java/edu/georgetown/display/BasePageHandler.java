@@ -2,11 +2,10 @@ package edu.georgetown.display;
 
 import com.sun.net.httpserver.HttpHandler;
 
-import edu.georgetown.http.CookieUtils;
+import edu.georgetown.dao.UserDirectory;
 import edu.georgetown.http.FormUtils;
 import edu.georgetown.http.ResponseUtils;
 import edu.georgetown.logging.LoggerFactory;
-import edu.georgetown.model.Chirper;
 import edu.georgetown.service.UserService;
 
 import com.sun.net.httpserver.HttpExchange;
@@ -16,6 +15,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Logger;
 
+import freemarker.template.Template;
+
 /**
  * <p>
  * Abstract base class for handling HTTP requests in a web application.
@@ -35,8 +36,12 @@ import java.util.logging.Logger;
  * <li>Handling GET requests with a default implementation.</li>
  * <li>Providing a no-op implementation for handling POST requests, which can
  * be overridden by subclasses.</li>
- * <li>Adding user login information and a list of users to the data model
- * for debugging purposes.</li>
+ * <li>Adding user login information and a page of the list of users to the
+ * data model for debugging purposes. The list is a snapshot shared by all
+ * requests, so a page view costs the same however many users there are; the
+ * footer pages through it with {@code ?usersAfter=<username>}.</li>
+ * <li>Passing handlers a {@link RequestContext}, so the cookies, the query
+ * string and the logged-in user are worked out once per request.</li>
  * </ul>
  *
  * <p>
@@ -54,7 +59,7 @@ import java.util.logging.Logger;
  *     }
  *
  *     &#64;Override
- *     protected void handlePostRequest(HttpExchange exchange, Map<String, Object> dataModel,
+ *     protected void handlePostRequest(RequestContext context, Map<String, Object> dataModel,
  *                                      Map<String, String> rawFormData) throws IOException {
  *         // Custom POST request handling logic
  *     }
@@ -68,6 +73,10 @@ import java.util.logging.Logger;
 public abstract class BasePageHandler implements HttpHandler {
 
     protected static final Logger logger = LoggerFactory.getLogger();
+    /** Query parameter with the last username of the previous page of users */
+    private static final String USERS_AFTER_FIELD = "usersAfter";
+    /** Number of users listed per page in the footer */
+    private static final int USERS_PAGE_SIZE = 50;
     protected final TemplateRenderer templateRenderer;
     protected final String templateString;
     protected final UserService userService;
@@ -92,17 +101,16 @@ public abstract class BasePageHandler implements HttpHandler {
      * Handles HTTP GET requests by rendering a template with the provided data
      * model.
      *
-     * @param exchange  The HttpExchange object that contains the request and
-     *                  response
-     *                  information.
+     * @param context   The context of the request, with the HttpExchange object
+     *                  that contains the request and response information.
      * @param dataModel A map containing the data to be used for rendering the
      *                  template.
      * @throws IOException If an input or output exception occurs during the
      *                     handling
      *                     of the request.
      */
-    protected void handleGetRequest(HttpExchange exchange, Map<String, Object> dataModel) throws IOException {
-        renderTemplate(exchange, dataModel);
+    protected void handleGetRequest(RequestContext context, Map<String, Object> dataModel) throws IOException {
+        renderTemplate(context.getExchange(), dataModel);
     }
 
     /**
@@ -110,8 +118,9 @@ public abstract class BasePageHandler implements HttpHandler {
      * subclasses to provide specific behavior for handling POST requests.
      * By default, this method performs no operation (No-op).
      *
-     * @param exchange    The HttpExchange object that contains the request and
-     *                    response information.
+     * @param context     The context of the request, with the HttpExchange
+     *                    object that contains the request and response
+     *                    information.
      * @param dataModel   A map containing data to be used for rendering or
      *                    processing
      *                    the request.
@@ -120,21 +129,54 @@ public abstract class BasePageHandler implements HttpHandler {
      * @throws IOException If an I/O error occurs during the handling of the
      *                     request.
      */
-    protected void handlePostRequest(HttpExchange exchange, Map<String, Object> dataModel,
+    protected void handlePostRequest(RequestContext context, Map<String, Object> dataModel,
             Map<String, String> rawFormData) throws IOException {
         // No-op by default
     }
 
     /**
-     * Renders the template with the given dataModel.
+     * Renders the template with the given dataModel, streaming it to the client
+     * as it renders. The template is looked up first, so a missing template
+     * still gets an (empty) response.
      * 
      * @param exchange  the HTTP exchange object containing request details
      * @param dataModel the data model to use for rendering the template
      * @throws IOException if an I/O error occurs
      */
     protected void renderTemplate(HttpExchange exchange, Map<String, Object> dataModel) throws IOException {
-        String parsedTemplate = templateRenderer.parseTemplate(templateString, dataModel);
-        ResponseUtils.sendHtmlResponse(exchange, parsedTemplate);
+        Template template = templateRenderer.getTemplate(templateString);
+        if (template == null) {
+            ResponseUtils.sendHtmlResponse(exchange, "");
+            return;
+        }
+        ResponseUtils.streamHtmlResponse(exchange, out -> templateRenderer.processTemplate(template, dataModel, out));
+    }
+
+    /**
+     * Adds one page of the user directory to the data model: the users, the
+     * total, and the cursor of the next page if there is one. Only the page is
+     * copied, never the whole directory.
+     * 
+     * @param context   the context of the request
+     * @param dataModel the data model to add the users to
+     */
+    private void putUsers(RequestContext context, Map<String, Object> dataModel) {
+        UserDirectory directory = userService.getUserDirectory();
+        String after = context.getQuery().get(USERS_AFTER_FIELD);
+        UserDirectory.Page page = directory.page(after, USERS_PAGE_SIZE);
+        dataModel.put("users", page.getUsers());
+        dataModel.put("usersTotal", directory.size());
+        // the footer is cached by where its page starts, and rendered again only
+        // when the directory changes; only pages the footer links to are cached,
+        // so made-up cursors cannot crowd the other fragments out of the cache
+        if (page.getStart() % USERS_PAGE_SIZE == 0) {
+            dataModel.put("usersPage", page.getStart() / USERS_PAGE_SIZE);
+            dataModel.put("usersVersion", directory.getVersion());
+        }
+        if (page.getStart() > 0)
+            dataModel.put("usersAfter", after);
+        if (page.getNextCursor() != null)
+            dataModel.put("usersNext", page.getNextCursor());
     }
 
     /**
@@ -160,27 +202,25 @@ public abstract class BasePageHandler implements HttpHandler {
         // Create empty data model for request
         Map<String, Object> dataModel = new HashMap<>();
 
+        // Cookies, query and user are parsed and looked up at most once
+        RequestContext context = new RequestContext(exchange, userService);
+
         // Add login info to data model
-        if (userService.isLoggedIn(exchange)) {
-            String username = CookieUtils.getCookies(exchange).get("username");
-            dataModel.put("username", username);
+        if (context.isLoggedIn()) {
+            dataModel.put("username", context.getUsername());
             dataModel.put("isLoggedIn", true);
         }
 
-        // Add list of users to footer for debugging
-        Map<String, String> users = new HashMap<>();
-        for (Chirper user : userService.getUsers()) {
-            users.put(user.getUsername(), user.getPassword()); // Extract actual username
-        }
-        dataModel.put("users", users);
+        // Add a page of the list of users to footer for debugging
+        putUsers(context, dataModel);
 
         // Direct request based on method
         String method = exchange.getRequestMethod();
         if ("GET".equalsIgnoreCase(method)) {
-            handleGetRequest(exchange, dataModel);
+            handleGetRequest(context, dataModel);
         } else if ("POST".equalsIgnoreCase(method)) {
             Map<String, String> rawFormData = FormUtils.parseResponse(exchange);
-            handlePostRequest(exchange, dataModel, rawFormData);
+            handlePostRequest(context, dataModel, rawFormData);
         }
     }
 
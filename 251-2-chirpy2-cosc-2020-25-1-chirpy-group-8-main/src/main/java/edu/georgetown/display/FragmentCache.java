@@ -0,0 +1,215 @@
+package edu.georgetown.display;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import edu.georgetown.http.Utf8Writer;
+import edu.georgetown.logging.LoggerFactory;
+import freemarker.core.Environment;
+import freemarker.template.TemplateDirectiveBody;
+import freemarker.template.TemplateDirectiveModel;
+import freemarker.template.TemplateException;
+import freemarker.template.TemplateModel;
+import freemarker.template.TemplateModelException;
+import freemarker.template.TemplateNumberModel;
+import freemarker.template.TemplateScalarModel;
+
+/**
+ * A cache of rendered template fragments, used from templates as the
+ * {@code <@fragment>} directive.
+ *
+ * <p>
+ * A fragment is rendered once for each name, key and data version, and its
+ * output is kept both as text and as UTF-8 bytes. Later pages copy the bytes
+ * straight into the response (through {@link Utf8Writer#writeUtf8(byte[])}),
+ * so they neither render nor encode the fragment again. When the data behind
+ * a fragment changes, its owner bumps the version, e.g.
+ * {@link edu.georgetown.dao.UserDirectory#getVersion()}, and the next page
+ * renders it again and replaces the old entry.
+ * </p>
+ *
+ * <p>
+ * Parameters:
+ * </p>
+ * <ul>
+ * <li>{@code name}: the fragment's name (required).</li>
+ * <li>{@code key}: what else its output depends on, such as the username;
+ * defaults to none.</li>
+ * <li>{@code version}: the version of the data it shows. Without it the body is
+ * rendered every time, since nothing would tell the cache it changed.</li>
+ * </ul>
+ *
+ * <p>
+ * At most {@value #MAX_FRAGMENTS} fragments are kept, the least recently used
+ * being dropped first.
+ * </p>
+ *
+ * <p>
+ * Usage example:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * <@fragment name="navbar" key=username version=0>
+ *     ...
+ * </@fragment>
+ * }
+ * </pre>
+ */
+public class FragmentCache implements TemplateDirectiveModel {
+
+    /** Most fragments kept at once */
+    public static final int MAX_FRAGMENTS = 1024;
+
+    private static final Logger logger = LoggerFactory.getLogger();
+    private static final String NAME_PARAM = "name";
+    private static final String KEY_PARAM = "key";
+    private static final String VERSION_PARAM = "version";
+
+    /** Fragments by name and key, least recently used first */
+    private final LinkedHashMap<String, Fragment> fragments = new LinkedHashMap<String, Fragment>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Fragment> eldest) {
+            return size() > MAX_FRAGMENTS;
+        }
+    };
+    private final boolean enabled;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param enabled false to render every fragment every time, e.g. while
+     *                templates are being edited
+     */
+    public FragmentCache(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void execute(Environment env, Map params, TemplateModel[] loopVars, TemplateDirectiveBody body)
+            throws TemplateException, IOException {
+        if (body == null)
+            return;
+        String name = stringParam(params, NAME_PARAM);
+        if (name == null)
+            throw new TemplateModelException("<@fragment> needs a name");
+        TemplateModel versionModel = (TemplateModel) params.get(VERSION_PARAM);
+        if (versionModel == null || !enabled) {
+            body.render(env.getOut());
+            return;
+        }
+        if (!(versionModel instanceof TemplateNumberModel))
+            throw new TemplateModelException("<@fragment> version must be a number");
+        long version = ((TemplateNumberModel) versionModel).getAsNumber().longValue();
+        String key = stringParam(params, KEY_PARAM);
+        String cacheKey = name + '\u0000' + (key == null ? "" : key);
+
+        Fragment fragment = get(cacheKey, version);
+        if (fragment == null) {
+            StringWriter rendered = new StringWriter();
+            body.render(rendered);
+            fragment = new Fragment(version, rendered.toString());
+            put(cacheKey, fragment);
+        }
+
+        Writer out = env.getOut();
+        if (out instanceof Utf8Writer)
+            ((Utf8Writer) out).writeUtf8(fragment.utf8);
+        else
+            out.write(fragment.text);
+    }
+
+    /**
+     * Drops every fragment, e.g. after the templates have changed.
+     */
+    public synchronized void clear() {
+        fragments.clear();
+    }
+
+    /** @return the number of fragments kept */
+    public synchronized int size() {
+        return fragments.size();
+    }
+
+    /** @return the number of fragments copied from the cache */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /** @return the number of fragments rendered */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "fragment cache: " + fragments.size() + " fragments, " + hits + " hits, " + misses + " misses";
+    }
+
+    // ======= //
+    // Helpers //
+    // ======= //
+
+    /**
+     * @return the fragment for the key if it was rendered at this version, or
+     *         null
+     */
+    private synchronized Fragment get(String cacheKey, long version) {
+        Fragment fragment = fragments.get(cacheKey);
+        if (fragment != null && fragment.version == version) {
+            hits++;
+            return fragment;
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Stores a rendered fragment, unless a newer version was stored while it
+     * rendered.
+     */
+    private synchronized void put(String cacheKey, Fragment fragment) {
+        Fragment current = fragments.get(cacheKey);
+        if (current == null || current.version <= fragment.version)
+            fragments.put(cacheKey, fragment);
+        else
+            logger.fine("FragmentCache.put: kept newer version of " + cacheKey);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static String stringParam(Map params, String name) throws TemplateModelException {
+        TemplateModel value = (TemplateModel) params.get(name);
+        if (value == null)
+            return null;
+        if (value instanceof TemplateScalarModel)
+            return ((TemplateScalarModel) value).getAsString();
+        if (value instanceof TemplateNumberModel)
+            return ((TemplateNumberModel) value).getAsNumber().toString();
+        throw new TemplateModelException("<@fragment> " + name + " must be a string");
+    }
+
+    // ============= //
+    // Inner classes //
+    // ============= //
+
+    /**
+     * A rendered fragment, as text and as UTF-8.
+     */
+    private static class Fragment {
+        final long version;
+        final String text;
+        final byte[] utf8;
+
+        Fragment(long version, String text) {
+            this.version = version;
+            this.text = text;
+            this.utf8 = text.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package edu.georgetown.display;
+
+import java.util.Collections;
+import java.util.Map;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import edu.georgetown.http.CookieUtils;
+import edu.georgetown.http.FormUtils;
+import edu.georgetown.service.UserService;
+
+/**
+ * What is known about one request, worked out at most once.
+ *
+ * <p>
+ * {@link BasePageHandler} creates a context when a request comes in and passes
+ * it to {@code handleGetRequest} and {@code handlePostRequest}. The cookies and
+ * the query string are parsed the first time they are asked for. The session
+ * is looked up the first time the user is asked for, and its username is kept
+ * for the rest of the request; handlers need only the name, never the
+ * {@code Chirper}.
+ * </p>
+ *
+ * <p>
+ * A context belongs to the thread handling its request, and is not safe to
+ * share.
+ * </p>
+ *
+ * <p>
+ * Usage example:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * RequestContext context = new RequestContext(exchange, userService);
+ * if (context.isLoggedIn()) {
+ *     String username = context.getUsername(); // no second lookup
+ *     String before = context.getQuery().get("before");
+ * }
+ * }
+ * </pre>
+ */
+public class RequestContext {
+
+    private final HttpExchange exchange;
+    private final UserService userService;
+    private Map<String, String> cookies;
+    private Map<String, String> query;
+    private boolean userResolved;
+    private String username;
+
+    /**
+     * @param exchange    The request and its response
+     * @param userService Used to look up the session
+     */
+    public RequestContext(HttpExchange exchange, UserService userService) {
+        this.exchange = exchange;
+        this.userService = userService;
+    }
+
+    /**
+     * @return the request and its response
+     */
+    public HttpExchange getExchange() {
+        return exchange;
+    }
+
+    /**
+     * @return the request's cookies by name, parsed on the first call
+     */
+    public Map<String, String> getCookies() {
+        if (cookies == null)
+            cookies = Collections.unmodifiableMap(CookieUtils.getCookies(exchange));
+        return cookies;
+    }
+
+    /**
+     * @return the parameters of the query string by name, parsed on the first
+     *         call; empty if there is no query string
+     */
+    public Map<String, String> getQuery() {
+        if (query == null)
+            query = Collections.unmodifiableMap(FormUtils.parseQuery(exchange));
+        return query;
+    }
+
+    /**
+     * Gets the logged-in user, looking up the session cookie on the first call.
+     * A cookie without a current session is deleted, as by
+     * {@link UserService#isLoggedIn(HttpExchange)}.
+     *
+     * @return the username, or null if no one is logged in
+     */
+    public String getUsername() {
+        if (!userResolved) {
+            String token = getCookies().get(UserService.SESSION_COOKIE);
+            username = userService.getSessionUser(token);
+            if (username == null && token != null)
+                CookieUtils.deleteCookie(exchange, UserService.SESSION_COOKIE);
+            userResolved = true;
+        }
+        return username;
+    }
+
+    /**
+     * @return whether a user is logged in
+     */
+    public boolean isLoggedIn() {
+        return getUsername() != null;
+    }
+}
@@ -3,11 +3,20 @@ package edu.georgetown.display;
 import java.io.File;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.TimeZone;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import edu.georgetown.logging.LoggerFactory;
+import freemarker.cache.StrongCacheStorage;
 import freemarker.core.ParseException;
 import freemarker.template.*;
 
@@ -23,7 +32,20 @@ import freemarker.template.*;
  * <li>Initialize the TemplateRenderer with the default or custom template
  * path.</li>
  * <li>Use the {@code parseTemplate} method to render templates with a data
- * model.</li>
+ * model, or {@code getTemplate} and {@code processTemplate} to write them to a
+ * stream as they render.</li>
+ * </ul>
+ * 
+ * <p>
+ * Modes:
+ * <ul>
+ * <li>{@link Mode#PRODUCTION}: every {@code .ftl} file under the template
+ * directory is parsed once at startup, with its compile time logged, and kept
+ * in an immutable map. The files are never checked for changes again, and
+ * {@code <@fragment>} output is cached (see {@link FragmentCache}).</li>
+ * <li>{@link Mode#DEVELOPMENT}: templates are parsed when first used and
+ * reloaded whenever their file changes, so edits show up on the next
+ * request. Fragments are rendered every time.</li>
  * </ul>
  * 
  * <p>
@@ -47,23 +69,68 @@ import freemarker.template.*;
  */
 public class TemplateRenderer {
 
+    /**
+     * How templates are loaded.
+     */
+    public enum Mode {
+        /** Parsed at startup and never reloaded */
+        PRODUCTION,
+        /** Parsed on first use and reloaded when their file changes */
+        DEVELOPMENT;
+
+        /**
+         * Parses a mode name, ignoring case; {@code "prod"} and {@code "dev"}
+         * are accepted too.
+         *
+         * @param name The name, e.g. {@code "dev"}.
+         * @return The mode.
+         * @throws IllegalArgumentException If the name is not a mode.
+         */
+        public static Mode parse(String name) {
+            String upper = name.trim().toUpperCase(Locale.ROOT);
+            if (upper.equals("PROD"))
+                return PRODUCTION;
+            if (upper.equals("DEV"))
+                return DEVELOPMENT;
+            return Mode.valueOf(upper);
+        }
+    }
+
     private static final String DEFAULT_TEMPLATE_PATH = "resources/templates";
+    private static final String TEMPLATE_EXTENSION = ".ftl";
     private static final Logger logger = LoggerFactory.getLogger();
     private Configuration cfg;
+    private final Mode mode;
+    /** Every template, by name, in production mode; null in development mode */
+    private final Map<String, Template> compiled;
+    /** The {@code <@fragment>} directive and its cache */
+    private final FragmentCache fragmentCache;
 
     public TemplateRenderer() throws IOException {
         this(DEFAULT_TEMPLATE_PATH);
     }
 
     /**
-     * Initializes the template renderer. Specifically, it sets up the template
-     * engine.
-     * You probably don't want to change much of this code, if any.
+     * Initializes the template renderer in development mode.
      * 
      * @param templatePath the path to the template directory to use
      * @throws IOException
      */
     public TemplateRenderer(String templatePath) throws IOException {
+        this(templatePath, Mode.DEVELOPMENT);
+    }
+
+    /**
+     * Initializes the template renderer. Specifically, it sets up the template
+     * engine and, in production mode, parses every template.
+     * You probably don't want to change much of this code, if any.
+     * 
+     * @param templatePath the path to the template directory to use
+     * @param mode         whether templates are parsed up front or reloaded
+     *                     when they change
+     * @throws IOException if the template directory cannot be read
+     */
+    public TemplateRenderer(String templatePath, Mode mode) throws IOException {
 
         /* Create and adjust the configuration singleton */
         cfg = new Configuration(Configuration.VERSION_2_3_32);
@@ -77,7 +144,35 @@ public class TemplateRenderer {
         cfg.setFallbackOnNullLoopVariable(false);
         cfg.setSQLDateAndTimeTimeZone(TimeZone.getDefault());
 
-        logger.info("Disply logic initialized");
+        this.mode = mode;
+        this.fragmentCache = new FragmentCache(mode == Mode.PRODUCTION);
+        cfg.setSharedVariable("fragment", fragmentCache);
+        if (mode == Mode.PRODUCTION) {
+            // never look at the files again, and keep included templates too
+            cfg.setTemplateUpdateDelayMilliseconds(Long.MAX_VALUE);
+            cfg.setCacheStorage(new StrongCacheStorage());
+            compiled = compileAll(Path.of(templatePath));
+        } else {
+            // check the file on every request, so edits show up at once
+            cfg.setTemplateUpdateDelayMilliseconds(0);
+            compiled = null;
+        }
+
+        logger.info("Disply logic initialized in " + mode + " mode");
+    }
+
+    /**
+     * @return how templates are loaded
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return the cache of rendered fragments
+     */
+    public FragmentCache getFragmentCache() {
+        return fragmentCache;
     }
 
     /**
@@ -89,17 +184,39 @@ public class TemplateRenderer {
      * @return the rendered template output
      */
     public String parseTemplate(String templateName, Map<String, Object> dataModel) {
-        Template template;
+        Template template = getTemplate(templateName);
+        if (template == null)
+            return ""; // Return empty string on failure
 
         // sw will hold the output of parsing the template
         StringWriter sw = new StringWriter();
-
         try {
-            template = cfg.getTemplate(templateName);
+            if (processTemplate(template, dataModel, sw))
+                return sw.toString();
+        } catch (IOException e) {
+            e.printStackTrace();
+            logger.warning("IO exception: " + e.getMessage());
+        }
+        return ""; // Return empty string on failure
+    }
 
-            // now we call the method to parse the template and write the output
-            template.process(dataModel, sw);
-            return sw.toString();
+    /**
+     * Looks up a template, so that it can be found (and parsed) before anything
+     * is written. In production mode it comes from the templates parsed at
+     * startup.
+     * 
+     * @param templateName the name of the template to use
+     * @return the template, or null if it cannot be found or parsed
+     */
+    public Template getTemplate(String templateName) {
+        if (compiled != null) {
+            Template template = compiled.get(templateName.startsWith("/") ? templateName.substring(1) : templateName);
+            if (template == null)
+                logger.warning(templateName + " not found");
+            return template;
+        }
+        try {
+            return cfg.getTemplate(templateName);
         } catch (TemplateNotFoundException e) {
             logger.warning(templateName + " not found");
         } catch (MalformedTemplateNameException e) {
@@ -109,10 +226,63 @@ public class TemplateRenderer {
         } catch (IOException e) {
             e.printStackTrace();
             logger.warning("IO exception: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Renders a template given the provided `dataModel`, writing the output to
+     * `out` as it is produced. If the template fails part way, what was written
+     * so far is kept and the error is logged.
+     * 
+     * @param template  the template, from {@link #getTemplate(String)}
+     * @param dataModel the variables to use in the template
+     * @param out       where to write the output
+     * @return true if the whole template was rendered
+     * @throws IOException if writing to `out` fails
+     */
+    public boolean processTemplate(Template template, Map<String, Object> dataModel, Writer out)
+            throws IOException {
+        try {
+            template.process(dataModel, out);
+            return true;
         } catch (TemplateException e) {
             e.printStackTrace();
-            logger.warning(templateName + " template exception: " + e.getMessage());
+            logger.warning(template.getName() + " template exception: " + e.getMessage());
+            return false;
         }
-        return ""; // Return empty string on failure
+    }
+
+    // ======= //
+    // Helpers //
+    // ======= //
+
+    /**
+     * Parses every template under the template directory, logging how long
+     * each took. Templates that fail to parse are logged and left out.
+     */
+    private Map<String, Template> compileAll(Path directory) throws IOException {
+        List<String> names;
+        try (Stream<Path> files = Files.walk(directory)) {
+            names = files.filter(file -> file.toString().endsWith(TEMPLATE_EXTENSION) && Files.isRegularFile(file))
+                    .map(file -> directory.relativize(file).toString().replace(File.separatorChar, '/'))
+                    .sorted().collect(Collectors.toList());
+        }
+
+        long startTime = System.nanoTime();
+        HashMap<String, Template> templates = new HashMap<String, Template>();
+        for (String name : names) {
+            long templateStart = System.nanoTime();
+            try {
+                templates.put(name, cfg.getTemplate(name));
+                logger.info(String.format("TemplateRenderer.compileAll: %s compiled in %.1f ms", name,
+                        (System.nanoTime() - templateStart) / 1e6));
+            } catch (IOException e) {
+                logger.warning("TemplateRenderer.compileAll: " + name + " failed to compile: " + e.getMessage());
+            }
+        }
+        logger.info("TemplateRenderer.compileAll: " + templates.size() + " of " + names.size()
+                + " templates compiled in " + (System.nanoTime() - startTime) / 1_000_000 + " ms");
+        return Map.copyOf(templates);
     }
 }
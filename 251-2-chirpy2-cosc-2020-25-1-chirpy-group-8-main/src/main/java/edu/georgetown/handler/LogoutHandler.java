@@ -4,6 +4,7 @@ import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import edu.georgetown.http.CookieUtils;
 import edu.georgetown.http.ResponseUtils;
+import edu.georgetown.service.UserService;
 
 import java.io.IOException;
 import java.util.logging.Logger;
@@ -16,7 +17,8 @@ import java.util.logging.Logger;
  * <p>
  * This handler performs the following actions:
  * <ul>
- * <li>Invalidates the user's session by deleting the "username" cookie.</li>
+ * <li>Invalidates the user's session on the server, so its token no longer
+ * logs anyone in, and deletes the session cookie.</li>
  * <li>Logs the logout event for auditing purposes.</li>
  * <li>Redirects the user to the login page after logout.</li>
  * </ul>
@@ -26,13 +28,14 @@ import java.util.logging.Logger;
  * 
  * <pre>{@code
  * HttpServer server = HttpServer.create(new InetSocketAddress(8080), 0);
- * server.createContext("/logout", new LogoutHandler());
+ * server.createContext("/logout", new LogoutHandler(userService));
  * server.start();
  * }</pre>
  * 
  * <p>
  * Dependencies:
  * <ul>
+ * <li>{@link UserService} for ending the session.</li>
  * <li>{@link CookieUtils} for cookie management.</li>
  * <li>{@link ResponseUtils} for handling HTTP responses.</li>
  * <li>{@link Logger} for logging events.</li>
@@ -45,12 +48,20 @@ import java.util.logging.Logger;
 public class LogoutHandler implements HttpHandler {
 
     private static final Logger logger = Logger.getLogger(LogoutHandler.class.getName());
+    private final UserService userService;
+
+    /**
+     * @param userService the service whose sessions are ended
+     */
+    public LogoutHandler(UserService userService) {
+        this.userService = userService;
+    }
 
     /**
      * Handles the HTTP exchange for logging out a user.
      * <p>
-     * This method invalidates the user's session by deleting the "username" cookie
-     * and logs the logout event. After invalidating the session, it redirects the
+     * This method invalidates the user's session on the server, deletes the
+     * session cookie and logs the logout event. After invalidating the session, it redirects the
      * user to the login page.
      *
      * @param exchange the {@link HttpExchange} object representing the HTTP request
@@ -60,9 +71,11 @@ public class LogoutHandler implements HttpHandler {
      */
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        // Invalidate the user session by deleting the cookie
-        CookieUtils.deleteCookie(exchange, "username");
-        logger.info("User logged out successfully.");
+        // Invalidate the user session, then delete the cookie
+        String token = CookieUtils.getCookies(exchange).get(UserService.SESSION_COOKIE);
+        if (userService.logOut(token))
+            logger.info("User logged out successfully.");
+        CookieUtils.deleteCookie(exchange, UserService.SESSION_COOKIE);
 
         // Redirect to the login page
         ResponseUtils.sendRedirect(exchange, "/");
@@ -10,6 +10,7 @@ import java.util.Map;
 import com.sun.net.httpserver.HttpExchange;
 
 import edu.georgetown.display.BasePageHandler;
+import edu.georgetown.display.RequestContext;
 import edu.georgetown.display.TemplateRenderer;
 import edu.georgetown.http.ResponseUtils;
 import edu.georgetown.service.UserService;
@@ -59,9 +60,10 @@ public class DefaultPageHandler extends BasePageHandler {
     }
 
     @Override
-    protected void handleGetRequest(HttpExchange exchange, Map<String, Object> dataModel) throws IOException {
+    protected void handleGetRequest(RequestContext context, Map<String, Object> dataModel) throws IOException {
+        HttpExchange exchange = context.getExchange();
         // Redirects the user if they are logged in
-        if (userService.isLoggedIn(exchange)) {
+        if (context.isLoggedIn()) {
             ResponseUtils.sendRedirect(exchange, "/timeline/");
         } else {
             renderTemplate(exchange, dataModel);
@@ -5,6 +5,7 @@ import java.util.Map;
 import com.sun.net.httpserver.HttpExchange;
 
 import edu.georgetown.display.BasePageHandler;
+import edu.georgetown.display.RequestContext;
 import edu.georgetown.display.TemplateRenderer;
 import edu.georgetown.http.CookieUtils;
 import edu.georgetown.http.ResponseUtils;
@@ -169,7 +170,7 @@ public class LoginPageHandler extends BasePageHandler {
     /**
      * Handles HTTP GET requests for the login page.
      *
-     * @param exchange  The HttpExchange object that contains the request and
+     * @param context   The request context that contains the request and
      *                  response details.
      * @param dataModel A map containing data to be passed to the template for
      *                  rendering.
@@ -184,8 +185,9 @@ public class LoginPageHandler extends BasePageHandler {
      *                     is rendered using the provided data model.
      *                     </p>
      */
-    protected void handleGetRequest(HttpExchange exchange, Map<String, Object> dataModel) throws IOException {
-        if (userService.isLoggedIn(exchange)) {
+    protected void handleGetRequest(RequestContext context, Map<String, Object> dataModel) throws IOException {
+        HttpExchange exchange = context.getExchange();
+        if (context.isLoggedIn()) {
             ResponseUtils.sendRedirect(exchange, "/timeline/");
         } else {
             renderTemplate(exchange, dataModel);
@@ -220,7 +222,7 @@ public class LoginPageHandler extends BasePageHandler {
      * </li>
      * </ol>
      * 
-     * @param exchange    The HttpExchange object that contains the request and
+     * @param context     The request context that contains the request and
      *                    response
      *                    details.
      * @param dataModel   A map representing the data model used for rendering
@@ -231,8 +233,9 @@ public class LoginPageHandler extends BasePageHandler {
      *                     request.
      */
     @Override
-    protected void handlePostRequest(HttpExchange exchange, Map<String, Object> dataModel,
+    protected void handlePostRequest(RequestContext context, Map<String, Object> dataModel,
             Map<String, String> rawFormData) throws IOException {
+        HttpExchange exchange = context.getExchange();
 
         // Extract values from rawFormData
         String username = extractField(rawFormData, USERNAME_FIELD);
@@ -255,7 +258,7 @@ public class LoginPageHandler extends BasePageHandler {
         if (isLoginSuccessful) {
             // Create active session and redirect user
             logger.info("Login successful");
-            CookieUtils.addCookie(exchange, USERNAME_FIELD, username);
+            CookieUtils.addCookie(exchange, UserService.SESSION_COOKIE, userService.logIn(username));
             ResponseUtils.sendRedirect(exchange, "/timeline/");
         } else {
             // Render errors
@@ -5,6 +5,7 @@ import java.util.Map;
 import com.sun.net.httpserver.HttpExchange;
 
 import edu.georgetown.display.BasePageHandler;
+import edu.georgetown.display.RequestContext;
 import edu.georgetown.display.TemplateRenderer;
 import edu.georgetown.http.CookieUtils;
 import edu.georgetown.http.ResponseUtils;
@@ -168,14 +169,15 @@ public class RegisterPageHandler extends BasePageHandler {
      * If the user is already logged in, they are redirected to the timeline page.
      * Otherwise, the registration page template is rendered.
      *
-     * @param exchange  The HttpExchange object containing the request and response.
+     * @param context   The request context containing the request and response.
      * @param dataModel A map containing data to be passed to the template for
      *                  rendering.
      * @throws IOException If an I/O error occurs during the handling of the
      *                     request.
      */
-    protected void handleGetRequest(HttpExchange exchange, Map<String, Object> dataModel) throws IOException {
-        if (userService.isLoggedIn(exchange)) {
+    protected void handleGetRequest(RequestContext context, Map<String, Object> dataModel) throws IOException {
+        HttpExchange exchange = context.getExchange();
+        if (context.isLoggedIn()) {
             ResponseUtils.sendRedirect(exchange, "/timeline/");
         } else {
             renderTemplate(exchange, dataModel);
@@ -199,7 +201,7 @@ public class RegisterPageHandler extends BasePageHandler {
      * template.</li>
      * </ul>
      *
-     * @param exchange    The HttpExchange object that contains the request and
+     * @param context     The request context that contains the request and
      *                    response.
      * @param dataModel   A map representing the data model used for rendering
      *                    templates.
@@ -208,8 +210,9 @@ public class RegisterPageHandler extends BasePageHandler {
      *                     request.
      */
     @Override
-    protected void handlePostRequest(HttpExchange exchange, Map<String, Object> dataModel,
+    protected void handlePostRequest(RequestContext context, Map<String, Object> dataModel,
             Map<String, String> rawFormData) throws IOException {
+        HttpExchange exchange = context.getExchange();
 
         // Extract values from rawFormData
         String username = extractField(rawFormData, USERNAME_FIELD);
@@ -225,7 +228,7 @@ public class RegisterPageHandler extends BasePageHandler {
             // Register user, create active session cookie, and redirect to timeline
             logger.info("Registration successful");
             userService.registerUser(username, password);
-            CookieUtils.addCookie(exchange, USERNAME_FIELD, username);
+            CookieUtils.addCookie(exchange, UserService.SESSION_COOKIE, userService.logIn(username));
             ResponseUtils.sendRedirect(exchange, "/timeline/");
         } else {
             // Render errors
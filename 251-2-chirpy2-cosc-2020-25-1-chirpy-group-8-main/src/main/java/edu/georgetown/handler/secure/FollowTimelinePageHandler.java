@@ -3,48 +3,45 @@ package edu.georgetown.handler.secure;
 import com.sun.net.httpserver.HttpExchange;
 
 import java.io.IOException;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Vector;
 
 import edu.georgetown.display.BasePageHandler;
+import edu.georgetown.display.RequestContext;
 import edu.georgetown.display.TemplateRenderer;
-import edu.georgetown.model.Chirp;
+import edu.georgetown.http.ResponseUtils;
+import edu.georgetown.model.ChirpPage;
 import edu.georgetown.service.ChirpService;
 import edu.georgetown.service.FollowService;
 import edu.georgetown.service.UserService;
-import edu.georgetown.http.CookieUtils;
 
 /**
  * The FollowTimelinePageHandler class is responsible for handling HTTP GET
  * requests
- * for the "Follow Timeline" page. It filters and displays chirps (posts) from
- * users
+ * for the "Follow Timeline" page. It displays chirps (posts) from users
  * that the currently logged-in user is following.
  * 
  * <p>
- * This class extends the BasePageHandler and utilizes services such as
- * ChirpService,
- * FollowService, and UserService to fetch and filter data for rendering the
- * page.
+ * This class extends the BasePageHandler and utilizes ChirpService and
+ * UserService to fetch data for rendering the page.
  * 
  * <p>
  * Key functionalities include:
  * <ul>
- * <li>Fetching all chirps from the ChirpService.</li>
- * <li>Identifying the logged-in user and the accounts they follow using
- * FollowService.</li>
- * <li>Filtering out chirps from users that the logged-in user does not
- * follow.</li>
- * <li>Rendering the filtered chirps using the provided template renderer.</li>
+ * <li>Identifying the logged-in user.</li>
+ * <li>Reading one page of the user's home timeline from the ChirpService. The
+ * page comes from the materialized home timeline if there is one, and is
+ * otherwise merged at read time from the accounts the user follows. Either way
+ * it holds only chirps from followed users, so nothing is filtered here.</li>
+ * <li>Rendering the page of chirps, with a link to the next (older) page, using
+ * the provided template renderer.</li>
  * </ul>
  * 
  * <p>
  * Dependencies:
  * <ul>
  * <li>TemplateRenderer: Used to render the HTML template for the page.</li>
- * <li>ChirpService: Provides access to chirps data.</li>
- * <li>FollowService: Provides information about user follow relationships.</li>
+ * <li>ChirpService: Provides access to the home timeline.</li>
+ * <li>FollowService: Provides the accounts the user follows.</li>
  * <li>UserService: Provides user-related utilities.</li>
  * </ul>
  * 
@@ -59,7 +56,8 @@ import edu.georgetown.http.CookieUtils;
  */
 public class FollowTimelinePageHandler extends BasePageHandler {
     private final static String FOLLOW_TIMELINE_TEMPLATE = "secure/followtimeline.ftl";
-    private final static String USERNAME_FIELD = "username";
+    /** Number of chirps shown per page */
+    private final static int PAGE_SIZE = 50;
     private final ChirpService chirpService;
     private final FollowService followService;
 
@@ -70,36 +68,30 @@ public class FollowTimelinePageHandler extends BasePageHandler {
     }
 
     @Override
-    protected void handleGetRequest(HttpExchange exchange, Map<String, Object> dataModel) throws IOException {
+    protected void handleGetRequest(RequestContext context, Map<String, Object> dataModel) throws IOException {
+        HttpExchange exchange = context.getExchange();
 
         try {
-            // Get all chirps that currently exist
-            Vector<Chirp> chirps = chirpService.getAllChirps();
-
-            // Setup for filtering posts
-            String loggedInUser = CookieUtils.getCookies(exchange).get(USERNAME_FIELD);
-            HashSet<String> userFollowing = new HashSet<String>(followService.getAccountsUserFollows(loggedInUser));
-
-            // Filtering posts
-            // Big thanks to Jonathan for pointing out the bug
-            int chirpsSize = chirps.size();
-            logger.info("Fetched " + Integer.valueOf(chirpsSize).toString() + " chirps.");
-
-            for (int i = chirpsSize - 1; i >= 0; i--) {
-                Chirp chirp = chirps.elementAt(i);
-                String chirpAuthor = chirp.getOwnerUsername();
-
-                // Remove the chirp
-                if (!userFollowing.contains(chirpAuthor)) {
-                    logger.info("Removing chirp by " + chirpAuthor + ".");
-                    chirps.remove(i);
-                } else {
-                    logger.info("Keeping chirp by " + chirpAuthor + ".");
-                }
+            String loggedInUser = context.getUsername();
+            if (loggedInUser == null) {
+                ResponseUtils.sendRedirect(exchange, "/");
+                return;
             }
 
+            // One page of the home timeline; "before" carries the cursor for older pages
+            String before = context.getQuery().get("before");
+            ChirpPage page;
+            if (chirpService.hasHomeTimelines())
+                page = chirpService.getHomeTimeline(loggedInUser, before, PAGE_SIZE);
+            else
+                page = chirpService.getMergedTimeline(followService.getAccountsUserFollows(loggedInUser), before,
+                        PAGE_SIZE);
+            logger.info("Fetched " + page.getChirps().size() + " chirps.");
+
             // Finally, render template with chirps
-            dataModel.put("chirps", chirps);
+            dataModel.put("chirps", page.getChirps());
+            if (page.hasMore())
+                dataModel.put("nextCursor", page.getNextCursor().toString());
             renderTemplate(exchange, dataModel);
         } catch (Exception e) {
             logger.info(e.getMessage());
@@ -6,8 +6,8 @@ import java.io.IOException;
 import java.util.Map;
 
 import edu.georgetown.display.BasePageHandler;
+import edu.georgetown.display.RequestContext;
 import edu.georgetown.display.TemplateRenderer;
-import edu.georgetown.http.CookieUtils;
 import edu.georgetown.http.ResponseUtils;
 import edu.georgetown.service.ChirpService;
 import edu.georgetown.service.UserService;
@@ -43,6 +43,8 @@ import edu.georgetown.service.UserService;
  * <li>If the user is not logged in, they are redirected to the home page.</li>
  * <li>If the chirp content is empty, an error message is displayed on the post
  * chirp page.</li>
+ * <li>If the chirp cannot be saved, an error message is displayed on the post
+ * chirp page.</li>
  * <li>Successful chirp submissions redirect the user to the timeline page.</li>
  * </ul>
  * 
@@ -82,16 +84,17 @@ public class PostChirpHandler extends BasePageHandler {
      * adds it to the data model, and renders the appropriate template.
      * If the user is not logged in, redirects them to the home page.
      *
-     * @param exchange  The HttpExchange object representing the HTTP request and
+     * @param context   The request context representing the HTTP request and
      *                  response.
      * @param dataModel A map containing data to be passed to the template for
      *                  rendering.
      * @throws IOException If an I/O error occurs during the handling of the
      *                     request.
      */
-    protected void handleGetRequest(HttpExchange exchange, Map<String, Object> dataModel) throws IOException {
-        if (userService.isLoggedIn(exchange)) {
-            String username = CookieUtils.getCookies(exchange).get("username");
+    protected void handleGetRequest(RequestContext context, Map<String, Object> dataModel) throws IOException {
+        HttpExchange exchange = context.getExchange();
+        if (context.isLoggedIn()) {
+            String username = context.getUsername();
             dataModel.put("username", username);
             renderTemplate(exchange, dataModel);
         } else {
@@ -100,16 +103,22 @@ public class PostChirpHandler extends BasePageHandler {
     }
 
     @Override
-    protected void handlePostRequest(HttpExchange exchange, Map<String, Object> dataModel,
+    protected void handlePostRequest(RequestContext context, Map<String, Object> dataModel,
             Map<String, String> rawFormData) throws IOException {
+        HttpExchange exchange = context.getExchange();
         // Extract data from form and cookies
         String content = extractField(rawFormData, CONTENT_FIELD);
-        String username = CookieUtils.getCookies(exchange).get("username");
+        String username = context.getUsername();
 
         if (username != null && !content.isBlank()) {
             // Post chirp and redirect to timeline
-            chirpService.postChirp(username, content);
-            ResponseUtils.sendRedirect(exchange, "/timeline/");
+            if (chirpService.postChirp(username, content)) {
+                ResponseUtils.sendRedirect(exchange, "/timeline/");
+            } else {
+                dataModel.put("username", username);
+                dataModel.put("error", "Your chirp could not be saved. Please try again.");
+                renderTemplate(exchange, dataModel);
+            }
         } else {
             // Render error
             dataModel.put("error", "Content cannot be empty.");
@@ -3,14 +3,16 @@ package edu.georgetown.handler.secure;
 import com.sun.net.httpserver.HttpExchange;
 import java.util.Map; // REMOVE DURING PRODUCTION
 import java.io.IOException;
-import java.util.Vector;
+import java.util.Locale;
 
-import edu.georgetown.model.Chirp;
+import edu.georgetown.model.ChirpPage;
 
 import edu.georgetown.display.BasePageHandler;
+import edu.georgetown.display.RequestContext;
 import edu.georgetown.display.TemplateRenderer;
-import edu.georgetown.http.CookieUtils;
 import edu.georgetown.http.ResponseUtils;
+import edu.georgetown.search.FullTextIndex;
+import edu.georgetown.search.TrendingTags;
 import edu.georgetown.service.SearchService;
 import edu.georgetown.service.UserService;
 
@@ -36,24 +38,34 @@ import edu.georgetown.service.UserService;
  * Key Features:
  * </p>
  * <ul>
- * <li>Handles GET requests to display the search page for logged-in users.</li>
+ * <li>Handles GET requests to display the search page for logged-in users, and
+ * to display further pages of tag results
+ * ({@code /search/?query=#tag&before=<cursor>}).</li>
  * <li>Handles POST requests to process search queries and display results.</li>
- * <li>Validates search queries to ensure they start with '@' (user search) or
- * '#' (tag search).</li>
+ * <li>Runs queries starting with '@' as user searches, queries starting with
+ * '#' as tag searches, and any other query as a full-text search of the chirps'
+ * words, ranked by relevance or recency.</li>
+ * <li>Shows the hashtags trending in the last hour, each linking to its tag
+ * search.</li>
  * <li>Provides error handling and feedback for invalid queries.</li>
  * </ul>
  * 
  * <p>
  * Note:
  * </p>
- * <li>Queries must start with '@' for user searches or '#' for tag
- * searches.</li>
+ * <li>Queries must be at least two characters long.</li>
  * <li>If the query is invalid, an error message is displayed on the search
  * page.</li>
  */
 public class SearchPageHandler extends BasePageHandler {
     private final static String SEARCH_TEMPLATE = "secure/search.ftl";
     private final static String QUERY_FIELD = "query";
+    private final static String BEFORE_FIELD = "before";
+    private final static String ORDER_FIELD = "order";
+    /** Number of tag results shown per page */
+    private final static int PAGE_SIZE = 50;
+    /** Number of trending tags shown beside the search form */
+    private final static int TRENDING_SIZE = 10;
     private final SearchService searchService;
 
     public SearchPageHandler(TemplateRenderer tr, SearchService ss, UserService us) {
@@ -67,12 +79,13 @@ public class SearchPageHandler extends BasePageHandler {
      * <p>
      * This method checks if the user is logged in by verifying the session
      * cookies. If the user is logged in, their username is retrieved from the
-     * cookies and added to the data model. The search page template is then
-     * rendered with the provided data model. If the user is not logged in, they
-     * are redirected to the home page.
+     * cookies and added to the data model. If the URL carries a query, as in the
+     * links to further pages of results, the query is run as for a POST. The
+     * search page template is then rendered with the provided data model. If the
+     * user is not logged in, they are redirected to the home page.
      * </p>
      * 
-     * @param exchange  The HttpExchange object that contains the request and
+     * @param context   The request context that contains the request and
      *                  response
      *                  details.
      * @param dataModel A map containing the data to be passed to the template for
@@ -80,10 +93,17 @@ public class SearchPageHandler extends BasePageHandler {
      * @throws IOException If an I/O error occurs during the handling of the
      *                     request.
      */
-    protected void handleGetRequest(HttpExchange exchange, Map<String, Object> dataModel) throws IOException {
-        if (userService.isLoggedIn(exchange)) {
-            String username = CookieUtils.getCookies(exchange).get("username");
+    protected void handleGetRequest(RequestContext context, Map<String, Object> dataModel) throws IOException {
+        HttpExchange exchange = context.getExchange();
+        if (context.isLoggedIn()) {
+            String username = context.getUsername();
             dataModel.put("username", username);
+            Map<String, String> queryParams = context.getQuery();
+            String query = extractField(queryParams, QUERY_FIELD);
+            if (!query.isEmpty() && validateQuery(dataModel, query)) {
+                putResults(dataModel, query, queryParams.get(BEFORE_FIELD), queryParams.get(ORDER_FIELD));
+            }
+            putTrending(dataModel);
             renderTemplate(exchange, dataModel);
         } else {
             ResponseUtils.sendRedirect(exchange, "/");
@@ -93,7 +113,7 @@ public class SearchPageHandler extends BasePageHandler {
     /**
      * Handles POST requests for the search page.
      *
-     * @param exchange    The HttpExchange object that contains the request and
+     * @param context     The request context that contains the request and
      *                    response.
      * @param dataModel   A map representing the data model to be used for rendering
      *                    templates.
@@ -112,8 +132,9 @@ public class SearchPageHandler extends BasePageHandler {
      *                     message and renders the template with the error.
      */
     @Override
-    protected void handlePostRequest(HttpExchange exchange, Map<String, Object> dataModel,
+    protected void handlePostRequest(RequestContext context, Map<String, Object> dataModel,
             Map<String, String> rawFormData) throws IOException {
+        HttpExchange exchange = context.getExchange();
         // Extract values from rawFormData
         String query = extractField(rawFormData, QUERY_FIELD);
 
@@ -127,11 +148,13 @@ public class SearchPageHandler extends BasePageHandler {
         // Return list of chirps
         if (queryIsValid) {
             logger.info("Searched for query: " + query);
-            dataModel.put("results", executeQuery(query));
+            putResults(dataModel, query, null, rawFormData.get(ORDER_FIELD));
+            putTrending(dataModel);
             renderTemplate(exchange, dataModel);
         } else {
             dataModel.put("errorModalMessage",
-                    "The query was not valid. Start your query with an at symbol ('@') to search for a Chirper, or with a pound symbol ('#') to search for a tag.");
+                    "The query was not valid. Enter at least two characters: words to search for, a Chirper's username starting with an at symbol ('@'), or a tag starting with a pound symbol ('#').");
+            putTrending(dataModel);
             renderTemplate(exchange, dataModel);
         }
     }
@@ -201,8 +224,6 @@ public class SearchPageHandler extends BasePageHandler {
      * <ul>
      * <li>The query must not be blank and must have a length of at least 2
      * characters.</li>
-     * <li>The query must start with an '@' for a user query or a '#' for a tag
-     * query.</li>
      * </ul>
      * 
      * <p>
@@ -222,42 +243,65 @@ public class SearchPageHandler extends BasePageHandler {
             putError(dataModel, "query", "Query must not be blank.");
             return false;
         }
-        if (query.charAt(0) == '@'
-                || query.charAt(0) == '#') {
-            putSuccess(dataModel, QUERY_FIELD, query);
-            return true;
-        } else {
-            putError(dataModel, "query",
-                    "Query must start with an at sign '@' for a user query, or a pound sign '#' for a tag query.");
-            return false;
-        }
+        putSuccess(dataModel, QUERY_FIELD, query);
+        return true;
+    }
+
+    /**
+     * Adds the most used tags of the last hour to the data model. They are read
+     * from counters kept as chirps are posted, so this scans no chirps.
+     *
+     * @param dataModel The map representing the data model to be updated.
+     */
+    private void putTrending(Map<String, Object> dataModel) {
+        dataModel.put("trending", searchService.getTrendingTags(TrendingTags.Window.HOUR, TRENDING_SIZE));
+    }
+
+    /**
+     * Runs a valid query and adds its results to the data model, with the cursor
+     * of the next page if there is one.
+     *
+     * @param dataModel The map representing the data model to be updated.
+     * @param query     The valid search query string.
+     * @param before    The cursor of the page to show, or null for the first page.
+     * @param order     The order of full-text results ("relevance" or "recency"),
+     *                  or null for relevance.
+     */
+    private void putResults(Map<String, Object> dataModel, String query, String before, String order) {
+        FullTextIndex.Order resultOrder = FullTextIndex.Order.parse(order);
+        dataModel.put(ORDER_FIELD, resultOrder.name().toLowerCase(Locale.ROOT));
+        ChirpPage page = executeQuery(query, before, resultOrder);
+        if (page == null)
+            return;
+        dataModel.put("results", page.getChirps());
+        if (page.hasMore())
+            dataModel.put("nextCursor", page.getNextCursor().toString());
     }
 
     /**
      * Executes a search query based on the specified query string.
      * The query string must begin with either '@' (to search by user) or '#' (to
      * search by tag),
-     * followed by the content to search for.
+     * followed by the content to search for; any other query is a full-text
+     * search. Tag results are returned a page at a time; user results all at
+     * once; full-text results as the best {@value #PAGE_SIZE}.
      *
-     * @param query The search query string. It must start with '@' or '#' and
-     *              contain at least one additional character.
-     * @return A Vector of Chirp objects matching the search criteria, or null if
-     *         the query is malformed.
+     * @param query  The search query string, at least two characters long.
+     * @param before The cursor of the page of tag results to return, or null for
+     *               the first page.
+     * @param order  The order of full-text results.
+     * @return The page of Chirp objects matching the search criteria.
      */
-    private Vector<Chirp> executeQuery(String query) {
-        // Assumes query begins with # or @ and contains at least one more character
-        // after that
+    private ChirpPage executeQuery(String query, String before, FullTextIndex.Order order) {
         char queryType = query.charAt(0);
         String queryContent = query.substring(1);
         switch (queryType) {
             case '@':
-                return searchService.searchByUser(queryContent);
+                return new ChirpPage(searchService.searchByUser(queryContent), null);
             case '#':
-                return searchService.searchByTag("#"+queryContent);
+                return searchService.searchByTag(queryContent, before, PAGE_SIZE);
             default:
-                // this should never happen
-                logger.warning("Logic error: query was malformed. Query: " + query);
-                return null;
+                return new ChirpPage(searchService.searchText(query, PAGE_SIZE, order), null);
         }
     }
 }
@@ -7,10 +7,10 @@ import java.util.Map;
 import java.util.Vector;
 
 import edu.georgetown.display.BasePageHandler;
+import edu.georgetown.display.RequestContext;
 import edu.georgetown.display.TemplateRenderer;
-import edu.georgetown.http.CookieUtils;
 import edu.georgetown.http.ResponseUtils;
-import edu.georgetown.model.Chirp;
+import edu.georgetown.model.ChirpPage;
 import edu.georgetown.service.ChirpService;
 import edu.georgetown.service.FollowService;
 import edu.georgetown.service.UserService;
@@ -40,6 +40,8 @@ import edu.georgetown.service.UserService;
 public class TimelinePageHandler extends BasePageHandler {
 
     private final static String TIMELINE_TEMPLATE = "secure/timeline.ftl";
+    /** Number of chirps shown per page */
+    private final static int PAGE_SIZE = 50;
     private final ChirpService chirpService;
     private final FollowService followService;
 
@@ -50,31 +52,37 @@ public class TimelinePageHandler extends BasePageHandler {
     }
 
     @Override
-    protected void handleGetRequest(HttpExchange exchange, Map<String, Object> dataModel) throws IOException {
-        if (!userService.isLoggedIn(exchange)) {
+    protected void handleGetRequest(RequestContext context, Map<String, Object> dataModel) throws IOException {
+        HttpExchange exchange = context.getExchange();
+        if (!context.isLoggedIn()) {
             ResponseUtils.sendRedirect(exchange, "/");
             return;
         }
-        String username = CookieUtils.getCookies(exchange).get("username");
+        String username = context.getUsername();
         dataModel.put("username", username);
         logger.info("Got username: " + username);
         Vector<String> followedUsers = followService.getAccountsUserFollows(username);
         dataModel.put("followedUsers", followedUsers);
         logger.info("Followed Users: " + followedUsers);
 
-        Vector<Chirp> chirps = chirpService.getAllChirps();
-        dataModel.put("chirps", chirps);
+        // Show one page of the newest chirps; "before" carries the cursor for older pages
+        String before = context.getQuery().get("before");
+        ChirpPage page = chirpService.getChirpsBefore(before, PAGE_SIZE);
+        dataModel.put("chirps", page.getChirps());
+        if (page.hasMore())
+            dataModel.put("nextCursor", page.getNextCursor().toString());
         renderTemplate(exchange, dataModel);
     }
 
     @Override
-    protected void handlePostRequest(HttpExchange exchange, Map<String, Object> dataModel,
+    protected void handlePostRequest(RequestContext context, Map<String, Object> dataModel,
             Map<String, String> rawFormData) throws IOException {
-        if (!userService.isLoggedIn(exchange)) {
+        HttpExchange exchange = context.getExchange();
+        if (!context.isLoggedIn()) {
             ResponseUtils.sendRedirect(exchange, "/");
             return;
         }
-        String activeUser = CookieUtils.getCookies(exchange).get("username");
+        String activeUser = context.getUsername();
         String targetUser = rawFormData.get("targetUser");
         String action = rawFormData.get("action");
 
@@ -88,6 +96,6 @@ public class TimelinePageHandler extends BasePageHandler {
 
         logger.info("Action successful: " + action + " " + targetUser);
 
-        handleGetRequest(exchange, dataModel); // Reuse GET logic after modifying state
+        handleGetRequest(context, dataModel); // Reuse GET logic after modifying state
     }
 }
\ No newline at end of file
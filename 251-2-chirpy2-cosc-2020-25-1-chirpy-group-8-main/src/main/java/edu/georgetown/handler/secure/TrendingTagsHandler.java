@@ -0,0 +1,94 @@
+package edu.georgetown.handler.secure;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Vector;
+
+import edu.georgetown.http.FormUtils;
+import edu.georgetown.http.JsonUtils;
+import edu.georgetown.http.ResponseUtils;
+import edu.georgetown.model.TrendingTag;
+import edu.georgetown.search.TrendingTags;
+import edu.georgetown.service.SearchService;
+import edu.georgetown.service.UserService;
+
+/**
+ * The {@code TrendingTagsHandler} class lists the trending hashtags as JSON.
+ *
+ * <p>
+ * A GET request to {@code /trending/?window=24h&limit=5} returns the most used
+ * tags of the last 24 hours, most used first, with their estimated counts:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * [{"tag":"java","count":42},{"tag":"hoyas","count":17}]
+ * }
+ * </pre>
+ *
+ * <p>
+ * The window is {@code 1h} (the default) or {@code 24h}; the limit defaults to
+ * {@value #DEFAULT_LIMIT} and is at most {@value #MAX_LIMIT}. Users who are not
+ * logged in get {@code 401 Unauthorized} with an empty array. The search page
+ * shows the same list for the last hour.
+ * </p>
+ *
+ * @see SearchService#getTrendingTags(TrendingTags.Window, int)
+ */
+public class TrendingTagsHandler implements HttpHandler {
+
+    private final static String WINDOW_FIELD = "window";
+    private final static String LIMIT_FIELD = "limit";
+    final static int DEFAULT_LIMIT = 10;
+    final static int MAX_LIMIT = 50;
+
+    private final SearchService searchService;
+    private final UserService userService;
+
+    public TrendingTagsHandler(SearchService ss, UserService us) {
+        this.searchService = ss;
+        this.userService = us;
+    }
+
+    /**
+     * Handles the HTTP exchange by sending the trending tags as JSON.
+     *
+     * @param exchange the {@link HttpExchange} object representing the HTTP request
+     *                 and response
+     * @throws IOException if an I/O error occurs during the handling of the
+     *                     exchange
+     */
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (!userService.isLoggedIn(exchange)) {
+            ResponseUtils.sendJsonResponse(exchange, 401, "[]");
+            return;
+        }
+        Map<String, String> queryParams = FormUtils.parseQuery(exchange);
+        TrendingTags.Window window = TrendingTags.Window.parse(queryParams.get(WINDOW_FIELD));
+        Vector<TrendingTag> trending = searchService.getTrendingTags(window,
+                parseLimit(queryParams.get(LIMIT_FIELD)));
+
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < trending.size(); i++) {
+            if (i > 0)
+                json.append(',');
+            json.append("{\"tag\":").append(JsonUtils.quote(trending.get(i).getTag()))
+                    .append(",\"count\":").append(trending.get(i).getCount()).append('}');
+        }
+        ResponseUtils.sendJsonResponse(exchange, 200, json.append(']').toString());
+    }
+
+    private static int parseLimit(String text) {
+        if (text == null)
+            return DEFAULT_LIMIT;
+        try {
+            return Math.max(0, Math.min(MAX_LIMIT, Integer.parseInt(text.trim())));
+        } catch (NumberFormatException e) {
+            return DEFAULT_LIMIT;
+        }
+    }
+}
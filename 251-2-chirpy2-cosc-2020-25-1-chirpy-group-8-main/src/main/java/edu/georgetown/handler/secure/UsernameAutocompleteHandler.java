@@ -0,0 +1,74 @@
+package edu.georgetown.handler.secure;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.util.Vector;
+import java.util.logging.Logger;
+
+import edu.georgetown.http.FormUtils;
+import edu.georgetown.http.JsonUtils;
+import edu.georgetown.http.ResponseUtils;
+import edu.georgetown.service.UserService;
+
+/**
+ * The {@code UsernameAutocompleteHandler} class suggests usernames as the user
+ * types a user search.
+ *
+ * <p>
+ * A GET request to {@code /autocomplete/?q=al} (or {@code ?q=@al}) returns a
+ * JSON array of up to {@value #MAX_SUGGESTIONS} usernames starting with
+ * {@code al}, ignoring case, the most followed first:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * ["alice","Alan","alex"]
+ * }
+ * </pre>
+ *
+ * <p>
+ * The response is small and needs no template, so this handler implements
+ * {@link HttpHandler} directly. Users who are not logged in get
+ * {@code 401 Unauthorized} with an empty array.
+ * </p>
+ *
+ * @see UserService#suggestUsernames(String, int)
+ */
+public class UsernameAutocompleteHandler implements HttpHandler {
+
+    private static final Logger logger = Logger.getLogger(UsernameAutocompleteHandler.class.getName());
+    private final static String PREFIX_FIELD = "q";
+    /** The most usernames returned for one prefix */
+    final static int MAX_SUGGESTIONS = 10;
+
+    private final UserService userService;
+
+    public UsernameAutocompleteHandler(UserService us) {
+        this.userService = us;
+    }
+
+    /**
+     * Handles the HTTP exchange by sending the suggested usernames as JSON.
+     *
+     * @param exchange the {@link HttpExchange} object representing the HTTP request
+     *                 and response
+     * @throws IOException if an I/O error occurs during the handling of the
+     *                     exchange
+     */
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (!userService.isLoggedIn(exchange)) {
+            ResponseUtils.sendJsonResponse(exchange, 401, "[]");
+            return;
+        }
+        String prefix = FormUtils.parseQuery(exchange).get(PREFIX_FIELD);
+        Vector<String> usernames = new Vector<String>();
+        if (prefix != null && !prefix.isBlank()) {
+            usernames = userService.suggestUsernames(prefix.trim(), MAX_SUGGESTIONS);
+        }
+        logger.fine("UsernameAutocompleteHandler.handle: " + usernames.size() + " suggestions for " + prefix);
+        ResponseUtils.sendJsonResponse(exchange, 200, JsonUtils.toJsonArray(usernames));
+    }
+}
@@ -1,9 +1,7 @@
 package edu.georgetown.http;
 
-import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
@@ -47,7 +45,7 @@ import edu.georgetown.logging.LoggerFactory;
  * <ul>
  * <li>{@link com.sun.net.httpserver.HttpExchange}: Represents the HTTP exchange
  * context.</li>
- * <li>{@link java.net.URLEncoder} and {@link java.net.URLDecoder}: For encoding
+ * <li>{@link java.net.URLEncoder} and {@link UrlEncodedParser}: For encoding
  * and decoding cookie values.</li>
  * <li>{@link java.nio.charset.StandardCharsets}: For specifying UTF-8
  * encoding.</li>
@@ -55,6 +53,9 @@ import edu.georgetown.logging.LoggerFactory;
  */
 public class CookieUtils {
 
+    /** Longest {@code Cookie} header that is parsed */
+    public static final int MAX_COOKIE_HEADER_CHARS = 8 * 1024;
+
     private static final Logger logger = LoggerFactory.getLogger();
 
     /**
@@ -67,7 +68,8 @@ public class CookieUtils {
     public static void addCookie(HttpExchange exchange, String name, String value) {
         exchange.getResponseHeaders().add("Set-Cookie",
                 name + "=" + URLEncoder.encode(value, StandardCharsets.UTF_8) + "; Path=/; HttpOnly");
-        logger.info("Cookie added with name: '" + name + "', and value '" + value + "'.");
+        // the value is not logged: a session token must not end up in the logs
+        logger.info("Cookie added with name: '" + name + "'.");
     }
 
     /**
@@ -83,16 +85,17 @@ public class CookieUtils {
     }
 
     /**
-     * Gets the value of a cookie from the request.
+     * Gets the cookies from the request. Each {@code Cookie} header is parsed in
+     * a single pass; one longer than {@value #MAX_COOKIE_HEADER_CHARS}
+     * characters is ignored.
      * 
      * @param exchange the HttpExchange object representing the current exchange
-     * @param var      the name of the cookie
-     * @return the value of the cookie, or null if the cookie is not set
+     * @return the value of each cookie, by name
      */
     public static Map<String, String> getCookies(HttpExchange exchange) {
 
         // Create an empty cookies map
-        Map<String, String> cookies = new HashMap<String, String>();
+        Map<String, String> cookies = new ParameterMap();
         // Get the list of raw cookie data
         List<String> cookieList = exchange.getRequestHeaders().get("Cookie");
 
@@ -103,11 +106,12 @@ public class CookieUtils {
 
         // Parse each string in the raw data list
         for (String cookieStr : cookieList) {
-            String[] cookiesStr = cookieStr.split(";");
-            for (String cookie : cookiesStr) {
-                String[] parts = cookie.split("=");
-                cookies.put(parts[0], URLDecoder.decode(parts[1], StandardCharsets.UTF_8));
+            if (cookieStr.length() > MAX_COOKIE_HEADER_CHARS) {
+                logger.warning("CookieUtils.getCookies: ignoring cookie header over " + MAX_COOKIE_HEADER_CHARS
+                        + " chars");
+                continue;
             }
+            UrlEncodedParser.parseCookies(cookieStr, cookies);
         }
 
         // Return the parsed cookie map
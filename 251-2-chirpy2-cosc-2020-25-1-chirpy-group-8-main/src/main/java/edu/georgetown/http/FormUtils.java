@@ -1,9 +1,6 @@
 package edu.georgetown.http;
 
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
-import java.net.URLDecoder;
-import java.util.HashMap;
 import java.util.Map;
 
 import com.sun.net.httpserver.HttpExchange;
@@ -22,6 +19,13 @@ import edu.georgetown.logging.LoggerFactory;
  * </p>
  * 
  * <p>
+ * Bodies and query strings are parsed in a single pass by
+ * {@link UrlEncodedParser}, into a small array-backed map. A body larger than
+ * {@value #MAX_FORM_BYTES} bytes is not read, and at most
+ * {@value UrlEncodedParser#MAX_PAIRS} fields are kept.
+ * </p>
+ * 
+ * <p>
  * Usage Example:
  * </p>
  * 
@@ -32,6 +36,9 @@ import edu.georgetown.logging.LoggerFactory;
  */
 public class FormUtils {
 
+    /** Largest form body that is parsed */
+    public static final int MAX_FORM_BYTES = 64 * 1024;
+
     private static final Logger logger = LoggerFactory.getLogger();
 
     private FormUtils() {
@@ -40,40 +47,44 @@ public class FormUtils {
 
     /**
      * This is a helper function which parses the response from a HTML form and puts
-     * the results into a Map. This code was adopted from the code at
-     * https://stackoverflow.com/questions/13592236/parse-a-uri-string-into-name-value-collection.
-     * See `TestFormHandler.java` for an example of how to use this function.
-     * You probably don't want to change this function.
+     * the results into a Map. The body is read once, up to
+     * {@value #MAX_FORM_BYTES} bytes, and decoded in place.
      * 
-     * @param query the query string to parse
-     * @return the form data as a Map
-     * @throws UnsupportedEncodingException
+     * @param exchange the HTTP exchange
+     * @return the form data as a Map, empty if the body is larger than
+     *         {@value #MAX_FORM_BYTES} bytes
      */
     public static Map<String, String> parseResponse(HttpExchange exchange) {
-        Map<String, String> myMap = new HashMap<String, String>();
+        Map<String, String> myMap = new ParameterMap();
 
         // the data sent via the HTML form ends up in the request body
         byte[] b;
         try {
-            b = exchange.getRequestBody().readAllBytes();
+            b = exchange.getRequestBody().readNBytes(MAX_FORM_BYTES + 1);
         } catch (IOException e) {
             logger.warning("Cannot get request body: " + e);
             return myMap;
         }
-        String formData = new String(b);
-        if (formData.equals("")) {
+        if (b.length > MAX_FORM_BYTES) {
+            logger.warning("FormUtils.parseResponse: ignoring form body over " + MAX_FORM_BYTES + " bytes");
             return myMap;
         }
+        UrlEncodedParser.parse(b, b.length, myMap);
+        return myMap;
+    }
 
-        try {
-            String[] pairs = formData.split("&");
-            for (String pair : pairs) {
-                int idx = pair.indexOf("=");
-                myMap.put(URLDecoder.decode(pair.substring(0, idx), "UTF-8"),
-                        URLDecoder.decode(pair.substring(idx + 1), "UTF-8"));
-            }
-        } catch (IOException e) {
-            logger.warning("IOException: " + e.getMessage());
+    /**
+     * Parses the query string of the request URI (the part after {@code ?})
+     * into a Map, decoded the same way as form data.
+     * 
+     * @param exchange the HTTP exchange
+     * @return the query parameters as a Map, empty if there is no query string
+     */
+    public static Map<String, String> parseQuery(HttpExchange exchange) {
+        Map<String, String> myMap = new ParameterMap();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            UrlEncodedParser.parse(query, myMap);
         }
         return myMap;
     }
@@ -0,0 +1,61 @@
+package edu.georgetown.http;
+
+import java.util.Vector;
+
+/**
+ * Utility class for writing the small JSON responses of the API endpoints.
+ * 
+ * <p>
+ * Usage Example:
+ * </p>
+ * 
+ * <pre>{@code
+ * String json = JsonUtils.toJsonArray(usernames); // ["alice","Alan"]
+ * String field = JsonUtils.quote("say \"hi\""); // "say \"hi\""
+ * }</pre>
+ */
+public class JsonUtils {
+
+    private JsonUtils() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Writes a string as a JSON string literal. Control characters are escaped,
+     * and so are angle brackets, so the text cannot close a script element.
+     * 
+     * @param value The string
+     * @return The quoted, escaped string
+     */
+    public static String quote(String value) {
+        StringBuilder json = new StringBuilder(value.length() + 2);
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20 || c == '<' || c == '>') {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    /**
+     * Writes strings as a JSON array.
+     * 
+     * @param values The strings
+     * @return The JSON text, e.g. {@code ["a","b"]}
+     */
+    public static String toJsonArray(Vector<String> values) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0)
+                json.append(',');
+            json.append(quote(values.get(i)));
+        }
+        return json.append(']').toString();
+    }
+}
@@ -0,0 +1,158 @@
+package edu.georgetown.http;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A map of request parameters or cookies, kept as two flat arrays in the order
+ * they were added.
+ *
+ * <p>
+ * A request has a handful of cookies and form fields, so a linear scan of an
+ * array finds one faster than hashing, and the map costs two small arrays
+ * instead of a table and an entry object per pair. Lookups get slower as it
+ * grows, which the parsers bound with {@link UrlEncodedParser#MAX_PAIRS}.
+ * </p>
+ */
+class ParameterMap extends AbstractMap<String, String> {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private String[] keys = new String[INITIAL_CAPACITY];
+    private String[] values = new String[INITIAL_CAPACITY];
+    private int size;
+
+    @Override
+    public String get(Object key) {
+        int index = indexOf(key);
+        return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public String put(String key, String value) {
+        int index = indexOf(key);
+        if (index >= 0) {
+            String previous = values[index];
+            values[index] = value;
+            return previous;
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        keys[size] = key;
+        values[size] = value;
+        size++;
+        return null;
+    }
+
+    @Override
+    public String remove(Object key) {
+        int index = indexOf(key);
+        if (index < 0)
+            return null;
+        String previous = values[index];
+        removeAt(index);
+        return previous;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        return new AbstractSet<Map.Entry<String, String>>() {
+            @Override
+            public Iterator<Map.Entry<String, String>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    // ======= //
+    // Helpers //
+    // ======= //
+
+    private int indexOf(Object key) {
+        for (int i = 0; i < size; i++) {
+            if (Objects.equals(keys[i], key))
+                return i;
+        }
+        return -1;
+    }
+
+    private void removeAt(int index) {
+        int moved = size - index - 1;
+        System.arraycopy(keys, index + 1, keys, index, moved);
+        System.arraycopy(values, index + 1, values, index, moved);
+        size--;
+        keys[size] = null;
+        values[size] = null;
+    }
+
+    // ============= //
+    // Inner classes //
+    // ============= //
+
+    /**
+     * Iterates over the pairs in the order they were added.
+     */
+    private class EntryIterator implements Iterator<Map.Entry<String, String>> {
+        private int next;
+        private int last = -1;
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public Map.Entry<String, String> next() {
+            if (next >= size)
+                throw new NoSuchElementException();
+            last = next++;
+            int index = last;
+            return new SimpleEntry<String, String>(keys[index], values[index]) {
+                @Override
+                public String setValue(String value) {
+                    values[index] = value;
+                    return super.setValue(value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0)
+                throw new IllegalStateException();
+            removeAt(last);
+            next = last;
+            last = -1;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package edu.georgetown.http;
+
+import java.io.Closeable;
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import edu.georgetown.logging.LoggerFactory;
+
+/**
+ * The executor that runs HTTP requests, given to
+ * {@link com.sun.net.httpserver.HttpServer#setExecutor(Executor)}.
+ *
+ * <p>
+ * Three modes are supported:
+ * </p>
+ * <ul>
+ * <li>{@link Mode#LEGACY}: requests run one at a time on the server's
+ * dispatcher thread, as with {@code setExecutor(null)}.</li>
+ * <li>{@link Mode#POOL}: requests run on a fixed pool of platform threads fed by
+ * a bounded queue. When the queue is full the dispatcher thread runs the request
+ * itself, which stops it accepting new connections until the pool catches up
+ * (backpressure).</li>
+ * <li>{@link Mode#VIRTUAL}: each request runs on its own virtual thread. Virtual
+ * threads need Java 21; on older runtimes each request gets its own platform
+ * thread instead, and a warning is logged.</li>
+ * </ul>
+ *
+ * <p>
+ * In every mode the executor counts requests that are queued (accepted but not
+ * yet started), in flight, completed, and run by the dispatcher because the
+ * pool was full.
+ * </p>
+ *
+ * <p>
+ * Usage example:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * RequestExecutor executor = new RequestExecutor(RequestExecutor.Mode.POOL, 16, 1024);
+ * server.setExecutor(executor);
+ * ...
+ * executor.close(); // lets in-flight requests finish
+ * }
+ * </pre>
+ */
+public class RequestExecutor implements Executor, Closeable {
+
+    private final Logger logger = LoggerFactory.getLogger();
+
+    /** Default number of pool threads: requests mostly wait on disk, not CPU */
+    public static final int DEFAULT_THREADS = 4 * Runtime.getRuntime().availableProcessors();
+    /** Default number of requests that may wait for a pool thread */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    /** How long {@link #close()} waits for in-flight requests */
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * How requests are run.
+     */
+    public enum Mode {
+        /** On the server's dispatcher thread, one at a time */
+        LEGACY,
+        /** On a bounded pool of platform threads */
+        POOL,
+        /** On a new virtual thread per request (platform thread before Java 21) */
+        VIRTUAL;
+
+        /**
+         * Parses a mode name, ignoring case.
+         *
+         * @param name The name, e.g. {@code "pool"}.
+         * @return The mode.
+         * @throws IllegalArgumentException If the name is not a mode.
+         */
+        public static Mode parse(String name) {
+            return Mode.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private final Mode mode;
+    /** Runs the requests; null in LEGACY mode */
+    private final ExecutorService delegate;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong callerRuns = new AtomicLong();
+
+    /**
+     * Creates the executor and, in POOL mode, starts its threads.
+     *
+     * @param mode          How requests are run.
+     * @param threads       Number of pool threads (POOL mode only).
+     * @param queueCapacity Number of requests that may wait for a pool thread
+     *                      (POOL mode only).
+     */
+    public RequestExecutor(Mode mode, int threads, int queueCapacity) {
+        this.mode = mode;
+        switch (mode) {
+            case POOL:
+                ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<Runnable>(queueCapacity), namedThreads("http-worker-"),
+                        (request, executor) -> runOnCaller(request, executor));
+                pool.prestartAllCoreThreads();
+                this.delegate = pool;
+                logger.info("RequestExecutor: " + threads + " worker threads, queue of " + queueCapacity);
+                break;
+            case VIRTUAL:
+                this.delegate = newThreadPerRequestExecutor();
+                break;
+            default:
+                this.delegate = null;
+                logger.info("RequestExecutor: requests run on the dispatcher thread");
+        }
+    }
+
+    /**
+     * Runs a request according to the mode.
+     *
+     * @param request The request to run.
+     * @throws RejectedExecutionException If the executor has been closed.
+     */
+    @Override
+    public void execute(Runnable request) {
+        queued.incrementAndGet();
+        Runnable counted = () -> {
+            queued.decrementAndGet();
+            inFlight.incrementAndGet();
+            try {
+                request.run();
+            } finally {
+                inFlight.decrementAndGet();
+                completed.incrementAndGet();
+            }
+        };
+        if (delegate == null) {
+            counted.run();
+            return;
+        }
+        try {
+            delegate.execute(counted);
+        } catch (RejectedExecutionException ex) {
+            queued.decrementAndGet();
+            throw ex;
+        }
+    }
+
+    /**
+     * Stops accepting requests and waits up to
+     * {@value #SHUTDOWN_TIMEOUT_MILLIS} ms for the ones in flight to finish.
+     */
+    @Override
+    public void close() {
+        if (delegate != null) {
+            delegate.shutdown();
+            try {
+                if (!delegate.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+                    logger.warning("RequestExecutor.close: " + inFlight.get() + " requests still running");
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        logger.info("RequestExecutor.close: " + this);
+    }
+
+    /** @return how requests are run */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /** @return the number of requests accepted but not yet started */
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    /** @return the number of requests running now */
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    /** @return the number of requests finished so far */
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    /** @return the number of requests the dispatcher ran itself because the pool was full */
+    public long getCallerRunsCount() {
+        return callerRuns.get();
+    }
+
+    @Override
+    public String toString() {
+        return mode + " executor: " + queued.get() + " queued, " + inFlight.get() + " in flight, "
+                + completed.get() + " completed, " + callerRuns.get() + " run by the dispatcher";
+    }
+
+    // ======= //
+    // Helpers //
+    // ======= //
+
+    /**
+     * Rejection policy for a full pool: run the request on the dispatcher thread.
+     * The counters are already maintained by the wrapped request.
+     */
+    private void runOnCaller(Runnable request, ThreadPoolExecutor executor) {
+        if (executor.isShutdown())
+            throw new RejectedExecutionException("Request executor is closed");
+        callerRuns.incrementAndGet();
+        request.run();
+    }
+
+    /**
+     * Creates an executor that starts a virtual thread per request, looked up
+     * reflectively so that the server still builds and runs on Java 17. Falls
+     * back to a platform thread per request.
+     */
+    private ExecutorService newThreadPerRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            logger.info("RequestExecutor: one virtual thread per request");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            logger.warning("RequestExecutor: virtual threads need Java 21; using one platform thread per request");
+            return Executors.newCachedThreadPool(namedThreads("http-request-"));
+        }
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
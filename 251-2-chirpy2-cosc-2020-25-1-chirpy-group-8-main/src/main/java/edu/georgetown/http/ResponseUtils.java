@@ -2,6 +2,8 @@ package edu.georgetown.http;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
 import com.sun.net.httpserver.HttpExchange;
 
@@ -16,6 +18,10 @@ import com.sun.net.httpserver.HttpExchange;
  * <ul>
  * <li>{@link #sendHtmlResponse(HttpExchange, String)}: Sends an HTML response
  * to the client.</li>
+ * <li>{@link #streamHtmlResponse(HttpExchange, BodyWriter)}: Streams an HTML
+ * response to the client as it is written, e.g. by a template.</li>
+ * <li>{@link #sendJsonResponse(HttpExchange, int, String)}: Sends a JSON
+ * response to the client.</li>
  * <li>{@link #sendRedirect(HttpExchange, String)}: Redirects the client to a
  * specified URL.</li>
  * </ul>
@@ -34,14 +40,79 @@ import com.sun.net.httpserver.HttpExchange;
  * </pre>
  */
 public class ResponseUtils {
+    /** Characters buffered before they are encoded and sent as a chunk */
+    private static final int STREAM_BUFFER_SIZE = 8192;
+    private static final String HTML_CONTENT_TYPE = "text/html; charset=utf-8";
+
+    /**
+     * Writes the body of a streamed response.
+     */
+    @FunctionalInterface
+    public interface BodyWriter {
+        /**
+         * @param out The writer to the response body
+         * @throws IOException If an I/O error occurs.
+         */
+        void writeTo(Writer out) throws IOException;
+    }
+
+    /**
+     * Sends an HTML response, encoded as UTF-8.
+     * 
+     * @param exchange     The HttpExchange object for the request.
+     * @param responseBody The HTML text.
+     * @throws IOException If an I/O error occurs.
+     */
     public static void sendHtmlResponse(HttpExchange exchange, String responseBody) throws IOException {
+        // the length is in bytes, which differs from the length in characters
+        // for anything outside ASCII
+        byte[] bytes = responseBody.getBytes(StandardCharsets.UTF_8);
         // set the type of content (in this case, we're sending back HTML)
-        exchange.getResponseHeaders().set("Content-Type", "text/html");
+        exchange.getResponseHeaders().set("Content-Type", HTML_CONTENT_TYPE);
         // send the HTTP headers
-        exchange.sendResponseHeaders(200, responseBody.length());
+        exchange.sendResponseHeaders(200, bytes.length);
         // finally, write the actual response (the contents of the template)
         OutputStream os = exchange.getResponseBody();
-        os.write(responseBody.getBytes());
+        os.write(bytes);
+        os.close();
+    }
+
+    /**
+     * Streams an HTML response, encoded as UTF-8, with chunked transfer
+     * encoding. The body is encoded and sent as it is written, through a
+     * buffer of {@value #STREAM_BUFFER_SIZE} characters, so the page is never
+     * held in memory as a whole. The writer is a {@link Utf8Writer}, so
+     * pre-encoded fragments can be copied in as they are. The status is sent
+     * before the body is written, so it is always 200.
+     * 
+     * @param exchange The HttpExchange object for the request.
+     * @param body     Writes the HTML text.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void streamHtmlResponse(HttpExchange exchange, BodyWriter body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", HTML_CONTENT_TYPE);
+        // a length of 0 selects chunked transfer encoding
+        exchange.sendResponseHeaders(200, 0);
+        try (Writer out = new Utf8Writer(exchange.getResponseBody(), STREAM_BUFFER_SIZE)) {
+            body.writeTo(out);
+        }
+    }
+
+    /**
+     * Sends a JSON response, encoded as UTF-8.
+     * 
+     * @param exchange     The HttpExchange object for the request.
+     * @param statusCode   The HTTP status code, e.g. 200.
+     * @param responseBody The JSON text.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void sendJsonResponse(HttpExchange exchange, int statusCode, String responseBody)
+            throws IOException {
+        byte[] bytes = responseBody.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(statusCode, bytes.length);
+        OutputStream os = exchange.getResponseBody();
+        os.write(bytes);
         os.close();
     }
 
@@ -0,0 +1,247 @@
+package edu.georgetown.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import edu.georgetown.logging.LoggerFactory;
+
+/**
+ * Single-pass parsers for URL-encoded {@code name=value} pairs: form bodies,
+ * query strings and {@code Cookie} headers.
+ *
+ * <p>
+ * They replace {@code String.split}, which compiles or matches a pattern for
+ * every call, and {@link java.net.URLDecoder}, which builds a string for every
+ * name and value whether or not it has escapes. Each input is scanned once:
+ * a name or value without {@code '%'} or {@code '+'} is copied out as it is,
+ * and one with escapes is decoded straight into bytes and then into its
+ * string. A form body is decoded in place, so it needs no buffer besides the
+ * body itself.
+ * </p>
+ *
+ * <p>
+ * Decoding follows {@code application/x-www-form-urlencoded}: {@code '+'} is a
+ * space and {@code %XX} a byte of UTF-8. A {@code '%'} that does not start a
+ * valid escape is kept as it is, where {@code URLDecoder} would have thrown.
+ * At most {@value #MAX_PAIRS} pairs are read from one input; the rest are
+ * dropped and a warning is logged.
+ * </p>
+ */
+final class UrlEncodedParser {
+
+    /** Most pairs read from one body, query string or cookie header */
+    static final int MAX_PAIRS = 64;
+
+    private static final Logger logger = LoggerFactory.getLogger();
+
+    private UrlEncodedParser() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Parses {@code &}-separated pairs from URL-encoded bytes, such as a form
+     * body. The bytes are overwritten as they are decoded. Pairs without an
+     * {@code =} are skipped.
+     *
+     * @param data   The bytes
+     * @param length The number of bytes to parse
+     * @param into   The map to add the decoded pairs to; a later pair replaces
+     *               an earlier one with the same name
+     */
+    static void parse(byte[] data, int length, Map<String, String> into) {
+        int pairs = 0;
+        int start = 0;
+        while (start < length) {
+            int end = start;
+            int equals = -1;
+            while (end < length && data[end] != '&') {
+                if (equals < 0 && data[end] == '=')
+                    equals = end;
+                end++;
+            }
+            if (equals >= 0) {
+                if (pairs++ == MAX_PAIRS) {
+                    logger.warning("UrlEncodedParser.parse: ignoring pairs after the first " + MAX_PAIRS);
+                    return;
+                }
+                into.put(decode(data, start, equals), decode(data, equals + 1, end));
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Parses {@code &}-separated pairs from URL-encoded text, such as a raw
+     * query string. Pairs without an {@code =} are skipped.
+     *
+     * @param text The text
+     * @param into The map to add the decoded pairs to; a later pair replaces an
+     *             earlier one with the same name
+     */
+    static void parse(CharSequence text, Map<String, String> into) {
+        parse(text, '&', false, into);
+    }
+
+    /**
+     * Parses the cookies of one {@code Cookie} header: {@code ;}-separated
+     * pairs, with spaces around them ignored. Names are kept as they are,
+     * values are URL-decoded (as {@link CookieUtils#addCookie} encodes them),
+     * and surrounding double quotes are removed.
+     *
+     * @param header The header value
+     * @param into   The map to add the cookies to
+     */
+    static void parseCookies(CharSequence header, Map<String, String> into) {
+        parse(header, ';', true, into);
+    }
+
+    // ======= //
+    // Helpers //
+    // ======= //
+
+    private static void parse(CharSequence text, char separator, boolean cookies, Map<String, String> into) {
+        int length = text.length();
+        int pairs = 0;
+        int start = 0;
+        while (start < length) {
+            int end = start;
+            int equals = -1;
+            while (end < length && text.charAt(end) != separator) {
+                if (equals < 0 && text.charAt(end) == '=')
+                    equals = end;
+                end++;
+            }
+            if (equals >= 0) {
+                int nameStart = start;
+                int nameEnd = equals;
+                int valueStart = equals + 1;
+                int valueEnd = end;
+                if (cookies) {
+                    nameStart = skipSpaces(text, nameStart, nameEnd);
+                    nameEnd = trimSpaces(text, nameStart, nameEnd);
+                    valueStart = skipSpaces(text, valueStart, valueEnd);
+                    valueEnd = trimSpaces(text, valueStart, valueEnd);
+                    if (valueEnd - valueStart >= 2 && text.charAt(valueStart) == '"'
+                            && text.charAt(valueEnd - 1) == '"') {
+                        valueStart++;
+                        valueEnd--;
+                    }
+                }
+                if (!cookies || nameEnd > nameStart) {
+                    if (pairs++ == MAX_PAIRS) {
+                        logger.warning("UrlEncodedParser.parse: ignoring pairs after the first " + MAX_PAIRS);
+                        return;
+                    }
+                    String name = cookies ? text.subSequence(nameStart, nameEnd).toString()
+                            : decode(text, nameStart, nameEnd);
+                    into.put(name, decode(text, valueStart, valueEnd));
+                }
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Decodes bytes in place, overwriting them, and returns them as a string.
+     * The decoded bytes are never longer than the encoded ones, so they fit.
+     */
+    private static String decode(byte[] data, int start, int end) {
+        int written = start;
+        int i = start;
+        while (i < end) {
+            byte b = data[i];
+            if (b == '+') {
+                data[written++] = ' ';
+                i++;
+            } else if (b == '%' && i + 2 < end && hex(data[i + 1]) >= 0 && hex(data[i + 2]) >= 0) {
+                data[written++] = (byte) (hex(data[i + 1]) << 4 | hex(data[i + 2]));
+                i += 3;
+            } else {
+                data[written++] = b;
+                i++;
+            }
+        }
+        return new String(data, start, written - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes part of a text. Text without escapes is copied as it is; text with
+     * escapes is decoded into UTF-8 bytes, then into a string.
+     */
+    private static String decode(CharSequence text, int start, int end) {
+        int i = start;
+        while (i < end && text.charAt(i) != '%' && text.charAt(i) != '+')
+            i++;
+        if (i == end)
+            return text.subSequence(start, end).toString();
+
+        // At most three bytes for each char (four for a surrogate pair)
+        byte[] bytes = new byte[3 * (end - start)];
+        int written = 0;
+        for (int j = start; j < i; j++) {
+            written = putUtf8(bytes, written, text.charAt(j));
+        }
+        while (i < end) {
+            char c = text.charAt(i);
+            if (c == '+') {
+                bytes[written++] = ' ';
+                i++;
+            } else if (c == '%' && i + 2 < end && hex(text.charAt(i + 1)) >= 0 && hex(text.charAt(i + 2)) >= 0) {
+                bytes[written++] = (byte) (hex(text.charAt(i + 1)) << 4 | hex(text.charAt(i + 2)));
+                i += 3;
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(i + 1));
+                bytes[written++] = (byte) (0xF0 | codePoint >> 18);
+                bytes[written++] = (byte) (0x80 | (codePoint >> 12 & 0x3F));
+                bytes[written++] = (byte) (0x80 | (codePoint >> 6 & 0x3F));
+                bytes[written++] = (byte) (0x80 | (codePoint & 0x3F));
+                i += 2;
+            } else {
+                written = putUtf8(bytes, written, c);
+                i++;
+            }
+        }
+        return new String(bytes, 0, written, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a char (not a surrogate pair) as UTF-8. A lone surrogate is
+     * written as is and becomes U+FFFD when the bytes are decoded.
+     */
+    private static int putUtf8(byte[] bytes, int written, char c) {
+        if (c < 0x80) {
+            bytes[written++] = (byte) c;
+        } else if (c < 0x800) {
+            bytes[written++] = (byte) (0xC0 | c >> 6);
+            bytes[written++] = (byte) (0x80 | (c & 0x3F));
+        } else {
+            bytes[written++] = (byte) (0xE0 | c >> 12);
+            bytes[written++] = (byte) (0x80 | (c >> 6 & 0x3F));
+            bytes[written++] = (byte) (0x80 | (c & 0x3F));
+        }
+        return written;
+    }
+
+    private static int hex(int c) {
+        if (c >= '0' && c <= '9')
+            return c - '0';
+        if (c >= 'a' && c <= 'f')
+            return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F')
+            return c - 'A' + 10;
+        return -1;
+    }
+
+    private static int skipSpaces(CharSequence text, int start, int end) {
+        while (start < end && (text.charAt(start) == ' ' || text.charAt(start) == '\t'))
+            start++;
+        return start;
+    }
+
+    private static int trimSpaces(CharSequence text, int start, int end) {
+        while (end > start && (text.charAt(end - 1) == ' ' || text.charAt(end - 1) == '\t'))
+            end--;
+        return end;
+    }
+}
@@ -0,0 +1,149 @@
+package edu.georgetown.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A buffered writer that encodes text as UTF-8 into an output stream, and can
+ * also write text that is already encoded.
+ *
+ * <p>
+ * {@link #writeUtf8(byte[])} sends the encoded bytes of the text written so far
+ * and then the given bytes, without flushing the stream. This lets a page that
+ * is mostly rendered text splice in fragments encoded once and reused, such as
+ * those of {@link edu.georgetown.display.FragmentCache}, without encoding them
+ * again or sending a small chunk for each.
+ * </p>
+ *
+ * <p>
+ * Like other writers, it is not safe to use from several threads at once.
+ * </p>
+ */
+public class Utf8Writer extends Writer {
+
+    private final OutputStream out;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+    /** Text written but not yet encoded */
+    private final CharBuffer chars;
+    /** Encoded text not yet written to the stream */
+    private final ByteBuffer bytes;
+    private boolean closed;
+
+    /**
+     * @param out        The stream to write to
+     * @param bufferSize The number of characters buffered before they are
+     *                   encoded
+     */
+    public Utf8Writer(OutputStream out, int bufferSize) {
+        this.out = out;
+        this.chars = CharBuffer.allocate(bufferSize);
+        this.bytes = ByteBuffer.allocate((int) Math.ceil(bufferSize * encoder.maxBytesPerChar()));
+    }
+
+    @Override
+    public void write(char[] text, int offset, int length) throws IOException {
+        ensureOpen();
+        while (length > 0) {
+            int count = Math.min(length, chars.remaining());
+            chars.put(text, offset, count);
+            offset += count;
+            length -= count;
+            if (!chars.hasRemaining())
+                encode(false);
+        }
+    }
+
+    @Override
+    public void write(String text, int offset, int length) throws IOException {
+        ensureOpen();
+        while (length > 0) {
+            int count = Math.min(length, chars.remaining());
+            chars.put(text, offset, offset + count);
+            offset += count;
+            length -= count;
+            if (!chars.hasRemaining())
+                encode(false);
+        }
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        ensureOpen();
+        chars.put((char) c);
+        if (!chars.hasRemaining())
+            encode(false);
+    }
+
+    /**
+     * Writes text that is already encoded as UTF-8, after the text written
+     * before it.
+     *
+     * @param encoded The UTF-8 bytes
+     * @throws IOException If the stream cannot be written.
+     */
+    public void writeUtf8(byte[] encoded) throws IOException {
+        ensureOpen();
+        encode(false);
+        out.write(encoded);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        encode(false);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        try {
+            encode(true);
+            encoder.flush(bytes);
+            writeBytes();
+        } finally {
+            closed = true;
+            out.close();
+        }
+    }
+
+    // ======= //
+    // Helpers //
+    // ======= //
+
+    /**
+     * Encodes the buffered text and writes it. An unpaired high surrogate at the
+     * end is kept for the next write, unless this is the end of the text.
+     */
+    private void encode(boolean endOfInput) throws IOException {
+        chars.flip();
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, endOfInput);
+            writeBytes();
+            if (!result.isOverflow())
+                break;
+        }
+        chars.compact();
+    }
+
+    private void writeBytes() throws IOException {
+        bytes.flip();
+        if (bytes.hasRemaining())
+            out.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+        bytes.clear();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed)
+            throw new IOException("Writer is closed");
+    }
+}
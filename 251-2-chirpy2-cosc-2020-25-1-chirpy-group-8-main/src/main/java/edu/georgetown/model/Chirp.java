@@ -16,6 +16,8 @@ public class Chirp implements Serializable {
     private LocalDateTime timestamp;
     private String formattedTime;
 
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("E, MMM d, h:mm a");
+
     /**
      * Chirp constructor, creates a new Chirp with the specific user/content
      * Timestamp is automatically created
@@ -25,13 +27,24 @@ public class Chirp implements Serializable {
      *                      characters
      */
     public Chirp(String ownerUsername, String content) {
+        this(ownerUsername, content, LocalDateTime.now()); // Set the current timestamp
+    }
+
+    /**
+     * Chirp constructor, recreates a Chirp with a known creation timestamp
+     * (for example when loading it from storage)
+     * 
+     * @param ownerUsername the username of the owner of the chirp
+     * @param content       the content (text) of the chirp
+     * @param timestamp     the time the chirp was created
+     */
+    public Chirp(String ownerUsername, String content, LocalDateTime timestamp) {
         this.ownerUsername = ownerUsername;
         this.content = content;
-        this.timestamp = LocalDateTime.now(); // Set the current timestamp
+        this.timestamp = timestamp;
 
         // Formats the timestamp
-        DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("E, MMM d, h:mm a");
-        this.formattedTime = this.timestamp.format(dateFormatter);
+        this.formattedTime = this.timestamp.format(DATE_FORMATTER);
     }
 
     /**
@@ -0,0 +1,97 @@
+package edu.georgetown.model;
+
+/**
+ * Represents a position in the global, time-ordered list of chirps.
+ * A cursor is the time a chirp was posted plus its storage key, which keeps
+ * cursors unique even when two chirps share a timestamp. Cursors are ordered by
+ * time, then by key.
+ *
+ * <p>
+ * A cursor can be passed around as text (for example in a "next page" link)
+ * with {@link #toString()} and read back with {@link #parse(String)}.
+ * </p>
+ */
+public class ChirpCursor implements Comparable<ChirpCursor> {
+
+    private static final char SEPARATOR = '-';
+
+    private final long millis;
+    private final String key;
+
+    /**
+     * ChirpCursor constructor
+     * 
+     * @param millis the time the chirp was posted, in epoch milliseconds
+     * @param key    the storage key of the chirp
+     */
+    public ChirpCursor(long millis, String key) {
+        this.millis = millis;
+        this.key = key;
+    }
+
+    /**
+     * Gets the time the chirp was posted
+     * 
+     * @return the time in epoch milliseconds
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * Gets the storage key of the chirp
+     * 
+     * @return the storage key
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Reads a cursor written by {@link #toString()}.
+     * 
+     * @param text the cursor text
+     * @return the cursor, or null if the text is not a valid cursor
+     */
+    public static ChirpCursor parse(String text) {
+        if (text == null)
+            return null;
+        int separator = text.indexOf(SEPARATOR);
+        if (separator <= 0)
+            return null;
+        try {
+            return new ChirpCursor(Long.parseLong(text.substring(0, separator)), text.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public int compareTo(ChirpCursor other) {
+        int byTime = Long.compare(millis, other.millis);
+        return byTime != 0 ? byTime : key.compareTo(other.key);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof ChirpCursor))
+            return false;
+        ChirpCursor other = (ChirpCursor) obj;
+        return millis == other.millis && key.equals(other.key);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(millis) * 31 + key.hashCode();
+    }
+
+    /**
+     * @return the cursor as text, in the form {@code <millis>-<key>}
+     */
+    @Override
+    public String toString() {
+        return millis + String.valueOf(SEPARATOR) + key;
+    }
+}
@@ -0,0 +1,52 @@
+package edu.georgetown.model;
+
+import java.util.Vector;
+
+/**
+ * Represents one page of chirps from the global timeline, newest first,
+ * together with the cursor to pass in to get the next (older) page.
+ */
+public class ChirpPage {
+
+    private final Vector<Chirp> chirps;
+    private final ChirpCursor nextCursor;
+
+    /**
+     * ChirpPage constructor
+     * 
+     * @param chirps     the chirps on this page, newest first
+     * @param nextCursor the cursor of the last chirp on this page, or null if
+     *                   there are no older chirps
+     */
+    public ChirpPage(Vector<Chirp> chirps, ChirpCursor nextCursor) {
+        this.chirps = chirps;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Gets the chirps on this page
+     * 
+     * @return the chirps, newest first
+     */
+    public Vector<Chirp> getChirps() {
+        return chirps;
+    }
+
+    /**
+     * Gets the cursor for the next page
+     * 
+     * @return the cursor, or null if this is the last page
+     */
+    public ChirpCursor getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Checks whether there are older chirps after this page
+     * 
+     * @return true if there is a next page
+     */
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
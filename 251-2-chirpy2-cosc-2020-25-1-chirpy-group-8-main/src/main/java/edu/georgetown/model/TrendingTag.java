@@ -0,0 +1,45 @@
+package edu.georgetown.model;
+
+/**
+ * A hashtag and about how many chirps used it in a trending window.
+ */
+public class TrendingTag {
+
+    private final String tag;
+    private final long count;
+
+    /**
+     * TrendingTag constructor
+     * 
+     * @param tag   the tag, in lower case without the leading '#'
+     * @param count the estimated number of chirps with the tag
+     */
+    public TrendingTag(String tag, long count) {
+        this.tag = tag;
+        this.count = count;
+    }
+
+    /**
+     * Gets the tag
+     * 
+     * @return the tag, in lower case without the leading '#'
+     */
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * Gets the estimated number of chirps with the tag. The estimate may be a
+     * little high, never low.
+     * 
+     * @return the count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + tag + " (" + count + ")";
+    }
+}
@@ -0,0 +1,183 @@
+package edu.georgetown.persistence;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import edu.georgetown.persistence.Serializer.ObjectTypeMismatchException;
+
+/**
+ * Base class for hand-written, versioned binary codecs.
+ *
+ * <p>
+ * Every encoded record starts with a two-byte header: a type tag identifying
+ * the model class and a format version. Subclasses write and read the fields
+ * that follow, and are given the stored version when decoding so that older
+ * formats stay readable after a field is added.
+ * </p>
+ *
+ * <p>
+ * Field encodings provided by {@link Writer} and {@link Reader}:
+ * </p>
+ * <ul>
+ * <li>Integers as unsigned LEB128 varints (7 bits per byte).</li>
+ * <li>Strings as a varint byte length followed by UTF-8 bytes.</li>
+ * <li>Booleans as a single byte.</li>
+ * </ul>
+ *
+ * <p>
+ * Type tags must never be {@code 0xAC}, the first byte of a Java serialization
+ * stream, so that {@link Serializer} can tell legacy records apart.
+ * </p>
+ *
+ * @param <T> The type of object handled by the codec.
+ */
+public abstract class BinaryCodec<T> implements Codec<T> {
+
+    private final byte typeTag;
+    private final byte version;
+
+    /**
+     * @param typeTag The tag written as the first byte of every record.
+     * @param version The format version written by {@link #encode(Object)}.
+     */
+    protected BinaryCodec(byte typeTag, byte version) {
+        this.typeTag = typeTag;
+        this.version = version;
+    }
+
+    @Override
+    public final byte[] encode(T value) throws IOException {
+        Writer out = new Writer();
+        out.writeByte(typeTag);
+        out.writeByte(version);
+        write(value, out);
+        return out.toByteArray();
+    }
+
+    @Override
+    public final T decode(byte[] bytes) throws IOException, ObjectTypeMismatchException {
+        Reader in = new Reader(bytes);
+        byte storedTag = in.readByte();
+        if (storedTag != typeTag)
+            throw new ObjectTypeMismatchException("Expected record type " + typeTag + " but found " + storedTag);
+
+        int storedVersion = in.readByte();
+        if (storedVersion < 1 || storedVersion > version)
+            throw new StreamCorruptedException("Unsupported record version " + storedVersion);
+        return read(in, storedVersion);
+    }
+
+    /**
+     * Writes the fields of an object, after the header.
+     *
+     * @param value The object to write.
+     * @param out   The destination.
+     */
+    protected abstract void write(T value, Writer out);
+
+    /**
+     * Reads the fields of an object, after the header.
+     *
+     * @param in      The source.
+     * @param version The format version the record was written with.
+     * @return The decoded object.
+     * @throws IOException If the record is truncated or malformed.
+     */
+    protected abstract T read(Reader in, int version) throws IOException;
+
+    // ============= //
+    // Inner classes //
+    // ============= //
+
+    /**
+     * A growable byte array with primitive writers.
+     */
+    public static final class Writer {
+        private byte[] buffer = new byte[64];
+        private int size;
+
+        public void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[size++] = (byte) value;
+        }
+
+        public void writeBoolean(boolean value) {
+            writeByte(value ? 1 : 0);
+        }
+
+        /** Writes a non-negative long as an unsigned varint */
+        public void writeVarLong(long value) {
+            if (value < 0)
+                throw new IllegalArgumentException("Negative varint: " + value);
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        /** Writes a string as a varint length followed by its UTF-8 bytes */
+        public void writeString(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(utf8.length);
+            ensureCapacity(utf8.length);
+            System.arraycopy(utf8, 0, buffer, size, utf8.length);
+            size += utf8.length;
+        }
+
+        public byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > buffer.length)
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+
+    /**
+     * A cursor over a byte array with primitive readers matching {@link Writer}.
+     */
+    public static final class Reader {
+        private final byte[] buffer;
+        private int position;
+
+        public Reader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        public byte readByte() throws EOFException {
+            if (position >= buffer.length)
+                throw new EOFException("Record truncated at byte " + position);
+            return buffer[position++];
+        }
+
+        public boolean readBoolean() throws EOFException {
+            return readByte() != 0;
+        }
+
+        public long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return value;
+            }
+            throw new StreamCorruptedException("Varint too long at byte " + position);
+        }
+
+        public String readString() throws IOException {
+            long length = readVarLong();
+            if (length > buffer.length - position)
+                throw new EOFException("String of " + length + " bytes runs past end of record");
+            String value = new String(buffer, position, (int) length, StandardCharsets.UTF_8);
+            position += (int) length;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package edu.georgetown.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import edu.georgetown.logging.LoggerFactory;
+
+/**
+ * Periodically checkpoints a set of {@link Serializer}s on a background thread.
+ *
+ * <p>
+ * Each checkpoint compacts a serializer's log into a snapshot of its live
+ * records (see {@link SegmentedLog#checkpoint()}), so the time taken to load the
+ * data on the next start depends on how much data is live rather than on how
+ * many writes have ever been made. Serializers with nothing new since their last
+ * snapshot are skipped. Closing the checkpointer takes one final checkpoint, so
+ * a clean shutdown leaves nothing to replay.
+ * </p>
+ *
+ * <p>
+ * Usage example:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * Checkpointer checkpointer = new Checkpointer(10, TimeUnit.MINUTES, chirpSerializer, followSerializer);
+ * checkpointer.start();
+ * ...
+ * checkpointer.close(); // final checkpoint
+ * }
+ * </pre>
+ */
+public class Checkpointer implements Closeable {
+
+    private final Logger logger = LoggerFactory.getLogger();
+    private final Serializer<?>[] serializers;
+    private final long interval;
+    private final TimeUnit unit;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a checkpointer. Nothing is scheduled until {@link #start()}.
+     *
+     * @param interval    Time between checkpoints.
+     * @param unit        The unit of {@code interval}.
+     * @param serializers The serializers to checkpoint.
+     */
+    public Checkpointer(long interval, TimeUnit unit, Serializer<?>... serializers) {
+        this.serializers = serializers;
+        this.interval = interval;
+        this.unit = unit;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpointer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts taking checkpoints every interval.
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::checkpointAll, interval, interval, unit);
+        logger.info("Checkpointer.start: checkpointing " + serializers.length + " serializer(s) every " + interval
+                + " " + unit.toString().toLowerCase());
+    }
+
+    /**
+     * Checkpoints every serializer now. A failure is logged and does not stop the
+     * other serializers from being checkpointed.
+     *
+     * @return the number of serializers for which a snapshot was written
+     */
+    public int checkpointAll() {
+        int written = 0;
+        for (Serializer<?> serializer : serializers) {
+            try {
+                if (serializer.checkpoint())
+                    written++;
+            } catch (IOException e) {
+                logger.warning("Checkpointer.checkpointAll: checkpoint failed: " + e.getMessage());
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Stops the schedule and takes a final checkpoint.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        checkpointAll();
+    }
+}
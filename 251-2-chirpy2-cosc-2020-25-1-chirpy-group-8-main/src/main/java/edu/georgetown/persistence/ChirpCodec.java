@@ -0,0 +1,44 @@
+package edu.georgetown.persistence;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import edu.georgetown.model.Chirp;
+
+/**
+ * Binary codec for {@link Chirp}.
+ *
+ * <p>
+ * Version 1 layout (after the {@link BinaryCodec} header):
+ * {@code [string ownerUsername][string content][varint timestamp]}, where the
+ * timestamp is stored as epoch milliseconds in the system time zone. The
+ * formatted time is not stored; it is recomputed from the timestamp on decode.
+ * </p>
+ */
+public class ChirpCodec extends BinaryCodec<Chirp> {
+
+    private static final byte TYPE_TAG = 'C';
+    private static final byte VERSION = 1;
+
+    public ChirpCodec() {
+        super(TYPE_TAG, VERSION);
+    }
+
+    @Override
+    protected void write(Chirp chirp, Writer out) {
+        out.writeString(chirp.getOwnerUsername());
+        out.writeString(chirp.getContent());
+        out.writeVarLong(chirp.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    @Override
+    protected Chirp read(Reader in, int version) throws IOException {
+        String ownerUsername = in.readString();
+        String content = in.readString();
+        LocalDateTime timestamp = LocalDateTime.ofInstant(Instant.ofEpochMilli(in.readVarLong()),
+                ZoneId.systemDefault());
+        return new Chirp(ownerUsername, content, timestamp);
+    }
+}
@@ -0,0 +1,38 @@
+package edu.georgetown.persistence;
+
+import java.io.IOException;
+
+import edu.georgetown.model.Chirper;
+
+/**
+ * Binary codec for {@link Chirper}.
+ *
+ * <p>
+ * Version 1 layout (after the {@link BinaryCodec} header):
+ * {@code [string username][string password][boolean publicChirps]}.
+ * </p>
+ */
+public class ChirperCodec extends BinaryCodec<Chirper> {
+
+    private static final byte TYPE_TAG = 'U';
+    private static final byte VERSION = 1;
+
+    public ChirperCodec() {
+        super(TYPE_TAG, VERSION);
+    }
+
+    @Override
+    protected void write(Chirper chirper, Writer out) {
+        out.writeString(chirper.getUsername());
+        out.writeString(chirper.getPassword());
+        out.writeBoolean(chirper.getPublicStatus());
+    }
+
+    @Override
+    protected Chirper read(Reader in, int version) throws IOException {
+        String username = in.readString();
+        String password = in.readString();
+        boolean publicChirps = in.readBoolean();
+        return new Chirper(username, password, publicChirps);
+    }
+}
@@ -0,0 +1,47 @@
+package edu.georgetown.persistence;
+
+import java.io.IOException;
+
+import edu.georgetown.persistence.Serializer.ObjectTypeMismatchException;
+
+/**
+ * A {@code Codec} converts objects of type {@code T} to and from the bytes that
+ * a {@link Serializer} stores, whether as a {@code .ser} file or as a record in
+ * a {@link SegmentedLog}.
+ *
+ * <p>
+ * Implementations:
+ * </p>
+ * <ul>
+ * <li>{@link JavaSerializationCodec}: standard Java serialization (the
+ * default).</li>
+ * <li>{@link ChirpCodec}, {@link ChirperCodec}, {@link FollowCodec}: compact,
+ * versioned binary formats for the model classes, built on
+ * {@link BinaryCodec}.</li>
+ * </ul>
+ *
+ * @param <T> The type of object handled by the codec.
+ */
+public interface Codec<T> {
+
+    /**
+     * Encodes an object into bytes.
+     *
+     * @param value The object to encode.
+     * @return The encoded bytes.
+     * @throws IOException If the object cannot be encoded.
+     */
+    byte[] encode(T value) throws IOException;
+
+    /**
+     * Decodes an object from bytes produced by {@link #encode(Object)}.
+     *
+     * @param bytes The encoded bytes.
+     * @return The decoded object.
+     * @throws IOException                 If the bytes are malformed.
+     * @throws ClassNotFoundException      If a class referenced by the bytes
+     *                                     cannot be found.
+     * @throws ObjectTypeMismatchException If the bytes encode a different type.
+     */
+    T decode(byte[] bytes) throws IOException, ClassNotFoundException, ObjectTypeMismatchException;
+}
@@ -0,0 +1,34 @@
+package edu.georgetown.persistence;
+
+import java.io.IOException;
+
+import edu.georgetown.model.Follow;
+
+/**
+ * Binary codec for {@link Follow}.
+ *
+ * <p>
+ * Version 1 layout (after the {@link BinaryCodec} header):
+ * {@code [string follower][string followee]}.
+ * </p>
+ */
+public class FollowCodec extends BinaryCodec<Follow> {
+
+    private static final byte TYPE_TAG = 'F';
+    private static final byte VERSION = 1;
+
+    public FollowCodec() {
+        super(TYPE_TAG, VERSION);
+    }
+
+    @Override
+    protected void write(Follow follow, Writer out) {
+        out.writeString(follow.getFollower());
+        out.writeString(follow.getFollowee());
+    }
+
+    @Override
+    protected Follow read(Reader in, int version) throws IOException {
+        return new Follow(in.readString(), in.readString());
+    }
+}
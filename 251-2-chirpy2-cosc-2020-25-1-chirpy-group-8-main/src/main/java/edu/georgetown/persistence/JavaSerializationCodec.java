@@ -0,0 +1,66 @@
+package edu.georgetown.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import edu.georgetown.persistence.Serializer.ObjectTypeMismatchException;
+
+/**
+ * A {@link Codec} that uses standard Java serialization
+ * ({@link ObjectOutputStream}). This is the format every {@link Serializer} used
+ * before codecs were introduced, and remains the default.
+ *
+ * @param <T> The type of object handled by the codec.
+ */
+public class JavaSerializationCodec<T extends Serializable> implements Codec<T> {
+
+    /** The first two bytes of every Java serialization stream */
+    private static final int STREAM_MAGIC = 0xACED;
+
+    private final Class<T> classType;
+
+    /**
+     * Creates a codec for the given class.
+     *
+     * @param classType The class of the objects to encode and decode.
+     */
+    public JavaSerializationCodec(Class<T> classType) {
+        this.classType = classType;
+    }
+
+    @Override
+    public byte[] encode(T value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream objOutStr = new ObjectOutputStream(bytes)) {
+            objOutStr.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public T decode(byte[] bytes) throws IOException, ClassNotFoundException, ObjectTypeMismatchException {
+        try (ObjectInputStream objInStr = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            // Read the object and cast it safely
+            Object obj = objInStr.readObject();
+            if (classType.isInstance(obj))
+                return classType.cast(obj);
+
+            throw new ObjectTypeMismatchException("Deserialization failed: Object is not of the expected type "
+                    + classType.getName());
+        }
+    }
+
+    /**
+     * Checks whether the bytes start with the Java serialization stream header.
+     *
+     * @param bytes The bytes to check.
+     * @return true if the bytes look like a Java serialization stream.
+     */
+    public static boolean isJavaSerialized(byte[] bytes) {
+        return bytes.length >= 2 && ((bytes[0] & 0xFF) << 8 | (bytes[1] & 0xFF)) == STREAM_MAGIC;
+    }
+}
@@ -0,0 +1,744 @@
+package edu.georgetown.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.Vector;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import edu.georgetown.logging.LoggerFactory;
+
+/**
+ * The {@code SegmentedLog} class is an append-only, keyed record store. Records
+ * are appended as length-prefixed frames to a rolling set of segment files in a
+ * single directory, so that persisting an object costs one sequential write
+ * instead of a file creation.
+ *
+ * <p>
+ * Layout:
+ * </p>
+ * <ul>
+ * <li>Segments are named {@code segment-<id>.log}, where {@code id} increases
+ * monotonically. Only the segment with the highest id (the active segment) is
+ * ever written to; every other segment is immutable.</li>
+ * <li>Each frame is {@code [int length][int crc32][body]}, where the body is
+ * {@code [byte op][short keyLength][key UTF-8][payload]}.</li>
+ * <li>An update is a new {@code PUT} frame for the same key and a delete is a
+ * {@code DELETE} frame (a tombstone). The latest frame for a key wins.</li>
+ * </ul>
+ *
+ * <p>
+ * On open, every segment is scanned once to rebuild an in-memory index from key
+ * to the location of its latest frame. A torn frame at the tail of the active
+ * segment (for example after a crash mid-write) is truncated away.
+ * </p>
+ *
+ * <p>
+ * Reads from sealed segments and snapshots, which never change, go through a
+ * read-only memory mapping of the file ({@link FileChannel#map}) that is
+ * created on first use. Records are decoded straight from the mapped pages, so
+ * repeated reads are served by the operating system's page cache rather than by
+ * objects on the heap.
+ * </p>
+ *
+ * <p>
+ * {@link #checkpoint()} compacts every sealed segment into a single snapshot
+ * file ({@code snapshot-<id>.log}) that holds only the live records, in the same
+ * frame format, and then deletes those segments. The snapshot takes the place
+ * of segment {@code id} in the log, so opening the log only has to scan the
+ * snapshot plus the segments written after it.
+ * </p>
+ *
+ * <p>
+ * All mutating methods are {@code synchronized}, so there is exactly one writer
+ * appending to the active segment at any time.
+ * </p>
+ *
+ * <p>
+ * Usage example:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * SegmentedLog log = new SegmentedLog(Path.of("data/posts"), SegmentedLog.DEFAULT_SEGMENT_BYTES);
+ * log.append(SegmentedLog.OP_PUT, "alice_1", payload);
+ * byte[] stored = log.read("alice_1");
+ * log.scan((key, bytes) -> System.out.println(key));
+ * log.checkpoint(); // compact sealed segments into a snapshot
+ * log.close();
+ * }
+ * </pre>
+ */
+public class SegmentedLog implements Closeable {
+
+    /** Default size at which the active segment is sealed and a new one opened */
+    public static final long DEFAULT_SEGMENT_BYTES = 16L * 1024 * 1024;
+
+    /** Frame operation: store (or overwrite) the payload for a key */
+    public static final byte OP_PUT = 1;
+    /** Frame operation: remove a key (tombstone) */
+    public static final byte OP_DELETE = 2;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SEGMENT_EXTENSION = ".log";
+    /** Suffix of a snapshot that is still being written */
+    private static final String TEMP_EXTENSION = ".tmp";
+    /** Length prefix plus CRC32 */
+    private static final int FRAME_HEADER_BYTES = 8;
+    /** Upper bound on a single frame, used to reject corrupt length prefixes */
+    private static final int MAX_FRAME_BYTES = 64 * 1024 * 1024;
+
+    private final Logger logger = LoggerFactory.getLogger();
+    private final Path directoryPath;
+    private final long maxSegmentBytes;
+
+    /** Segment id to segment path, in log order */
+    private final TreeMap<Long, Path> segments = new TreeMap<Long, Path>();
+    /** Key to the location of the latest PUT frame for that key */
+    private final HashMap<String, RecordLocation> index = new HashMap<String, RecordLocation>();
+
+    private FileChannel activeChannel;
+    private long activeSegmentId;
+    private long activeSize;
+    /** Id of the segment replaced by the current snapshot, or -1 if none */
+    private long snapshotId = -1;
+    /** Read-only mappings of sealed segments and snapshots, created on first read */
+    private final HashMap<Long, MappedByteBuffer> mappedSegments = new HashMap<Long, MappedByteBuffer>();
+    /** Held by {@link #checkpoint()} and {@link #scan}, which must not overlap */
+    private final Object checkpointLock = new Object();
+
+    /**
+     * Opens (or creates) a segmented log in the given directory. Existing segments
+     * are scanned to rebuild the key index.
+     *
+     * @param directoryPath   The directory holding the segment files.
+     * @param maxSegmentBytes The size after which the active segment is rolled.
+     * @throws IOException If the directory or a segment cannot be read.
+     */
+    public SegmentedLog(Path directoryPath, long maxSegmentBytes) throws IOException {
+        if (maxSegmentBytes <= FRAME_HEADER_BYTES)
+            throw new IllegalArgumentException("Segment size too small: " + maxSegmentBytes);
+
+        this.directoryPath = directoryPath;
+        this.maxSegmentBytes = maxSegmentBytes;
+        Files.createDirectories(directoryPath);
+
+        discoverFiles();
+
+        // Rebuild the index, truncating a torn tail on the newest segment
+        for (Map.Entry<Long, Path> entry : segments.entrySet()) {
+            boolean isActive = entry.getKey().equals(segments.lastKey()) && entry.getKey() != snapshotId;
+            recoverSegment(entry.getKey(), entry.getValue(), isActive);
+        }
+
+        if (segments.isEmpty()) {
+            openActiveSegment(1);
+        } else if (segments.lastKey() == snapshotId) {
+            // Never append to a snapshot
+            openActiveSegment(snapshotId + 1);
+        } else {
+            openActiveSegment(segments.lastKey());
+        }
+
+        logger.info("Opened segmented log at " + directoryPath + " with " + segments.size() + " segment(s) and "
+                + index.size() + " live record(s)" + (snapshotId > 0 ? " from snapshot " + snapshotId : "") + ".");
+    }
+
+    // ================= //
+    // Record operations //
+    // ================= //
+
+    /**
+     * Appends a frame to the active segment, rolling to a new segment first if the
+     * frame would not fit.
+     *
+     * @param op      {@link #OP_PUT} or {@link #OP_DELETE}.
+     * @param key     The record key.
+     * @param payload The record payload (ignored for deletes).
+     * @return The location of the appended frame.
+     * @throws IOException If the frame cannot be written.
+     */
+    public synchronized RecordLocation append(byte op, String key, byte[] payload) throws IOException {
+        ByteBuffer frame = encodeFrame(op, key, op == OP_DELETE ? new byte[0] : payload);
+
+        if (activeSize > 0 && activeSize + frame.remaining() > maxSegmentBytes) {
+            rollSegment();
+        }
+
+        long offset = activeSize;
+        while (frame.hasRemaining()) {
+            activeSize += activeChannel.write(frame, activeSize);
+        }
+
+        RecordLocation location = new RecordLocation(activeSegmentId, offset);
+        if (op == OP_DELETE) {
+            index.remove(key);
+        } else {
+            index.put(key, location);
+        }
+        return location;
+    }
+
+    /**
+     * Checks that a record can be appended: the key must fit the frame's 16-bit
+     * key length, and the frame must not be longer than the reader accepts.
+     *
+     * @param key     The record key.
+     * @param payload The record payload (null for deletes).
+     * @throws IllegalArgumentException If the key or the payload is too long.
+     */
+    public static void checkRecord(String key, byte[] payload) {
+        checkRecord(key, key.getBytes(StandardCharsets.UTF_8), payload == null ? 0 : payload.length);
+    }
+
+    /**
+     * Checks whether a key currently has a live (non-deleted) record.
+     *
+     * @param key The record key.
+     * @return true if the key has a live record, false otherwise.
+     */
+    public synchronized boolean containsKey(String key) {
+        return index.containsKey(key);
+    }
+
+    /**
+     * Returns the keys of every live record.
+     *
+     * @return A copy of the live keys, in no particular order.
+     */
+    public synchronized Vector<String> keys() {
+        return new Vector<String>(index.keySet());
+    }
+
+    /**
+     * Returns the number of live records in the log.
+     *
+     * @return The number of live keys.
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Reads the latest payload stored for a key.
+     *
+     * @param key The record key.
+     * @return The payload, or null if the key has no live record.
+     * @throws IOException If the segment cannot be read.
+     */
+    public byte[] read(String key) throws IOException {
+        RecordLocation location;
+        MappedByteBuffer mapped;
+        synchronized (this) {
+            location = index.get(key);
+            if (location == null)
+                return null;
+
+            // The active segment is still growing, so it is read through its channel
+            if (location.segmentId == activeSegmentId)
+                return readFrame(activeChannel, location.offset).payload;
+
+            mapped = mapSegment(location.segmentId);
+            if (mapped == null) {
+                try (FileChannel channel = FileChannel.open(segments.get(location.segmentId),
+                        StandardOpenOption.READ)) {
+                    return readFrame(channel, location.offset).payload;
+                }
+            }
+        }
+        // Sealed segments never change, so the mapping can be read without the lock
+        return readFrame(mapped, location.offset).payload;
+    }
+
+    /**
+     * Streams every live record to the consumer in log order. Superseded frames
+     * and tombstones are skipped, so each key is delivered at most once.
+     *
+     * @param consumer The callback receiving each key and payload.
+     * @throws IOException If a segment cannot be read, or the consumer fails.
+     */
+    public void scan(RecordConsumer consumer) throws IOException {
+        // A checkpoint would delete the segments being read
+        synchronized (checkpointLock) {
+            scanUnderCheckpointLock(consumer);
+        }
+    }
+
+    private void scanUnderCheckpointLock(RecordConsumer consumer) throws IOException {
+        TreeMap<Long, Path> segmentsSnapshot;
+        HashMap<String, RecordLocation> indexSnapshot;
+        long activeLimit;
+        synchronized (this) {
+            segmentsSnapshot = new TreeMap<Long, Path>(segments);
+            indexSnapshot = new HashMap<String, RecordLocation>(index);
+            activeLimit = activeSize;
+        }
+
+        for (Map.Entry<Long, Path> entry : segmentsSnapshot.entrySet()) {
+            long segmentId = entry.getKey();
+            try (FileChannel channel = FileChannel.open(entry.getValue(), StandardOpenOption.READ)) {
+                long limit = segmentId == segmentsSnapshot.lastKey() ? activeLimit : channel.size();
+                long offset = 0;
+                while (offset < limit) {
+                    Frame frame = readFrame(channel, offset);
+                    RecordLocation live = indexSnapshot.get(frame.key);
+                    if (frame.op == OP_PUT && live != null && live.segmentId == segmentId
+                            && live.offset == offset) {
+                        consumer.accept(frame.key, frame.payload);
+                    }
+                    offset += frame.length;
+                }
+            }
+        }
+    }
+
+    /**
+     * Compacts every sealed segment (and the previous snapshot, if any) into a new
+     * snapshot holding only the live records, then deletes them.
+     *
+     * <p>
+     * The active segment is sealed first, so appends continue into a fresh
+     * segment while the snapshot is written. The snapshot is written to a
+     * temporary file, synced, and renamed into place before anything is deleted,
+     * so a crash at any point leaves either the old files or the new snapshot.
+     * </p>
+     *
+     * @return true if a snapshot was written, false if nothing had changed since
+     *         the last one.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    public boolean checkpoint() throws IOException {
+        synchronized (checkpointLock) {
+            long startTime = System.currentTimeMillis();
+            long newSnapshotId;
+            HashMap<String, RecordLocation> live;
+            TreeMap<Long, Path> compacted;
+
+            // Seal the active segment and capture what the snapshot must hold
+            synchronized (this) {
+                boolean onlySnapshot = segments.size() == 1 || (segments.size() == 2 && snapshotId > 0);
+                if (activeSize == 0 && onlySnapshot)
+                    return false;
+                if (activeSize > 0)
+                    rollSegment();
+                newSnapshotId = activeSegmentId - 1;
+                live = new HashMap<String, RecordLocation>(index);
+                compacted = new TreeMap<Long, Path>(segments.headMap(newSnapshotId, true));
+            }
+
+            // Copy the live records, in log order, into the new snapshot
+            Vector<Map.Entry<String, RecordLocation>> ordered = new Vector<Map.Entry<String, RecordLocation>>(
+                    live.entrySet());
+            ordered.sort(Comparator.comparingLong((Map.Entry<String, RecordLocation> e) -> e.getValue().segmentId)
+                    .thenComparingLong(e -> e.getValue().offset));
+            HashMap<String, RecordLocation> relocated = new HashMap<String, RecordLocation>();
+            Path snapshotPath = directoryPath.resolve(snapshotFileName(newSnapshotId));
+            Path tempPath = directoryPath.resolve(snapshotFileName(newSnapshotId) + TEMP_EXTENSION);
+            try (FileChannel out = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                long outSize = 0;
+                FileChannel in = null;
+                long inSegmentId = -1;
+                try {
+                    for (Map.Entry<String, RecordLocation> entry : ordered) {
+                        RecordLocation location = entry.getValue();
+                        if (location.segmentId != inSegmentId) {
+                            if (in != null)
+                                in.close();
+                            in = FileChannel.open(compacted.get(location.segmentId), StandardOpenOption.READ);
+                            inSegmentId = location.segmentId;
+                        }
+                        ByteBuffer frame = encodeFrame(OP_PUT, entry.getKey(), readFrame(in, location.offset).payload);
+                        relocated.put(entry.getKey(), new RecordLocation(newSnapshotId, outSize));
+                        while (frame.hasRemaining()) {
+                            outSize += out.write(frame, outSize);
+                        }
+                    }
+                } finally {
+                    if (in != null)
+                        in.close();
+                }
+                out.force(true);
+            }
+            Files.move(tempPath, snapshotPath, StandardCopyOption.ATOMIC_MOVE);
+
+            // Point the index at the snapshot, unless a key has changed since
+            synchronized (this) {
+                for (Map.Entry<String, RecordLocation> entry : live.entrySet()) {
+                    if (index.get(entry.getKey()) == entry.getValue())
+                        index.put(entry.getKey(), relocated.get(entry.getKey()));
+                }
+                segments.headMap(newSnapshotId, true).clear();
+                segments.put(newSnapshotId, snapshotPath);
+                mappedSegments.keySet().removeIf(segmentId -> segmentId <= newSnapshotId);
+                snapshotId = newSnapshotId;
+            }
+            for (Path oldFile : compacted.values()) {
+                if (!oldFile.equals(snapshotPath))
+                    Files.deleteIfExists(oldFile);
+            }
+
+            logger.info("Checkpointed " + directoryPath + ": " + relocated.size() + " live record(s) from "
+                    + compacted.size() + " file(s) into snapshot " + newSnapshotId + " in "
+                    + (System.currentTimeMillis() - startTime) + " ms");
+            return true;
+        }
+    }
+
+    /**
+     * Forces all appended frames in the active segment to the storage device.
+     *
+     * @throws IOException If the force fails.
+     */
+    public synchronized void sync() throws IOException {
+        activeChannel.force(false);
+    }
+
+    /**
+     * Syncs and closes the active segment.
+     *
+     * @throws IOException If the active segment cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (activeChannel != null && activeChannel.isOpen()) {
+            activeChannel.force(false);
+            activeChannel.close();
+            logger.info("Closed segmented log at " + directoryPath);
+        }
+    }
+
+    // ================= //
+    // Segment handling  //
+    // ================= //
+
+    /**
+     * Seals the active segment and opens the next one.
+     *
+     * @throws IOException If the segments cannot be switched.
+     */
+    private void rollSegment() throws IOException {
+        activeChannel.force(false);
+        activeChannel.close();
+        logger.info("Sealed segment " + activeSegmentId + " at " + activeSize + " bytes.");
+        openActiveSegment(activeSegmentId + 1);
+    }
+
+    /**
+     * Finds the newest complete snapshot and the segments written after it, and
+     * removes anything a finished checkpoint made obsolete: older snapshots,
+     * segments covered by the snapshot, and half-written snapshots.
+     *
+     * @throws IOException If the directory cannot be read.
+     */
+    private void discoverFiles() throws IOException {
+        TreeMap<Long, Path> foundSegments = new TreeMap<Long, Path>();
+        TreeMap<Long, Path> foundSnapshots = new TreeMap<Long, Path>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directoryPath)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if (name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(TEMP_EXTENSION)) {
+                    Files.deleteIfExists(path);
+                    continue;
+                }
+                Long segmentId = parseFileId(path, SEGMENT_PREFIX);
+                if (segmentId != null) {
+                    foundSegments.put(segmentId, path);
+                    continue;
+                }
+                Long id = parseFileId(path, SNAPSHOT_PREFIX);
+                if (id != null)
+                    foundSnapshots.put(id, path);
+            }
+        }
+
+        if (!foundSnapshots.isEmpty()) {
+            snapshotId = foundSnapshots.lastKey();
+            segments.put(snapshotId, foundSnapshots.get(snapshotId));
+            for (Path obsolete : foundSnapshots.headMap(snapshotId).values())
+                Files.deleteIfExists(obsolete);
+            for (Path obsolete : foundSegments.headMap(snapshotId, true).values())
+                Files.deleteIfExists(obsolete);
+            foundSegments = new TreeMap<Long, Path>(foundSegments.tailMap(snapshotId, false));
+        }
+        segments.putAll(foundSegments);
+    }
+
+    /**
+     * Returns the read-only mapping of a sealed segment, mapping it on first use.
+     * Must be called while holding the lock.
+     *
+     * @param segmentId The segment id.
+     * @return The mapping, or null if the segment is too large to map in one
+     *         buffer.
+     * @throws IOException If the segment cannot be mapped.
+     */
+    private MappedByteBuffer mapSegment(long segmentId) throws IOException {
+        MappedByteBuffer mapped = mappedSegments.get(segmentId);
+        if (mapped != null)
+            return mapped;
+
+        try (FileChannel channel = FileChannel.open(segments.get(segmentId), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                return null;
+            // The mapping stays valid after the channel is closed
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        mappedSegments.put(segmentId, mapped);
+        return mapped;
+    }
+
+    /**
+     * Opens the segment with the given id as the active (writable) segment.
+     *
+     * @param segmentId The segment id.
+     * @throws IOException If the segment cannot be opened.
+     */
+    private void openActiveSegment(long segmentId) throws IOException {
+        Path segmentPath = directoryPath.resolve(segmentFileName(segmentId));
+        activeChannel = FileChannel.open(segmentPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        activeSegmentId = segmentId;
+        activeSize = activeChannel.size();
+        segments.put(segmentId, segmentPath);
+    }
+
+    /**
+     * Scans a segment and applies each valid frame to the index. A corrupt or
+     * partial frame ends the scan; on the active segment the tail from that point
+     * is truncated so new frames are appended after the last good one.
+     *
+     * @param segmentId   The segment id.
+     * @param segmentPath The segment path.
+     * @param isActive    Whether this is the newest segment.
+     * @throws IOException If the segment cannot be read.
+     */
+    private void recoverSegment(long segmentId, Path segmentPath, boolean isActive) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long offset = 0;
+            while (offset < size) {
+                Frame frame;
+                try {
+                    frame = readFrame(channel, offset);
+                } catch (CorruptFrameException ex) {
+                    logger.warning("Corrupt frame in " + segmentPath.getFileName() + " at offset " + offset + ": "
+                            + ex.getMessage());
+                    if (isActive) {
+                        channel.truncate(offset);
+                        logger.warning("Truncated " + segmentPath.getFileName() + " to " + offset + " bytes.");
+                    }
+                    break;
+                }
+                if (frame.op == OP_DELETE) {
+                    index.remove(frame.key);
+                } else {
+                    index.put(frame.key, new RecordLocation(segmentId, offset));
+                }
+                offset += frame.length;
+            }
+        }
+    }
+
+    // ============== //
+    // Frame encoding //
+    // ============== //
+
+    /**
+     * Encodes a frame into a buffer ready to be written.
+     */
+    private static ByteBuffer encodeFrame(byte op, String key, byte[] payload) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        checkRecord(key, keyBytes, payload.length);
+
+        int bodyLength = 1 + 2 + keyBytes.length + payload.length;
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_BYTES + bodyLength);
+        frame.putInt(bodyLength);
+        frame.putInt(0); // CRC placeholder
+        frame.put(op);
+        frame.putShort((short) keyBytes.length);
+        frame.put(keyBytes);
+        frame.put(payload);
+
+        CRC32 crc = new CRC32();
+        crc.update(frame.array(), FRAME_HEADER_BYTES, bodyLength);
+        frame.putInt(4, (int) crc.getValue());
+        frame.flip();
+        return frame;
+    }
+
+    private static void checkRecord(String key, byte[] keyBytes, int payloadLength) {
+        if (keyBytes.length > Short.MAX_VALUE)
+            throw new IllegalArgumentException("Key too long: " + key.length() + " characters");
+        if ((long) 1 + 2 + keyBytes.length + payloadLength > MAX_FRAME_BYTES)
+            throw new IllegalArgumentException("Payload too long for " + key + ": " + payloadLength + " bytes");
+    }
+
+    /**
+     * Reads and validates the frame starting at the given offset.
+     *
+     * @throws CorruptFrameException If the frame is truncated or fails its CRC.
+     * @throws IOException           If the channel cannot be read.
+     */
+    private static Frame readFrame(FileChannel channel, long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_BYTES);
+        readFully(channel, header, offset);
+        int bodyLength = header.getInt(0);
+        if (bodyLength < 3 || bodyLength > MAX_FRAME_BYTES)
+            throw new CorruptFrameException("invalid frame length " + bodyLength);
+
+        ByteBuffer body = ByteBuffer.allocate(bodyLength);
+        readFully(channel, body, offset + FRAME_HEADER_BYTES);
+        return decodeFrame(header.getInt(4), body.array());
+    }
+
+    /**
+     * Reads and validates the frame starting at the given offset of a mapped
+     * segment.
+     *
+     * @throws CorruptFrameException If the frame is truncated or fails its CRC.
+     */
+    private static Frame readFrame(MappedByteBuffer mapped, long offset) throws CorruptFrameException {
+        if (offset + FRAME_HEADER_BYTES > mapped.limit())
+            throw new CorruptFrameException("unexpected end of segment");
+        int position = (int) offset;
+        int bodyLength = mapped.getInt(position);
+        if (bodyLength < 3 || bodyLength > mapped.limit() - position - FRAME_HEADER_BYTES)
+            throw new CorruptFrameException("invalid frame length " + bodyLength);
+
+        byte[] body = new byte[bodyLength];
+        mapped.get(position + FRAME_HEADER_BYTES, body);
+        return decodeFrame(mapped.getInt(position + 4), body);
+    }
+
+    /**
+     * Checks a frame body against its CRC and splits it into its fields.
+     *
+     * @throws CorruptFrameException If the body fails its CRC or is malformed.
+     */
+    private static Frame decodeFrame(int storedCrc, byte[] bodyBytes) throws CorruptFrameException {
+        CRC32 crc = new CRC32();
+        crc.update(bodyBytes, 0, bodyBytes.length);
+        if ((int) crc.getValue() != storedCrc)
+            throw new CorruptFrameException("checksum mismatch");
+
+        ByteBuffer body = ByteBuffer.wrap(bodyBytes);
+        byte op = body.get();
+        int keyLength = body.getShort();
+        if (keyLength < 0 || keyLength > body.remaining())
+            throw new CorruptFrameException("invalid key length " + keyLength);
+        String key = new String(bodyBytes, body.position(), keyLength, StandardCharsets.UTF_8);
+        body.position(body.position() + keyLength);
+        byte[] payload = new byte[body.remaining()];
+        body.get(payload);
+
+        return new Frame(op, key, payload, FRAME_HEADER_BYTES + bodyBytes.length);
+    }
+
+    /**
+     * Fills the buffer from the channel starting at the given position.
+     *
+     * @throws CorruptFrameException If the end of the channel is reached first.
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0)
+                throw new CorruptFrameException("unexpected end of segment");
+        }
+        buffer.flip();
+    }
+
+    private static String segmentFileName(long segmentId) {
+        return String.format("%s%012d%s", SEGMENT_PREFIX, segmentId, SEGMENT_EXTENSION);
+    }
+
+    private static String snapshotFileName(long segmentId) {
+        return String.format("%s%012d%s", SNAPSHOT_PREFIX, segmentId, SEGMENT_EXTENSION);
+    }
+
+    private static Long parseFileId(Path path, String prefix) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith(prefix) || !name.endsWith(SEGMENT_EXTENSION))
+            return null;
+        try {
+            return Long.parseLong(name.substring(prefix.length(), name.length() - SEGMENT_EXTENSION.length()));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    // ============= //
+    // Inner classes //
+    // ============= //
+
+    /**
+     * Callback used by {@link SegmentedLog#scan(RecordConsumer)}.
+     */
+    @FunctionalInterface
+    public interface RecordConsumer {
+        void accept(String key, byte[] payload) throws IOException;
+    }
+
+    /**
+     * The position of a frame: the segment it lives in and its byte offset.
+     */
+    public static final class RecordLocation {
+        private final long segmentId;
+        private final long offset;
+
+        public RecordLocation(long segmentId, long offset) {
+            this.segmentId = segmentId;
+            this.offset = offset;
+        }
+
+        public long getSegmentId() {
+            return segmentId;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+    }
+
+    /** A decoded frame */
+    private static final class Frame {
+        private final byte op;
+        private final String key;
+        private final byte[] payload;
+        /** Total frame length, header included */
+        private final int length;
+
+        private Frame(byte op, String key, byte[] payload, int length) {
+            this.op = op;
+            this.key = key;
+            this.payload = payload;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Thrown when a frame is truncated or fails validation.
+     */
+    public static class CorruptFrameException extends IOException {
+        public CorruptFrameException(String message) {
+            super(message);
+        }
+    }
+}
@@ -8,6 +8,14 @@ import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Vector;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -38,6 +46,29 @@ import edu.georgetown.logging.LoggerFactory;
  * </ul>
  * 
  * <p>
+ * Objects are converted to bytes by a {@link Codec}. By default this is
+ * {@link JavaSerializationCodec}; the model classes have compact binary codecs
+ * ({@link ChirpCodec}, {@link ChirperCodec}, {@link FollowCodec}) that can be
+ * passed to the constructor instead.
+ * </p>
+ * 
+ * <p>
+ * Two storage modes are supported (see {@link StorageMode}). In
+ * {@code FILES} mode every object is written to its own {@code .ser} file. In
+ * {@code SEGMENTED_LOG} mode objects are appended as records to a
+ * {@link SegmentedLog} in the same directory, and the file name passed to each
+ * CRUD method is used as the record key.
+ * </p>
+ * 
+ * <p>
+ * In {@code SEGMENTED_LOG} mode the {@link Durability} decides when a write
+ * reaches the disk. With {@code GROUP_COMMIT} and {@code ASYNC}, writes are
+ * handed to a {@link WriteBehindQueue} and appended by a background thread that
+ * syncs once per batch, so the calling thread does no file I/O. Reads and
+ * existence checks see queued writes immediately.
+ * </p>
+ * 
+ * <p>
  * The class also defines custom exceptions to handle specific error scenarios:
  * </p>
  * <ul>
@@ -63,19 +94,68 @@ import edu.georgetown.logging.LoggerFactory;
  * serializer.deleteState("myFile");
  * // Loading all serializables from the Serializer's stored directory
  * Vector<MySerializableClass> allObjects = serializer.loadDirectory();
+ * // Or stream them to a callback using several worker threads
+ * serializer.loadDirectory(obj -> handle(obj), Serializer.DEFAULT_LOAD_PARALLELISM);
+ * // Same API, backed by an append-only segmented log
+ * Serializer<MySerializableClass> logSerializer = new Serializer<>(MySerializableClass.class, "myLogDirectory",
+ *         Serializer.StorageMode.SEGMENTED_LOG);
  * }
  * </pre>
  * 
  * @param <T> The type of objects to be serialized and deserialized. Must
  *            implement {@link Serializable}.
  */
-public class Serializer<T extends Serializable> {
+public class Serializer<T extends Serializable> implements Closeable {
 
     private final Logger logger = LoggerFactory.getLogger();
     /** Path to the directory where serialized objects will be stored */
     private final Path directoryPath;
     private final Class<T> classType;
     private static final String FILE_EXTENSION = ".ser";
+    /** Default number of load workers */
+    public static final int DEFAULT_LOAD_PARALLELISM = Runtime.getRuntime().availableProcessors();
+    /** Maximum number of objects read but not yet delivered during a load */
+    private static final int LOAD_WINDOW = 1024;
+    /** How often (in objects) load progress is logged */
+    private static final int PROGRESS_INTERVAL = 10000;
+    /** Encodes objects written by this Serializer */
+    private final Codec<T> codec;
+    /** Decodes objects written with Java serialization before a codec was chosen */
+    private final JavaSerializationCodec<T> legacyCodec;
+    /** Backing log in {@code SEGMENTED_LOG} mode, null in {@code FILES} mode */
+    private final SegmentedLog log;
+    /** When log writes become durable */
+    private final Durability durability;
+    /** Writes waiting for the log, null unless writes are queued */
+    private final WriteBehindQueue writeQueue;
+    /** Makes each existence check and the write that follows it atomic */
+    private final Object writeLock = new Object();
+
+    /**
+     * Where a Serializer keeps its objects.
+     */
+    public enum StorageMode {
+        /** One {@code .ser} file per object */
+        FILES,
+        /** Length-prefixed records appended to rolling segment files */
+        SEGMENTED_LOG
+    }
+
+    /**
+     * When a write to a {@code SEGMENTED_LOG} returns, relative to when it is on
+     * disk. {@code FILES} mode always writes on the calling thread.
+     */
+    public enum Durability {
+        /** Appended and synced on the calling thread before returning */
+        SYNC,
+        /** Queued; the caller waits until the batch holding it has been synced */
+        GROUP_COMMIT,
+        /**
+         * Queued; the caller returns at once, and the write is lost if the process
+         * dies before its batch is synced
+         */
+        ASYNC
+    }
 
     /**
      * Constructs a Serializer object and initializes the target directory.
@@ -94,6 +174,77 @@ public class Serializer<T extends Serializable> {
      *                                       directory.
      */
     public Serializer(Class<T> classType, String targetDirectory) throws NonSerializableClassException, IOException {
+        this(classType, targetDirectory, StorageMode.FILES);
+    }
+
+    /**
+     * Constructs a Serializer object using the given storage mode.
+     * 
+     * <p>
+     * In {@code SEGMENTED_LOG} mode the log is opened (and recovered) immediately,
+     * and any {@code .ser} files left in the directory by {@code FILES} mode are
+     * imported into the log and then removed.
+     * </p>
+     * 
+     * @param classType       The class of the objects to store.
+     * @param targetDirectory The name of the target directory to be created or
+     *                        used.
+     * @param storageMode     How objects are laid out on disk.
+     * @throws NonSerializableClassException
+     * @throws IOException                   If an error occurs while creating the
+     *                                       directory or opening the log.
+     */
+    public Serializer(Class<T> classType, String targetDirectory, StorageMode storageMode)
+            throws NonSerializableClassException, IOException {
+        this(classType, targetDirectory, storageMode, new JavaSerializationCodec<T>(classType));
+    }
+
+    /**
+     * Constructs a Serializer object using the given storage mode and codec.
+     * 
+     * <p>
+     * The codec decides how each object is turned into bytes. Stored bytes that
+     * start with the Java serialization header are always decoded with Java
+     * serialization, so data written before switching codecs stays readable.
+     * </p>
+     * 
+     * @param classType       The class of the objects to store.
+     * @param targetDirectory The name of the target directory to be created or
+     *                        used.
+     * @param storageMode     How objects are laid out on disk.
+     * @param codec           How objects are encoded.
+     * @throws NonSerializableClassException
+     * @throws IOException                   If an error occurs while creating the
+     *                                       directory or opening the log.
+     */
+    public Serializer(Class<T> classType, String targetDirectory, StorageMode storageMode, Codec<T> codec)
+            throws NonSerializableClassException, IOException {
+        this(classType, targetDirectory, storageMode, codec, Durability.SYNC);
+    }
+
+    /**
+     * Constructs a Serializer object using the given storage mode, codec and
+     * durability.
+     * 
+     * <p>
+     * With {@code GROUP_COMMIT} or {@code ASYNC} durability in
+     * {@code SEGMENTED_LOG} mode, a {@link WriteBehindQueue} holding up to
+     * {@value WriteBehindQueue#DEFAULT_CAPACITY} writes is started. Durability is
+     * ignored in {@code FILES} mode.
+     * </p>
+     * 
+     * @param classType       The class of the objects to store.
+     * @param targetDirectory The name of the target directory to be created or
+     *                        used.
+     * @param storageMode     How objects are laid out on disk.
+     * @param codec           How objects are encoded.
+     * @param durability      When log writes are synced.
+     * @throws NonSerializableClassException
+     * @throws IOException                   If an error occurs while creating the
+     *                                       directory or opening the log.
+     */
+    public Serializer(Class<T> classType, String targetDirectory, StorageMode storageMode, Codec<T> codec,
+            Durability durability) throws NonSerializableClassException, IOException {
         // Check if the class implements Serializable
         if (!Serializable.class.isAssignableFrom(classType))
             throw new NonSerializableClassException(
@@ -101,6 +252,8 @@ public class Serializer<T extends Serializable> {
 
         // Set object properties
         this.classType = classType;
+        this.codec = codec;
+        this.legacyCodec = new JavaSerializationCodec<T>(classType);
         this.directoryPath = Paths.get(System.getProperty("user.dir"), targetDirectory);
 
         // Create directory if it does not exist
@@ -115,6 +268,21 @@ public class Serializer<T extends Serializable> {
         } else {
             logger.info("Directory already exists: " + directoryPath.toAbsolutePath());
         }
+
+        if (storageMode == StorageMode.SEGMENTED_LOG) {
+            this.log = new SegmentedLog(directoryPath, SegmentedLog.DEFAULT_SEGMENT_BYTES);
+            migrateLegacyFiles();
+        } else {
+            this.log = null;
+        }
+
+        this.durability = durability;
+        if (log != null && durability != Durability.SYNC) {
+            this.writeQueue = new WriteBehindQueue(log, WriteBehindQueue.DEFAULT_CAPACITY,
+                    String.valueOf(directoryPath.getFileName()));
+        } else {
+            this.writeQueue = null;
+        }
     }
 
     // =============== //
@@ -135,6 +303,20 @@ public class Serializer<T extends Serializable> {
      */
     public void createState(T object, String fileName) throws FileAlreadyExistsException, IOException {
 
+        // Append a record instead of creating a file
+        if (log != null) {
+            byte[] bytes = toBytes(object);
+            WriteBehindQueue.Mutation queued;
+            synchronized (writeLock) {
+                if (recordExists(fileName))
+                    throw new FileAlreadyExistsException("The record already exists: " + fileName);
+                queued = writeRecord(SegmentedLog.OP_PUT, fileName, bytes);
+            }
+            awaitDurable(queued);
+            logger.info("Successfully appended record " + fileName + " to " + directoryPath);
+            return;
+        }
+
         // Create path to file
         Path fileToCreate = directoryPath.resolve(fileName + FILE_EXTENSION);
 
@@ -144,9 +326,8 @@ public class Serializer<T extends Serializable> {
         }
 
         // Attempt to create file
-        try (OutputStream outStr = Files.newOutputStream(fileToCreate);
-                ObjectOutputStream objOutStr = new ObjectOutputStream(outStr)) {
-            objOutStr.writeObject(object);
+        try (OutputStream outStr = Files.newOutputStream(fileToCreate)) {
+            outStr.write(toBytes(object));
             logger.info("Successfully created File " + fileToCreate + " in storage.");
         } catch (IOException ex) {
             logger.warning("IOException while creating object at " + fileToCreate + ": " + ex.getMessage());
@@ -170,6 +351,13 @@ public class Serializer<T extends Serializable> {
      */
     public T readFile(String fileName)
             throws NoSuchFileException, ObjectTypeMismatchException, IOException, ClassNotFoundException {
+        if (log != null) {
+            byte[] bytes = readRecord(fileName);
+            if (bytes == null)
+                throw new NoSuchFileException("Record not found: " + fileName);
+            return fromBytes(bytes, fileName);
+        }
+
         Path filePath = directoryPath.resolve(fileName + FILE_EXTENSION);
         return readFile(filePath);
     }
@@ -209,24 +397,10 @@ public class Serializer<T extends Serializable> {
             throw new NoSuchFileException("File not found: " + filePath);
 
         // Attepmt to deserialize object from file
-        try (InputStream inStr = Files.newInputStream(filePath);
-                ObjectInputStream objOutStr = new ObjectInputStream(inStr)) {
-
-            // Read the object from file and cast it safely
-            Object obj = objOutStr.readObject();
-
-            // Method for deserialization of object
-            if (classType.isInstance(obj)) {
-                // Return successfully deserialized object
-                T newObject = classType.cast(obj); // Safe casting
-                logger.info("Successfully deserialized object from " + filePath);
-                return newObject;
-            } else {
-                // The class' type does not match
-                logger.warning("Type mismatch during deserialization for file: " + filePath);
-                throw new ObjectTypeMismatchException("Deserialization failed: Object is not of the expected type "
-                        + classType.getName());
-            }
+        try {
+            T newObject = fromBytes(Files.readAllBytes(filePath), filePath.toString());
+            logger.info("Successfully deserialized object from " + filePath);
+            return newObject;
         } catch (IOException ex) {
             logger.warning("IOException while deserializing object from " + filePath + ": " + ex.getMessage());
             throw ex;
@@ -249,6 +423,20 @@ public class Serializer<T extends Serializable> {
      */
     public void updateState(T object, String fileName) throws NoSuchFileException, IOException {
 
+        // Supersede the record with a newer one
+        if (log != null) {
+            byte[] bytes = toBytes(object);
+            WriteBehindQueue.Mutation queued;
+            synchronized (writeLock) {
+                if (!recordExists(fileName))
+                    throw new NoSuchFileException("The record does not exist: " + fileName);
+                queued = writeRecord(SegmentedLog.OP_PUT, fileName, bytes);
+            }
+            awaitDurable(queued);
+            logger.info("Successfully updated record " + fileName + " in " + directoryPath);
+            return;
+        }
+
         // Create path to file
         Path fileToUpdate = directoryPath.resolve(fileName + FILE_EXTENSION);
 
@@ -258,9 +446,8 @@ public class Serializer<T extends Serializable> {
         }
 
         // Attempt to overwrite file
-        try (OutputStream outStr = Files.newOutputStream(fileToUpdate);
-                ObjectOutputStream objOutStr = new ObjectOutputStream(outStr)) {
-            objOutStr.writeObject(object);
+        try (OutputStream outStr = Files.newOutputStream(fileToUpdate)) {
+            outStr.write(toBytes(object));
             logger.info("Successfully updated File " + fileToUpdate + " in storage.");
         } catch (IOException ex) {
             logger.warning("IOException while updating object at " + fileToUpdate + ": " + ex.getMessage());
@@ -281,6 +468,19 @@ public class Serializer<T extends Serializable> {
      */
     public void deleteState(String fileName) throws NoSuchFileException, IOException {
 
+        // Append a tombstone for the record
+        if (log != null) {
+            WriteBehindQueue.Mutation queued;
+            synchronized (writeLock) {
+                if (!recordExists(fileName))
+                    throw new NoSuchFileException("Record not found: " + fileName);
+                queued = writeRecord(SegmentedLog.OP_DELETE, fileName, null);
+            }
+            awaitDurable(queued);
+            logger.info("Record " + fileName + " deleted successfully.");
+            return;
+        }
+
         // Create path to file
         Path fileToDelete = directoryPath.resolve(fileName + FILE_EXTENSION);
 
@@ -307,14 +507,39 @@ public class Serializer<T extends Serializable> {
         }
     }
 
+    /**
+     * Lists the names of all stored objects without reading them. These are the
+     * file names (without extension) that were passed to {@link #createState},
+     * and can be given to {@link #readFile(String)} to load an object later.
+     * Queued writes are flushed first.
+     * 
+     * @return The names of all stored objects, in no particular order.
+     * @throws IOException If the directory cannot be read.
+     */
+    public Vector<String> listFileNames() throws IOException {
+        if (log != null) {
+            flush();
+            return log.keys();
+        }
+
+        Vector<String> fileNames = new Vector<String>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directoryPath, "*" + FILE_EXTENSION)) {
+            for (Path childPath : stream) {
+                String fileName = childPath.getFileName().toString();
+                fileNames.add(fileName.substring(0, fileName.length() - FILE_EXTENSION.length()));
+            }
+        }
+        return fileNames;
+    }
+
     /**
      * Loads and deserializes all objects from the specified directory.
      * 
      * <p>
-     * This method iterates through all files in the directory specified by
-     * {@code directoryPath}, attempts to deserialize each file into an object of
-     * type {@code T}, and adds the successfully deserialized objects to a
-     * {@link Vector}.
+     * This is a convenience wrapper around
+     * {@link #loadDirectory(Consumer, int)} that uses a single worker and
+     * collects the successfully deserialized objects into a {@link Vector}, in
+     * storage order.
      * </p>
      * 
      * <p>
@@ -333,30 +558,392 @@ public class Serializer<T extends Serializable> {
      *         the directory cannot be read, an empty {@link Vector} is returned.
      */
     public Vector<T> loadDirectory() {
-
-        // Create empty list of objects to return
         Vector<T> deserializedObjects = new Vector<T>();
+        loadDirectory(deserializedObjects::add, 1);
+        return deserializedObjects;
+    }
 
-        // Create directory stream
-        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directoryPath)) {
-            // Attempt to deserialize each file
-            for (Path childPath : stream) {
-                Path relativePath = directoryPath.relativize(childPath);
-
-                try {
-                    T newObject = readFile(childPath);
-                    deserializedObjects.add(newObject);
-                    logger.info("Successfully deserialized object from " + relativePath);
-                } catch (ClassNotFoundException | IOException | ObjectTypeMismatchException ex) {
-                    logger.warning("Failed to recover Object state from " + relativePath + ": " + ex.getMessage());
+    /**
+     * Loads every stored object and streams it to {@code consumer}, spreading the
+     * reading and deserialization across a pool of worker threads.
+     * 
+     * <p>
+     * A producer thread walks the directory (or scans the log) and hands each
+     * stored object to the pool. At most {@value #LOAD_WINDOW} objects are in
+     * flight at once, so memory use does not grow with the size of the directory.
+     * Decoded objects are delivered to {@code consumer} on the calling thread, so
+     * the consumer does not need to be thread-safe. With more than one worker,
+     * delivery order is not guaranteed.
+     * </p>
+     * 
+     * <p>
+     * Objects that fail to deserialize are logged and counted, and loading
+     * continues. Progress is logged every {@value #PROGRESS_INTERVAL} objects.
+     * </p>
+     * 
+     * @param consumer    Receives each successfully deserialized object.
+     * @param parallelism The number of worker threads to use.
+     * @return Counts and timing for the load.
+     */
+    public LoadStatistics loadDirectory(Consumer<T> consumer, int parallelism) {
+        long startTime = System.nanoTime();
+        try {
+            // The scan only sees records that are already in the log
+            flush();
+        } catch (IOException ex) {
+            logger.warning("Failed to flush queued writes to " + directoryPath + ": " + ex.getMessage());
+        }
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread worker = new Thread(runnable, "serializer-load-" + directoryPath.getFileName());
+            worker.setDaemon(true);
+            return worker;
+        });
+        BlockingQueue<LoadResult<T>> results = new LinkedBlockingQueue<LoadResult<T>>();
+        Semaphore window = new Semaphore(LOAD_WINDOW);
+
+        // Producer: enumerate stored objects and hand them to the workers
+        Thread producer = new Thread(() -> {
+            int[] submitted = new int[1];
+            try {
+                if (log != null) {
+                    // Frames are read sequentially; only decoding is parallel
+                    log.scan((key, bytes) -> {
+                        submitLoad(workers, results, window, key, () -> fromBytes(bytes, key));
+                        submitted[0]++;
+                    });
+                } else {
+                    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directoryPath,
+                            "*" + FILE_EXTENSION)) {
+                        for (Path childPath : stream) {
+                            String source = directoryPath.relativize(childPath).toString();
+                            submitLoad(workers, results, window, source, () -> readFile(childPath));
+                            submitted[0]++;
+                        }
+                    }
                 }
+            } catch (InterruptedIOException ex) {
+                logger.warning("Load of " + directoryPath + " was interrupted.");
+            } catch (IOException ex) {
+                logger.warning("Failed to read directory " + directoryPath + ": " + ex.getMessage());
+            } finally {
+                results.add(LoadResult.<T>end(submitted[0]));
             }
-        } catch (IOException ex) {
-            logger.warning("Failed to read directory " + directoryPath + ": " + ex.getMessage());
+        }, "serializer-scan-" + directoryPath.getFileName());
+        producer.setDaemon(true);
+        producer.start();
+
+        // Consumer: deliver results on this thread until every submitted object is
+        // accounted for
+        int loaded = 0;
+        int failed = 0;
+        int expected = -1;
+        try {
+            while (expected < 0 || loaded + failed < expected) {
+                LoadResult<T> result = results.take();
+                if (result.isEnd) {
+                    expected = result.submitted;
+                    continue;
+                }
+                window.release();
+                if (result.object != null) {
+                    consumer.accept(result.object);
+                    loaded++;
+                } else {
+                    logger.warning("Failed to recover Object state from " + result.source + ": " + result.error);
+                    failed++;
+                }
+                if ((loaded + failed) % PROGRESS_INTERVAL == 0) {
+                    logger.info("Loading " + directoryPath + ": " + (loaded + failed) + " objects processed in "
+                            + elapsedMillis(startTime) + " ms");
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            logger.warning("Interrupted while loading " + directoryPath);
+        } finally {
+            producer.interrupt();
+            workers.shutdownNow();
         }
 
-        // Finally, return list of deserialized objects
-        return deserializedObjects;
+        LoadStatistics statistics = new LoadStatistics(loaded, failed, elapsedMillis(startTime));
+        logger.info("Loaded " + directoryPath + ": " + statistics);
+        return statistics;
+    }
+
+    /**
+     * Waits for room in the load window, then schedules one object to be loaded.
+     * The outcome (object or error) is always posted to {@code results}.
+     * 
+     * @throws InterruptedIOException If interrupted while waiting for room.
+     */
+    private void submitLoad(ExecutorService workers, BlockingQueue<LoadResult<T>> results, Semaphore window,
+            String source, Callable<T> loader) throws InterruptedIOException {
+        try {
+            window.acquire();
+        } catch (InterruptedException ex) {
+            throw new InterruptedIOException("Interrupted while loading " + source);
+        }
+        workers.execute(() -> {
+            try {
+                results.add(LoadResult.of(source, loader.call()));
+            } catch (Exception ex) {
+                results.add(LoadResult.<T>failure(source, ex.getMessage()));
+            }
+        });
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Waits until every write made so far is on disk. Has no effect in
+     * {@code FILES} mode or with {@code SYNC} durability, where writes are already
+     * complete when they return.
+     * 
+     * @throws IOException If a queued write failed.
+     */
+    public void flush() throws IOException {
+        if (writeQueue != null)
+            writeQueue.flush();
+    }
+
+    /**
+     * Compacts the backing log into a snapshot of the live records, so that the
+     * next start only has to read the snapshot and whatever is written after it.
+     * Queued writes are flushed first. Has no effect in {@code FILES} mode.
+     * 
+     * @return true if a snapshot was written, false if there was nothing new.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    public boolean checkpoint() throws IOException {
+        if (log == null)
+            return false;
+        flush();
+        return log.checkpoint();
+    }
+
+    /**
+     * Writes any queued records and closes the backing log, if any. Has no effect
+     * in {@code FILES} mode.
+     * 
+     * @throws IOException If the log cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (writeQueue != null)
+                writeQueue.close();
+        } finally {
+            if (log != null)
+                log.close();
+        }
+    }
+
+    // ======= //
+    // Helpers //
+    // ======= //
+
+    /**
+     * Encodes an object into a byte array with the configured codec.
+     * 
+     * @param object The object to encode.
+     * @return The encoded bytes.
+     * @throws IOException If the object cannot be encoded.
+     */
+    private byte[] toBytes(T object) throws IOException {
+        return codec.encode(object);
+    }
+
+    /**
+     * Decodes an object from a byte array and checks its type. Bytes written with
+     * Java serialization are decoded as such, whatever the configured codec.
+     * 
+     * @param bytes  The stored bytes.
+     * @param source A description of where the bytes came from, for logging.
+     * @return The decoded object.
+     * @throws ObjectTypeMismatchException If the object is not of type T.
+     * @throws IOException                 If the bytes cannot be decoded.
+     * @throws ClassNotFoundException      If the class of the serialized object
+     *                                     cannot be found.
+     */
+    private T fromBytes(byte[] bytes, String source)
+            throws ObjectTypeMismatchException, IOException, ClassNotFoundException {
+        Codec<T> decoder = JavaSerializationCodec.isJavaSerialized(bytes) ? legacyCodec : codec;
+        try {
+            return decoder.decode(bytes);
+        } catch (ObjectTypeMismatchException ex) {
+            // The class' type does not match
+            logger.warning("Type mismatch during deserialization for " + source);
+            throw ex;
+        }
+    }
+
+    /**
+     * Checks whether a key has a live record, counting writes that are still
+     * queued.
+     * 
+     * @param key The record key.
+     * @return true if the latest write for the key is a put.
+     */
+    private boolean recordExists(String key) {
+        // Queued writes are removed only after they reach the log, so a key is
+        // always visible in one place or the other
+        if (writeQueue != null) {
+            WriteBehindQueue.Mutation pending = writeQueue.pending(key);
+            if (pending != null)
+                return !pending.isDelete();
+        }
+        return log.containsKey(key);
+    }
+
+    /**
+     * Reads the latest payload for a key, counting writes that are still queued.
+     * 
+     * @param key The record key.
+     * @return The payload, or null if the key has no live record.
+     * @throws IOException If the log cannot be read.
+     */
+    private byte[] readRecord(String key) throws IOException {
+        if (writeQueue != null) {
+            WriteBehindQueue.Mutation pending = writeQueue.pending(key);
+            if (pending != null)
+                return pending.getPayload();
+        }
+        return log.read(key);
+    }
+
+    /**
+     * Writes a record to the log, or queues it, according to the configured
+     * durability. Called while holding {@code writeLock}.
+     * 
+     * @param op      {@link SegmentedLog#OP_PUT} or {@link SegmentedLog#OP_DELETE}.
+     * @param key     The record key.
+     * @param payload The encoded object (null for deletes).
+     * @return The queued write if the caller must wait for it
+     *         ({@code GROUP_COMMIT}), otherwise null.
+     * @throws IOException If the write fails or cannot be queued.
+     */
+    private WriteBehindQueue.Mutation writeRecord(byte op, String key, byte[] payload) throws IOException {
+        switch (durability) {
+            case GROUP_COMMIT:
+                return writeQueue.submit(op, key, payload);
+            case ASYNC:
+                writeQueue.submit(op, key, payload);
+                return null;
+            default:
+                log.append(op, key, payload);
+                log.sync();
+                return null;
+        }
+    }
+
+    /**
+     * Waits for a queued write to be synced. Done outside {@code writeLock} so
+     * that concurrent callers can share one batch.
+     * 
+     * @param queued The write returned by {@link #writeRecord}, or null.
+     * @throws IOException If the batch holding the write failed.
+     */
+    private void awaitDurable(WriteBehindQueue.Mutation queued) throws IOException {
+        if (queued != null)
+            queued.await();
+    }
+
+    /**
+     * Imports {@code .ser} files written in {@code FILES} mode into the log. Each
+     * file's contents are already a serialized object, so they are appended as-is
+     * under the file's name. Files are removed only after the log has been synced.
+     * 
+     * @throws IOException If the directory cannot be read or the log written.
+     */
+    private void migrateLegacyFiles() throws IOException {
+        Vector<Path> migrated = new Vector<Path>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directoryPath, "*" + FILE_EXTENSION)) {
+            for (Path legacyFile : stream) {
+                String fileName = legacyFile.getFileName().toString();
+                String key = fileName.substring(0, fileName.length() - FILE_EXTENSION.length());
+                if (!log.containsKey(key))
+                    log.append(SegmentedLog.OP_PUT, key, Files.readAllBytes(legacyFile));
+                migrated.add(legacyFile);
+            }
+        }
+
+        if (migrated.isEmpty())
+            return;
+
+        log.sync();
+        for (Path legacyFile : migrated)
+            Files.deleteIfExists(legacyFile);
+        logger.info("Migrated " + migrated.size() + " legacy files into the log at " + directoryPath);
+    }
+
+    // ============ //
+    // Load results //
+    // ============ //
+
+    /**
+     * Summary of a {@link Serializer#loadDirectory(Consumer, int)} call.
+     */
+    public static class LoadStatistics {
+        private final int loaded;
+        private final int failed;
+        private final long elapsedMillis;
+
+        public LoadStatistics(int loaded, int failed, long elapsedMillis) {
+            this.loaded = loaded;
+            this.failed = failed;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /** @return the number of objects delivered to the consumer */
+        public int getLoaded() {
+            return loaded;
+        }
+
+        /** @return the number of objects that could not be deserialized */
+        public int getFailed() {
+            return failed;
+        }
+
+        /** @return the wall-clock time taken by the load */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return loaded + " loaded, " + failed + " failed in " + elapsedMillis + " ms";
+        }
+    }
+
+    /** One outcome handed from a load worker (or the producer) to the caller */
+    private static final class LoadResult<T> {
+        private final String source;
+        private final T object;
+        private final String error;
+        private final boolean isEnd;
+        private final int submitted;
+
+        private LoadResult(String source, T object, String error, boolean isEnd, int submitted) {
+            this.source = source;
+            this.object = object;
+            this.error = error;
+            this.isEnd = isEnd;
+            this.submitted = submitted;
+        }
+
+        static <T> LoadResult<T> of(String source, T object) {
+            return new LoadResult<T>(source, object, null, false, 0);
+        }
+
+        static <T> LoadResult<T> failure(String source, String error) {
+            return new LoadResult<T>(source, null, error, false, 0);
+        }
+
+        static <T> LoadResult<T> end(int submitted) {
+            return new LoadResult<T>(null, null, null, true, submitted);
+        }
     }
 
     // ========== //
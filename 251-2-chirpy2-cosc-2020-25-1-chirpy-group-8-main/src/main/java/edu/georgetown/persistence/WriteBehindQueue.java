@@ -0,0 +1,352 @@
+package edu.georgetown.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+
+import edu.georgetown.logging.LoggerFactory;
+
+/**
+ * A bounded queue of pending {@link SegmentedLog} writes, drained by a single
+ * background writer thread.
+ *
+ * <p>
+ * Callers {@link #submit(byte, String, byte[]) submit} mutations and return
+ * straight away. The writer takes everything that is waiting (up to
+ * {@value #MAX_BATCH} mutations), appends it to the log, and then forces the
+ * log to disk once for the whole batch (group commit). A caller that needs to
+ * know its mutation is durable can wait on the returned {@link Mutation}.
+ * </p>
+ *
+ * <p>
+ * Until a mutation has been written, it can be looked up with
+ * {@link #pending(String)}, so that reads and existence checks see the latest
+ * state. When the queue is full, {@code submit} blocks (backpressure) for up to
+ * {@value #BACKPRESSURE_TIMEOUT_MILLIS} ms and then fails with a
+ * {@link WriteQueueFullException}.
+ * </p>
+ *
+ * <p>
+ * A mutation the log cannot hold (e.g. a key over 32 KB) is rejected by
+ * {@code submit} with a {@link RejectedMutationException} and never queued. If
+ * one still fails in the writer, only that mutation fails: the rest of its
+ * batch is written and synced as usual.
+ * </p>
+ *
+ * <p>
+ * Usage example:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * WriteBehindQueue queue = new WriteBehindQueue(log, WriteBehindQueue.DEFAULT_CAPACITY, "posts");
+ * queue.submit(SegmentedLog.OP_PUT, "key", payload); // fire and forget
+ * queue.submit(SegmentedLog.OP_PUT, "key2", payload).await(); // wait for the fsync
+ * queue.close(); // drains, syncs and stops the writer
+ * }
+ * </pre>
+ */
+public class WriteBehindQueue implements Closeable {
+
+    private final Logger logger = LoggerFactory.getLogger();
+
+    /** Default number of mutations that may wait to be written */
+    public static final int DEFAULT_CAPACITY = 4096;
+    /** Most mutations written between two syncs */
+    private static final int MAX_BATCH = 512;
+    /** How long a full queue blocks a caller before failing */
+    private static final long BACKPRESSURE_TIMEOUT_MILLIS = 5000;
+    /** Op code of the marker used by {@link #flush()} */
+    private static final byte OP_FLUSH = 0;
+    /** Op code of the marker used by {@link #close()} */
+    private static final byte OP_STOP = -1;
+
+    private final SegmentedLog log;
+    private final BlockingQueue<Mutation> queue;
+    /** Latest not-yet-written mutation for each key */
+    private final ConcurrentHashMap<String, Mutation> pendingByKey = new ConcurrentHashMap<String, Mutation>();
+    private final Thread writer;
+    /**
+     * Held for reading while a mutation is queued and for writing while the
+     * queue is closed, so that nothing is queued behind the stop marker
+     */
+    private final ReadWriteLock lifecycle = new ReentrantReadWriteLock();
+    private volatile boolean closed;
+
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong stallCount = new AtomicLong();
+
+    /**
+     * Creates the queue and starts its writer thread.
+     *
+     * @param log      The log that mutations are written to.
+     * @param capacity The number of mutations that may wait before callers block.
+     * @param name     A name for the writer thread.
+     */
+    public WriteBehindQueue(SegmentedLog log, int capacity, String name) {
+        this.log = log;
+        this.queue = new ArrayBlockingQueue<Mutation>(capacity);
+        this.writer = new Thread(this::runWriter, "write-behind-" + name);
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues a mutation to be appended to the log.
+     *
+     * @param op      {@link SegmentedLog#OP_PUT} or {@link SegmentedLog#OP_DELETE}.
+     * @param key     The record key.
+     * @param payload The record payload (null for deletes).
+     * @return The queued mutation, which can be awaited.
+     * @throws RejectedMutationException If the key or payload is too long for
+     *                                   the log.
+     * @throws WriteQueueFullException   If the queue stays full for too long.
+     * @throws InterruptedIOException    If interrupted while waiting for room.
+     * @throws IOException               If the queue has been closed.
+     */
+    public Mutation submit(byte op, String key, byte[] payload) throws IOException {
+        try {
+            SegmentedLog.checkRecord(key, payload);
+        } catch (IllegalArgumentException ex) {
+            throw new RejectedMutationException(ex.getMessage());
+        }
+
+        Mutation mutation = new Mutation(op, key, payload);
+        pendingByKey.put(key, mutation);
+        try {
+            enqueue(mutation);
+        } catch (IOException ex) {
+            pendingByKey.remove(key, mutation);
+            throw ex;
+        }
+        return mutation;
+    }
+
+    /**
+     * Returns the latest mutation queued for a key that has not yet been written.
+     *
+     * @param key The record key.
+     * @return The pending mutation, or null if the log is up to date for the key.
+     */
+    public Mutation pending(String key) {
+        return pendingByKey.get(key);
+    }
+
+    /**
+     * Waits until every mutation submitted before this call has been written and
+     * synced.
+     *
+     * @throws IOException If the flushed batch could not be synced.
+     */
+    public void flush() throws IOException {
+        enqueue(new Mutation(OP_FLUSH, null, null)).await();
+    }
+
+    /**
+     * Writes everything still queued, syncs the log and stops the writer. The log
+     * itself is left open. Later submits fail.
+     *
+     * @throws IOException If the final flush fails.
+     */
+    @Override
+    public void close() throws IOException {
+        lifecycle.writeLock().lock();
+        try {
+            if (closed)
+                return;
+            closed = true;
+        } finally {
+            lifecycle.writeLock().unlock();
+        }
+
+        // The writer stops after the batch holding this marker, so everything
+        // queued before it is written and synced first
+        Mutation stop = new Mutation(OP_STOP, null, null);
+        try {
+            queue.put(stop);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing the write queue");
+        }
+        try {
+            stop.await();
+        } finally {
+            logger.info("Write-behind queue stopped: " + writtenCount.get() + " mutations in "
+                    + batchCount.get() + " batches, " + stallCount.get() + " stalls");
+        }
+    }
+
+    /** @return the number of mutations written to the log so far */
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    /** @return the number of batches (and syncs) written so far */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /** @return the number of submits that found the queue full and had to wait */
+    public long getStallCount() {
+        return stallCount.get();
+    }
+
+    // ======= //
+    // Helpers //
+    // ======= //
+
+    private Mutation enqueue(Mutation mutation) throws IOException {
+        lifecycle.readLock().lock();
+        try {
+            if (closed)
+                throw new IOException("Write-behind queue is closed");
+            if (queue.offer(mutation))
+                return mutation;
+
+            // Queue is full: block the caller until the writer catches up
+            stallCount.incrementAndGet();
+            try {
+                if (queue.offer(mutation, BACKPRESSURE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+                    return mutation;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for room in the write queue");
+            }
+            throw new WriteQueueFullException("Write queue still full after " + BACKPRESSURE_TIMEOUT_MILLIS + " ms");
+        } finally {
+            lifecycle.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writer loop: take a batch, append it, sync once, then release everyone
+     * waiting on the batch. A mutation that cannot be appended fails on its own;
+     * the others fail only if the sync does.
+     */
+    private void runWriter() {
+        ArrayList<Mutation> batch = new ArrayList<Mutation>(MAX_BATCH);
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException ex) {
+                continue;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+
+            for (Mutation mutation : batch) {
+                if (mutation.op == OP_STOP) {
+                    stopping = true;
+                } else if (mutation.op != OP_FLUSH) {
+                    try {
+                        log.append(mutation.op, mutation.key, mutation.payload);
+                        writtenCount.incrementAndGet();
+                    } catch (IOException ex) {
+                        logger.severe("Failed to write mutation for " + mutation.key + ": " + ex.getMessage());
+                        mutation.failure = ex;
+                    } catch (RuntimeException ex) {
+                        logger.severe("Failed to write mutation for " + mutation.key + ": " + ex);
+                        mutation.failure = new IOException("Failed to write mutation for " + mutation.key, ex);
+                    }
+                }
+            }
+
+            IOException syncFailure = null;
+            try {
+                log.sync();
+                batchCount.incrementAndGet();
+            } catch (IOException ex) {
+                logger.severe("Failed to sync batch of " + batch.size() + " mutations: " + ex.getMessage());
+                syncFailure = ex;
+            }
+
+            for (Mutation mutation : batch) {
+                if (mutation.key != null)
+                    pendingByKey.remove(mutation.key, mutation);
+                mutation.complete(syncFailure);
+            }
+            batch.clear();
+        }
+    }
+
+    // ============= //
+    // Inner classes //
+    // ============= //
+
+    /**
+     * One queued write. Completes once the batch containing it has been synced.
+     */
+    public static final class Mutation {
+        private final byte op;
+        private final String key;
+        private final byte[] payload;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile IOException failure;
+
+        private Mutation(byte op, String key, byte[] payload) {
+            this.op = op;
+            this.key = key;
+            this.payload = payload;
+        }
+
+        /** @return true if this mutation deletes its key */
+        public boolean isDelete() {
+            return op == SegmentedLog.OP_DELETE;
+        }
+
+        /** @return the payload that will be written (null for deletes) */
+        public byte[] getPayload() {
+            return payload;
+        }
+
+        /**
+         * Blocks until the mutation has been written and synced.
+         *
+         * @throws IOException If the write failed or the wait was interrupted.
+         */
+        public void await() throws IOException {
+            try {
+                done.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for write of " + key);
+            }
+            if (failure != null)
+                throw failure;
+        }
+
+        /** Releases the waiters; a failure of its own takes precedence */
+        private void complete(IOException syncFailure) {
+            if (failure == null)
+                failure = syncFailure;
+            done.countDown();
+        }
+    }
+
+    // ========== //
+    // Exceptions //
+    // ========== //
+
+    public static class WriteQueueFullException extends IOException {
+        public WriteQueueFullException(String message) {
+            super(message);
+        }
+    }
+
+    public static class RejectedMutationException extends IOException {
+        public RejectedMutationException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package edu.georgetown.search;
+
+import java.util.Arrays;
+
+/**
+ * Approximate counts of strings in a fixed amount of memory.
+ *
+ * <p>
+ * The sketch is {@code depth} rows of {@code width} counters. Adding a string
+ * increments one counter per row, picked by a different hash for each row; the
+ * estimate is the smallest of those counters. Collisions only ever add to a
+ * counter, so an estimate is never below the true count, and with
+ * {@code n} adds it is above it by more than {@code e * n / width} with
+ * probability at most {@code e^-depth}.
+ * </p>
+ *
+ * <p>
+ * A sketch is not thread-safe; {@link TrendingTags} guards it.
+ * </p>
+ */
+public class CountMinSketch {
+
+    private final int mask;
+    private final long[][] counters;
+
+    /**
+     * Creates an empty sketch.
+     *
+     * @param width Counters per row; rounded up to a power of two
+     * @param depth Number of rows, i.e. of hash functions
+     * @throws IllegalArgumentException If the width or depth is not positive.
+     */
+    public CountMinSketch(int width, int depth) {
+        if (width <= 0 || depth <= 0)
+            throw new IllegalArgumentException("Width and depth must be positive: " + width + "x" + depth);
+        int columns = Integer.highestOneBit(width);
+        if (columns < width)
+            columns <<= 1;
+        this.mask = columns - 1;
+        this.counters = new long[depth][columns];
+    }
+
+    /**
+     * Adds to the count of a string.
+     *
+     * @param item   The string
+     * @param amount How much to add
+     */
+    public void add(String item, long amount) {
+        int h1 = mix(item.hashCode());
+        int h2 = mix(h1) | 1;
+        for (int row = 0; row < counters.length; row++) {
+            counters[row][(h1 + row * h2) & mask] += amount;
+        }
+    }
+
+    /**
+     * Estimates the count of a string.
+     *
+     * @param item The string
+     * @return The estimate; never less than the true count
+     */
+    public long estimate(String item) {
+        int h1 = mix(item.hashCode());
+        int h2 = mix(h1) | 1;
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < counters.length; row++) {
+            min = Math.min(min, counters[row][(h1 + row * h2) & mask]);
+        }
+        return min;
+    }
+
+    /**
+     * Sets every count back to zero, keeping the memory.
+     */
+    public void clear() {
+        for (long[] row : counters) {
+            Arrays.fill(row, 0);
+        }
+    }
+
+    /** Spreads the bits of a hash code (the MurmurHash3 finalizer) */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,479 @@
+package edu.georgetown.search;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Vector;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import edu.georgetown.model.ChirpCursor;
+
+/**
+ * An in-memory full-text index over chirp contents.
+ *
+ * <p>
+ * Each chirp added becomes a document with the next id, and each of its terms
+ * (see {@link Tokenizer}) gets a posting in that term's {@link PostingList}.
+ * A {@link TextQuery} is evaluated by walking only the posting lists of its
+ * terms:
+ * </p>
+ * <ul>
+ * <li>a phrase intersects the posting lists of its terms and checks their
+ * positions;</li>
+ * <li>a clause intersects the documents of its phrases (AND);</li>
+ * <li>the query unites the documents of its clauses (OR).</li>
+ * </ul>
+ *
+ * <p>
+ * The best {@code limit} matches are kept in a heap, either the newest or the
+ * most relevant. Relevance is scored with BM25: rare terms, repeated terms and
+ * short chirps score higher, and a document matching several clauses adds up
+ * their scores. A search costs time proportional to the postings of the query
+ * terms, not to the number of chirps.
+ * </p>
+ *
+ * <p>
+ * The index is updated incrementally and is safe to use from several threads:
+ * adds take a write lock, searches a read lock.
+ * </p>
+ *
+ * <p>
+ * The index is also a {@link Segment}, so it can be searched together with
+ * {@link IndexSegment}s read from disk, and written to one when it is full
+ * (see {@link IndexSegment#write}). A search over several segments numbers
+ * their documents one after the other and scores them with the statistics of
+ * all of them, so the results are the same as from a single index.
+ * </p>
+ *
+ * <p>
+ * Usage example:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * FullTextIndex index = new FullTextIndex();
+ * index.add("Good morning, Georgetown!", cursor);
+ * Vector<ChirpCursor> hits = index.search(TextQuery.parse("\"good morning\" OR coffee"), 10,
+ *         FullTextIndex.Order.RELEVANCE);
+ * }
+ * </pre>
+ */
+public class FullTextIndex implements Segment {
+
+    /** BM25 term-frequency saturation */
+    private static final double K1 = 1.2;
+    /** BM25 length normalization */
+    private static final double B = 0.75;
+
+    /**
+     * How search results are ranked.
+     */
+    public enum Order {
+        /** Newest chirps first */
+        RECENCY,
+        /** Highest BM25 score first; newest first among equal scores */
+        RELEVANCE;
+
+        /**
+         * Parses an order name, ignoring case.
+         *
+         * @param name The name, e.g. {@code "recency"}, or null
+         * @return The order; {@link #RELEVANCE} if the name is null or unknown
+         */
+        public static Order parse(String name) {
+            return name != null && name.trim().equalsIgnoreCase(RECENCY.name()) ? RECENCY : RELEVANCE;
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final HashMap<String, PostingList> postings = new HashMap<String, PostingList>();
+    /** Cursor of each document, by document id */
+    private final Vector<ChirpCursor> documents = new Vector<ChirpCursor>();
+    /** Number of terms in each document, by document id */
+    private int[] documentLengths = new int[16];
+    private long totalLength;
+
+    /**
+     * Indexes a chirp. Chirps without any term are not indexed.
+     *
+     * @param content The content of the chirp
+     * @param cursor  The cursor of the chirp
+     */
+    public void add(String content, ChirpCursor cursor) {
+        Vector<String> terms = Tokenizer.tokenize(content);
+        if (terms.isEmpty())
+            return;
+
+        HashMap<String, Vector<Integer>> positionsByTerm = new HashMap<String, Vector<Integer>>();
+        for (int position = 0; position < terms.size(); position++) {
+            positionsByTerm.computeIfAbsent(terms.get(position), k -> new Vector<Integer>()).add(position);
+        }
+
+        lock.writeLock().lock();
+        try {
+            int document = documents.size();
+            documents.add(cursor);
+            if (document == documentLengths.length)
+                documentLengths = Arrays.copyOf(documentLengths, document * 2);
+            documentLengths[document] = terms.size();
+            totalLength += terms.size();
+
+            positionsByTerm.forEach((term, positions) -> {
+                int[] array = new int[positions.size()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = positions.get(i);
+                }
+                postings.computeIfAbsent(term, k -> new PostingList()).add(document, array);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the best chirps matching a query.
+     *
+     * @param query The query
+     * @param limit The maximum number of chirps to return
+     * @param order How to rank the matches
+     * @return The cursors of the best matches, best first
+     */
+    public Vector<ChirpCursor> search(TextQuery query, int limit, Order order) {
+        return search(List.of(this), query, limit, order);
+    }
+
+    /**
+     * Finds the best chirps matching a query in several segments, as if they
+     * were one index. In-memory segments are read-locked for the search.
+     *
+     * @param segments The segments
+     * @param query    The query
+     * @param limit    The maximum number of chirps to return
+     * @param order    How to rank the matches
+     * @return The cursors of the best matches, best first
+     */
+    public static Vector<ChirpCursor> search(List<? extends Segment> segments, TextQuery query, int limit,
+            Order order) {
+        Vector<Lock> locks = new Vector<Lock>();
+        for (Segment segment : segments) {
+            if (segment instanceof FullTextIndex) {
+                Lock lock = ((FullTextIndex) segment).lock.readLock();
+                lock.lock();
+                locks.add(lock);
+            }
+        }
+        try {
+            Corpus corpus = new Corpus(segments);
+            Matches all = null;
+            for (Vector<String[]> clause : query.getClauses()) {
+                Matches clauseMatches = null;
+                for (String[] phrase : clause) {
+                    Matches phraseMatches = corpus.matchPhrase(phrase);
+                    clauseMatches = clauseMatches == null ? phraseMatches : clauseMatches.and(phraseMatches);
+                    if (clauseMatches.size == 0)
+                        break;
+                }
+                all = all == null ? clauseMatches : all.or(clauseMatches);
+            }
+            return all == null ? new Vector<ChirpCursor>() : corpus.best(all, limit, order);
+        } finally {
+            for (Lock lock : locks) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return the number of chirps indexed
+     */
+    @Override
+    public int getDocumentCount() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of distinct terms indexed
+     */
+    public int getTermCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of bytes used by all posting lists
+     */
+    public long getPostingBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (PostingList list : postings.values()) {
+                bytes += list.getSizeInBytes();
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ===================================== //
+    // Segment, read under the caller's lock //
+    // ===================================== //
+
+    @Override
+    public long getTotalLength() {
+        return totalLength;
+    }
+
+    @Override
+    public ChirpCursor getCursor(int document) {
+        return documents.get(document);
+    }
+
+    @Override
+    public int getDocumentLength(int document) {
+        return documentLengths[document];
+    }
+
+    @Override
+    public Collection<String> getTerms() {
+        return postings.keySet();
+    }
+
+    @Override
+    public PostingList.Reader postings(String term) {
+        PostingList list = postings.get(term);
+        return list == null ? null : list.reader();
+    }
+
+    /**
+     * @return the lock to hold while reading the index as a {@link Segment}
+     */
+    Lock readLock() {
+        return lock.readLock();
+    }
+
+    // ======= //
+    // Helpers //
+    // ======= //
+
+    /**
+     * Counts the places in the current document where the terms appear one
+     * after another.
+     */
+    private static int countPhrase(PostingList.Reader[] readers) {
+        int count = 0;
+        for (int start : readers[0].positions()) {
+            boolean found = true;
+            for (int i = 1; i < readers.length && found; i++) {
+                found = Arrays.binarySearch(readers[i].positions(), start + i) >= 0;
+            }
+            if (found)
+                count++;
+        }
+        return count;
+    }
+
+    // ============= //
+    // Inner classes //
+    // ============= //
+
+    /**
+     * The segments of one search, with their documents numbered one after the
+     * other: segment {@code i} holds documents {@code bases[i]} to
+     * {@code bases[i + 1] - 1}.
+     */
+    private static class Corpus {
+        final List<? extends Segment> segments;
+        final int[] bases;
+        final long totalLength;
+
+        Corpus(List<? extends Segment> segments) {
+            this.segments = segments;
+            bases = new int[segments.size() + 1];
+            long length = 0;
+            for (int i = 0; i < segments.size(); i++) {
+                bases[i + 1] = bases[i] + segments.get(i).getDocumentCount();
+                length += segments.get(i).getTotalLength();
+            }
+            totalLength = length;
+        }
+
+        /** @return the segment holding a document */
+        int segmentOf(int document) {
+            int index = Arrays.binarySearch(bases, document);
+            // Empty segments share their base with the next one
+            if (index >= 0) {
+                while (bases[index + 1] == document)
+                    index++;
+                return index;
+            }
+            return -index - 2;
+        }
+
+        ChirpCursor getCursor(int document) {
+            int segment = segmentOf(document);
+            return segments.get(segment).getCursor(document - bases[segment]);
+        }
+
+        /**
+         * Finds the documents containing a phrase, by walking the posting lists
+         * of its terms together in each segment, and scores them.
+         */
+        Matches matchPhrase(String[] terms) {
+            Matches matches = new Matches(16);
+            Vector<Integer> frequencies = new Vector<Integer>();
+            for (int s = 0; s < segments.size(); s++) {
+                matchPhrase(terms, s, matches, frequencies);
+            }
+
+            // Scored once the number of matching documents is known
+            int documentCount = bases[segments.size()];
+            double idf = Math.log(1 + (documentCount - matches.size + 0.5) / (matches.size + 0.5));
+            double averageLength = (double) totalLength / documentCount;
+            int segment = 0;
+            for (int i = 0; i < matches.size; i++) {
+                while (matches.documents[i] >= bases[segment + 1])
+                    segment++;
+                int length = segments.get(segment).getDocumentLength(matches.documents[i] - bases[segment]);
+                double frequency = frequencies.get(i);
+                double norm = K1 * (1 - B + B * length / averageLength);
+                matches.scores[i] = idf * frequency * (K1 + 1) / (frequency + norm);
+            }
+            return matches;
+        }
+
+        private void matchPhrase(String[] terms, int segment, Matches matches, Vector<Integer> frequencies) {
+            PostingList.Reader[] readers = new PostingList.Reader[terms.length];
+            for (int i = 0; i < terms.length; i++) {
+                readers[i] = segments.get(segment).postings(terms[i]);
+                if (readers[i] == null || !readers[i].next())
+                    return;
+            }
+
+            search: while (true) {
+                int target = readers[0].document();
+                for (PostingList.Reader reader : readers) {
+                    target = Math.max(target, reader.document());
+                }
+                boolean aligned = true;
+                for (PostingList.Reader reader : readers) {
+                    while (reader.document() < target) {
+                        if (!reader.next())
+                            break search;
+                    }
+                    aligned &= reader.document() == target;
+                }
+                if (!aligned)
+                    continue;
+
+                int frequency = terms.length == 1 ? readers[0].frequency() : countPhrase(readers);
+                if (frequency > 0) {
+                    matches.add(bases[segment] + target, 0);
+                    frequencies.add(frequency);
+                }
+                if (!readers[0].next())
+                    break;
+            }
+        }
+
+        /**
+         * Keeps the best {@code limit} matches in a heap whose head is the worst
+         * kept, then returns them best first.
+         */
+        Vector<ChirpCursor> best(Matches matches, int limit, Order order) {
+            ChirpCursor[] cursors = new ChirpCursor[matches.size];
+            for (int i = 0; i < matches.size; i++) {
+                cursors[i] = getCursor(matches.documents[i]);
+            }
+            Comparator<Integer> newer = (a, b) -> cursors[a].compareTo(cursors[b]);
+            Comparator<Integer> better = order == Order.RECENCY ? newer
+                    : Comparator.<Integer>comparingDouble(i -> matches.scores[i]).thenComparing(newer);
+
+            PriorityQueue<Integer> heap = new PriorityQueue<Integer>(Math.max(1, limit), better);
+            for (int i = 0; i < matches.size; i++) {
+                heap.add(i);
+                if (heap.size() > limit)
+                    heap.poll();
+            }
+
+            Vector<ChirpCursor> best = new Vector<ChirpCursor>(heap.size());
+            while (!heap.isEmpty()) {
+                best.add(cursors[heap.poll()]);
+            }
+            Collections.reverse(best);
+            return best;
+        }
+    }
+
+    /**
+     * Matching documents in increasing id order, with their scores.
+     */
+    private static class Matches {
+        int[] documents;
+        double[] scores;
+        int size;
+
+        Matches(int capacity) {
+            documents = new int[capacity];
+            scores = new double[capacity];
+        }
+
+        void add(int document, double score) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, Math.max(16, size * 2));
+                scores = Arrays.copyOf(scores, documents.length);
+            }
+            documents[size] = document;
+            scores[size] = score;
+            size++;
+        }
+
+        /** @return the documents in both, with their scores added */
+        Matches and(Matches other) {
+            Matches both = new Matches(Math.min(size, other.size));
+            int i = 0;
+            int j = 0;
+            while (i < size && j < other.size) {
+                if (documents[i] < other.documents[j]) {
+                    i++;
+                } else if (documents[i] > other.documents[j]) {
+                    j++;
+                } else {
+                    both.add(documents[i], scores[i++] + other.scores[j++]);
+                }
+            }
+            return both;
+        }
+
+        /** @return the documents in either, with their scores added */
+        Matches or(Matches other) {
+            Matches either = new Matches(size + other.size);
+            int i = 0;
+            int j = 0;
+            while (i < size || j < other.size) {
+                if (j == other.size || (i < size && documents[i] < other.documents[j])) {
+                    either.add(documents[i], scores[i++]);
+                } else if (i == size || documents[i] > other.documents[j]) {
+                    either.add(other.documents[j], other.scores[j++]);
+                } else {
+                    either.add(documents[i], scores[i++] + other.scores[j++]);
+                }
+            }
+            return either;
+        }
+    }
+}
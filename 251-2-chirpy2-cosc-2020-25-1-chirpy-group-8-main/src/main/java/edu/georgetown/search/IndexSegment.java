@@ -0,0 +1,420 @@
+package edu.georgetown.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.Vector;
+import java.util.concurrent.locks.Lock;
+import java.util.function.BiConsumer;
+
+import edu.georgetown.model.ChirpCursor;
+
+/**
+ * An immutable part of the search index stored in a file: the full-text
+ * postings and the hashtag postings of a set of chirps.
+ *
+ * <p>
+ * Documents are numbered in time order, so document ids and cursors sort the
+ * same way. File layout:
+ * </p>
+ * <ul>
+ * <li>a header: magic number and format version;</li>
+ * <li>the data: each term's {@link PostingList} bytes, then each tag's
+ * document ids as 4-byte integers, oldest first;</li>
+ * <li>the metadata: the documents (cursor and number of terms), and the term
+ * and tag dictionaries, with the offset and size of each entry's data;</li>
+ * <li>a trailer: the offset of the metadata and the magic number again.</li>
+ * </ul>
+ *
+ * <p>
+ * Opening a segment reads the metadata onto the heap and maps the data
+ * read-only ({@link FileChannel#map}), so postings are decoded straight from
+ * the page cache and reopening costs time proportional to the dictionaries,
+ * not to the postings. A file is written under a temporary name and then
+ * renamed, so a segment file is either complete or absent. The data must fit
+ * in 2 GB.
+ * </p>
+ *
+ * <p>
+ * Usage example:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * IndexSegment segment = IndexSegment.write(path, List.of(fullTextIndex), tagPostings);
+ * Vector<ChirpCursor> hits = FullTextIndex.search(List.of(segment), query, 10, Order.RECENCY);
+ * Vector<ChirpCursor> tagged = segment.getTagCursorsBefore("java", null, 50);
+ * }
+ * </pre>
+ */
+public class IndexSegment implements Segment {
+
+    private static final int MAGIC = 0x43485358; // "CHSX"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int TRAILER_BYTES = 12;
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    private final Path path;
+    /** Chirp of each document, oldest first */
+    private final ChirpCursor[] cursors;
+    private final int[] lengths;
+    private final long totalLength;
+    /** Offset and size in bytes of each term's postings */
+    private final HashMap<String, long[]> terms;
+    /** Offset and number of document ids of each tag */
+    private final HashMap<String, long[]> tags;
+    private final ByteBuffer data;
+
+    private IndexSegment(Path path, ChirpCursor[] cursors, int[] lengths, HashMap<String, long[]> terms,
+            HashMap<String, long[]> tags, ByteBuffer data) {
+        this.path = path;
+        this.cursors = cursors;
+        this.lengths = lengths;
+        this.terms = terms;
+        this.tags = tags;
+        this.data = data;
+        long total = 0;
+        for (int length : lengths) {
+            total += length;
+        }
+        this.totalLength = total;
+    }
+
+    /**
+     * Opens a segment file.
+     *
+     * @param path The file
+     * @return The segment, with its postings memory-mapped
+     * @throws IOException If the file cannot be read or is not a complete
+     *                     segment.
+     */
+    public static IndexSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + TRAILER_BYTES)
+                throw new IOException("Segment " + path + " is truncated");
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES);
+            channel.read(trailer, size - TRAILER_BYTES);
+            trailer.flip();
+            long metadataOffset = trailer.getLong();
+            if (trailer.getInt() != MAGIC || metadataOffset < HEADER_BYTES || metadataOffset > size - TRAILER_BYTES)
+                throw new IOException("Segment " + path + " has no valid trailer");
+
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Channels.newInputStream(channel.position(0))));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new IOException("Segment " + path + " has an unknown format");
+            channel.position(metadataOffset);
+            in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+
+            int documentCount = in.readInt();
+            ChirpCursor[] cursors = new ChirpCursor[documentCount];
+            int[] lengths = new int[documentCount];
+            for (int i = 0; i < documentCount; i++) {
+                cursors[i] = new ChirpCursor(in.readLong(), in.readUTF());
+                lengths[i] = in.readInt();
+            }
+            HashMap<String, long[]> terms = readDictionary(in);
+            HashMap<String, long[]> tags = readDictionary(in);
+
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES,
+                    metadataOffset - HEADER_BYTES);
+            return new IndexSegment(path, cursors, lengths, terms, tags, data);
+        }
+    }
+
+    /**
+     * Writes the given segments, and tags, as one new segment file, and opens
+     * it. This both saves an in-memory {@link FullTextIndex} and merges several
+     * segments into one. In-memory sources are read-locked while they are read.
+     *
+     * @param path    The file to write
+     * @param sources The segments whose documents and postings to write
+     * @param tags    The cursors of the chirps with each normalized tag; the
+     *                chirps need not be in {@code sources}
+     * @return The new segment
+     * @throws IOException If the file cannot be written.
+     */
+    public static IndexSegment write(Path path, List<? extends Segment> sources,
+            Map<String, ? extends Collection<ChirpCursor>> tags) throws IOException {
+        Vector<Lock> locks = new Vector<Lock>();
+        for (Segment source : sources) {
+            if (source instanceof FullTextIndex) {
+                Lock lock = ((FullTextIndex) source).readLock();
+                lock.lock();
+                locks.add(lock);
+            }
+        }
+        try {
+            writeFile(path, sources, tags);
+        } finally {
+            for (Lock lock : locks) {
+                lock.unlock();
+            }
+        }
+        return open(path);
+    }
+
+    /**
+     * Merges segments into one new segment file, e.g. to keep the number of
+     * segments small. The given segments are not changed.
+     *
+     * @param path     The file to write
+     * @param segments The segments to merge
+     * @return The merged segment
+     * @throws IOException If the file cannot be written.
+     */
+    public static IndexSegment merge(Path path, List<IndexSegment> segments) throws IOException {
+        HashMap<String, Vector<ChirpCursor>> tags = new HashMap<String, Vector<ChirpCursor>>();
+        for (IndexSegment segment : segments) {
+            segment.forEachTag((tag, cursors) -> tags.computeIfAbsent(tag, k -> new Vector<ChirpCursor>())
+                    .addAll(cursors));
+        }
+        return write(path, segments, tags);
+    }
+
+    /**
+     * Retrieves the cursors of the chirps with a tag that come strictly before
+     * the given cursor, newest first.
+     *
+     * @param tag    The normalized tag, in lower case without the {@code '#'}
+     * @param before The cursor to start before, or null to start from the newest
+     *               chirp with the tag
+     * @param limit  The maximum number of cursors to return
+     * @return The cursors, newest first; empty if no chirp has the tag
+     */
+    public Vector<ChirpCursor> getTagCursorsBefore(String tag, ChirpCursor before, int limit) {
+        Vector<ChirpCursor> found = new Vector<ChirpCursor>();
+        long[] entry = tags.get(tag);
+        if (entry == null)
+            return found;
+        int offset = (int) entry[0];
+        int count = (int) entry[1];
+
+        // Ids are in time order, so find the first chirp not before the cursor
+        int end = count;
+        if (before != null) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (cursors[data.getInt(offset + middle * 4)].compareTo(before) < 0)
+                    low = middle + 1;
+                else
+                    high = middle;
+            }
+            end = low;
+        }
+        for (int i = end - 1; i >= 0 && found.size() < limit; i--) {
+            found.add(cursors[data.getInt(offset + i * 4)]);
+        }
+        return found;
+    }
+
+    /**
+     * Calls an action for each tag with the cursors of its chirps, oldest first.
+     *
+     * @param action The action
+     */
+    public void forEachTag(BiConsumer<String, List<ChirpCursor>> action) {
+        for (Map.Entry<String, long[]> entry : tags.entrySet()) {
+            int offset = (int) entry.getValue()[0];
+            int count = (int) entry.getValue()[1];
+            ChirpCursor[] tagged = new ChirpCursor[count];
+            for (int i = 0; i < count; i++) {
+                tagged[i] = cursors[data.getInt(offset + i * 4)];
+            }
+            action.accept(entry.getKey(), Arrays.asList(tagged));
+        }
+    }
+
+    /**
+     * @param cursor A chirp's cursor
+     * @return true if the chirp is in this segment
+     */
+    public boolean contains(ChirpCursor cursor) {
+        return Arrays.binarySearch(cursors, cursor) >= 0;
+    }
+
+    /**
+     * @return the cursor of the newest chirp in the segment, or null if it is
+     *         empty
+     */
+    public ChirpCursor getNewestCursor() {
+        return cursors.length == 0 ? null : cursors[cursors.length - 1];
+    }
+
+    /**
+     * @return the number of distinct tags in the segment
+     */
+    public int getTagCount() {
+        return tags.size();
+    }
+
+    /**
+     * @return the segment's file
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public int getDocumentCount() {
+        return cursors.length;
+    }
+
+    @Override
+    public long getTotalLength() {
+        return totalLength;
+    }
+
+    @Override
+    public ChirpCursor getCursor(int document) {
+        return cursors[document];
+    }
+
+    @Override
+    public int getDocumentLength(int document) {
+        return lengths[document];
+    }
+
+    @Override
+    public Collection<String> getTerms() {
+        return Collections.unmodifiableSet(terms.keySet());
+    }
+
+    @Override
+    public PostingList.Reader postings(String term) {
+        long[] entry = terms.get(term);
+        return entry == null ? null : PostingList.reader(data.slice((int) entry[0], (int) entry[1]));
+    }
+
+    // ======= //
+    // Helpers //
+    // ======= //
+
+    private static void writeFile(Path path, List<? extends Segment> sources,
+            Map<String, ? extends Collection<ChirpCursor>> tags) throws IOException {
+        // Number the documents of all sources, and of tagged chirps not in them,
+        // in time order
+        TreeMap<ChirpCursor, Integer> lengthByCursor = new TreeMap<ChirpCursor, Integer>();
+        for (Segment source : sources) {
+            for (int i = 0; i < source.getDocumentCount(); i++) {
+                lengthByCursor.putIfAbsent(source.getCursor(i), source.getDocumentLength(i));
+            }
+        }
+        for (Collection<ChirpCursor> tagged : tags.values()) {
+            for (ChirpCursor cursor : tagged) {
+                lengthByCursor.putIfAbsent(cursor, 0);
+            }
+        }
+        ChirpCursor[] cursors = lengthByCursor.keySet().toArray(new ChirpCursor[0]);
+        int[][] renumbered = new int[sources.size()][];
+        for (int s = 0; s < sources.size(); s++) {
+            Segment source = sources.get(s);
+            renumbered[s] = new int[source.getDocumentCount()];
+            for (int i = 0; i < renumbered[s].length; i++) {
+                renumbered[s][i] = Arrays.binarySearch(cursors, source.getCursor(i));
+            }
+        }
+
+        TreeSet<String> allTerms = new TreeSet<String>();
+        for (Segment source : sources) {
+            allTerms.addAll(source.getTerms());
+        }
+
+        Path tempPath = path.resolveSibling(path.getFileName() + TEMP_EXTENSION);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            // Each term's postings from every source, renumbered and in id order
+            TreeMap<String, long[]> termEntries = new TreeMap<String, long[]>();
+            for (String term : allTerms) {
+                TreeMap<Integer, int[]> entries = new TreeMap<Integer, int[]>();
+                for (int s = 0; s < sources.size(); s++) {
+                    PostingList.Reader reader = sources.get(s).postings(term);
+                    while (reader != null && reader.next()) {
+                        entries.put(renumbered[s][reader.document()], reader.positions());
+                    }
+                }
+                PostingList list = new PostingList();
+                entries.forEach(list::add);
+                termEntries.put(term, new long[] { out.size() - HEADER_BYTES, list.getSizeInBytes() });
+                list.writeTo(out);
+            }
+
+            TreeMap<String, long[]> tagEntries = new TreeMap<String, long[]>();
+            for (Map.Entry<String, ? extends Collection<ChirpCursor>> entry : tags.entrySet()) {
+                int[] ids = new int[entry.getValue().size()];
+                int count = 0;
+                for (ChirpCursor cursor : entry.getValue()) {
+                    ids[count++] = Arrays.binarySearch(cursors, cursor);
+                }
+                Arrays.sort(ids);
+                tagEntries.put(entry.getKey(), new long[] { out.size() - HEADER_BYTES, count });
+                for (int id : ids) {
+                    out.writeInt(id);
+                }
+            }
+            // DataOutputStream's count stops at Integer.MAX_VALUE
+            if (out.size() == Integer.MAX_VALUE)
+                throw new IOException("Segment " + path + " would be larger than 2 GB");
+
+            long metadataOffset = out.size();
+            out.writeInt(cursors.length);
+            for (ChirpCursor cursor : cursors) {
+                out.writeLong(cursor.getMillis());
+                out.writeUTF(cursor.getKey());
+                out.writeInt(lengthByCursor.get(cursor));
+            }
+            writeDictionary(out, termEntries);
+            writeDictionary(out, tagEntries);
+            out.writeLong(metadataOffset);
+            out.writeInt(MAGIC);
+            out.flush();
+        }
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(tempPath, path, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeDictionary(DataOutputStream out, TreeMap<String, long[]> entries) throws IOException {
+        out.writeInt(entries.size());
+        for (Map.Entry<String, long[]> entry : entries.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue()[0]);
+            out.writeLong(entry.getValue()[1]);
+        }
+    }
+
+    private static HashMap<String, long[]> readDictionary(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        HashMap<String, long[]> entries = new HashMap<String, long[]>(size * 2);
+        for (int i = 0; i < size; i++) {
+            entries.put(in.readUTF(), new long[] { in.readLong(), in.readLong() });
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,198 @@
+package edu.georgetown.search;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The postings of one term: for each document that contains it, the document
+ * id and the positions of the term in the document.
+ *
+ * <p>
+ * Documents must be added in increasing id order. Postings are stored as one
+ * byte array of variable-length integers (7 bits per byte), with each document
+ * id stored as the difference from the previous one and each position as the
+ * difference from the previous position in the same document. A term that
+ * appears once in each of a run of consecutive chirps therefore costs about
+ * three bytes per chirp.
+ * </p>
+ *
+ * <p>
+ * Layout of one entry:
+ * </p>
+ * <ul>
+ * <li>document id minus the previous document id (the first is stored plus
+ * one)</li>
+ * <li>number of positions</li>
+ * <li>first position, then each following position minus the one before</li>
+ * </ul>
+ *
+ * <p>
+ * A posting list is not thread-safe; {@link FullTextIndex} guards it. The same
+ * encoding is stored in {@link IndexSegment} files and read from there with
+ * {@link #reader(ByteBuffer)}.
+ * </p>
+ */
+public class PostingList {
+
+    private byte[] bytes = new byte[16];
+    private int length;
+    private int documentCount;
+    private int lastDocument = -1;
+
+    /**
+     * Appends the postings of one document.
+     *
+     * @param document  The document id, greater than any added before
+     * @param positions The positions of the term in the document, in increasing
+     *                  order; at least one
+     * @throws IllegalArgumentException If the document id is not increasing or
+     *                                  there are no positions.
+     */
+    public void add(int document, int[] positions) {
+        if (document <= lastDocument)
+            throw new IllegalArgumentException("Document " + document + " added after " + lastDocument);
+        if (positions.length == 0)
+            throw new IllegalArgumentException("Document " + document + " has no positions");
+
+        writeVarInt(document - lastDocument);
+        writeVarInt(positions.length);
+        int previous = 0;
+        for (int position : positions) {
+            writeVarInt(position - previous);
+            previous = position;
+        }
+        lastDocument = document;
+        documentCount++;
+    }
+
+    /**
+     * @return the number of documents that contain the term
+     */
+    public int getDocumentCount() {
+        return documentCount;
+    }
+
+    /**
+     * @return the number of bytes used by the encoded postings
+     */
+    public int getSizeInBytes() {
+        return length;
+    }
+
+    /**
+     * Creates a reader over the postings added so far.
+     *
+     * @return A reader positioned before the first document
+     */
+    public Reader reader() {
+        return new Reader(ByteBuffer.wrap(bytes, 0, length));
+    }
+
+    /**
+     * Creates a reader over encoded postings, e.g. a slice of a mapped segment
+     * file.
+     *
+     * @param encoded The postings, from its position to its limit
+     * @return A reader positioned before the first document
+     */
+    public static Reader reader(ByteBuffer encoded) {
+        return new Reader(encoded);
+    }
+
+    /**
+     * Writes the encoded postings.
+     *
+     * @param out Where to write them
+     * @throws IOException If an I/O error occurs.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(bytes, 0, length);
+    }
+
+    private void writeVarInt(int value) {
+        if (length + 5 > bytes.length)
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + 5));
+        while ((value & ~0x7F) != 0) {
+            bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[length++] = (byte) value;
+    }
+
+    // ============= //
+    // Inner classes //
+    // ============= //
+
+    /**
+     * Decodes a posting list one document at a time, in increasing id order.
+     *
+     * <pre>
+     * {@code
+     * PostingList.Reader reader = postings.reader();
+     * while (reader.next()) {
+     *     use(reader.document(), reader.positions());
+     * }
+     * }
+     * </pre>
+     */
+    public static class Reader {
+        private final ByteBuffer bytes;
+        private final int end;
+        private int offset;
+        private int document = -1;
+        private int[] positions;
+
+        private Reader(ByteBuffer bytes) {
+            this.bytes = bytes;
+            this.offset = bytes.position();
+            this.end = bytes.limit();
+        }
+
+        /**
+         * Moves to the next document.
+         *
+         * @return false if there are no more documents
+         */
+        public boolean next() {
+            if (offset >= end)
+                return false;
+            document += readVarInt();
+            positions = new int[readVarInt()];
+            int position = 0;
+            for (int i = 0; i < positions.length; i++) {
+                position += readVarInt();
+                positions[i] = position;
+            }
+            return true;
+        }
+
+        /** @return the id of the current document */
+        public int document() {
+            return document;
+        }
+
+        /** @return how many times the term appears in the current document */
+        public int frequency() {
+            return positions.length;
+        }
+
+        /** @return the positions of the term in the current document, in order */
+        public int[] positions() {
+            return positions;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes.get(offset++);
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package edu.georgetown.search;
+
+import java.util.Collection;
+
+import edu.georgetown.model.ChirpCursor;
+
+/**
+ * A set of indexed chirps that can be searched together with others, as by
+ * {@link FullTextIndex#search(java.util.List, TextQuery, int, FullTextIndex.Order)}.
+ *
+ * <p>
+ * Documents are numbered from 0 within each segment. A {@link FullTextIndex}
+ * is an in-memory segment that is still growing; an {@link IndexSegment} is an
+ * immutable segment stored in a file.
+ * </p>
+ */
+public interface Segment {
+
+    /**
+     * @return the number of documents (chirps) in the segment
+     */
+    int getDocumentCount();
+
+    /**
+     * @return the total number of terms in all documents
+     */
+    long getTotalLength();
+
+    /**
+     * @param document The document id
+     * @return the cursor of the chirp
+     */
+    ChirpCursor getCursor(int document);
+
+    /**
+     * @param document The document id
+     * @return the number of terms in the document
+     */
+    int getDocumentLength(int document);
+
+    /**
+     * @return the distinct terms in the segment
+     */
+    Collection<String> getTerms();
+
+    /**
+     * @param term The term
+     * @return a reader over the term's postings, or null if no document has it
+     */
+    PostingList.Reader postings(String term);
+}
@@ -0,0 +1,96 @@
+package edu.georgetown.search;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tracks the most frequent strings of a stream with a fixed number of
+ * counters (the Space-Saving algorithm).
+ *
+ * <p>
+ * Each counter watches one string. A string that is already watched adds to
+ * its counter. A new string gets a free counter if there is one; otherwise it
+ * takes over the smallest counter and starts from that counter's value, since
+ * it may have been seen that often before. Every string that occurred more than
+ * {@code n / capacity} times in {@code n} offers is guaranteed to be watched,
+ * so the counters always hold the true heavy hitters, with counts that may be
+ * too high but never too low.
+ * </p>
+ *
+ * <p>
+ * The smallest counter is found by a scan, which is cheap for the small
+ * capacities used here. A summary is not thread-safe; {@link TrendingTags}
+ * guards it.
+ * </p>
+ */
+public class SpaceSaving {
+
+    private final int capacity;
+    private final HashMap<String, long[]> counts;
+
+    /**
+     * Creates an empty summary.
+     *
+     * @param capacity The number of counters, i.e. of strings watched
+     * @throws IllegalArgumentException If the capacity is not positive.
+     */
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        this.capacity = capacity;
+        this.counts = new HashMap<String, long[]>(capacity * 2);
+    }
+
+    /**
+     * Counts occurrences of a string.
+     *
+     * @param item   The string
+     * @param amount How many occurrences
+     */
+    public void offer(String item, long amount) {
+        long[] count = counts.get(item);
+        if (count != null) {
+            count[0] += amount;
+            return;
+        }
+        if (counts.size() < capacity) {
+            counts.put(item, new long[] { amount });
+            return;
+        }
+
+        Map.Entry<String, long[]> smallest = null;
+        for (Map.Entry<String, long[]> entry : counts.entrySet()) {
+            if (smallest == null || entry.getValue()[0] < smallest.getValue()[0])
+                smallest = entry;
+        }
+        long[] taken = counts.remove(smallest.getKey());
+        taken[0] += amount;
+        counts.put(item, taken);
+    }
+
+    /**
+     * @return the strings watched, which include every heavy hitter
+     */
+    public Set<String> getItems() {
+        return counts.keySet();
+    }
+
+    /**
+     * Gets the count of a watched string.
+     *
+     * @param item The string
+     * @return Its count, which may be too high; 0 if it is not watched
+     */
+    public long getCount(String item) {
+        long[] count = counts.get(item);
+        return count == null ? 0 : count[0];
+    }
+
+    /**
+     * Forgets every string.
+     */
+    public void clear() {
+        counts.clear();
+    }
+}
@@ -0,0 +1,116 @@
+package edu.georgetown.search;
+
+import java.util.Vector;
+
+/**
+ * A parsed free-text query.
+ *
+ * <p>
+ * Syntax:
+ * </p>
+ * <ul>
+ * <li>Words are ANDed: {@code coffee morning} finds chirps with both
+ * words.</li>
+ * <li>{@code OR}, in capitals, separates alternatives: {@code coffee OR tea}
+ * finds chirps with either. AND binds tighter than OR.</li>
+ * <li>Double quotes make a phrase: {@code "good morning"} finds the words next
+ * to each other, in that order. A word the tokenizer splits, such as
+ * {@code e-mail}, is a phrase too.</li>
+ * </ul>
+ *
+ * <p>
+ * A query is a list of clauses (the OR alternatives), each a list of phrases
+ * that must all match; a single word is a phrase of one term.
+ * </p>
+ */
+public class TextQuery {
+
+    private static final String OR = "OR";
+
+    private final Vector<Vector<String[]>> clauses;
+
+    private TextQuery(Vector<Vector<String[]>> clauses) {
+        this.clauses = clauses;
+    }
+
+    /**
+     * Parses a query.
+     *
+     * @param text The query as typed
+     * @return The query; empty if it has no terms
+     */
+    public static TextQuery parse(String text) {
+        Vector<Vector<String[]>> clauses = new Vector<Vector<String[]>>();
+        Vector<String[]> clause = new Vector<String[]>();
+        if (text == null)
+            text = "";
+
+        int i = 0;
+        int length = text.length();
+        while (i < length) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '"') {
+                int close = text.indexOf('"', i + 1);
+                if (close < 0)
+                    close = length;
+                addPhrase(clause, text.substring(i + 1, close));
+                i = close + 1;
+            } else {
+                int end = i;
+                while (end < length && !Character.isWhitespace(text.charAt(end)) && text.charAt(end) != '"') {
+                    end++;
+                }
+                String word = text.substring(i, end);
+                if (word.equals(OR)) {
+                    if (!clause.isEmpty())
+                        clauses.add(clause);
+                    clause = new Vector<String[]>();
+                } else {
+                    addPhrase(clause, word);
+                }
+                i = end;
+            }
+        }
+        if (!clause.isEmpty())
+            clauses.add(clause);
+        return new TextQuery(clauses);
+    }
+
+    /**
+     * @return the OR alternatives, each a list of phrases that must all match
+     */
+    public Vector<Vector<String[]>> getClauses() {
+        return clauses;
+    }
+
+    /**
+     * @return true if the query has no terms, so it matches nothing
+     */
+    public boolean isEmpty() {
+        return clauses.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (Vector<String[]> clause : clauses) {
+            if (text.length() > 0)
+                text.append(" OR ");
+            for (int p = 0; p < clause.size(); p++) {
+                String[] phrase = clause.get(p);
+                if (p > 0)
+                    text.append(' ');
+                text.append(phrase.length > 1 ? "\"" + String.join(" ", phrase) + "\"" : phrase[0]);
+            }
+        }
+        return text.toString();
+    }
+
+    private static void addPhrase(Vector<String[]> clause, String text) {
+        Vector<String> terms = Tokenizer.tokenize(text);
+        if (!terms.isEmpty())
+            clause.add(terms.toArray(new String[0]));
+    }
+}
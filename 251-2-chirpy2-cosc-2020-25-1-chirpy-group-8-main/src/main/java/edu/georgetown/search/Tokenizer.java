@@ -0,0 +1,53 @@
+package edu.georgetown.search;
+
+import java.util.Locale;
+import java.util.Vector;
+
+/**
+ * Splits text into the terms indexed and searched by {@link FullTextIndex}.
+ *
+ * <p>
+ * A term is a run of letters, digits or underscores, in lower case. Everything
+ * else separates terms, so {@code "Hello, #World!"} becomes {@code hello} and
+ * {@code world}. A term's position is its index in the returned list, which is
+ * what phrase queries compare.
+ * </p>
+ */
+public final class Tokenizer {
+
+    /** Longer runs are cut to this many characters */
+    public static final int MAX_TERM_LENGTH = 64;
+
+    private Tokenizer() {
+    }
+
+    /**
+     * Splits text into terms.
+     *
+     * @param text The text, or null
+     * @return The terms in the order they appear; empty if there are none
+     */
+    public static Vector<String> tokenize(String text) {
+        Vector<String> terms = new Vector<String>();
+        if (text == null)
+            return terms;
+
+        int length = text.length();
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean termChar = i < length && isTermChar(text.charAt(i));
+            if (termChar && start < 0) {
+                start = i;
+            } else if (!termChar && start >= 0) {
+                int end = Math.min(i, start + MAX_TERM_LENGTH);
+                terms.add(text.substring(start, end).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    private static boolean isTermChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+}
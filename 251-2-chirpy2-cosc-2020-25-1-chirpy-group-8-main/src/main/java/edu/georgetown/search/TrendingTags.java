@@ -0,0 +1,239 @@
+package edu.georgetown.search;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+import edu.georgetown.model.TrendingTag;
+
+/**
+ * The most used hashtags of the last hour and of the last day, counted as
+ * chirps are posted, in a fixed amount of memory.
+ *
+ * <p>
+ * Each {@link Window} is a ring of time buckets, e.g. twelve five-minute
+ * buckets for the last hour. A bucket counts the tags of the chirps posted in
+ * its time span twice:
+ * </p>
+ * <ul>
+ * <li>a {@link CountMinSketch} estimates how often any tag was used;</li>
+ * <li>a {@link SpaceSaving} summary remembers which tags were used most.</li>
+ * </ul>
+ *
+ * <p>
+ * To find the top tags of a window, the tags remembered by any of its buckets
+ * are the candidates, and each candidate's count is the sum of its sketch
+ * estimates over the buckets. When time moves past a bucket, the bucket is
+ * cleared and reused, so old chirps drop out of the window without ever being
+ * looked at again and memory does not grow with the number of chirps or tags.
+ * A window covers its buckets, so "the last hour" may include up to one bucket
+ * span more.
+ * </p>
+ *
+ * <p>
+ * The counts are estimates that may be a little high but never low. All
+ * methods are synchronized; recording a chirp costs a few dozen counter
+ * updates.
+ * </p>
+ *
+ * <p>
+ * Usage example:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * TrendingTags trending = new TrendingTags();
+ * trending.record(HashtagIndex.extractTags("#coffee time"), System.currentTimeMillis());
+ * Vector<TrendingTag> top = trending.getTrending(TrendingTags.Window.HOUR, 10);
+ * }
+ * </pre>
+ */
+public class TrendingTags {
+
+    /** Counters per sketch row */
+    private static final int SKETCH_WIDTH = 1024;
+    /** Sketch rows */
+    private static final int SKETCH_DEPTH = 4;
+    /** Tags remembered per bucket */
+    private static final int HEAVY_HITTERS = 64;
+
+    /**
+     * The time spans over which tags are counted.
+     */
+    public enum Window {
+        /** The last hour, in five-minute buckets */
+        HOUR(TimeUnit.MINUTES.toMillis(5), 12),
+        /** The last 24 hours, in one-hour buckets */
+        DAY(TimeUnit.HOURS.toMillis(1), 24);
+
+        private final long bucketMillis;
+        private final int buckets;
+
+        Window(long bucketMillis, int buckets) {
+            this.bucketMillis = bucketMillis;
+            this.buckets = buckets;
+        }
+
+        /**
+         * Parses a window name, ignoring case.
+         *
+         * @param name The name: {@code "1h"} or {@code "hour"}, {@code "24h"} or
+         *             {@code "day"}; or null
+         * @return The window; {@link #HOUR} if the name is null or unknown
+         */
+        public static Window parse(String name) {
+            if (name != null) {
+                String trimmed = name.trim();
+                if (trimmed.equalsIgnoreCase("24h") || trimmed.equalsIgnoreCase(DAY.name()))
+                    return DAY;
+            }
+            return HOUR;
+        }
+    }
+
+    private final Ring[] rings;
+
+    /**
+     * Creates an empty set of counters for every {@link Window}.
+     */
+    public TrendingTags() {
+        rings = new Ring[Window.values().length];
+        for (Window window : Window.values()) {
+            rings[window.ordinal()] = new Ring(window);
+        }
+    }
+
+    /**
+     * Counts the tags of one chirp. Chirps older than a window are ignored by
+     * that window.
+     *
+     * @param tags   The distinct normalized tags of the chirp, as returned by
+     *               {@link edu.georgetown.dao.HashtagIndex#extractTags(String)}
+     * @param millis The time the chirp was posted
+     */
+    public synchronized void record(Collection<String> tags, long millis) {
+        if (tags.isEmpty())
+            return;
+        for (Ring ring : rings) {
+            Bucket bucket = ring.bucketFor(millis);
+            if (bucket == null)
+                continue;
+            for (String tag : tags) {
+                bucket.sketch.add(tag, 1);
+                bucket.heavyHitters.offer(tag, 1);
+            }
+        }
+    }
+
+    /**
+     * Finds the most used tags of a window ending now.
+     *
+     * @param window The window
+     * @param limit  The maximum number of tags to return
+     * @return The top tags, most used first
+     */
+    public Vector<TrendingTag> getTrending(Window window, int limit) {
+        return getTrending(window, limit, System.currentTimeMillis());
+    }
+
+    /**
+     * Finds the most used tags of a window ending at a given time.
+     *
+     * @param window The window
+     * @param limit  The maximum number of tags to return
+     * @param now    The end of the window, in epoch millis
+     * @return The top tags, most used first; alphabetical among equal counts
+     */
+    public synchronized Vector<TrendingTag> getTrending(Window window, int limit, long now) {
+        Vector<TrendingTag> top = new Vector<TrendingTag>();
+        if (limit <= 0)
+            return top;
+
+        Vector<Bucket> live = rings[window.ordinal()].liveBuckets(now);
+        HashSet<String> candidates = new HashSet<String>();
+        for (Bucket bucket : live) {
+            candidates.addAll(bucket.heavyHitters.getItems());
+        }
+
+        // The heap's head is the worst tag kept
+        Comparator<TrendingTag> better = Comparator.comparingLong(TrendingTag::getCount)
+                .thenComparing(TrendingTag::getTag, Comparator.reverseOrder());
+        PriorityQueue<TrendingTag> best = new PriorityQueue<TrendingTag>(limit + 1, better);
+        for (String tag : candidates) {
+            long count = 0;
+            for (Bucket bucket : live) {
+                count += bucket.sketch.estimate(tag);
+            }
+            best.add(new TrendingTag(tag, count));
+            if (best.size() > limit)
+                best.poll();
+        }
+        while (!best.isEmpty()) {
+            top.add(best.poll());
+        }
+        Collections.reverse(top);
+        return top;
+    }
+
+    // ============= //
+    // Inner classes //
+    // ============= //
+
+    /**
+     * The buckets of one window, reused in turn as time goes on.
+     */
+    private static class Ring {
+        final long bucketMillis;
+        final Bucket[] buckets;
+
+        Ring(Window window) {
+            bucketMillis = window.bucketMillis;
+            buckets = new Bucket[window.buckets];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new Bucket();
+            }
+        }
+
+        /**
+         * @return the bucket for a time, cleared first if it last held an older
+         *         span; null if the bucket already holds a newer span
+         */
+        Bucket bucketFor(long millis) {
+            long span = Math.floorDiv(millis, bucketMillis);
+            Bucket bucket = buckets[(int) Math.floorMod(span, (long) buckets.length)];
+            if (bucket.span > span)
+                return null;
+            if (bucket.span < span) {
+                bucket.sketch.clear();
+                bucket.heavyHitters.clear();
+                bucket.span = span;
+            }
+            return bucket;
+        }
+
+        /** @return the buckets whose spans fall in the window ending at a time */
+        Vector<Bucket> liveBuckets(long now) {
+            long newest = Math.floorDiv(now, bucketMillis);
+            Vector<Bucket> live = new Vector<Bucket>(buckets.length);
+            for (Bucket bucket : buckets) {
+                if (bucket.span <= newest && bucket.span > newest - buckets.length)
+                    live.add(bucket);
+            }
+            return live;
+        }
+    }
+
+    /**
+     * The counts of one time span.
+     */
+    private static class Bucket {
+        /** The span counted, in bucket lengths since the epoch */
+        long span = Long.MIN_VALUE;
+        final CountMinSketch sketch = new CountMinSketch(SKETCH_WIDTH, SKETCH_DEPTH);
+        final SpaceSaving heavyHitters = new SpaceSaving(HEAVY_HITTERS);
+    }
+}
@@ -1,20 +1,46 @@
 package edu.georgetown.service;
 
+import java.util.Collection;
+import java.util.PriorityQueue;
 import java.util.Vector;
 import java.util.logging.Logger;
 
 import edu.georgetown.dao.ChirpDAO;
 import edu.georgetown.logging.LoggerFactory;
 import edu.georgetown.model.Chirp;
+import edu.georgetown.model.ChirpCursor;
+import edu.georgetown.model.ChirpPage;
+import edu.georgetown.model.TrendingTag;
+import edu.georgetown.search.FullTextIndex;
+import edu.georgetown.search.TrendingTags;
 
 /**
  * ChirpService is responsible for managing chirps. It provides methods to post
  * a chirp,
  * retrieve chirps by a specific user, and retrieve all chirps.
+ *
+ * <p>
+ * A follow timeline can be read in two ways: from the materialized home
+ * timelines, if the service was given them, or by merging the chirps of the
+ * followed accounts at read time with
+ * {@link #getMergedTimeline(Collection, String, int)}.
+ * </p>
+ *
+ * <p>
+ * If the service is given a {@link SearchResultCache}, each new chirp evicts
+ * the cached search results it changes.
+ * </p>
  */
 public class ChirpService {
 
+    /** Cursors read from one author's history at a time while merging */
+    private static final int MERGE_BATCH_SIZE = 16;
+
     private ChirpDAO chirpDAO;
+    /** Home timelines to fan new chirps out to; null if there are none */
+    private HomeTimelineService homeTimelines;
+    /** Search results to evict as chirps are posted; null if there are none */
+    private SearchResultCache searchResults;
 
     private Logger logger = LoggerFactory.getLogger();
 
@@ -24,18 +50,53 @@ public class ChirpService {
      * @param chirpDAO The ChirpDAO instance used for data access.
      */
     public ChirpService(ChirpDAO chirpDAO) {
+        this(chirpDAO, null);
+    }
+
+    /**
+     * Constructor for ChirpService that keeps home timelines up to date.
+     * 
+     * @param chirpDAO      The ChirpDAO instance used for data access.
+     * @param homeTimelines The home timelines that new chirps are pushed to.
+     */
+    public ChirpService(ChirpDAO chirpDAO, HomeTimelineService homeTimelines) {
+        this(chirpDAO, homeTimelines, null);
+    }
+
+    /**
+     * Constructor for ChirpService that keeps home timelines and cached search
+     * results up to date.
+     * 
+     * @param chirpDAO      The ChirpDAO instance used for data access.
+     * @param homeTimelines The home timelines that new chirps are pushed to, or
+     *                      null.
+     * @param searchResults The search results that new chirps evict, or null.
+     */
+    public ChirpService(ChirpDAO chirpDAO, HomeTimelineService homeTimelines, SearchResultCache searchResults) {
         this.chirpDAO = chirpDAO;
+        this.homeTimelines = homeTimelines;
+        this.searchResults = searchResults;
         logger.info("ChirpService started");
     }
 
     /**
-     * Posts a chirp for a specific user.
+     * Posts a chirp for a specific user, pushes it into the home timelines of
+     * the user's followers, and evicts the cached search results it belongs
+     * in.
      * 
      * @param username The username of the user posting the chirp.
      * @param content  The content of the chirp.
+     * @return true if the chirp was saved and posted, false otherwise.
      */
-    public void postChirp(String username, String content) {
-        chirpDAO.addChirp(username, content);
+    public boolean postChirp(String username, String content) {
+        ChirpCursor cursor = chirpDAO.addChirp(username, content);
+        if (cursor == null)
+            return false;
+        if (homeTimelines != null)
+            homeTimelines.chirpPosted(username, cursor);
+        if (searchResults != null)
+            searchResults.chirpPosted(username, content);
+        return true;
     }
 
     /**
@@ -51,9 +112,181 @@ public class ChirpService {
     /**
      * Retrieves all chirps from the database.
      * 
-     * @return A vector of all Chirps.
+     * @return A vector of all Chirps, oldest first.
      */
     public Vector<Chirp> getAllChirps() {
         return chirpDAO.getAllChirps();
     }
-}
\ No newline at end of file
+
+    /**
+     * Retrieves one page of chirps from all users, newest first.
+     * 
+     * @param cursor The cursor text returned with the previous page, or null (or
+     *               an invalid cursor) for the first page.
+     * @param limit  The maximum number of chirps to return.
+     * @return The page of chirps and the cursor for the next page.
+     */
+    public ChirpPage getChirpsBefore(String cursor, int limit) {
+        ChirpCursor before = ChirpCursor.parse(cursor);
+        if (cursor != null && before == null)
+            logger.warning("ChirpService.getChirpsBefore: ignoring invalid cursor " + cursor);
+        return chirpDAO.getChirpsBefore(before, limit);
+    }
+
+    /**
+     * Retrieves one page of the chirps with a hashtag, newest first, from the
+     * hashtag index.
+     * 
+     * @param tag    The hashtag, with or without the leading '#'; case is ignored.
+     * @param cursor The cursor text returned with the previous page, or null (or
+     *               an invalid cursor) for the first page.
+     * @param limit  The maximum number of chirps to return.
+     * @return The page of chirps and the cursor for the next page.
+     */
+    public ChirpPage getChirpsByTag(String tag, String cursor, int limit) {
+        ChirpCursor before = ChirpCursor.parse(cursor);
+        if (cursor != null && before == null)
+            logger.warning("ChirpService.getChirpsByTag: ignoring invalid cursor " + cursor);
+        return chirpDAO.getChirpsByTag(tag, before, limit);
+    }
+
+    /**
+     * Finds the best chirps matching a free-text query.
+     * 
+     * @param query The query: words (ANDed), "quoted phrases" and OR.
+     * @param limit The maximum number of chirps to return.
+     * @param order Whether the newest or the most relevant chirps come first.
+     * @return The best matching chirps, best first.
+     */
+    public Vector<Chirp> searchText(String query, int limit, FullTextIndex.Order order) {
+        return chirpDAO.searchText(query, limit, order);
+    }
+
+    /**
+     * Finds the most used hashtags of a recent window.
+     * 
+     * @param window The window: the last hour or the last day.
+     * @param limit  The maximum number of tags to return.
+     * @return The top tags with their estimated counts, most used first.
+     */
+    public Vector<TrendingTag> getTrendingTags(TrendingTags.Window window, int limit) {
+        return chirpDAO.getTrendingTags(window, limit);
+    }
+
+    /**
+     * Retrieves one page of a user's home timeline: the chirps of the accounts
+     * the user follows, newest first.
+     * 
+     * @param username The username of the user reading their timeline.
+     * @param cursor   The cursor text returned with the previous page, or null (or
+     *                 an invalid cursor) for the first page.
+     * @param limit    The maximum number of chirps to return.
+     * @return The page of chirps and the cursor for the next page.
+     * @throws IllegalStateException If this service has no home timelines.
+     */
+    public ChirpPage getHomeTimeline(String username, String cursor, int limit) {
+        if (homeTimelines == null)
+            throw new IllegalStateException("ChirpService was created without home timelines");
+        ChirpCursor before = ChirpCursor.parse(cursor);
+        if (cursor != null && before == null)
+            logger.warning("ChirpService.getHomeTimeline: ignoring invalid cursor " + cursor);
+        return homeTimelines.getHomeTimeline(username, before, limit);
+    }
+
+    /**
+     * Checks whether follow timelines are read from materialized home timelines.
+     * 
+     * @return true if {@link #getHomeTimeline(String, String, int)} can be used.
+     */
+    public boolean hasHomeTimelines() {
+        return homeTimelines != null;
+    }
+
+    /**
+     * Retrieves one page of the chirps of the given authors, newest first, by
+     * merging their histories at read time.
+     * 
+     * <p>
+     * Each author's history is already in time order, so the page is produced
+     * by a k-way merge: a heap holds the newest unread chirp of each author, and
+     * the newest of those is taken until the page is full. Each author's history
+     * is read lazily, a few cursors at a time, so a page costs
+     * O(F + limit log F) for F authors, whatever the number of chirps on the
+     * site. Nothing is read until its chirp is on the page.
+     * </p>
+     * 
+     * @param authors The usernames of the authors, e.g. the accounts a user
+     *                follows.
+     * @param cursor  The cursor text returned with the previous page, or null (or
+     *                an invalid cursor) for the first page.
+     * @param limit   The maximum number of chirps to return.
+     * @return The page of chirps and the cursor for the next page.
+     */
+    public ChirpPage getMergedTimeline(Collection<String> authors, String cursor, int limit) {
+        ChirpCursor before = ChirpCursor.parse(cursor);
+        if (cursor != null && before == null)
+            logger.warning("ChirpService.getMergedTimeline: ignoring invalid cursor " + cursor);
+
+        // The heap is ordered by each author's newest unread chirp, newest first
+        int batchSize = Math.min(limit + 1, MERGE_BATCH_SIZE);
+        PriorityQueue<AuthorHistory> heap = new PriorityQueue<AuthorHistory>(Math.max(1, authors.size()));
+        for (String author : authors) {
+            AuthorHistory history = new AuthorHistory(author, before, batchSize);
+            if (history.peek() != null)
+                heap.add(history);
+        }
+
+        Vector<ChirpCursor> cursors = new Vector<ChirpCursor>(limit);
+        while (cursors.size() < limit && !heap.isEmpty()) {
+            AuthorHistory newest = heap.poll();
+            cursors.add(newest.next());
+            if (newest.peek() != null)
+                heap.add(newest);
+        }
+        boolean more = !heap.isEmpty();
+        return new ChirpPage(chirpDAO.getChirps(cursors), more ? cursors.lastElement() : null);
+    }
+
+    // ============= //
+    // Inner classes //
+    // ============= //
+
+    /**
+     * The unread part of one author's history, newest first, read from the DAO a
+     * batch at a time. Ordered by the newest unread cursor, newest first, so that
+     * a {@link PriorityQueue} of histories yields the newest chirp overall.
+     */
+    private class AuthorHistory implements Comparable<AuthorHistory> {
+        private final String author;
+        private final int batchSize;
+        private Vector<ChirpCursor> batch;
+        private int position;
+
+        AuthorHistory(String author, ChirpCursor before, int batchSize) {
+            this.author = author;
+            this.batchSize = batchSize;
+            this.batch = chirpDAO.getCursorsByUserBefore(author, before, batchSize);
+        }
+
+        /** @return the newest unread cursor, or null if there are none left */
+        ChirpCursor peek() {
+            if (position == batch.size() && batch.size() == batchSize) {
+                // The batch was full, so there may be older chirps
+                batch = chirpDAO.getCursorsByUserBefore(author, batch.lastElement(), batchSize);
+                position = 0;
+            }
+            return position < batch.size() ? batch.get(position) : null;
+        }
+
+        ChirpCursor next() {
+            ChirpCursor cursor = peek();
+            position++;
+            return cursor;
+        }
+
+        @Override
+        public int compareTo(AuthorHistory other) {
+            return other.peek().compareTo(peek());
+        }
+    }
+}
@@ -46,10 +46,24 @@ import edu.georgetown.logging.LoggerFactory;
 public class FollowService {
 
     private FollowDAO followRelationships;
+    /** Home timelines to backfill and purge; null if there are none */
+    private HomeTimelineService homeTimelines;
     private Logger logger = LoggerFactory.getLogger();
 
     public FollowService(FollowDAO followDAO) {
+        this(followDAO, null);
+    }
+
+    /**
+     * Constructor for FollowService that keeps home timelines up to date.
+     * 
+     * @param followDAO     The FollowDAO instance used for data access.
+     * @param homeTimelines The home timelines to backfill on follow and purge on
+     *                      unfollow.
+     */
+    public FollowService(FollowDAO followDAO, HomeTimelineService homeTimelines) {
         followRelationships = followDAO;
+        this.homeTimelines = homeTimelines;
         logger.info("FollowService started");
     }
 
@@ -73,6 +87,16 @@ public class FollowService {
         return followRelationships.getAccountsFollowingUser(username);
     }
 
+    /**
+     * Counts the Chirpers who follow the specified user, without copying them.
+     * 
+     * @param username The username of the Chirper being followed.
+     * @return The number of followers.
+     */
+    public int getFollowerCount(String username) {
+        return followRelationships.getFollowerCount(username);
+    }
+
     /**
      * Checks if a user is following another user.
      *
@@ -105,7 +129,12 @@ public class FollowService {
         if (isFollowing(followingUser, targetUser))
             throw new IllegalStateException(followingUser + " is already following " + targetUser);
 
-        followRelationships.createRelationship(followingUser, targetUser);
+        if (!followRelationships.createRelationship(followingUser, targetUser)) {
+            logger.warning(followingUser + " could not follow " + targetUser);
+            return;
+        }
+        if (homeTimelines != null)
+            homeTimelines.followed(followingUser, targetUser);
         logger.info(followingUser + " successfully followed " + targetUser);
     }
 
@@ -126,7 +155,12 @@ public class FollowService {
         if (!isFollowing(followingUser, targetUser))
             throw new IllegalStateException(followingUser + " is not following " + targetUser);
 
-        followRelationships.deleteRelationship(followingUser, targetUser);
+        if (!followRelationships.deleteRelationship(followingUser, targetUser)) {
+            logger.warning(followingUser + " could not unfollow " + targetUser);
+            return;
+        }
+        if (homeTimelines != null)
+            homeTimelines.unfollowed(followingUser, targetUser);
         logger.info(followingUser + " successfully unfollowed " + targetUser);
     }
 
@@ -0,0 +1,330 @@
+package edu.georgetown.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import edu.georgetown.dao.ChirpDAO;
+import edu.georgetown.dao.FollowDAO;
+import edu.georgetown.logging.LoggerFactory;
+import edu.georgetown.model.ChirpCursor;
+import edu.georgetown.model.ChirpPage;
+
+/**
+ * HomeTimelineService keeps a materialized "home timeline" for each user: the
+ * cursors of the newest chirps posted by the accounts the user follows, newest
+ * first. Reading a page of the follow timeline therefore costs time
+ * proportional to the page size, not to the number of chirps on the site.
+ *
+ * <p>
+ * Authors are split by follower count. Ordinary authors are fanned out on
+ * write, while the chirps of high-degree authors (at least
+ * {@code fanOutThreshold} followers) are merged in when a timeline is read.
+ * This bounds the cost of posting, since one post never writes to more than
+ * {@code fanOutThreshold} timelines, and the cost of reading, since a read
+ * merges at most one page from each high-degree author the reader follows.
+ * An author who reaches the threshold stays high-degree until the server
+ * restarts, so that none of their chirps are missed by both paths.
+ * </p>
+ *
+ * <p>
+ * The timelines are kept up to date by fan-out on write:
+ * </p>
+ * <ul>
+ * <li>{@link #chirpPosted(String, ChirpCursor)} pushes a new chirp by an
+ * ordinary author into the timeline of each of the author's followers.</li>
+ * <li>{@link #followed(String, String)} backfills the follower's timeline with
+ * the followee's newest chirps.</li>
+ * <li>{@link #unfollowed(String, String)} purges the followee's chirps from the
+ * follower's timeline.</li>
+ * </ul>
+ *
+ * <p>
+ * A timeline is only built the first time its user reads it, by merging the
+ * newest chirps of everyone the user follows; until then, fan-out skips the
+ * user. Each timeline holds at most {@value #TIMELINE_CAPACITY} chirps. When a
+ * timeline overflows, its oldest chirps are dropped, and chirps older than the
+ * ones dropped are no longer accepted, so that the timeline never has gaps.
+ * </p>
+ *
+ * <p>
+ * Dependencies:
+ * </p>
+ * <ul>
+ * <li>{@link ChirpDAO} for the chirps of each user.</li>
+ * <li>{@link FollowDAO} for the follow relationships.</li>
+ * </ul>
+ */
+public class HomeTimelineService {
+
+    /** Most chirps kept in one user's home timeline */
+    public static final int TIMELINE_CAPACITY = 500;
+    /** Default follower count from which an author's chirps are merged at read time */
+    public static final int DEFAULT_FANOUT_THRESHOLD = 1000;
+
+    private ChirpDAO chirpDAO;
+    private FollowDAO followDAO;
+    private int fanOutThreshold;
+    /** Home timelines of the users who have read theirs, by username */
+    private ConcurrentHashMap<String, Timeline> timelines = new ConcurrentHashMap<String, Timeline>();
+    /** Authors whose chirps are merged at read time instead of fanned out */
+    private Set<String> highDegreeAuthors = ConcurrentHashMap.newKeySet();
+
+    private Logger logger = LoggerFactory.getLogger();
+
+    /**
+     * Constructor for HomeTimelineService.
+     *
+     * @param chirpDAO  The ChirpDAO instance used to read chirps.
+     * @param followDAO The FollowDAO instance used to read follow relationships.
+     */
+    public HomeTimelineService(ChirpDAO chirpDAO, FollowDAO followDAO) {
+        this(chirpDAO, followDAO, DEFAULT_FANOUT_THRESHOLD);
+    }
+
+    /**
+     * Constructor for HomeTimelineService with a given fan-out threshold. Authors
+     * who already have that many followers are classified as high-degree.
+     *
+     * @param chirpDAO        The ChirpDAO instance used to read chirps.
+     * @param followDAO       The FollowDAO instance used to read follow
+     *                        relationships.
+     * @param fanOutThreshold The follower count from which an author's chirps are
+     *                        merged at read time instead of fanned out.
+     */
+    public HomeTimelineService(ChirpDAO chirpDAO, FollowDAO followDAO, int fanOutThreshold) {
+        this.chirpDAO = chirpDAO;
+        this.followDAO = followDAO;
+        this.fanOutThreshold = fanOutThreshold;
+        highDegreeAuthors.addAll(followDAO.getAccountsWithFollowers(fanOutThreshold));
+        logger.info("HomeTimelineService started: " + highDegreeAuthors.size()
+                + " authors with at least " + fanOutThreshold + " followers are merged at read time");
+    }
+
+    /**
+     * Retrieves one page of a user's home timeline, newest first. The timeline is
+     * built on the first call for the user. The page is merged from the timeline
+     * and from the chirps of the high-degree authors the user follows.
+     *
+     * @param username The username of the user reading their timeline.
+     * @param before   The cursor of the last chirp already seen, or null for the
+     *                 first page.
+     * @param limit    The maximum number of chirps to return.
+     * @return The page of chirps and the cursor for the next page.
+     */
+    public ChirpPage getHomeTimeline(String username, ChirpCursor before, int limit) {
+        Timeline timeline = timelines.get(username);
+        if (timeline == null)
+            timeline = build(username);
+
+        // One more than a page from each source tells whether there are more
+        TreeSet<ChirpCursor> merged = new TreeSet<ChirpCursor>();
+        ChirpCursor floor = timeline.read(before, limit + 1, merged);
+        for (String author : getFollowedHighDegreeAuthors(username)) {
+            for (ChirpCursor cursor : chirpDAO.getCursorsByUserBefore(author, before, limit + 1)) {
+                // Below the floor the timeline has dropped chirps, so stop there
+                if (floor != null && cursor.compareTo(floor) <= 0)
+                    break;
+                merged.add(cursor);
+            }
+        }
+
+        Vector<ChirpCursor> cursors = new Vector<ChirpCursor>(limit);
+        Iterator<ChirpCursor> newestFirst = merged.descendingIterator();
+        while (cursors.size() < limit && newestFirst.hasNext()) {
+            cursors.add(newestFirst.next());
+        }
+        boolean more = newestFirst.hasNext();
+        return new ChirpPage(chirpDAO.getChirps(cursors), more ? cursors.lastElement() : null);
+    }
+
+    /**
+     * Pushes a new chirp into the home timeline of each of its author's
+     * followers, unless the author is high-degree.
+     *
+     * @param author The username of the user who posted the chirp.
+     * @param cursor The cursor of the new chirp.
+     */
+    public void chirpPosted(String author, ChirpCursor cursor) {
+        if (isHighDegree(author))
+            return;
+        for (String follower : followDAO.getAccountsFollowingUser(author)) {
+            Timeline timeline = timelines.get(follower);
+            if (timeline != null)
+                timeline.add(cursor);
+        }
+    }
+
+    /**
+     * Backfills a follower's home timeline with the newest chirps of an account
+     * they started following. High-degree accounts are not backfilled, since
+     * their chirps are merged at read time.
+     *
+     * @param follower The username of the follower.
+     * @param followee The username of the account now followed.
+     */
+    public void followed(String follower, String followee) {
+        if (isHighDegree(followee))
+            return;
+        Timeline timeline = timelines.get(follower);
+        if (timeline != null)
+            timeline.addAll(chirpDAO.getLatestCursorsByUser(followee, TIMELINE_CAPACITY));
+    }
+
+    /**
+     * Checks whether an author's chirps are merged at read time, classifying the
+     * author as high-degree once they reach the fan-out threshold.
+     *
+     * @param author The username of the author.
+     * @return true if the author is high-degree.
+     */
+    public boolean isHighDegree(String author) {
+        if (highDegreeAuthors.contains(author))
+            return true;
+        if (followDAO.getFollowerCount(author) < fanOutThreshold)
+            return false;
+        if (highDegreeAuthors.add(author))
+            logger.info("HomeTimelineService: " + author + " reached " + fanOutThreshold
+                    + " followers; their chirps are now merged at read time");
+        return true;
+    }
+
+    /**
+     * Purges the chirps of an account a follower stopped following from the
+     * follower's home timeline.
+     *
+     * @param follower The username of the follower.
+     * @param followee The username of the account no longer followed.
+     */
+    public void unfollowed(String follower, String followee) {
+        Timeline timeline = timelines.get(follower);
+        if (timeline != null)
+            timeline.removeAll(chirpDAO.getLatestCursorsByUser(followee, TIMELINE_CAPACITY));
+    }
+
+    /**
+     * Finds the high-degree authors a user follows by walking the smaller of the
+     * two sets, so that a read costs no more than the user's own follows however
+     * many popular accounts there are.
+     *
+     * @param username The username of the reader.
+     * @return The high-degree authors the reader follows.
+     */
+    private Vector<String> getFollowedHighDegreeAuthors(String username) {
+        Vector<String> authors = new Vector<String>();
+        if (followDAO.getFollowingCount(username) <= highDegreeAuthors.size()) {
+            for (String followee : followDAO.getAccountsUserFollows(username)) {
+                if (highDegreeAuthors.contains(followee))
+                    authors.add(followee);
+            }
+        } else {
+            for (String author : highDegreeAuthors) {
+                if (followDAO.relationshipExists(username, author))
+                    authors.add(author);
+            }
+        }
+        return authors;
+    }
+
+    /**
+     * Builds a user's home timeline from the newest chirps of everyone they
+     * follow. The timeline is registered before it is filled, and stays locked
+     * until it is full, so that chirps posted meanwhile are not missed and
+     * readers never see it half built.
+     *
+     * @param username The username of the user.
+     * @return The user's timeline.
+     */
+    private Timeline build(String username) {
+        Timeline created = new Timeline();
+        synchronized (created) {
+            Timeline existing = timelines.putIfAbsent(username, created);
+            if (existing != null)
+                return existing;
+
+            long startTime = System.currentTimeMillis();
+            for (String followee : followDAO.getAccountsUserFollows(username)) {
+                if (!isHighDegree(followee))
+                    created.addAll(chirpDAO.getLatestCursorsByUser(followee, TIMELINE_CAPACITY));
+            }
+            logger.info("HomeTimelineService.build: timeline of " + username + " built in "
+                    + (System.currentTimeMillis() - startTime) + " ms");
+        }
+        return created;
+    }
+
+    // ============= //
+    // Inner classes //
+    // ============= //
+
+    /**
+     * One user's home timeline: a bounded, time-ordered set of cursors. It holds
+     * every followed chirp newer than {@code floor}, the newest cursor ever
+     * dropped to make room (null while nothing has been dropped).
+     */
+    private static class Timeline {
+        private final TreeSet<ChirpCursor> cursors = new TreeSet<ChirpCursor>();
+        private ChirpCursor floor;
+
+        synchronized void add(ChirpCursor cursor) {
+            if (floor == null || cursor.compareTo(floor) > 0) {
+                cursors.add(cursor);
+                trim();
+            }
+        }
+
+        /**
+         * Adds the newest cursors of a followee. A full backfill of
+         * {@value #TIMELINE_CAPACITY} may have left out older chirps, so the
+         * floor is raised to the oldest of them and everything at or below it
+         * is dropped, as if it had been trimmed.
+         */
+        synchronized void addAll(Collection<ChirpCursor> added) {
+            for (ChirpCursor cursor : added) {
+                if (floor == null || cursor.compareTo(floor) > 0)
+                    cursors.add(cursor);
+            }
+            if (added.size() >= TIMELINE_CAPACITY) {
+                ChirpCursor oldest = Collections.min(added);
+                if (floor == null || oldest.compareTo(floor) > 0) {
+                    floor = oldest;
+                    cursors.headSet(floor, true).clear();
+                }
+            }
+            trim();
+        }
+
+        synchronized void removeAll(Collection<ChirpCursor> removed) {
+            for (ChirpCursor cursor : removed) {
+                cursors.remove(cursor);
+            }
+        }
+
+        /**
+         * Copies the newest {@code limit} cursors older than {@code before}.
+         *
+         * @return the floor, below which the timeline is incomplete (or null)
+         */
+        synchronized ChirpCursor read(ChirpCursor before, int limit, Collection<ChirpCursor> into) {
+            NavigableSet<ChirpCursor> older = before == null ? cursors.descendingSet()
+                    : cursors.headSet(before, false).descendingSet();
+            Iterator<ChirpCursor> iterator = older.iterator();
+            for (int copied = 0; copied < limit && iterator.hasNext(); copied++) {
+                into.add(iterator.next());
+            }
+            return floor;
+        }
+
+        private void trim() {
+            while (cursors.size() > TIMELINE_CAPACITY) {
+                floor = cursors.pollFirst();
+            }
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package edu.georgetown.service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.Vector;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import edu.georgetown.dao.HashtagIndex;
+import edu.georgetown.model.Chirp;
+import edu.georgetown.model.ChirpCursor;
+import edu.georgetown.model.ChirpPage;
+import edu.georgetown.search.FullTextIndex;
+import edu.georgetown.search.TextQuery;
+import edu.georgetown.search.Tokenizer;
+
+/**
+ * A bounded cache of search results, so that popular searches are not run
+ * again on every request.
+ *
+ * <p>
+ * Results are keyed by the normalized query: tags in lower case without the
+ * {@code '#'}, and free-text queries as parsed, so {@code #Java} and
+ * {@code java} (as a tag) or {@code Good  Morning} and {@code good morning}
+ * share an entry. The cache holds at most {@code capacityBytes} of results, by
+ * an estimate of the size of their chirps, and evicts the least recently used
+ * entries to stay under it. A result larger than an eighth of the capacity is
+ * not cached.
+ * </p>
+ *
+ * <p>
+ * Invalidation is precise: {@link #chirpPosted(String, String)} evicts only
+ * the results a new chirp could be part of:
+ * </p>
+ * <ul>
+ * <li>the first page of each of its tags (later pages hold only older
+ * chirps);</li>
+ * <li>its author's chirps;</li>
+ * <li>the free-text results of queries it matches, found through the first
+ * term of each of their OR clauses.</li>
+ * </ul>
+ *
+ * <p>
+ * A result being computed while a chirp is posted is not stored if the chirp
+ * invalidates it, so the cache never keeps a result older than the chirps it
+ * should show. Hits, misses, evictions and invalidations are counted.
+ * </p>
+ *
+ * <p>
+ * Usage example:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * SearchResultCache cache = new SearchResultCache(SearchResultCache.DEFAULT_CAPACITY_BYTES);
+ * ChirpPage page = cache.getByTag("#java", null, 50, () -> chirpService.getChirpsByTag("#java", null, 50));
+ * cache.chirpPosted("alice", "More #java"); // evicts the page above
+ * }
+ * </pre>
+ */
+public class SearchResultCache {
+
+    /** Default estimated size of all cached results */
+    public static final long DEFAULT_CAPACITY_BYTES = 16L * 1024 * 1024;
+
+    /** Estimated size of an entry without its chirps */
+    private static final int ENTRY_BYTES = 160;
+    /** Estimated size of a chirp without its strings */
+    private static final int CHIRP_BYTES = 96;
+
+    private final long capacityBytes;
+    /** Entries in access order, least recently used first */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    /** Entries by what invalidates them: "#tag", "@author" or a query term */
+    private final HashMap<String, Set<Entry>> dependents = new HashMap<String, Set<Entry>>();
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * Creates a cache.
+     *
+     * @param capacityBytes The most results, by estimated size, to keep
+     */
+    public SearchResultCache(long capacityBytes) {
+        this.capacityBytes = capacityBytes;
+    }
+
+    /**
+     * Gets a page of the chirps with a tag, loading it on a miss.
+     *
+     * @param tag    The tag, with or without the leading {@code '#'}, in any case
+     * @param cursor The cursor text of the page, or null for the first page
+     * @param limit  The size of the page
+     * @param loader Runs the search
+     * @return The page
+     */
+    public ChirpPage getByTag(String tag, String cursor, int limit, Supplier<ChirpPage> loader) {
+        String normalized = HashtagIndex.normalize(tag);
+        if (normalized == null)
+            return loader.get();
+        ChirpCursor before = ChirpCursor.parse(cursor);
+        String key = "#" + normalized + " " + limit + (before == null ? "" : " " + before);
+        // A chirp can only be posted onto the first page
+        ChirpPage page = get(key, before == null ? "#" + normalized : null, null, loader,
+                loaded -> weigh(loaded.getChirps()));
+        return new ChirpPage(new Vector<Chirp>(page.getChirps()), page.getNextCursor());
+    }
+
+    /**
+     * Gets the chirps of a user, loading them on a miss.
+     *
+     * @param username The username
+     * @param loader   Runs the search
+     * @return The chirps
+     */
+    public Vector<Chirp> getByUser(String username, Supplier<Vector<Chirp>> loader) {
+        return new Vector<Chirp>(get("@" + username, "@" + username, null, loader, SearchResultCache::weigh));
+    }
+
+    /**
+     * Gets the best chirps matching a free-text query, loading them on a miss.
+     *
+     * @param query  The query as typed
+     * @param limit  The maximum number of chirps
+     * @param order  How the chirps are ranked
+     * @param loader Runs the search
+     * @return The chirps
+     */
+    public Vector<Chirp> getByText(String query, int limit, FullTextIndex.Order order,
+            Supplier<Vector<Chirp>> loader) {
+        TextQuery parsed = TextQuery.parse(query);
+        if (parsed.isEmpty())
+            return loader.get();
+        return new Vector<Chirp>(
+                get("?" + order + " " + limit + " " + parsed, null, parsed, loader, SearchResultCache::weigh));
+    }
+
+    /**
+     * Evicts the results a new chirp could be part of, including results being
+     * loaded now.
+     *
+     * @param author  The author of the chirp
+     * @param content The content of the chirp
+     */
+    public synchronized void chirpPosted(String author, String content) {
+        HashSet<Entry> stale = new HashSet<Entry>();
+        addDependents(stale, "@" + author);
+        for (String tag : HashtagIndex.extractTags(content)) {
+            addDependents(stale, "#" + tag);
+        }
+        Set<String> terms = new HashSet<String>(Tokenizer.tokenize(content));
+        for (String term : terms) {
+            Set<Entry> candidates = dependents.get(term);
+            if (candidates == null)
+                continue;
+            for (Entry entry : candidates) {
+                if (matches(entry.query, terms))
+                    stale.add(entry);
+            }
+        }
+        for (Entry entry : stale) {
+            remove(entry);
+            invalidations++;
+        }
+    }
+
+    /**
+     * Evicts every result.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        dependents.clear();
+        weight = 0;
+    }
+
+    /** @return the number of searches answered from the cache */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /** @return the number of searches that had to be run */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /** @return the number of results evicted to stay under the capacity */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /** @return the number of results evicted because of a new chirp */
+    public synchronized long getInvalidationCount() {
+        return invalidations;
+    }
+
+    /** @return the estimated size of the cached results, in bytes */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /** @return the number of cached results */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        long lookups = hits + misses;
+        return "search result cache: " + entries.size() + " results (" + weight / 1024 + " of "
+                + capacityBytes / 1024 + " KB), " + hits + " hits, " + misses + " misses ("
+                + (lookups == 0 ? 0 : 100 * hits / lookups) + "% hit rate), " + evictions + " evicted, "
+                + invalidations + " invalidated";
+    }
+
+    // ======= //
+    // Helpers //
+    // ======= //
+
+    /**
+     * Returns the cached result for a key, or loads and stores it. On a miss, an
+     * empty entry is added while the result loads, so that a chirp posted in the
+     * meantime removes it and the result is not stored.
+     */
+    @SuppressWarnings("unchecked")
+    private <V> V get(String key, String dependency, TextQuery query, Supplier<V> loader,
+            ToLongFunction<V> weigher) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && entry.value != null) {
+                hits++;
+                return (V) entry.value;
+            }
+            misses++;
+            if (entry == null) {
+                Entry added = new Entry(key, dependency, query);
+                entries.put(key, added);
+                for (String trigger : added.triggers) {
+                    dependents.computeIfAbsent(trigger, k -> new HashSet<Entry>()).add(added);
+                }
+                entry = added;
+            }
+        }
+        V value = loader.get();
+        store(entry, value, weigher.applyAsLong(value));
+        return value;
+    }
+
+    /**
+     * Stores a loaded result, unless its entry was invalidated (or evicted)
+     * while it loaded, then evicts the least recently used results over the
+     * capacity.
+     */
+    private synchronized void store(Entry entry, Object value, long size) {
+        if (entries.get(entry.key) != entry)
+            return;
+        if (size > capacityBytes / 8) {
+            remove(entry);
+            return;
+        }
+        if (entry.value != null)
+            weight -= entry.weight;
+        entry.value = value;
+        entry.weight = size;
+        weight += size;
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (weight > capacityBytes && eldest.hasNext()) {
+            Entry victim = eldest.next();
+            if (victim.value == null)
+                continue;
+            eldest.remove();
+            unlink(victim);
+            evictions++;
+        }
+    }
+
+    private void remove(Entry entry) {
+        if (entries.get(entry.key) == entry)
+            entries.remove(entry.key);
+        unlink(entry);
+    }
+
+    /** Drops an entry from the dependents and the weight, once out of the map */
+    private void unlink(Entry entry) {
+        for (String trigger : entry.triggers) {
+            Set<Entry> set = dependents.get(trigger);
+            if (set != null && set.remove(entry) && set.isEmpty())
+                dependents.remove(trigger);
+        }
+        if (entry.value != null)
+            weight -= entry.weight;
+        entry.value = null;
+    }
+
+    private void addDependents(Set<Entry> stale, String trigger) {
+        Set<Entry> set = dependents.get(trigger);
+        if (set != null)
+            stale.addAll(set);
+    }
+
+    /**
+     * Whether a chirp with these terms may match the query: every term of some
+     * clause is in the chirp. Phrase order is not checked, so this may evict a
+     * result that did not change, but never keeps one that did.
+     */
+    private static boolean matches(TextQuery query, Set<String> terms) {
+        for (Vector<String[]> clause : query.getClauses()) {
+            boolean all = true;
+            for (String[] phrase : clause) {
+                for (String term : phrase) {
+                    if (!terms.contains(term)) {
+                        all = false;
+                        break;
+                    }
+                }
+                if (!all)
+                    break;
+            }
+            if (all)
+                return true;
+        }
+        return false;
+    }
+
+    private static long weigh(Vector<Chirp> chirps) {
+        long size = ENTRY_BYTES;
+        for (Chirp chirp : chirps) {
+            size += CHIRP_BYTES + 2L * (chirp.getContent().length() + chirp.getOwnerUsername().length());
+        }
+        return size;
+    }
+
+    // ============= //
+    // Inner classes //
+    // ============= //
+
+    /**
+     * A cached result, or one being loaded while {@code value} is null.
+     */
+    private static class Entry {
+        final String key;
+        /** The free-text query, or null */
+        final TextQuery query;
+        /** What invalidates this result: a tag, an author or query terms */
+        final Set<String> triggers = new HashSet<String>();
+        Object value;
+        long weight;
+
+        Entry(String key, String dependency, TextQuery query) {
+            this.key = key;
+            this.query = query;
+            if (dependency != null)
+                triggers.add(dependency);
+            if (query != null) {
+                // A matching chirp has every term of some clause, so its first
+                for (Vector<String[]> clause : query.getClauses()) {
+                    triggers.add(clause.get(0)[0]);
+                }
+            }
+        }
+    }
+}
@@ -4,6 +4,10 @@ import java.util.logging.Logger;
 import java.util.Vector;
 
 import edu.georgetown.model.Chirp;
+import edu.georgetown.model.ChirpPage;
+import edu.georgetown.model.TrendingTag;
+import edu.georgetown.search.FullTextIndex;
+import edu.georgetown.search.TrendingTags;
 import edu.georgetown.logging.LoggerFactory;
 
 /**
@@ -15,12 +19,30 @@ import edu.georgetown.logging.LoggerFactory;
  * Features:
  * </p>
  * <ul>
- * <li>Search for Chirps containing a specific tag.</li>
+ * <li>Search for Chirps containing a specific tag, a page at a time, through
+ * the hashtag index. Only whole tags match, ignoring case: {@code #foo} does
+ * not match {@code #foobar}.</li>
  * <li>Search for Chirps created by a specific user.</li>
+ * <li>Search the words of all Chirps with free-text queries, through the
+ * full-text index, ranked by recency or relevance.</li>
+ * <li>List the trending hashtags of the last hour or day, counted as Chirps
+ * are posted.</li>
  * </ul>
+ *
+ * <p>
+ * If the service is given a {@link SearchResultCache}, tag, user and
+ * free-text results are answered from it when they can be; the
+ * {@link ChirpService} given the same cache evicts the results each new Chirp
+ * changes.
+ * </p>
  */
 public class SearchService {
+    /** Chirps read from the hashtag index at a time by {@link #searchByTag(String)} */
+    private static final int TAG_PAGE_SIZE = 500;
+
     private ChirpService chirpService;
+    /** Results of recent searches; null if they are not cached */
+    private SearchResultCache resultCache;
     private Logger logger = LoggerFactory.getLogger();
 
     /**
@@ -29,41 +51,93 @@ public class SearchService {
      * @param cs reference to ChirpService object
      */
     public SearchService(ChirpService cs) {
+        this(cs, null);
+    }
+
+    /**
+     * Initializes SearchService with a cache of search results
+     * 
+     * @param cs    reference to ChirpService object
+     * @param cache the cache of search results, or null to run every search
+     */
+    public SearchService(ChirpService cs, SearchResultCache cache) {
         this.chirpService = cs;
+        this.resultCache = cache;
         logger.info("SearchService successfully initiated");
     }
 
     /**
      * Searches for chirps that contain a certain tag
      * 
-     * @param tag the tag of interest
-     * @return a list of chirp IDs of Chirps that contain the tag
+     * @param tag the tag of interest, with or without the leading '#'
+     * @return all Chirps that contain the tag, newest first
      */
     public Vector<Chirp> searchByTag(String tag) {
-        Vector<Chirp> posts = chirpService.getAllChirps();
         Vector<Chirp> matches = new Vector<>();
-        for (Chirp post : posts) {
-            if (post.getContent().contains(tag)) {
-                matches.add(post);
-            }
-        }
+        String cursor = null;
+        do {
+            ChirpPage page = searchByTag(tag, cursor, TAG_PAGE_SIZE);
+            matches.addAll(page.getChirps());
+            cursor = page.hasMore() ? page.getNextCursor().toString() : null;
+        } while (cursor != null);
         return matches;
     }
 
     /**
-     * Searches for chirps made by a specific Chirper.
+     * Searches for one page of the chirps that contain a certain tag. The cost
+     * depends on the size of the page, not on the number of chirps.
+     * 
+     * @param tag    the tag of interest, with or without the leading '#'
+     * @param cursor the cursor text returned with the previous page, or null for
+     *               the first page
+     * @param limit  the maximum number of chirps to return
+     * @return the page of Chirps that contain the tag, newest first
+     */
+    public ChirpPage searchByTag(String tag, String cursor, int limit) {
+        if (resultCache != null)
+            return resultCache.getByTag(tag, cursor, limit, () -> chirpService.getChirpsByTag(tag, cursor, limit));
+        return chirpService.getChirpsByTag(tag, cursor, limit);
+    }
+
+    /**
+     * Searches for chirps made by a specific Chirper. The user's chirps are looked
+     * up directly, so no other chirp is visited.
      * 
      * @param username username of the Chirper
-     * @return a list of chirp IDs of Chirps made by the user
+     * @return the Chirps made by the user, oldest first
      */
     public Vector<Chirp> searchByUser(String username) {
-        Vector<Chirp> posts = chirpService.getAllChirps();
-        Vector<Chirp> matches = new Vector<>();
-        for (Chirp post : posts) {
-            if (post.getOwnerUsername().equals(username)) {
-                matches.add(post);
-            }
-        }
-        return matches;
+        if (resultCache != null)
+            return resultCache.getByUser(username, () -> chirpService.getChirpsByUser(username));
+        return chirpService.getChirpsByUser(username);
+    }
+
+    /**
+     * Searches the words of all chirps. The query may combine words (all of
+     * which must match), "quoted phrases" and OR, e.g.
+     * {@code "good morning" coffee OR tea}.
+     * 
+     * @param query the free-text query
+     * @param limit the maximum number of chirps to return
+     * @param order whether the newest or the most relevant chirps come first
+     * @return the best matching Chirps, best first
+     */
+    public Vector<Chirp> searchText(String query, int limit, FullTextIndex.Order order) {
+        if (resultCache != null)
+            return resultCache.getByText(query, limit, order, () -> chirpService.searchText(query, limit, order));
+        return chirpService.searchText(query, limit, order);
+    }
+
+    /**
+     * Lists the most used hashtags of the last hour or day. The counts are
+     * estimates kept up to date as chirps are posted, so no chirp is scanned.
+     * 
+     * @param window the window: {@link TrendingTags.Window#HOUR} or
+     *               {@link TrendingTags.Window#DAY}
+     * @param limit  the maximum number of tags to return
+     * @return the top tags with their estimated counts, most used first
+     */
+    public Vector<TrendingTag> getTrendingTags(TrendingTags.Window window, int limit) {
+        return chirpService.getTrendingTags(window, limit);
     }
 }
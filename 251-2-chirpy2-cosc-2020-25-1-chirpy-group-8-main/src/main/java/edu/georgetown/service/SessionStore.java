@@ -0,0 +1,389 @@
+package edu.georgetown.service;
+
+import java.io.Closeable;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+import edu.georgetown.logging.LoggerFactory;
+
+/**
+ * The logged-in sessions, by opaque token, kept in memory.
+ *
+ * <p>
+ * Logging in creates a {@link Session} with a random token (256 bits, URL-safe
+ * Base64), which is all the browser gets: the session cookie no longer names
+ * the user. Sessions expire after {@code idleTimeout} without a request, and
+ * each request pushes the expiry back (a sliding expiry).
+ * </p>
+ *
+ * <p>
+ * How it is kept cheap:
+ * </p>
+ * <ul>
+ * <li>Sessions are spread over 16 shards by token, each with its
+ * own lock, so requests for different sessions rarely wait on each other.
+ * Finding a session is one hash lookup in one shard.</li>
+ * <li>Expired sessions are removed by a timer wheel of 64 slots, each
+ * covering a 64th of {@code idleTimeout}. A session
+ * sits in the slot of its expiry; each tick only looks at the sessions of the
+ * slots that came due, never at all of them. A request only writes the
+ * session's last access time, and a session found still active when its slot
+ * comes due is moved to the slot of its new expiry.</li>
+ * <li>At most {@code maxSessions} are kept. When a shard is full, its least
+ * recently used session is evicted, so memory stays bounded however many
+ * logins there are.</li>
+ * </ul>
+ *
+ * <p>
+ * A session past its expiry is never returned, even if the wheel has not
+ * reached it yet.
+ * </p>
+ *
+ * <p>
+ * Usage example:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * SessionStore sessions = new SessionStore(30, TimeUnit.MINUTES, SessionStore.DEFAULT_MAX_SESSIONS);
+ * sessions.start(); // sweep expired sessions in the background
+ * String token = sessions.create("alice").getToken();
+ * sessions.get(token).getUsername(); // "alice"
+ * sessions.invalidate(token); // log out
+ * }
+ * </pre>
+ */
+public class SessionStore implements Closeable {
+
+    /** Default time a session lasts without a request */
+    public static final long DEFAULT_IDLE_MINUTES = 30;
+    /** Default most sessions kept at once */
+    public static final int DEFAULT_MAX_SESSIONS = 100_000;
+
+    /** Number of shards; a power of two */
+    private static final int SHARDS = 16;
+    /** Number of slots in the timer wheel */
+    private static final int WHEEL_SLOTS = 64;
+    /** Random bytes in a token */
+    private static final int TOKEN_BYTES = 32;
+
+    private static final Logger logger = LoggerFactory.getLogger();
+
+    private final long idleMillis;
+    private final long tickMillis;
+    private final int maxPerShard;
+    private final LongSupplier clock;
+    private final SecureRandom random = new SecureRandom();
+    private final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    private final Shard[] shards = new Shard[SHARDS];
+    /** Sessions by the slot of their expiry; guarded by itself */
+    private final Vector<Set<Session>> wheel = new Vector<Set<Session>>(WHEEL_SLOTS);
+    /** The last tick the wheel has expired sessions up to; guarded by wheel */
+    private long wheelTick;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    /**
+     * Creates a store. Nothing is swept in the background until
+     * {@link #start()}.
+     *
+     * @param idleTimeout How long a session lasts without a request
+     * @param unit        The unit of {@code idleTimeout}
+     * @param maxSessions The most sessions kept at once
+     */
+    public SessionStore(long idleTimeout, TimeUnit unit, int maxSessions) {
+        this(idleTimeout, unit, maxSessions, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a store that reads the time from a clock, e.g. in tests.
+     *
+     * @param idleTimeout How long a session lasts without a request
+     * @param unit        The unit of {@code idleTimeout}
+     * @param maxSessions The most sessions kept at once
+     * @param clock       The current time in milliseconds
+     */
+    public SessionStore(long idleTimeout, TimeUnit unit, int maxSessions, LongSupplier clock) {
+        if (idleTimeout <= 0 || maxSessions <= 0)
+            throw new IllegalArgumentException("idle timeout and max sessions must be positive");
+        this.idleMillis = unit.toMillis(idleTimeout);
+        this.tickMillis = Math.max(1, idleMillis / WHEEL_SLOTS);
+        this.maxPerShard = Math.max(1, (maxSessions + SHARDS - 1) / SHARDS);
+        this.clock = clock;
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new Shard();
+        }
+        for (int i = 0; i < WHEEL_SLOTS; i++) {
+            wheel.add(new HashSet<Session>());
+        }
+        this.wheelTick = clock.getAsLong() / tickMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts expiring sessions every tick of the wheel.
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::expireSessions, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        logger.info("SessionStore.start: sessions expire after " + idleMillis / 1000 + " s idle, checked every "
+                + tickMillis + " ms");
+    }
+
+    /**
+     * Creates a session for a user who has just logged in.
+     *
+     * @param username The user
+     * @return The new session, with its token
+     */
+    public Session create(String username) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        Session session = new Session(encoder.encodeToString(bytes), username, clock.getAsLong());
+        Session victim = null;
+        Shard shard = shardFor(session.token);
+        synchronized (shard) {
+            shard.sessions.put(session.token, session);
+            if (shard.sessions.size() > maxPerShard) {
+                Iterator<Session> eldest = shard.sessions.values().iterator();
+                victim = eldest.next();
+                eldest.remove();
+            }
+        }
+        schedule(session);
+        created.incrementAndGet();
+        if (victim != null) {
+            unschedule(victim);
+            evicted.incrementAndGet();
+        }
+        return session;
+    }
+
+    /**
+     * Finds the session for a token and pushes back its expiry.
+     *
+     * @param token The token from the session cookie, or null
+     * @return The session, or null if there is none or it has expired
+     */
+    public Session get(String token) {
+        if (token == null)
+            return null;
+        Shard shard = shardFor(token);
+        Session session;
+        synchronized (shard) {
+            session = shard.sessions.get(token);
+        }
+        if (session == null)
+            return null;
+        long now = clock.getAsLong();
+        if (isExpired(session, now)) {
+            if (remove(session)) {
+                unschedule(session);
+                expired.incrementAndGet();
+            }
+            return null;
+        }
+        session.lastAccess = now;
+        return session;
+    }
+
+    /**
+     * Ends a session, e.g. when its user logs out.
+     *
+     * @param token The token from the session cookie, or null
+     * @return whether there was a session
+     */
+    public boolean invalidate(String token) {
+        if (token == null)
+            return false;
+        Shard shard = shardFor(token);
+        Session session;
+        synchronized (shard) {
+            session = shard.sessions.remove(token);
+        }
+        if (session == null)
+            return false;
+        unschedule(session);
+        return true;
+    }
+
+    /**
+     * Turns the wheel up to the current time, removing the sessions that have
+     * expired in the slots that came due and moving the others to the slot of
+     * their new expiry.
+     *
+     * @return the number of sessions removed
+     */
+    public int expireSessions() {
+        long now = clock.getAsLong();
+        long target = now / tickMillis;
+        Vector<Session> due = new Vector<Session>();
+        synchronized (wheel) {
+            // One turn of the wheel visits every slot
+            for (long tick = Math.max(wheelTick + 1, target - WHEEL_SLOTS + 1); tick <= target; tick++) {
+                Set<Session> slot = wheel.get(slotOf(tick));
+                due.addAll(slot);
+                slot.clear();
+            }
+            wheelTick = Math.max(wheelTick, target);
+        }
+        int removed = 0;
+        for (Session session : due) {
+            if (!isExpired(session, now))
+                schedule(session);
+            else if (remove(session))
+                removed++;
+        }
+        expired.addAndGet(removed);
+        return removed;
+    }
+
+    /**
+     * Stops the background sweep.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /** @return the number of sessions */
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                size += shard.sessions.size();
+            }
+        }
+        return size;
+    }
+
+    /** @return the number of sessions created */
+    public long getCreatedCount() {
+        return created.get();
+    }
+
+    /** @return the number of sessions that expired */
+    public long getExpiredCount() {
+        return expired.get();
+    }
+
+    /** @return the number of sessions evicted to stay under the limit */
+    public long getEvictedCount() {
+        return evicted.get();
+    }
+
+    @Override
+    public String toString() {
+        return "session store: " + size() + " sessions, " + created + " created, " + expired + " expired, "
+                + evicted + " evicted";
+    }
+
+    // ======= //
+    // Helpers //
+    // ======= //
+
+    private Shard shardFor(String token) {
+        int hash = token.hashCode();
+        return shards[(hash ^ hash >>> 16) & (SHARDS - 1)];
+    }
+
+    private boolean isExpired(Session session, long now) {
+        return now - session.lastAccess >= idleMillis;
+    }
+
+    /** Removes a session from its shard if it is still there */
+    private boolean remove(Session session) {
+        Shard shard = shardFor(session.token);
+        synchronized (shard) {
+            return shard.sessions.remove(session.token, session);
+        }
+    }
+
+    /** Puts a session in the slot of its expiry, or the next one if that is due */
+    private void schedule(Session session) {
+        long expiry = session.lastAccess + idleMillis;
+        synchronized (wheel) {
+            long tick = Math.max((expiry + tickMillis - 1) / tickMillis, wheelTick + 1);
+            session.slot = slotOf(tick);
+            wheel.get(session.slot).add(session);
+        }
+    }
+
+    private void unschedule(Session session) {
+        synchronized (wheel) {
+            if (session.slot >= 0)
+                wheel.get(session.slot).remove(session);
+            session.slot = -1;
+        }
+    }
+
+    private static int slotOf(long tick) {
+        return (int) Math.floorMod(tick, (long) WHEEL_SLOTS);
+    }
+
+    // ============= //
+    // Inner classes //
+    // ============= //
+
+    /**
+     * A logged-in user's session.
+     */
+    public static class Session {
+        private final String token;
+        private final String username;
+        private final long createdAt;
+        private volatile long lastAccess;
+        /** The wheel slot it is in, or -1; guarded by the wheel */
+        private int slot = -1;
+
+        Session(String token, String username, long createdAt) {
+            this.token = token;
+            this.username = username;
+            this.createdAt = createdAt;
+            this.lastAccess = createdAt;
+        }
+
+        /** @return the opaque token the browser keeps in its cookie */
+        public String getToken() {
+            return token;
+        }
+
+        /** @return the logged-in user */
+        public String getUsername() {
+            return username;
+        }
+
+        /** @return when the user logged in, in milliseconds */
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        /** @return when the session was last used, in milliseconds */
+        public long getLastAccess() {
+            return lastAccess;
+        }
+    }
+
+    /**
+     * One shard of the sessions, least recently used first; guarded by itself.
+     */
+    private static class Shard {
+        final LinkedHashMap<String, Session> sessions = new LinkedHashMap<String, Session>(16, 0.75f, true);
+    }
+}
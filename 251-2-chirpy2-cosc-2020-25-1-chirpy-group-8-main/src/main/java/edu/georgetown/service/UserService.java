@@ -1,6 +1,7 @@
 package edu.georgetown.service;
 
 import java.util.Vector;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import com.sun.net.httpserver.HttpExchange;
@@ -16,10 +17,19 @@ import edu.georgetown.model.Chirper;
  * UserService is responsible for managing users. It provides methods to
  * register a user,
  * check if a username exists, and validate user credentials.
+ * Logged-in users are tracked by the sessions of a {@link SessionStore}; the
+ * browser only holds the session's opaque token, in the
+ * {@value #SESSION_COOKIE} cookie.
  */
 public class UserService {
 
+    /** Cookie holding the session token */
+    public static final String SESSION_COOKIE = "session";
+
     ChirperDAO users;
+    /** Ranks username suggestions by follower count; null if there is none */
+    private FollowService followService;
+    private final SessionStore sessions;
     static Path userStateDir;
 
     private static final Logger logger = LoggerFactory.getLogger();
@@ -30,7 +40,34 @@ public class UserService {
      * @param chirperDAO The ChirperDAO instance used for data access.
      */
     public UserService(ChirperDAO chirperDAO) {
+        this(chirperDAO, null);
+    }
+
+    /**
+     * Constructor for UserService that ranks username suggestions by follower
+     * count.
+     * 
+     * @param chirperDAO    The ChirperDAO instance used for data access.
+     * @param followService The FollowService used to count followers.
+     */
+    public UserService(ChirperDAO chirperDAO, FollowService followService) {
+        this(chirperDAO, followService, null);
+    }
+
+    /**
+     * Constructor for UserService that keeps sessions in the given store.
+     * 
+     * @param chirperDAO    The ChirperDAO instance used for data access.
+     * @param followService The FollowService used to count followers.
+     * @param sessions      The logged-in sessions, or null for a store with the
+     *                      default settings and no background sweep.
+     */
+    public UserService(ChirperDAO chirperDAO, FollowService followService, SessionStore sessions) {
         this.users = chirperDAO;
+        this.followService = followService;
+        this.sessions = sessions != null ? sessions
+                : new SessionStore(SessionStore.DEFAULT_IDLE_MINUTES, TimeUnit.MINUTES,
+                        SessionStore.DEFAULT_MAX_SESSIONS);
         logger.info("UserService started");
     }
 
@@ -49,6 +86,16 @@ public class UserService {
         return myUserList;
     }
 
+    /**
+     * Retrieves the current snapshot of all users, shared between requests
+     * instead of copied for each.
+     * 
+     * @return The user directory.
+     */
+    public UserDirectory getUserDirectory() {
+        return users.getUserDirectory();
+    }
+
     /**
      * Registers a new user with the given username and password.
      * Checks if the username is already taken before adding the new user.
@@ -83,6 +130,24 @@ public class UserService {
         return userList;
     }
 
+    /**
+     * Suggests usernames that start with a prefix, ignoring case, for
+     * autocompletion. The most followed users come first (alphabetically among
+     * equals). All are alphabetical if this service cannot count followers, or
+     * if the prefix is shorter than
+     * {@value edu.georgetown.dao.UsernameIndex#MIN_RANKED_PREFIX_LENGTH}
+     * characters.
+     * 
+     * @param prefix The prefix typed so far; a leading '@' is ignored.
+     * @param limit  The maximum number of usernames to return.
+     * @return The suggested usernames, best first.
+     */
+    public Vector<String> suggestUsernames(String prefix, int limit) {
+        // Each match's follower count is read once per lookup
+        return users.findUsernamesByPrefix(prefix, limit,
+                followService == null ? null : followService::getFollowerCount);
+    }
+
     /**
      * Checks if a username already exists in the database.
      * 
@@ -108,23 +173,57 @@ public class UserService {
         return users.chirperExists(username) && users.passwordMatches(username, password);
     }
 
+    /**
+     * Starts a session for a user whose credentials have been checked.
+     * 
+     * @param username The username of the user.
+     * @return The session token, to be sent in the {@value #SESSION_COOKIE}
+     *         cookie.
+     */
+    public String logIn(String username) {
+        return sessions.create(username).getToken();
+    }
+
+    /**
+     * Finds the user of a session, pushing back the session's expiry.
+     * 
+     * @param token The session token, or null.
+     * @return The username, or null if there is no such session or it has
+     *         expired.
+     */
+    public String getSessionUser(String token) {
+        SessionStore.Session session = sessions.get(token);
+        return session == null ? null : session.getUsername();
+    }
+
+    /**
+     * Ends a session, so its token no longer logs anyone in.
+     * 
+     * @param token The session token, or null.
+     * @return true if there was such a session, false otherwise.
+     */
+    public boolean logOut(String token) {
+        return sessions.invalidate(token);
+    }
+
     /**
      * Checks if a user is logged in based on the presence and validity of a
-     * "username" cookie.
+     * session cookie.
      * 
      * @param exchange The HttpExchange object containing the request and response
      *                 details.
-     * @return {@code true} if the "username" cookie exists and corresponds to a
-     *         valid username;
+     * @return {@code true} if the session cookie holds the token of a current
+     *         session;
      *         {@code false} otherwise. If the cookie is invalid, it will be
      *         deleted.
      */
     public boolean isLoggedIn(HttpExchange exchange) {
-        String username = CookieUtils.getCookies(exchange).get("username");
-        if (usernameExists(username)) {
+        String token = CookieUtils.getCookies(exchange).get(SESSION_COOKIE);
+        if (getSessionUser(token) != null) {
             return true;
         } else {
-            CookieUtils.deleteCookie(exchange, "username");
+            if (token != null)
+                CookieUtils.deleteCookie(exchange, SESSION_COOKIE);
             return false;
         }
     }
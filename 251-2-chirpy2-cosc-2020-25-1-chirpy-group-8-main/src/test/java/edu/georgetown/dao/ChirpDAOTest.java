@@ -6,7 +6,12 @@ import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.contains;
 import static org.mockito.Mockito.*;
 import edu.georgetown.model.Chirp;
+import edu.georgetown.model.ChirpCursor;
+import edu.georgetown.model.ChirpPage;
 import edu.georgetown.persistence.Serializer;
+import edu.georgetown.model.TrendingTag;
+import edu.georgetown.search.FullTextIndex;
+import edu.georgetown.search.TrendingTags;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -14,6 +19,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Vector;
 
 import edu.georgetown.dao.ChirpDAO;
@@ -28,12 +34,13 @@ public class ChirpDAOTest {
     private ChirpDAO chirpDAO;
 
     @Test
-    public void testLoadChirps() {
-        Vector<Chirp> mockChirps = new Vector<>();
-        mockChirps.add(new Chirp("user1", "Hello World!"));
-        mockChirps.add(new Chirp("user2", "Another chirp"));
-
-        when(mockSerializer.loadDirectory()).thenReturn(mockChirps);
+    public void testLoadChirps() throws Exception {
+        Vector<String> keys = new Vector<>();
+        keys.add("user2_2000");
+        keys.add("user1_1000");
+        when(mockSerializer.listFileNames()).thenReturn(keys);
+        when(mockSerializer.readFile("user1_1000")).thenReturn(new Chirp("user1", "Hello World!"));
+        when(mockSerializer.readFile("user2_2000")).thenReturn(new Chirp("user2", "Another chirp"));
 
         chirpDAO.loadChirps();
 
@@ -42,6 +49,50 @@ public class ChirpDAOTest {
         assertEquals("Hello World!", chirpDAO.getChirpsByUser("user1").get(0).getContent());
     }
 
+    @Test
+    public void testLoadChirpsReadsNothingUntilNeeded() throws Exception {
+        Vector<String> keys = new Vector<>();
+        keys.add("user_1_3000");
+        keys.add("user_1_1000");
+        when(mockSerializer.listFileNames()).thenReturn(keys);
+        when(mockSerializer.readFile("user_1_1000")).thenReturn(new Chirp("user_1", "First"));
+        when(mockSerializer.readFile("user_1_3000")).thenReturn(new Chirp("user_1", "Second"));
+
+        chirpDAO.loadChirps();
+        verify(mockSerializer, never()).readFile(anyString());
+
+        Vector<Chirp> userChirps = chirpDAO.getChirpsByUser("user_1");
+        assertEquals(2, userChirps.size());
+        assertEquals("First", userChirps.get(0).getContent(), "Chirps should be ordered by key time");
+        assertEquals("Second", userChirps.get(1).getContent());
+    }
+
+    @Test
+    public void testOldChirpsAreReadBackFromStorage() throws Exception {
+        Vector<String> savedKeys = new Vector<>();
+        Vector<Chirp> savedChirps = new Vector<>();
+        doAnswer(invocation -> {
+            savedChirps.add(invocation.getArgument(0));
+            savedKeys.add(invocation.getArgument(1));
+            return null;
+        }).when(mockSerializer).createState(any(Chirp.class), anyString());
+
+        int total = ChirpDAO.RECENT_CHIRPS_PER_USER + 5;
+        for (int i = 0; i < total; i++) {
+            chirpDAO.addChirp("user1", "Chirp " + i);
+        }
+        for (int i = 0; i < 5; i++) {
+            when(mockSerializer.readFile(savedKeys.get(i))).thenReturn(savedChirps.get(i));
+        }
+
+        Vector<Chirp> userChirps = chirpDAO.getChirpsByUser("user1");
+        assertEquals(total, userChirps.size());
+        for (int i = 0; i < total; i++) {
+            assertEquals("Chirp " + i, userChirps.get(i).getContent());
+        }
+        verify(mockSerializer, times(5)).readFile(anyString());
+    }
+
     @Test
     public void testAddChirp() throws IOException {
         chirpDAO.addChirp("user1", "This is a test chirp");
@@ -57,11 +108,12 @@ public class ChirpDAOTest {
     public void testAddChirpIOException() throws IOException {
         doThrow(new IOException()).when(mockSerializer).createState(any(Chirp.class), anyString());
 
-        chirpDAO.addChirp("user1", "This chirp will fail to save");
+        assertNull(chirpDAO.addChirp("user1", "This chirp will fail to save"));
 
-        Vector<Chirp> userChirps = chirpDAO.getChirpsByUser("user1");
-        assertEquals(1, userChirps.size());
-        assertEquals("This chirp will fail to save", userChirps.get(0).getContent());
+        // A chirp that was not saved is not published anywhere
+        assertTrue(chirpDAO.getChirpsByUser("user1").isEmpty());
+        assertTrue(chirpDAO.getAllChirps().isEmpty());
+        assertTrue(chirpDAO.getChirpsBefore(null, 10).getChirps().isEmpty());
     }
 
     @Test
@@ -83,4 +135,131 @@ public class ChirpDAOTest {
         Vector<Chirp> allChirps = chirpDAO.getAllChirps();
         assertEquals(2, allChirps.size());
     }
+
+    @Test
+    public void testGetChirpsBeforePagesNewestFirst() {
+        for (int i = 0; i < 5; i++) {
+            chirpDAO.addChirp("user" + (i % 2), "Chirp " + i);
+        }
+
+        ChirpPage first = chirpDAO.getChirpsBefore(null, 2);
+        assertEquals(2, first.getChirps().size());
+        assertEquals("Chirp 4", first.getChirps().get(0).getContent());
+        assertEquals("Chirp 3", first.getChirps().get(1).getContent());
+        assertTrue(first.hasMore());
+
+        ChirpPage second = chirpDAO.getChirpsBefore(first.getNextCursor(), 2);
+        assertEquals("Chirp 2", second.getChirps().get(0).getContent());
+        assertEquals("Chirp 1", second.getChirps().get(1).getContent());
+
+        ChirpPage last = chirpDAO.getChirpsBefore(second.getNextCursor(), 2);
+        assertEquals(1, last.getChirps().size());
+        assertEquals("Chirp 0", last.getChirps().get(0).getContent());
+        assertFalse(last.hasMore(), "The oldest page should have no next cursor");
+    }
+
+    @Test
+    public void testGetAllChirpsIsInTimeOrder() throws Exception {
+        Vector<String> keys = new Vector<>();
+        keys.add("user2_3000");
+        keys.add("user1_1000");
+        keys.add("user2_2000");
+        when(mockSerializer.listFileNames()).thenReturn(keys);
+        when(mockSerializer.readFile(anyString()))
+                .thenAnswer(invocation -> new Chirp("user", invocation.getArgument(0)));
+
+        chirpDAO.loadChirps();
+
+        Vector<Chirp> allChirps = chirpDAO.getAllChirps();
+        assertEquals("user1_1000", allChirps.get(0).getContent());
+        assertEquals("user2_2000", allChirps.get(1).getContent());
+        assertEquals("user2_3000", allChirps.get(2).getContent());
+    }
+
+    @Test
+    public void testGetLatestCursorsByUser() {
+        ChirpCursor first = chirpDAO.addChirp("user1", "First");
+        chirpDAO.addChirp("user2", "Other");
+        ChirpCursor second = chirpDAO.addChirp("user1", "Second");
+        ChirpCursor third = chirpDAO.addChirp("user1", "Third");
+
+        Vector<ChirpCursor> latest = chirpDAO.getLatestCursorsByUser("user1", 2);
+        assertEquals(2, latest.size());
+        assertEquals(third, latest.get(0), "Newest cursor should come first");
+        assertEquals(second, latest.get(1));
+        assertEquals(3, chirpDAO.getLatestCursorsByUser("user1", 10).size());
+        assertTrue(chirpDAO.getLatestCursorsByUser("nobody", 10).isEmpty());
+
+        Vector<Chirp> chirps = chirpDAO.getChirps(latest);
+        assertEquals("Third", chirps.get(0).getContent());
+        assertEquals("Second", chirps.get(1).getContent());
+        assertTrue(first.compareTo(second) < 0);
+    }
+
+    @Test
+    public void testGetCursorsByUserBefore() {
+        ChirpCursor first = chirpDAO.addChirp("user1", "First");
+        ChirpCursor other = chirpDAO.addChirp("user2", "Other");
+        ChirpCursor second = chirpDAO.addChirp("user1", "Second");
+        ChirpCursor third = chirpDAO.addChirp("user1", "Third");
+
+        assertEquals(List.of(second, first), chirpDAO.getCursorsByUserBefore("user1", third, 10));
+        // A cursor of another user still marks a point in time
+        assertEquals(List.of(first), chirpDAO.getCursorsByUserBefore("user1", other, 10));
+        assertEquals(List.of(third), chirpDAO.getCursorsByUserBefore("user1", null, 1));
+        assertTrue(chirpDAO.getCursorsByUserBefore("user1", first, 10).isEmpty());
+    }
+
+    @Test
+    public void testGetChirpsByTag() {
+        chirpDAO.addChirp("user1", "Hello #Java");
+        chirpDAO.addChirp("user2", "Not a match #javascript");
+        for (int i = 0; i < 3; i++) {
+            chirpDAO.addChirp("user2", "More #java " + i);
+        }
+
+        ChirpPage first = chirpDAO.getChirpsByTag("#java", null, 3);
+        assertEquals(3, first.getChirps().size());
+        assertEquals("More #java 2", first.getChirps().get(0).getContent());
+        assertTrue(first.hasMore());
+        ChirpPage last = chirpDAO.getChirpsByTag("java", first.getNextCursor(), 3);
+        assertEquals(1, last.getChirps().size());
+        assertEquals("Hello #Java", last.getChirps().get(0).getContent());
+        assertFalse(last.hasMore());
+    }
+
+    @Test
+    public void testOpenSearchIndexesRebuilds() throws Exception {
+        Vector<String> keys = new Vector<>();
+        keys.add("user1_1000");
+        keys.add("user2_2000");
+        when(mockSerializer.listFileNames()).thenReturn(keys);
+        when(mockSerializer.readFile("user1_1000")).thenReturn(new Chirp("user1", "Loaded #tag"));
+        when(mockSerializer.readFile("user2_2000")).thenReturn(new Chirp("user2", "Untagged"));
+
+        chirpDAO.loadChirps();
+        assertTrue(chirpDAO.getChirpsByTag("tag", null, 10).getChirps().isEmpty());
+        chirpDAO.openSearchIndexes();
+
+        Vector<Chirp> tagged = chirpDAO.getChirpsByTag("tag", null, 10).getChirps();
+        assertEquals(1, tagged.size());
+        assertEquals("Loaded #tag", tagged.get(0).getContent());
+        Vector<Chirp> found = chirpDAO.searchText("untagged OR loaded", 10, FullTextIndex.Order.RECENCY);
+        assertEquals(2, found.size());
+        assertEquals("Untagged", found.get(0).getContent());
+    }
+
+    @Test
+    public void testTrendingTagsCountNewChirps() {
+        chirpDAO.addChirp("user1", "#Java is fun #hoyas");
+        chirpDAO.addChirp("user2", "More #java");
+        chirpDAO.addChirp("user2", "No tags");
+
+        Vector<TrendingTag> trending = chirpDAO.getTrendingTags(TrendingTags.Window.HOUR, 10);
+        assertEquals(2, trending.size());
+        assertEquals("java", trending.get(0).getTag());
+        assertEquals(2, trending.get(0).getCount());
+        assertEquals("hoyas", trending.get(1).getTag());
+        assertEquals(2, chirpDAO.getTrendingTags(TrendingTags.Window.DAY, 10).size());
+    }
 }
@@ -210,4 +210,35 @@ public class ChirperDAOTest {
         assertFalse(chirperDao.addChirper(chirper.getUsername(), chirper.getPassword(), chirper.getPublicStatus()),
                 "Expected addChirper to return false when state saving fails");
     }
-}
\ No newline at end of file
+
+    // Test findUsernamesByPrefix() sees Chirpers as they are added
+    @Test
+    public void testFindUsernamesByPrefix() {
+        chirperDao.addChirper("alice", "password", true);
+        chirperDao.addChirper("bob", "password", true);
+        chirperDao.addChirper("Alan", "password", true);
+        chirperDao.addChirper("alice", "other", true);
+
+        assertEquals(java.util.List.of("Alan", "alice"),
+                java.util.List.copyOf(chirperDao.findUsernamesByPrefix("@al", 10, null)));
+    }
+
+    // Test getUserDirectory() is replaced, not changed, by each registration or
+    // password change
+    @Test
+    public void testUserDirectoryIsCopyOnWrite() {
+        chirperDao.addChirper("bob", "password", true);
+        edu.georgetown.dao.UserDirectory before = chirperDao.getUserDirectory();
+        assertSame(before, chirperDao.getUserDirectory(), "Requests share the same snapshot");
+
+        chirperDao.addChirper("alice", "secret", true);
+        chirperDao.setChirperPassword("bob", "changed");
+        chirperDao.setChirperPublicStatus("alice", false);
+        edu.georgetown.dao.UserDirectory after = chirperDao.getUserDirectory();
+
+        assertEquals(java.util.Map.of("bob", "password"), before.page(null, 10).getUsers());
+        assertEquals(java.util.List.of("alice", "bob"), java.util.List.copyOf(after.page(null, 10).getUsers().keySet()));
+        assertEquals("changed", after.page(null, 10).getUsers().get("bob"));
+        assertEquals(before.getVersion() + 2, after.getVersion());
+    }
+}
@@ -0,0 +1,261 @@
+package test.java.edu.georgetown.dao;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.georgetown.dao.ChirpDAO;
+import edu.georgetown.dao.ChirperDAO;
+import edu.georgetown.dao.FollowDAO;
+import edu.georgetown.model.Chirp;
+import edu.georgetown.model.ChirpPage;
+import edu.georgetown.model.Chirper;
+import edu.georgetown.model.Follow;
+import edu.georgetown.persistence.ChirpCodec;
+import edu.georgetown.persistence.ChirperCodec;
+import edu.georgetown.persistence.FollowCodec;
+import edu.georgetown.persistence.Serializer;
+import edu.georgetown.persistence.Serializer.Durability;
+import edu.georgetown.persistence.Serializer.StorageMode;
+
+/**
+ * Stress tests that drive the DAOs from many threads at once, against real
+ * log-backed serializers.
+ */
+class DAOConcurrencyTest {
+
+    private static final String TEST_DIRECTORY = "testdaoconcurrency";
+    private static final Path TEST_DIRECTORY_PATH = Path.of(System.getProperty("user.dir"), TEST_DIRECTORY);
+    private static final int THREADS = 8;
+
+    private Serializer<Chirper> chirperSerializer;
+    private Serializer<Follow> followSerializer;
+    private Serializer<Chirp> chirpSerializer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        chirperSerializer = new Serializer<>(Chirper.class, TEST_DIRECTORY + "/users", StorageMode.SEGMENTED_LOG,
+                new ChirperCodec(), Durability.ASYNC);
+        followSerializer = new Serializer<>(Follow.class, TEST_DIRECTORY + "/follows", StorageMode.SEGMENTED_LOG,
+                new FollowCodec(), Durability.ASYNC);
+        chirpSerializer = new Serializer<>(Chirp.class, TEST_DIRECTORY + "/posts", StorageMode.SEGMENTED_LOG,
+                new ChirpCodec(), Durability.ASYNC);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        chirperSerializer.close();
+        followSerializer.close();
+        chirpSerializer.close();
+        // Clean up test directory
+        if (Files.exists(TEST_DIRECTORY_PATH)) {
+            Files.walk(TEST_DIRECTORY_PATH).sorted(Comparator.reverseOrder()).map(Path::toFile)
+                    .forEach(File::delete);
+        }
+    }
+
+    /** A task run by each thread, given the thread's number */
+    private interface Task {
+        void run(int thread) throws Exception;
+    }
+
+    /**
+     * Runs the task on {@value #THREADS} threads, released together, and fails
+     * the test if any of them throws.
+     */
+    private static void runConcurrently(Task task) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        Vector<Throwable> failures = new Vector<Throwable>();
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            int id = t;
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    task.run(id);
+                } catch (Throwable ex) {
+                    failures.add(ex);
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(failures.isEmpty(), "Threads failed: " + failures);
+    }
+
+    @Test
+    void testSameUsernameIsRegisteredOnce() throws Exception {
+        ChirperDAO chirperDao = new ChirperDAO(chirperSerializer);
+        int usernames = 200;
+        AtomicInteger[] winners = new AtomicInteger[usernames];
+        for (int i = 0; i < usernames; i++) {
+            winners[i] = new AtomicInteger();
+        }
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < usernames; i++) {
+                if (chirperDao.addChirper("user" + i, "password" + thread, true))
+                    winners[i].incrementAndGet();
+            }
+        });
+
+        for (int i = 0; i < usernames; i++) {
+            assertEquals(1, winners[i].get(), "Exactly one registration of user" + i + " should succeed");
+        }
+        assertEquals(usernames, chirperDao.keySet().size());
+        chirperSerializer.flush();
+        assertEquals(usernames, chirperSerializer.listFileNames().size());
+    }
+
+    @Test
+    void testRegistrationsAndLookupsRunTogether() throws Exception {
+        ChirperDAO chirperDao = new ChirperDAO(chirperSerializer);
+        int perThread = 250;
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < perThread; i++) {
+                String username = "user" + thread + "-" + i;
+                assertTrue(chirperDao.addChirper(username, "pw", true));
+                assertTrue(chirperDao.passwordMatches(username, "pw"));
+                assertTrue(chirperDao.setChirperPassword(username, "new"));
+                // Iterating the live key set must not fail while others register
+                int seen = 0;
+                for (String ignored : chirperDao.keySet()) {
+                    seen++;
+                }
+                assertTrue(seen > i);
+            }
+        });
+
+        assertEquals(THREADS * perThread, chirperDao.keySet().size());
+        assertEquals("new", chirperDao.getChirperPassword("user0-0"));
+    }
+
+    @Test
+    void testConcurrentChirpsAreAllKeptInTimeOrder() throws Exception {
+        ChirpDAO chirpDao = new ChirpDAO(chirpSerializer);
+        int perThread = 200;
+        int users = 4;
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        // Readers page through the timeline while the writers add to it
+        Thread[] readers = new Thread[2];
+        Vector<Throwable> readerFailures = new Vector<Throwable>();
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                try {
+                    while (writing.get()) {
+                        chirpDao.getAllChirps();
+                        chirpDao.getChirpsByUser("user0");
+                        ChirpPage page = chirpDao.getChirpsBefore(null, 25);
+                        if (page.getNextCursor() != null)
+                            chirpDao.getChirpsBefore(page.getNextCursor(), 25);
+                    }
+                } catch (Throwable ex) {
+                    readerFailures.add(ex);
+                }
+            });
+            readers[r].start();
+        }
+
+        // Two threads write for each user, so same-user adds race as well
+        runConcurrently(thread -> {
+            for (int i = 0; i < perThread; i++) {
+                chirpDao.addChirp("user" + (thread % users), "chirp " + thread + "-" + i);
+            }
+        });
+        writing.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertTrue(readerFailures.isEmpty(), "Readers failed: " + readerFailures);
+
+        Vector<Chirp> all = chirpDao.getAllChirps();
+        assertEquals(THREADS * perThread, all.size());
+        HashSet<String> contents = new HashSet<String>();
+        for (Chirp chirp : all) {
+            contents.add(chirp.getContent());
+        }
+        assertEquals(THREADS * perThread, contents.size(), "No chirp should be lost or duplicated");
+
+        for (int u = 0; u < users; u++) {
+            Vector<Chirp> chirps = chirpDao.getChirpsByUser("user" + u);
+            assertEquals(THREADS / users * perThread, chirps.size());
+            for (int i = 1; i < chirps.size(); i++) {
+                assertFalse(chirps.get(i).getTimestamp().isBefore(chirps.get(i - 1).getTimestamp()),
+                        "Chirps of user" + u + " should be in time order");
+            }
+        }
+
+        // Everything reached storage and is indexed the same way on reload
+        ChirpDAO reloaded = new ChirpDAO(chirpSerializer);
+        reloaded.loadChirps();
+        assertEquals(THREADS * perThread, reloaded.getAllChirps().size());
+    }
+
+    @Test
+    void testSameRelationshipIsCreatedOnce() throws Exception {
+        FollowDAO followDao = new FollowDAO(followSerializer);
+        AtomicInteger created = new AtomicInteger();
+
+        runConcurrently(thread -> {
+            if (followDao.createRelationship("alice", "bob"))
+                created.incrementAndGet();
+        });
+
+        assertEquals(1, created.get(), "Exactly one create should succeed");
+        assertEquals(1, followDao.getAccountsUserFollows("alice").size());
+        assertEquals(1, followDao.getAccountsFollowingUser("bob").size());
+    }
+
+    @Test
+    void testFollowAndUnfollowLeaveMemoryAndStorageInAgreement() throws Exception {
+        FollowDAO followDao = new FollowDAO(followSerializer);
+        int users = 6;
+        int rounds = 300;
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < rounds; i++) {
+                String follower = "user" + ((thread + i) % users);
+                String followee = "user" + ((thread * 7 + i * 3 + 1) % users);
+                if (follower.equals(followee))
+                    continue;
+                if (i % 3 == 2)
+                    followDao.deleteRelationship(follower, followee);
+                else
+                    followDao.createRelationship(follower, followee);
+                followDao.getAccountsFollowingUser(followee);
+            }
+        });
+
+        // Both adjacency lists describe the same relationships
+        HashSet<String> relationships = new HashSet<String>();
+        for (int u = 0; u < users; u++) {
+            String user = "user" + u;
+            for (String followee : followDao.getAccountsUserFollows(user)) {
+                assertTrue(followDao.getAccountsFollowingUser(followee).contains(user));
+                relationships.add(followDao.generateFilename(user, followee));
+            }
+            for (String follower : followDao.getAccountsFollowingUser(user)) {
+                assertTrue(followDao.getAccountsUserFollows(follower).contains(user));
+            }
+        }
+
+        // And storage holds exactly the relationships that are in memory
+        followSerializer.flush();
+        assertEquals(relationships, new HashSet<String>(followSerializer.listFileNames()));
+    }
+}
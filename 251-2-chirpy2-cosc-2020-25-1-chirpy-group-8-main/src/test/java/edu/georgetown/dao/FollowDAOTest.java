@@ -8,11 +8,14 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Vector;
+import java.util.function.Consumer;
 
 import edu.georgetown.dao.FollowDAO;
 import edu.georgetown.model.Follow;
@@ -42,6 +45,10 @@ public class FollowDAOTest {
     public void testCreateRelationshipFailureDueToSerialization() throws IOException {
         doThrow(new IOException()).when(mockSerializer).createState(any(Follow.class), anyString());
         assertFalse(followDao.createRelationship(TEST_FOLLOWER, TEST_FOLLOWEE));
+
+        // The relationship that was not saved is rolled back in memory
+        assertFalse(followDao.relationshipExists(TEST_FOLLOWER, TEST_FOLLOWEE));
+        assertEquals(0, followDao.getFollowerCount(TEST_FOLLOWEE));
     }
 
     @Test
@@ -57,6 +64,10 @@ public class FollowDAOTest {
         followDao.createRelationship(TEST_FOLLOWER, TEST_FOLLOWEE);
         doThrow(new IOException()).when(mockSerializer).deleteState(anyString());
         assertFalse(followDao.deleteRelationship(TEST_FOLLOWER, TEST_FOLLOWEE));
+
+        // The relationship that is still saved is restored in memory
+        assertTrue(followDao.relationshipExists(TEST_FOLLOWER, TEST_FOLLOWEE));
+        assertEquals(List.of(TEST_FOLLOWER), followDao.getAccountsFollowingUser(TEST_FOLLOWEE));
     }
 
     @Test
@@ -75,11 +86,33 @@ public class FollowDAOTest {
         assertEquals(TEST_FOLLOWEE, followees.get(0));
     }
 
+    @Test
+    public void testFollowerCountsAndRelationshipExists() {
+        followDao.createRelationship(TEST_FOLLOWER, TEST_FOLLOWEE);
+        followDao.createRelationship("other", TEST_FOLLOWEE);
+        assertEquals(2, followDao.getFollowerCount(TEST_FOLLOWEE));
+        assertEquals(0, followDao.getFollowerCount(TEST_FOLLOWER));
+        assertEquals(1, followDao.getFollowingCount(TEST_FOLLOWER));
+        assertEquals(0, followDao.getFollowingCount(TEST_FOLLOWEE));
+        assertTrue(followDao.relationshipExists(TEST_FOLLOWER, TEST_FOLLOWEE));
+        assertFalse(followDao.relationshipExists(TEST_FOLLOWEE, TEST_FOLLOWER));
+        assertEquals(List.of(TEST_FOLLOWEE), followDao.getAccountsWithFollowers(2));
+        assertTrue(followDao.getAccountsWithFollowers(3).isEmpty());
+    }
+
+    private void stubLoadDirectory(Vector<Follow> follows) {
+        doAnswer(invocation -> {
+            Consumer<Follow> consumer = invocation.getArgument(0);
+            follows.forEach(consumer);
+            return new Serializer.LoadStatistics(follows.size(), 0, 0);
+        }).when(mockSerializer).loadDirectory(any(), anyInt());
+    }
+
     @Test
     public void testLoadFollowsSuccess() {
         Vector<Follow> follows = new Vector<>();
         follows.add(new Follow(TEST_FOLLOWER, TEST_FOLLOWEE));
-        when(mockSerializer.loadDirectory()).thenReturn(follows);
+        stubLoadDirectory(follows);
 
         assertTrue(followDao.loadFollows());
         assertEquals(1, followDao.getAccountsUserFollows(TEST_FOLLOWER).size());
@@ -88,13 +121,13 @@ public class FollowDAOTest {
 
     @Test
     public void testLoadFollowsEmpty() {
-        when(mockSerializer.loadDirectory()).thenReturn(new Vector<>());
+        stubLoadDirectory(new Vector<>());
         assertFalse(followDao.loadFollows());
     }
 
     @Test
     public void testLoadFollowsNull() {
-        when(mockSerializer.loadDirectory()).thenReturn(null);
+        when(mockSerializer.loadDirectory(any(), anyInt())).thenReturn(null);
         assertFalse(followDao.loadFollows());
     }
 
@@ -107,14 +140,16 @@ public class FollowDAOTest {
     @Test
     public void testCreateDuplicateRelationship() throws IOException {
         followDao.createRelationship(TEST_FOLLOWER, TEST_FOLLOWEE);
-        doThrow(new IOException()).when(mockSerializer).createState(any(Follow.class), anyString());
+        // Rejected before storage is reached
+        lenient().doThrow(new IOException()).when(mockSerializer).createState(any(Follow.class), anyString());
         assertFalse(followDao.createRelationship(TEST_FOLLOWER, TEST_FOLLOWEE));
         assertEquals(1, followDao.getAccountsUserFollows(TEST_FOLLOWER).size());
     }
 
     @Test
     public void testDeleteNonExistentRelationship() throws IOException {
-        doThrow(new IOException()).when(mockSerializer).deleteState(anyString());
+        // Rejected before storage is reached
+        lenient().doThrow(new IOException()).when(mockSerializer).deleteState(anyString());
         assertFalse(followDao.deleteRelationship(TEST_FOLLOWER, TEST_FOLLOWEE));
     }
 }
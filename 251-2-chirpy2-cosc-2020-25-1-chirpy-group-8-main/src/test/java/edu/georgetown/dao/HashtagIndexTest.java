@@ -0,0 +1,59 @@
+package test.java.edu.georgetown.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Vector;
+
+import org.junit.jupiter.api.Test;
+
+import edu.georgetown.dao.HashtagIndex;
+import edu.georgetown.model.ChirpCursor;
+
+public class HashtagIndexTest {
+
+    @Test
+    public void testExtractTags() {
+        assertEquals(List.of("java", "foo_bar", "2025"),
+                List.copyOf(HashtagIndex.extractTags("#Java and #foo_bar, #2025! #java again")));
+        // Not tags: a lone '#', a '#' inside a word, and '##' only starts one
+        assertEquals(List.of("x"), List.copyOf(HashtagIndex.extractTags("# a#b ##x")));
+        assertTrue(HashtagIndex.extractTags(null).isEmpty());
+    }
+
+    @Test
+    public void testNormalize() {
+        assertEquals("java", HashtagIndex.normalize("#Java"));
+        assertEquals("java", HashtagIndex.normalize(" java "));
+        assertNull(HashtagIndex.normalize("#"));
+        assertNull(HashtagIndex.normalize("#two words"));
+    }
+
+    @Test
+    public void testWholeTagsOnly() {
+        HashtagIndex index = new HashtagIndex();
+        ChirpCursor foo = new ChirpCursor(1000, "a_1000");
+        ChirpCursor foobar = new ChirpCursor(2000, "b_2000");
+        index.add("I like #foo", foo);
+        index.add("I like #foobar", foobar);
+
+        assertEquals(List.of(foo), index.getCursorsBefore("#foo", null, 10));
+        assertEquals(List.of(foobar), index.getCursorsBefore("#FooBar", null, 10));
+        assertTrue(index.getCursorsBefore("#fo", null, 10).isEmpty());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void testPagesAreNewestFirst() {
+        HashtagIndex index = new HashtagIndex();
+        Vector<ChirpCursor> cursors = new Vector<>();
+        for (int i = 0; i < 5; i++) {
+            cursors.add(new ChirpCursor(1000 + i, "user_" + (1000 + i)));
+            index.add("chirp " + i + " #tag", cursors.get(i));
+        }
+
+        assertEquals(List.of(cursors.get(4), cursors.get(3)), index.getCursorsBefore("tag", null, 2));
+        assertEquals(List.of(cursors.get(2), cursors.get(1)), index.getCursorsBefore("tag", cursors.get(3), 2));
+        assertEquals(List.of(cursors.get(0)), index.getCursorsBefore("tag", cursors.get(1), 2));
+    }
+}
@@ -0,0 +1,124 @@
+package test.java.edu.georgetown.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Vector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.georgetown.dao.SearchIndex;
+import edu.georgetown.model.ChirpCursor;
+import edu.georgetown.search.FullTextIndex.Order;
+import edu.georgetown.search.TextQuery;
+
+public class SearchIndexTest {
+
+    @TempDir
+    Path directory;
+
+    private static ChirpCursor cursor(long millis) {
+        return new ChirpCursor(millis, "user_" + millis);
+    }
+
+    private static Vector<ChirpCursor> search(SearchIndex index, String query) {
+        return index.search(TextQuery.parse(query), 100, Order.RECENCY);
+    }
+
+    private static long segmentFiles(Path directory) throws IOException {
+        return Files.list(directory).filter(file -> file.getFileName().toString().endsWith(".idx")).count();
+    }
+
+    @Test
+    public void testReopenWithoutReindexing() throws IOException {
+        SearchIndex index = new SearchIndex(directory, 100);
+        assertFalse(index.open(), "Nothing saved yet");
+        index.add("Learning #Java this morning", cursor(1000));
+        index.add("More #java", cursor(2000));
+        index.flush();
+        index.add("Good morning", cursor(3000));
+        index.close();
+
+        SearchIndex reopened = new SearchIndex(directory, 100);
+        assertTrue(reopened.open());
+        assertEquals(2, reopened.getSegmentCount());
+        assertEquals(3, reopened.getDocumentCount());
+        assertEquals(cursor(3000), reopened.getNewestSavedCursor());
+        assertTrue(reopened.contains(cursor(1000)));
+        assertEquals(List.of(cursor(3000), cursor(1000)), search(reopened, "morning"));
+        assertEquals(List.of(cursor(2000), cursor(1000)), reopened.getTagCursorsBefore("#JAVA", null, 10));
+
+        // New chirps go to the delta and are searched with the segments
+        reopened.add("#java at night", cursor(4000));
+        assertEquals(List.of(cursor(4000), cursor(2000)), reopened.getTagCursorsBefore("java", null, 2));
+        assertEquals(List.of(cursor(2000)), reopened.getTagCursorsBefore("java", cursor(4000), 1));
+        assertFalse(reopened.contains(cursor(4000)));
+    }
+
+    @Test
+    public void testFullDeltaIsFlushedInTheBackground() throws Exception {
+        SearchIndex index = new SearchIndex(directory, 10);
+        index.open();
+        index.flush();
+        for (int i = 0; i < 25; i++) {
+            index.add("chirp number " + i, cursor(1000 + i));
+        }
+        // The flusher freezes whatever the delta holds when it runs
+        for (int wait = 0; wait < 100 && index.getSegmentCount() == 0; wait++) {
+            Thread.sleep(20);
+        }
+        assertTrue(index.getSegmentCount() >= 1, "A full delta becomes a segment");
+        assertEquals(25, search(index, "chirp").size(), "Every chirp is searched, saved or not");
+        index.close();
+    }
+
+    @Test
+    public void testSmallSegmentsAreMerged() throws IOException {
+        SearchIndex index = new SearchIndex(directory, 1000);
+        index.open();
+        for (int i = 0; i <= SearchIndex.MAX_SEGMENTS; i++) {
+            index.add("chirp #n" + i, cursor(1000 + i));
+            index.flush();
+        }
+
+        assertTrue(index.getSegmentCount() <= SearchIndex.MAX_SEGMENTS);
+        assertEquals(index.getSegmentCount(), segmentFiles(directory), "Merged files are deleted");
+        assertEquals(SearchIndex.MAX_SEGMENTS + 1, search(index, "chirp").size());
+        assertEquals(List.of(cursor(1003)), index.getTagCursorsBefore("n3", null, 10));
+
+        SearchIndex reopened = new SearchIndex(directory, 1000);
+        assertTrue(reopened.open());
+        assertEquals(SearchIndex.MAX_SEGMENTS + 1, search(reopened, "chirp").size());
+    }
+
+    @Test
+    public void testUnlistedFilesAreDeleted() throws IOException {
+        SearchIndex index = new SearchIndex(directory, 1000);
+        index.open();
+        index.add("saved", cursor(1000));
+        index.flush();
+        Files.write(directory.resolve("segment-000099.idx.tmp"), new byte[] { 1, 2, 3 });
+
+        SearchIndex reopened = new SearchIndex(directory, 1000);
+        assertTrue(reopened.open());
+        assertFalse(Files.exists(directory.resolve("segment-000099.idx.tmp")));
+        // New segments are numbered after every file seen
+        reopened.add("later", cursor(2000));
+        reopened.flush();
+        assertTrue(Files.exists(directory.resolve("segment-000100.idx")));
+    }
+
+    @Test
+    public void testInMemoryIndexIsNeverSaved() throws IOException {
+        SearchIndex index = new SearchIndex();
+        assertFalse(index.open());
+        index.add("only in memory", cursor(1000));
+        index.flush();
+        assertEquals(0, index.getSegmentCount());
+        assertEquals(List.of(cursor(1000)), search(index, "memory"));
+    }
+}
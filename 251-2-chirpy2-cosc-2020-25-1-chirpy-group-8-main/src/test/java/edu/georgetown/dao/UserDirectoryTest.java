@@ -0,0 +1,94 @@
+package test.java.edu.georgetown.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import edu.georgetown.dao.UserDirectory;
+
+public class UserDirectoryTest {
+
+    private static UserDirectory directory(int users) {
+        Map<String, String> passwords = new HashMap<>();
+        for (int i = 0; i < users; i++) {
+            passwords.put(String.format("user%03d", i), "pw" + i);
+        }
+        return UserDirectory.of(passwords);
+    }
+
+    @Test
+    public void testPagesCoverEveryUserInOrder() {
+        UserDirectory directory = directory(120);
+        StringBuilder seen = new StringBuilder();
+        int pages = 0;
+        String cursor = null;
+        do {
+            UserDirectory.Page page = directory.page(cursor, 50);
+            for (String username : page.getUsers().keySet()) {
+                seen.append(username).append(',');
+            }
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(120, seen.toString().split(",").length);
+        assertTrue(seen.toString().startsWith("user000,user001,"));
+        assertEquals("pw42", directory.page("user041", 1).getUsers().get("user042"));
+    }
+
+    @Test
+    public void testLastPageHasNoCursor() {
+        UserDirectory directory = directory(100);
+
+        assertEquals("user049", directory.page(null, 50).getNextCursor());
+        assertNull(directory.page("user049", 50).getNextCursor(), "Exactly the last 50");
+        assertTrue(directory.page("user099", 50).getUsers().isEmpty());
+        assertNull(directory.page(null, 0).getNextCursor());
+    }
+
+    @Test
+    public void testCursorNeedNotBeAUser() {
+        UserDirectory directory = UserDirectory.EMPTY.with("alice", "a").with("carol", "c");
+
+        assertEquals(List.of("carol"), List.copyOf(directory.page("bob", 10).getUsers().keySet()));
+    }
+
+    @Test
+    public void testPageStartIsResolvedFromTheCursor() {
+        UserDirectory directory = directory(100);
+
+        assertEquals(0, directory.page(null, 50).getStart());
+        assertEquals(0, directory.page("made-up", 50).getStart(), "Before every user: the first page");
+        assertEquals(50, directory.page("user049", 50).getStart());
+        assertEquals(43, directory.page("user042x", 50).getStart());
+        assertEquals(100, directory.page("zzz", 50).getStart());
+    }
+
+    @Test
+    public void testWithCopiesAndCountsVersions() {
+        UserDirectory empty = UserDirectory.EMPTY;
+        UserDirectory one = empty.with("bob", "first");
+        UserDirectory two = one.with("alice", "a");
+        UserDirectory changed = two.with("bob", "second");
+
+        assertEquals(0, empty.size());
+        assertEquals(1, one.size());
+        assertEquals("first", one.page(null, 10).getUsers().get("bob"));
+        assertEquals(List.of("alice", "bob"), List.copyOf(changed.page(null, 10).getUsers().keySet()));
+        assertEquals("second", changed.page(null, 10).getUsers().get("bob"));
+        assertEquals("first", two.page(null, 10).getUsers().get("bob"), "Older snapshots never change");
+        assertEquals(3, changed.getVersion());
+    }
+
+    @Test
+    public void testPagesAreReadOnly() {
+        UserDirectory directory = directory(3);
+
+        assertThrows(UnsupportedOperationException.class, () -> directory.page(null, 10).getUsers().clear());
+    }
+}
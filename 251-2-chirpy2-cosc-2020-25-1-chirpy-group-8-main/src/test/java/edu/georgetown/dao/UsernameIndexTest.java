@@ -0,0 +1,88 @@
+package test.java.edu.georgetown.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+import org.junit.jupiter.api.Test;
+
+import edu.georgetown.dao.UsernameIndex;
+
+public class UsernameIndexTest {
+
+    @Test
+    public void testPrefixIgnoresCaseAndAt() {
+        UsernameIndex index = new UsernameIndex();
+        index.addAll(List.of("alice", "bob", "Alan", "albert", "carol"));
+        index.add("ALBUS");
+
+        assertEquals(List.of("Alan", "albert", "ALBUS", "alice"), List.copyOf(index.findByPrefix("al", 10, null)));
+        assertEquals(List.of("albert", "ALBUS"), List.copyOf(index.findByPrefix("@AlB", 10, null)));
+        assertEquals(List.of("Alan", "albert"), List.copyOf(index.findByPrefix("al", 2, null)));
+        assertTrue(index.findByPrefix("dave", 10, null).isEmpty());
+        assertTrue(index.findByPrefix("zzz", 10, null).isEmpty());
+        // An empty prefix matches everyone
+        assertEquals(6, index.findByPrefix("", 10, null).size());
+    }
+
+    @Test
+    public void testDuplicatesAreIgnored() {
+        UsernameIndex index = new UsernameIndex();
+        index.addAll(List.of("alice", "alice", "Alice"));
+        index.add("alice");
+        index.addAll(List.of("alice"));
+
+        // Usernames are case-sensitive, so "Alice" is someone else
+        assertEquals(2, index.size());
+        assertEquals(List.of("Alice", "alice"), List.copyOf(index.findByPrefix("a", 10, null)));
+    }
+
+    @Test
+    public void testRankedMatchesAreBestFirst() {
+        Map<String, Integer> followers = Map.of("alice", 3, "Alan", 7, "albert", 1, "alfred", 7, "bob", 100);
+        UsernameIndex index = new UsernameIndex();
+        index.addAll(followers.keySet());
+
+        assertEquals(List.of("Alan", "alfred", "alice", "albert"),
+                List.copyOf(index.findByPrefix("al", 10, followers::get)));
+        // The limit keeps the best, not the first alphabetically
+        assertEquals(List.of("Alan", "alfred"), List.copyOf(index.findByPrefix("al", 2, followers::get)));
+    }
+
+    @Test
+    public void testRankedLookupScoresEveryMatchOnce() {
+        UsernameIndex index = new UsernameIndex();
+        Vector<String> usernames = new Vector<>();
+        for (int i = 0; i < 1500; i++) {
+            usernames.add(String.format("al%05d", i));
+        }
+        usernames.add("alzz_famous");
+        index.addAll(usernames);
+        index.add("bob");
+
+        // The most followed user sorts last alphabetically
+        Map<String, Integer> calls = new HashMap<>();
+        List<String> found = index.findByPrefix("@al", 3, username -> {
+            calls.merge(username, 1, Integer::sum);
+            return username.equals("alzz_famous") ? 1000 : username.endsWith("7") ? 1 : 0;
+        });
+
+        assertEquals(usernames.size(), calls.size(), "Every match is ranked");
+        assertTrue(calls.values().stream().allMatch(count -> count == 1), "Each match is scored once");
+        assertEquals(List.of("alzz_famous", "al00007", "al00017"), found);
+    }
+
+    @Test
+    public void testShortPrefixIsAlphabetical() {
+        UsernameIndex index = new UsernameIndex();
+        index.addAll(List.of("amy", "alice", "adam"));
+
+        assertEquals(List.of("adam", "alice"), List.copyOf(index.findByPrefix("@a", 2, username -> {
+            fail("A prefix shorter than " + UsernameIndex.MIN_RANKED_PREFIX_LENGTH + " is not scored");
+            return 0;
+        })));
+    }
+}
@@ -0,0 +1,93 @@
+package test.java.edu.georgetown.display;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.net.URI;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import edu.georgetown.display.RequestContext;
+import edu.georgetown.service.UserService;
+
+public class RequestContextTest {
+
+    private HttpExchange exchange;
+    private Headers requestHeaders;
+    private Headers responseHeaders;
+    private UserService userService;
+
+    @BeforeEach
+    public void setUp() {
+        exchange = mock(HttpExchange.class);
+        requestHeaders = new Headers();
+        responseHeaders = new Headers();
+        userService = mock(UserService.class);
+        when(exchange.getRequestHeaders()).thenReturn(requestHeaders);
+        when(exchange.getResponseHeaders()).thenReturn(responseHeaders);
+    }
+
+    @Test
+    public void testCookiesAndUserAreResolvedOnce() {
+        requestHeaders.add("Cookie", "session=t0ken; theme=dark");
+        when(userService.getSessionUser("t0ken")).thenReturn("alice");
+        RequestContext context = new RequestContext(exchange, userService);
+
+        assertTrue(context.isLoggedIn());
+        assertEquals("alice", context.getUsername());
+        assertEquals("dark", context.getCookies().get("theme"));
+        assertSame(context.getCookies(), context.getCookies());
+
+        verify(exchange, times(1)).getRequestHeaders();
+        verify(userService, times(1)).getSessionUser("t0ken");
+        assertNull(responseHeaders.get("Set-Cookie"));
+    }
+
+    @Test
+    public void testUnknownSessionCookieIsDeletedOnce() {
+        requestHeaders.add("Cookie", "session=expired");
+        RequestContext context = new RequestContext(exchange, userService);
+
+        assertFalse(context.isLoggedIn());
+        assertNull(context.getUsername());
+
+        verify(userService, times(1)).getSessionUser("expired");
+        assertEquals(1, responseHeaders.get("Set-Cookie").size());
+    }
+
+    @Test
+    public void testUsernameCookieDoesNotLogIn() {
+        requestHeaders.add("Cookie", "username=alice");
+        RequestContext context = new RequestContext(exchange, userService);
+
+        assertFalse(context.isLoggedIn());
+        verify(userService, never()).usernameExists(anyString());
+        assertNull(responseHeaders.get("Set-Cookie"));
+    }
+
+    @Test
+    public void testQueryIsParsedOnce() {
+        when(exchange.getRequestURI()).thenReturn(URI.create("/timeline/?before=42&usersAfter=bob"));
+        RequestContext context = new RequestContext(exchange, userService);
+
+        Map<String, String> query = context.getQuery();
+
+        assertEquals("42", query.get("before"));
+        assertEquals("bob", query.get("usersAfter"));
+        assertSame(query, context.getQuery());
+        verify(exchange, times(1)).getRequestURI();
+    }
+
+    @Test
+    public void testNoQueryIsEmpty() {
+        when(exchange.getRequestURI()).thenReturn(URI.create("/timeline/"));
+
+        assertTrue(new RequestContext(exchange, userService).getQuery().isEmpty());
+    }
+}
@@ -0,0 +1,168 @@
+package test.java.edu.georgetown.display;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.georgetown.display.FragmentCache;
+import edu.georgetown.display.TemplateRenderer;
+import edu.georgetown.http.Utf8Writer;
+import freemarker.template.Template;
+
+public class TemplateRendererTest {
+
+    @TempDir
+    Path directory;
+
+    private TemplateRenderer renderer;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Files.writeString(directory.resolve("list.ftl"), "<#list items as item><li>${item}</li></#list>",
+                StandardCharsets.UTF_8);
+        Files.writeString(directory.resolve("broken.ftl"), "<p>before</p>${missing.field}", StandardCharsets.UTF_8);
+        Files.writeString(directory.resolve("broken-syntax.ftl"), "<#if>", StandardCharsets.UTF_8);
+        Files.writeString(directory.resolve("fragment.ftl"),
+                "<h1>${title}</h1><@fragment name=\"list\" key=key version=version>"
+                        + "<#list items as item><li>${item}</li></#list></@fragment>",
+                StandardCharsets.UTF_8);
+        renderer = new TemplateRenderer(directory.toString());
+    }
+
+    private static Map<String, Object> model() {
+        Map<String, Object> dataModel = new HashMap<>();
+        dataModel.put("items", List.of("Café", "☕"));
+        return dataModel;
+    }
+
+    private static Map<String, Object> fragmentModel(String title, List<String> items, long version) {
+        Map<String, Object> dataModel = new HashMap<>();
+        dataModel.put("title", title);
+        dataModel.put("items", items);
+        dataModel.put("key", "k");
+        dataModel.put("version", version);
+        return dataModel;
+    }
+
+    private static String stream(TemplateRenderer renderer, String name, Map<String, Object> dataModel)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Utf8Writer out = new Utf8Writer(bytes, 16)) {
+            assertTrue(renderer.processTemplate(renderer.getTemplate(name), dataModel, out));
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testProcessTemplateStreamsTheSameOutput() throws IOException {
+        Template template = renderer.getTemplate("list.ftl");
+        StringWriter out = new StringWriter();
+
+        assertTrue(renderer.processTemplate(template, model(), out));
+        assertEquals("<li>Café</li><li>☕</li>", out.toString());
+        assertEquals(out.toString(), renderer.parseTemplate("list.ftl", model()));
+    }
+
+    @Test
+    public void testMissingTemplateIsNull() {
+        assertNull(renderer.getTemplate("missing.ftl"));
+        assertEquals("", renderer.parseTemplate("missing.ftl", model()));
+    }
+
+    @Test
+    public void testFailedTemplateKeepsWhatWasWritten() throws IOException {
+        StringWriter out = new StringWriter();
+
+        assertFalse(renderer.processTemplate(renderer.getTemplate("broken.ftl"), model(), out));
+        assertTrue(out.toString().startsWith("<p>before</p>"));
+        assertEquals("", renderer.parseTemplate("broken.ftl", model()));
+    }
+
+    @Test
+    public void testProductionModeCompilesEveryTemplateAtStartup() throws IOException {
+        Files.createDirectories(directory.resolve("macros"));
+        Files.writeString(directory.resolve("macros/item.ftl"), "<#macro item text><li>${text}</li></#macro>",
+                StandardCharsets.UTF_8);
+        Files.writeString(directory.resolve("page.ftl"),
+                "<#include \"/macros/item.ftl\" /><#list items as i><@item text=i /></#list>", StandardCharsets.UTF_8);
+        renderer = new TemplateRenderer(directory.toString(), TemplateRenderer.Mode.PRODUCTION);
+
+        // Later edits are not picked up: the files are never read again
+        Files.writeString(directory.resolve("page.ftl"), "changed", StandardCharsets.UTF_8);
+        Files.writeString(directory.resolve("macros/item.ftl"), "changed", StandardCharsets.UTF_8);
+
+        assertEquals(TemplateRenderer.Mode.PRODUCTION, renderer.getMode());
+        assertEquals("<li>Café</li><li>☕</li>", renderer.parseTemplate("page.ftl", model()));
+        assertNotNull(renderer.getTemplate("/macros/item.ftl"));
+        assertNull(renderer.getTemplate("added.ftl"));
+        // A template that does not parse is left out, the others still work
+        assertNull(renderer.getTemplate("broken-syntax.ftl"));
+    }
+
+    @Test
+    public void testDevelopmentModeReloadsChangedTemplates() throws IOException {
+        assertEquals(TemplateRenderer.Mode.DEVELOPMENT, renderer.getMode());
+        assertEquals("<li>Café</li><li>☕</li>", renderer.parseTemplate("list.ftl", model()));
+
+        Files.writeString(directory.resolve("list.ftl"), "${items?size} items", StandardCharsets.UTF_8);
+        // The file's modification time must move for the change to be seen
+        directory.resolve("list.ftl").toFile().setLastModified(System.currentTimeMillis() + 10_000);
+
+        assertEquals("2 items", renderer.parseTemplate("list.ftl", model()));
+    }
+
+    @Test
+    public void testModeNames() {
+        assertEquals(TemplateRenderer.Mode.PRODUCTION, TemplateRenderer.Mode.parse("prod"));
+        assertEquals(TemplateRenderer.Mode.PRODUCTION, TemplateRenderer.Mode.parse("Production"));
+        assertEquals(TemplateRenderer.Mode.DEVELOPMENT, TemplateRenderer.Mode.parse(" dev "));
+        assertThrows(IllegalArgumentException.class, () -> TemplateRenderer.Mode.parse("fast"));
+    }
+
+    @Test
+    public void testFragmentIsRenderedOncePerVersion() throws IOException {
+        renderer = new TemplateRenderer(directory.toString(), TemplateRenderer.Mode.PRODUCTION);
+        FragmentCache cache = renderer.getFragmentCache();
+
+        assertEquals("<h1>Å</h1><li>Café</li>", stream(renderer, "fragment.ftl", fragmentModel("Å", List.of("Café"), 1)));
+        // Same version: the rest of the page is rendered, the fragment is copied
+        assertEquals("<h1>B</h1><li>Café</li>", stream(renderer, "fragment.ftl", fragmentModel("B", List.of("☕"), 1)));
+        assertEquals(1, cache.getHitCount());
+        assertEquals("<h1>B</h1><li>Café</li>", renderer.parseTemplate("fragment.ftl", fragmentModel("B", List.of(), 1)));
+
+        // A new version renders it again
+        assertEquals("<h1>C</h1><li>☕</li>", stream(renderer, "fragment.ftl", fragmentModel("C", List.of("☕"), 2)));
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testFragmentIsRenderedEveryTimeInDevelopmentMode() throws IOException {
+        assertEquals("<h1>A</h1><li>Café</li>", stream(renderer, "fragment.ftl", fragmentModel("A", List.of("Café"), 1)));
+        assertEquals("<h1>A</h1><li>☕</li>", stream(renderer, "fragment.ftl", fragmentModel("A", List.of("☕"), 1)));
+        assertEquals(0, renderer.getFragmentCache().size());
+    }
+
+    @Test
+    public void testFragmentWithoutVersionIsNotCached() throws IOException {
+        Files.writeString(directory.resolve("unversioned.ftl"),
+                "<@fragment name=\"list\"><#list items as item>${item}</#list></@fragment>", StandardCharsets.UTF_8);
+        renderer = new TemplateRenderer(directory.toString(), TemplateRenderer.Mode.PRODUCTION);
+
+        assertEquals("Café", renderer.parseTemplate("unversioned.ftl", fragmentModel("", List.of("Café"), 1)));
+        assertEquals("☕", renderer.parseTemplate("unversioned.ftl", fragmentModel("", List.of("☕"), 1)));
+        assertEquals(0, renderer.getFragmentCache().size());
+    }
+}
@@ -0,0 +1,60 @@
+package test.java.edu.georgetown.http;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import edu.georgetown.http.CookieUtils;
+
+public class CookieUtilsTest {
+
+    private HttpExchange exchange;
+    private Headers requestHeaders;
+
+    @BeforeEach
+    public void setUp() {
+        exchange = mock(HttpExchange.class);
+        requestHeaders = new Headers();
+        when(exchange.getRequestHeaders()).thenReturn(requestHeaders);
+    }
+
+    @Test
+    public void testParsesEveryCookieOfEveryHeader() {
+        requestHeaders.add("Cookie", "theme=dark; username=al+ice%C3%A9 ;session=\"abc\"");
+        requestHeaders.add("Cookie", "lang=en");
+
+        Map<String, String> cookies = CookieUtils.getCookies(exchange);
+
+        assertEquals(Map.of("theme", "dark", "username", "al iceé", "session", "abc", "lang", "en"), cookies);
+    }
+
+    @Test
+    public void testMalformedCookiesAreSkipped() {
+        // the old parser threw on both of these
+        requestHeaders.add("Cookie", "empty=; novalue; =orphan; username=bob");
+
+        Map<String, String> cookies = CookieUtils.getCookies(exchange);
+
+        assertEquals(Map.of("empty", "", "username", "bob"), cookies);
+    }
+
+    @Test
+    public void testNoCookies() {
+        assertTrue(CookieUtils.getCookies(exchange).isEmpty());
+    }
+
+    @Test
+    public void testOversizedHeaderIsIgnored() {
+        requestHeaders.add("Cookie", "junk=" + "x".repeat(CookieUtils.MAX_COOKIE_HEADER_CHARS));
+        requestHeaders.add("Cookie", "username=bob");
+
+        assertEquals(Map.of("username", "bob"), CookieUtils.getCookies(exchange));
+    }
+}
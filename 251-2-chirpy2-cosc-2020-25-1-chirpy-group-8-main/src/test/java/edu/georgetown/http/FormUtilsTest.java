@@ -0,0 +1,83 @@
+package test.java.edu.georgetown.http;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import edu.georgetown.http.FormUtils;
+
+public class FormUtilsTest {
+
+    private HttpExchange exchange;
+
+    @BeforeEach
+    public void setUp() {
+        exchange = mock(HttpExchange.class);
+    }
+
+    private Map<String, String> parseBody(String body) {
+        when(exchange.getRequestBody()).thenReturn(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+        return FormUtils.parseResponse(exchange);
+    }
+
+    @Test
+    public void testParsesAndDecodesFormBody() {
+        Map<String, String> form = parseBody("username=al+ice&content=Caf%C3%A9+%E2%98%95+%23java&empty=&flag");
+
+        assertEquals(3, form.size());
+        assertEquals("al ice", form.get("username"));
+        assertEquals("Café ☕ #java", form.get("content"));
+        assertEquals("", form.get("empty"));
+        assertFalse(form.containsKey("flag"));
+        assertEquals("fallback", form.getOrDefault("missing", "fallback"));
+    }
+
+    @Test
+    public void testRawUtf8AndBadEscapesAreKept() {
+        Map<String, String> form = parseBody("content=100%+sure %zz ☕&last=a=b&last=c");
+
+        assertEquals("100% sure %zz ☕", form.get("content"));
+        // a later field replaces an earlier one, and only the first '=' splits
+        assertEquals("c", form.get("last"));
+        assertEquals(2, form.size());
+    }
+
+    @Test
+    public void testOversizedBodyIsIgnored() {
+        String body = "content=" + "a".repeat(FormUtils.MAX_FORM_BYTES);
+
+        assertTrue(parseBody(body).isEmpty());
+    }
+
+    @Test
+    public void testFieldCountIsBounded() {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            body.append("f").append(i).append("=").append(i).append('&');
+        }
+
+        Map<String, String> form = parseBody(body.toString());
+
+        assertEquals(64, form.size());
+        assertEquals("63", form.get("f63"));
+        assertNull(form.get("f64"));
+    }
+
+    @Test
+    public void testParsesQueryString() {
+        when(exchange.getRequestURI()).thenReturn(URI.create("/search/?q=%23Java+tips&order=top&before=12%3A3"));
+
+        Map<String, String> query = FormUtils.parseQuery(exchange);
+
+        assertEquals(Map.of("q", "#Java tips", "order", "top", "before", "12:3"), query);
+    }
+}
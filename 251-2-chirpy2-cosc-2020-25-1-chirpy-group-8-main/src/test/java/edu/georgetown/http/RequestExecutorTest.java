@@ -0,0 +1,129 @@
+package test.java.edu.georgetown.http;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.georgetown.http.RequestExecutor;
+
+class RequestExecutorTest {
+
+    private RequestExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null)
+            executor.close();
+    }
+
+    /** Polls until the condition holds, failing after a second */
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition not reached in time");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void testLegacyRunsOnTheCallingThread() {
+        executor = new RequestExecutor(RequestExecutor.Mode.LEGACY, 0, 0);
+        Thread[] ranOn = new Thread[1];
+        executor.execute(() -> ranOn[0] = Thread.currentThread());
+
+        assertSame(Thread.currentThread(), ranOn[0]);
+        assertEquals(1, executor.getCompletedCount());
+        assertEquals(0, executor.getInFlightCount());
+    }
+
+    @Test
+    void testPoolCountsQueuedAndInFlightRequests() throws Exception {
+        executor = new RequestExecutor(RequestExecutor.Mode.POOL, 2, 10);
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 5; i++) {
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        awaitCondition(() -> executor.getInFlightCount() == 2);
+        assertEquals(3, executor.getQueuedCount());
+
+        release.countDown();
+        awaitCondition(() -> executor.getCompletedCount() == 5);
+        assertEquals(0, executor.getQueuedCount());
+        assertEquals(0, executor.getInFlightCount());
+    }
+
+    @Test
+    void testFullPoolRunsRequestOnTheCaller() throws Exception {
+        executor = new RequestExecutor(RequestExecutor.Mode.POOL, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocked = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        executor.execute(blocked);
+        awaitCondition(() -> executor.getInFlightCount() == 1);
+        executor.execute(blocked);
+
+        // Pool thread busy and queue full: the caller runs this one itself
+        Thread[] ranOn = new Thread[1];
+        executor.execute(() -> ranOn[0] = Thread.currentThread());
+        assertSame(Thread.currentThread(), ranOn[0]);
+        assertEquals(1, executor.getCallerRunsCount());
+
+        release.countDown();
+        awaitCondition(() -> executor.getCompletedCount() == 3);
+    }
+
+    @Test
+    void testVirtualModeRunsRequestsConcurrently() throws Exception {
+        executor = new RequestExecutor(RequestExecutor.Mode.VIRTUAL, 0, 0);
+        int requests = 50;
+        CountDownLatch allStarted = new CountDownLatch(requests);
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < requests; i++) {
+            executor.execute(() -> {
+                allStarted.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        // Every request gets its own thread, so none waits for another
+        assertTrue(allStarted.await(5, TimeUnit.SECONDS));
+        release.countDown();
+        awaitCondition(() -> executor.getCompletedCount() == requests);
+    }
+
+    @Test
+    void testClosedExecutorRejectsRequests() {
+        executor = new RequestExecutor(RequestExecutor.Mode.POOL, 1, 1);
+        executor.close();
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {
+        }));
+        assertEquals(0, executor.getQueuedCount());
+    }
+
+    @Test
+    void testParseMode() {
+        assertEquals(RequestExecutor.Mode.VIRTUAL, RequestExecutor.Mode.parse(" Virtual "));
+        assertThrows(IllegalArgumentException.class, () -> RequestExecutor.Mode.parse("fibers"));
+    }
+}
@@ -0,0 +1,61 @@
+package test.java.edu.georgetown.http;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import edu.georgetown.http.ResponseUtils;
+
+public class ResponseUtilsTest {
+
+    private HttpExchange exchange;
+    private Headers headers;
+    private ByteArrayOutputStream body;
+
+    @BeforeEach
+    public void setUp() {
+        exchange = mock(HttpExchange.class);
+        headers = new Headers();
+        body = new ByteArrayOutputStream();
+        when(exchange.getResponseHeaders()).thenReturn(headers);
+        when(exchange.getResponseBody()).thenReturn(body);
+    }
+
+    @Test
+    public void testContentLengthCountsBytes() throws IOException {
+        String html = "<p>Café ☕ 😀</p>";
+
+        ResponseUtils.sendHtmlResponse(exchange, html);
+
+        byte[] expected = html.getBytes(StandardCharsets.UTF_8);
+        verify(exchange).sendResponseHeaders(200, expected.length);
+        assertTrue(expected.length > html.length());
+        assertArrayEquals(expected, body.toByteArray());
+        assertEquals("text/html; charset=utf-8", headers.getFirst("Content-Type"));
+    }
+
+    @Test
+    public void testStreamedResponseIsChunked() throws IOException {
+        String line = "<li>Café ☕</li>\n";
+
+        ResponseUtils.streamHtmlResponse(exchange, out -> {
+            for (int i = 0; i < 2000; i++) {
+                out.write(line);
+            }
+        });
+
+        // A length of 0 makes the server use chunked transfer encoding
+        verify(exchange).sendResponseHeaders(200, 0);
+        assertEquals(line.repeat(2000), body.toString(StandardCharsets.UTF_8));
+        assertEquals("text/html; charset=utf-8", headers.getFirst("Content-Type"));
+    }
+}
@@ -0,0 +1,60 @@
+package test.java.edu.georgetown.http;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import edu.georgetown.http.Utf8Writer;
+
+public class Utf8WriterTest {
+
+    @Test
+    public void testEncodesTextLongerThanTheBuffer() throws IOException {
+        String text = "Café ☕ ".repeat(100);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Utf8Writer out = new Utf8Writer(bytes, 7)) {
+            out.write(text);
+        }
+
+        assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), bytes.toByteArray());
+    }
+
+    @Test
+    public void testSurrogatePairSplitAcrossWrites() throws IOException {
+        String emoji = "🐦";
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Utf8Writer out = new Utf8Writer(bytes, 4)) {
+            out.write("abc");
+            // The high surrogate fills the buffer and must wait for the low one
+            out.write(emoji.charAt(0));
+            out.write(emoji.charAt(1));
+        }
+
+        assertEquals("abc" + emoji, bytes.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testEncodedBytesFollowTheTextBeforeThem() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Utf8Writer out = new Utf8Writer(bytes, 64)) {
+            out.write("<p>é</p>");
+            out.writeUtf8("<footer>ü</footer>".getBytes(StandardCharsets.UTF_8));
+            out.write("<p>end</p>");
+        }
+
+        assertEquals("<p>é</p><footer>ü</footer><p>end</p>", bytes.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testWriteAfterCloseFails() throws IOException {
+        Utf8Writer out = new Utf8Writer(new ByteArrayOutputStream(), 8);
+        out.close();
+        out.close();
+
+        assertThrows(IOException.class, () -> out.write("late"));
+    }
+}
@@ -0,0 +1,36 @@
+package test.java.edu.georgetown.model;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.georgetown.model.ChirpCursor;
+
+public class ChirpCursorTest {
+
+    @Test
+    public void testToStringAndParseRoundTrip() {
+        ChirpCursor cursor = new ChirpCursor(1700000000000L, "some-user_1700000000000");
+        ChirpCursor parsed = ChirpCursor.parse(cursor.toString());
+
+        assertEquals(cursor, parsed, "Parsed cursor should equal the original.");
+        assertEquals("some-user_1700000000000", parsed.getKey(), "Keys containing the separator should survive.");
+    }
+
+    @Test
+    public void testParseRejectsInvalidText() {
+        assertNull(ChirpCursor.parse(null));
+        assertNull(ChirpCursor.parse("no-millis"));
+        assertNull(ChirpCursor.parse("-key"));
+    }
+
+    @Test
+    public void testOrderedByTimeThenKey() {
+        ChirpCursor early = new ChirpCursor(1000, "b");
+        ChirpCursor lateA = new ChirpCursor(2000, "a");
+        ChirpCursor lateB = new ChirpCursor(2000, "b");
+
+        assertTrue(early.compareTo(lateA) < 0);
+        assertTrue(lateA.compareTo(lateB) < 0);
+        assertEquals(0, lateB.compareTo(new ChirpCursor(2000, "b")));
+    }
+}
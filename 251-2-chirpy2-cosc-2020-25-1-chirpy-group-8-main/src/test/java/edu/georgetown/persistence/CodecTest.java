@@ -0,0 +1,105 @@
+package test.java.edu.georgetown.persistence;
+
+import java.io.EOFException;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.georgetown.model.Chirp;
+import edu.georgetown.model.Chirper;
+import edu.georgetown.model.Follow;
+import edu.georgetown.persistence.ChirpCodec;
+import edu.georgetown.persistence.ChirperCodec;
+import edu.georgetown.persistence.FollowCodec;
+import edu.georgetown.persistence.JavaSerializationCodec;
+import edu.georgetown.persistence.Serializer;
+
+class CodecTest {
+
+    private static final String TEST_DIRECTORY = "testcodec";
+    private static final Path TEST_DIRECTORY_PATH = Path.of(System.getProperty("user.dir"), TEST_DIRECTORY);
+
+    @AfterEach
+    void tearDown() throws Exception {
+        // Clean up test directory
+        if (Files.exists(TEST_DIRECTORY_PATH)) {
+            for (File file : TEST_DIRECTORY_PATH.toFile().listFiles()) {
+                file.delete();
+            }
+            Files.delete(TEST_DIRECTORY_PATH);
+        }
+    }
+
+    @Test
+    void testChirpRoundTrip() throws Exception {
+        LocalDateTime timestamp = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        Chirp chirp = new Chirp("user1", "Hello #world é世", timestamp);
+
+        Chirp decoded = new ChirpCodec().decode(new ChirpCodec().encode(chirp));
+        assertEquals("user1", decoded.getOwnerUsername());
+        assertEquals("Hello #world é世", decoded.getContent());
+        assertEquals(timestamp, decoded.getTimestamp());
+        assertEquals(chirp.getFormattedTime(), decoded.getFormattedTime());
+    }
+
+    @Test
+    void testChirperRoundTrip() throws Exception {
+        Chirper decoded = new ChirperCodec().decode(new ChirperCodec().encode(new Chirper("alice", "pw", false)));
+        assertEquals("alice", decoded.getUsername());
+        assertEquals("pw", decoded.getPassword());
+        assertFalse(decoded.getPublicStatus());
+    }
+
+    @Test
+    void testFollowRoundTrip() throws Exception {
+        Follow decoded = new FollowCodec().decode(new FollowCodec().encode(new Follow("alice", "bob")));
+        assertEquals("alice", decoded.getFollower());
+        assertEquals("bob", decoded.getFollowee());
+    }
+
+    @Test
+    void testBinaryIsSmallerThanJavaSerialization() throws Exception {
+        Chirp chirp = new Chirp("user1", "Hello #world");
+        int javaSize = new JavaSerializationCodec<>(Chirp.class).encode(chirp).length;
+        int binarySize = new ChirpCodec().encode(chirp).length;
+        assertTrue(binarySize * 5 < javaSize, "Binary " + binarySize + " bytes vs Java " + javaSize + " bytes");
+    }
+
+    @Test
+    void testWrongTypeTagIsRejected() throws Exception {
+        byte[] followBytes = new FollowCodec().encode(new Follow("alice", "bob"));
+        assertThrows(Serializer.ObjectTypeMismatchException.class, () -> new ChirpCodec().decode(followBytes));
+    }
+
+    @Test
+    void testTruncatedRecordIsRejected() throws Exception {
+        byte[] bytes = new ChirperCodec().encode(new Chirper("alice", "pw"));
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 2);
+        assertThrows(EOFException.class, () -> new ChirperCodec().decode(truncated));
+    }
+
+    @Test
+    void testSerializerReadsLegacyJavaRecords() throws Exception {
+        Follow follow = new Follow("alice", "bob");
+        try (Serializer<Follow> legacy = new Serializer<>(Follow.class, TEST_DIRECTORY,
+                Serializer.StorageMode.SEGMENTED_LOG)) {
+            legacy.createState(follow, "alice bob");
+        }
+
+        try (Serializer<Follow> binary = new Serializer<>(Follow.class, TEST_DIRECTORY,
+                Serializer.StorageMode.SEGMENTED_LOG, new FollowCodec())) {
+            binary.createState(new Follow("carol", "dave"), "carol dave");
+
+            assertEquals("bob", binary.readFile("alice bob").getFollowee());
+            assertEquals("dave", binary.readFile("carol dave").getFollowee());
+            assertEquals(2, binary.loadDirectory().size());
+        }
+    }
+}
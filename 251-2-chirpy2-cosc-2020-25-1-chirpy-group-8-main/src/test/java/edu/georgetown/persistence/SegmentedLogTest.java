@@ -0,0 +1,180 @@
+package test.java.edu.georgetown.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.georgetown.persistence.SegmentedLog;
+
+class SegmentedLogTest {
+
+    private static final String TEST_DIRECTORY = "testsegmentedlog";
+    private static final Path TEST_DIRECTORY_PATH = Path.of(System.getProperty("user.dir"), TEST_DIRECTORY);
+    private SegmentedLog log;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        log = new SegmentedLog(TEST_DIRECTORY_PATH, SegmentedLog.DEFAULT_SEGMENT_BYTES);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        log.close();
+        // Clean up test directory
+        if (Files.exists(TEST_DIRECTORY_PATH)) {
+            for (File file : TEST_DIRECTORY_PATH.toFile().listFiles()) {
+                file.delete();
+            }
+            Files.delete(TEST_DIRECTORY_PATH);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Map<String, String> scanAll(SegmentedLog target) throws IOException {
+        Map<String, String> records = new LinkedHashMap<>();
+        target.scan((key, payload) -> records.put(key, new String(payload, StandardCharsets.UTF_8)));
+        return records;
+    }
+
+    @Test
+    void testAppendAndRead() throws Exception {
+        log.append(SegmentedLog.OP_PUT, "alice", bytes("hello"));
+
+        assertTrue(log.containsKey("alice"));
+        assertEquals("hello", new String(log.read("alice"), StandardCharsets.UTF_8));
+        assertNull(log.read("bob"), "Missing keys should read as null");
+    }
+
+    @Test
+    void testLatestPutWinsAndDeleteRemoves() throws Exception {
+        log.append(SegmentedLog.OP_PUT, "alice", bytes("v1"));
+        log.append(SegmentedLog.OP_PUT, "bob", bytes("b"));
+        log.append(SegmentedLog.OP_PUT, "alice", bytes("v2"));
+        log.append(SegmentedLog.OP_DELETE, "bob", null);
+
+        Map<String, String> records = scanAll(log);
+        assertEquals(1, records.size());
+        assertEquals("v2", records.get("alice"));
+        assertFalse(log.containsKey("bob"));
+    }
+
+    @Test
+    void testReopenRebuildsIndex() throws Exception {
+        log.append(SegmentedLog.OP_PUT, "alice", bytes("v1"));
+        log.append(SegmentedLog.OP_PUT, "alice", bytes("v2"));
+        log.append(SegmentedLog.OP_PUT, "carol", bytes("c"));
+        log.close();
+
+        log = new SegmentedLog(TEST_DIRECTORY_PATH, SegmentedLog.DEFAULT_SEGMENT_BYTES);
+        assertEquals(2, log.size());
+        assertEquals("v2", new String(log.read("alice"), StandardCharsets.UTF_8));
+        assertEquals("c", new String(log.read("carol"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testSegmentsRollWhenFull() throws Exception {
+        log.close();
+        log = new SegmentedLog(TEST_DIRECTORY_PATH, 64);
+
+        for (int i = 0; i < 10; i++) {
+            log.append(SegmentedLog.OP_PUT, "key" + i, bytes("payload-" + i));
+        }
+
+        long segmentCount = Files.list(TEST_DIRECTORY_PATH).count();
+        assertTrue(segmentCount > 1, "Appends beyond the segment size should roll to new segments");
+        assertEquals(10, scanAll(log).size());
+        assertEquals("payload-0", new String(log.read("key0"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testTornTailIsTruncatedOnRecovery() throws Exception {
+        log.append(SegmentedLog.OP_PUT, "alice", bytes("intact"));
+        log.close();
+
+        // Simulate a crash halfway through writing a frame
+        Path segment = Files.list(TEST_DIRECTORY_PATH).findFirst().get();
+        long intactSize = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] { 0, 0, 0, 40, 1, 2 }));
+        }
+
+        log = new SegmentedLog(TEST_DIRECTORY_PATH, SegmentedLog.DEFAULT_SEGMENT_BYTES);
+        assertEquals(intactSize, Files.size(segment), "Torn frame should be truncated");
+        log.append(SegmentedLog.OP_PUT, "bob", bytes("after"));
+
+        Map<String, String> records = scanAll(log);
+        assertEquals("intact", records.get("alice"));
+        assertEquals("after", records.get("bob"));
+    }
+
+    @Test
+    void testCheckpointCompactsToLiveRecords() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            log.append(SegmentedLog.OP_PUT, "alice", bytes("v" + i));
+        }
+        log.append(SegmentedLog.OP_PUT, "bob", bytes("b"));
+        log.append(SegmentedLog.OP_DELETE, "bob", null);
+
+        assertTrue(log.checkpoint());
+        assertFalse(log.checkpoint(), "Nothing changed since the last checkpoint");
+
+        Path snapshot = Files.list(TEST_DIRECTORY_PATH)
+                .filter(path -> path.getFileName().toString().startsWith("snapshot-")).findFirst().get();
+        assertTrue(Files.size(snapshot) < 50, "Snapshot should only hold the live record");
+        assertEquals("v99", new String(log.read("alice"), StandardCharsets.UTF_8));
+        assertEquals(1, scanAll(log).size());
+    }
+
+    @Test
+    void testReopenReplaysSnapshotThenTail() throws Exception {
+        log.append(SegmentedLog.OP_PUT, "alice", bytes("old"));
+        log.append(SegmentedLog.OP_PUT, "bob", bytes("b"));
+        log.checkpoint();
+        log.append(SegmentedLog.OP_PUT, "alice", bytes("new"));
+        log.append(SegmentedLog.OP_DELETE, "bob", null);
+        log.append(SegmentedLog.OP_PUT, "carol", bytes("c"));
+        log.close();
+
+        log = new SegmentedLog(TEST_DIRECTORY_PATH, SegmentedLog.DEFAULT_SEGMENT_BYTES);
+        Map<String, String> records = scanAll(log);
+        assertEquals(2, records.size());
+        assertEquals("new", records.get("alice"));
+        assertEquals("c", records.get("carol"));
+
+        // A second checkpoint folds the first snapshot and the tail together
+        assertTrue(log.checkpoint());
+        log.close();
+        log = new SegmentedLog(TEST_DIRECTORY_PATH, SegmentedLog.DEFAULT_SEGMENT_BYTES);
+        assertEquals(records, scanAll(log));
+        assertEquals(1, Files.list(TEST_DIRECTORY_PATH)
+                .filter(path -> path.getFileName().toString().startsWith("snapshot-")).count());
+    }
+
+    @Test
+    void testUnfinishedSnapshotIsIgnored() throws Exception {
+        log.append(SegmentedLog.OP_PUT, "alice", bytes("a"));
+        log.close();
+
+        // Simulate a crash while a snapshot was being written
+        Path temp = TEST_DIRECTORY_PATH.resolve("snapshot-000000000001.log.tmp");
+        Files.write(temp, new byte[] { 1, 2, 3 });
+
+        log = new SegmentedLog(TEST_DIRECTORY_PATH, SegmentedLog.DEFAULT_SEGMENT_BYTES);
+        assertFalse(Files.exists(temp), "Unfinished snapshot should be removed");
+        assertEquals("a", new String(log.read("alice"), StandardCharsets.UTF_8));
+    }
+}
@@ -3,6 +3,8 @@ package test.java.edu.georgetown.persistence;
 import java.io.IOException;
 import java.io.Serializable;
 import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.Vector;
 
 import java.nio.file.FileAlreadyExistsException;
@@ -15,6 +17,7 @@ import org.junit.jupiter.api.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import edu.georgetown.persistence.JavaSerializationCodec;
 import edu.georgetown.persistence.Serializer;
 
 class SerializerTest {
@@ -126,6 +129,112 @@ class SerializerTest {
         assertTrue(objects.contains(obj2), "Directory should contain obj2");
     }
 
+    @Test
+    void testParallelStreamingLoad() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            serializer.createState(new TestObject("Test" + i, i), "file" + i);
+        }
+        // Not a serialized object; should be counted as a failure
+        Files.write(TEST_DIRECTORY_PATH.resolve("corrupt.ser"), new byte[] { 1, 2, 3 });
+
+        Set<Integer> values = new HashSet<>();
+        Serializer.LoadStatistics statistics = serializer.loadDirectory(obj -> values.add(obj.value), 4);
+
+        assertEquals(50, statistics.getLoaded());
+        assertEquals(1, statistics.getFailed());
+        assertEquals(50, values.size(), "Every stored object should be delivered exactly once");
+    }
+
+    @Test
+    void testSegmentedLogRoundTrip() throws Exception {
+        try (Serializer<TestObject> logSerializer = new Serializer<>(TestObject.class, TEST_DIRECTORY,
+                Serializer.StorageMode.SEGMENTED_LOG)) {
+            TestObject obj1 = new TestObject("Test1", 123);
+            TestObject obj2 = new TestObject("Test2", 456);
+            logSerializer.createState(obj1, "file1");
+            logSerializer.createState(obj2, "file2");
+
+            assertThrows(FileAlreadyExistsException.class, () -> logSerializer.createState(obj1, "file1"));
+            assertEquals(obj2, logSerializer.readFile("file2"));
+
+            TestObject updatedObj = new TestObject("Updated", 789);
+            logSerializer.updateState(updatedObj, "file1");
+            logSerializer.deleteState("file2");
+            assertThrows(NoSuchFileException.class, () -> logSerializer.readFile("file2"));
+        }
+
+        // Reopening replays the log
+        try (Serializer<TestObject> reopened = new Serializer<>(TestObject.class, TEST_DIRECTORY,
+                Serializer.StorageMode.SEGMENTED_LOG)) {
+            Vector<TestObject> objects = reopened.loadDirectory();
+            assertEquals(1, objects.size(), "Only the live record should be loaded");
+            assertEquals(new TestObject("Updated", 789), objects.get(0));
+        }
+    }
+
+    @Test
+    void testSegmentedLogMigratesLegacyFiles() throws Exception {
+        TestObject obj = new TestObject("Legacy", 1);
+        serializer.createState(obj, "legacy");
+
+        try (Serializer<TestObject> logSerializer = new Serializer<>(TestObject.class, TEST_DIRECTORY,
+                Serializer.StorageMode.SEGMENTED_LOG)) {
+            Path legacyPath = Path.of(System.getProperty("user.dir"), TEST_DIRECTORY, "legacy.ser");
+            assertFalse(Files.exists(legacyPath), "Legacy file should be removed after migration");
+            assertEquals(obj, logSerializer.readFile("legacy"));
+            assertEquals(1, logSerializer.loadDirectory().size());
+        }
+    }
+
+    @Test
+    void testListFileNames() throws Exception {
+        serializer.createState(new TestObject("Test1", 1), "file1");
+        serializer.createState(new TestObject("Test2", 2), "file2");
+        assertEquals(Set.of("file1", "file2"), new HashSet<>(serializer.listFileNames()));
+        serializer.close();
+
+        // Migrated into a log, the same names become record keys
+        try (Serializer<TestObject> logSerializer = new Serializer<>(TestObject.class, TEST_DIRECTORY,
+                Serializer.StorageMode.SEGMENTED_LOG)) {
+            logSerializer.deleteState("file1");
+            assertEquals(Set.of("file2"), new HashSet<>(logSerializer.listFileNames()));
+        }
+    }
+
+    @Test
+    void testQueuedWritesAreVisibleAndSurviveClose() throws Exception {
+        for (Serializer.Durability durability : new Serializer.Durability[] { Serializer.Durability.ASYNC,
+                Serializer.Durability.GROUP_COMMIT }) {
+            String directory = TEST_DIRECTORY + "/" + durability;
+            try (Serializer<TestObject> queued = new Serializer<>(TestObject.class, directory,
+                    Serializer.StorageMode.SEGMENTED_LOG, new JavaSerializationCodec<>(TestObject.class),
+                    durability)) {
+                queued.createState(new TestObject("Test1", 1), "file1");
+                queued.createState(new TestObject("Test2", 2), "file2");
+
+                // Existence checks and reads see writes that may still be queued
+                assertThrows(FileAlreadyExistsException.class,
+                        () -> queued.createState(new TestObject("Test1", 1), "file1"));
+                queued.updateState(new TestObject("Updated", 3), "file1");
+                assertEquals(new TestObject("Updated", 3), queued.readFile("file1"));
+                queued.deleteState("file2");
+                assertThrows(NoSuchFileException.class, () -> queued.readFile("file2"));
+            }
+
+            try (Serializer<TestObject> reopened = new Serializer<>(TestObject.class, directory,
+                    Serializer.StorageMode.SEGMENTED_LOG)) {
+                Vector<TestObject> objects = reopened.loadDirectory();
+                assertEquals(1, objects.size(), "Queued writes should be written on close (" + durability + ")");
+                assertEquals(new TestObject("Updated", 3), objects.get(0));
+            }
+
+            for (File file : TEST_DIRECTORY_PATH.resolve(durability.toString()).toFile().listFiles()) {
+                file.delete();
+            }
+            Files.delete(TEST_DIRECTORY_PATH.resolve(durability.toString()));
+        }
+    }
+
     // Helper class for testing
     private static class TestObject implements Serializable {
         private String name;
@@ -0,0 +1,174 @@
+package test.java.edu.georgetown.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Vector;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.georgetown.persistence.SegmentedLog;
+import edu.georgetown.persistence.WriteBehindQueue;
+
+class WriteBehindQueueTest {
+
+    private static final String TEST_DIRECTORY = "testwritebehind";
+    private static final Path TEST_DIRECTORY_PATH = Path.of(System.getProperty("user.dir"), TEST_DIRECTORY);
+    private SegmentedLog log;
+    private WriteBehindQueue queue;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        log = new SegmentedLog(TEST_DIRECTORY_PATH, SegmentedLog.DEFAULT_SEGMENT_BYTES);
+        queue = new WriteBehindQueue(log, 64, "test");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        queue.close();
+        log.close();
+        // Clean up test directory
+        if (Files.exists(TEST_DIRECTORY_PATH)) {
+            for (File file : TEST_DIRECTORY_PATH.toFile().listFiles()) {
+                file.delete();
+            }
+            Files.delete(TEST_DIRECTORY_PATH);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testFlushWritesQueuedMutations() throws Exception {
+        queue.submit(SegmentedLog.OP_PUT, "alice", bytes("a"));
+        queue.submit(SegmentedLog.OP_PUT, "bob", bytes("b"));
+        queue.submit(SegmentedLog.OP_DELETE, "bob", null);
+        queue.flush();
+
+        assertNull(queue.pending("alice"), "Written mutations should no longer be pending");
+        assertEquals("a", new String(log.read("alice"), StandardCharsets.UTF_8));
+        assertFalse(log.containsKey("bob"));
+        assertEquals(3, queue.getWrittenCount());
+    }
+
+    @Test
+    void testPendingReturnsLatestMutationForKey() throws Exception {
+        WriteBehindQueue.Mutation first = queue.submit(SegmentedLog.OP_PUT, "alice", bytes("v1"));
+        WriteBehindQueue.Mutation second = queue.submit(SegmentedLog.OP_PUT, "alice", bytes("v2"));
+        WriteBehindQueue.Mutation pending = queue.pending("alice");
+
+        // Either still queued (and the latest), or already written
+        assertNotSame(first, pending);
+        assertTrue(pending == null || pending == second);
+        second.await();
+        assertEquals("v2", new String(log.read("alice"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testConcurrentWritersShareSyncs() throws Exception {
+        int threads = 8;
+        int perThread = 50;
+        Vector<Throwable> failures = new Vector<Throwable>();
+        Thread[] writers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            writers[t] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < perThread; i++) {
+                        queue.submit(SegmentedLog.OP_PUT, id + "-" + i, bytes("x")).await();
+                    }
+                } catch (Throwable ex) {
+                    failures.add(ex);
+                }
+            });
+            writers[t].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertTrue(failures.isEmpty(), "Writers failed: " + failures);
+        assertEquals(threads * perThread, log.size());
+        assertTrue(queue.getBatchCount() < threads * perThread,
+                "Waiting writers should be grouped into fewer syncs than writes");
+    }
+
+    @Test
+    void testCloseDrainsQueueAndRejectsLaterSubmits() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            queue.submit(SegmentedLog.OP_PUT, "key" + i, bytes("v" + i));
+        }
+        queue.close();
+
+        assertEquals(20, log.size());
+        assertThrows(IOException.class, () -> queue.submit(SegmentedLog.OP_PUT, "late", bytes("x")));
+    }
+
+    @Test
+    void testOversizedKeyIsRejectedBeforeQueueing() throws Exception {
+        String longKey = "a".repeat(Short.MAX_VALUE + 1);
+
+        assertThrows(WriteBehindQueue.RejectedMutationException.class,
+                () -> queue.submit(SegmentedLog.OP_PUT, longKey, bytes("x")));
+        assertNull(queue.pending(longKey));
+        assertTimeoutPreemptively(java.time.Duration.ofSeconds(5),
+                () -> queue.submit(SegmentedLog.OP_PUT, "alice", bytes("a")).await());
+        assertEquals("a", new String(log.read("alice"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testFailedMutationDoesNotFailItsBatch() throws Exception {
+        WriteBehindQueue.Mutation before = queue.submit(SegmentedLog.OP_PUT, "alice", bytes("a"));
+        // A put without a payload fails in the writer, not in submit
+        WriteBehindQueue.Mutation broken = queue.submit(SegmentedLog.OP_PUT, "broken", null);
+        WriteBehindQueue.Mutation after = queue.submit(SegmentedLog.OP_PUT, "bob", bytes("b"));
+
+        assertTimeoutPreemptively(java.time.Duration.ofSeconds(5), () -> {
+            before.await();
+            assertThrows(IOException.class, broken::await);
+            after.await();
+        });
+        assertNull(queue.pending("broken"));
+        assertFalse(log.containsKey("broken"));
+        assertEquals("a", new String(log.read("alice"), StandardCharsets.UTF_8));
+        assertEquals("b", new String(log.read("bob"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testSubmitsRacingCloseAreWrittenOrRejected() throws Exception {
+        Vector<WriteBehindQueue.Mutation> accepted = new Vector<WriteBehindQueue.Mutation>();
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            int id = t;
+            writers[t] = new Thread(() -> {
+                for (int i = 0;; i++) {
+                    try {
+                        accepted.add(queue.submit(SegmentedLog.OP_PUT, id + "-" + i, bytes("x")));
+                    } catch (IOException ex) {
+                        return; // closed
+                    }
+                }
+            });
+            writers[t].start();
+        }
+        Thread.sleep(20);
+        queue.close();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        // Nothing was queued behind the stop marker, so every accepted write completes
+        assertTimeoutPreemptively(java.time.Duration.ofSeconds(5), () -> {
+            for (WriteBehindQueue.Mutation mutation : accepted) {
+                mutation.await();
+            }
+        });
+        assertEquals(accepted.size(), log.size());
+    }
+}
@@ -0,0 +1,83 @@
+package test.java.edu.georgetown.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Vector;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.georgetown.model.ChirpCursor;
+import edu.georgetown.search.FullTextIndex;
+import edu.georgetown.search.FullTextIndex.Order;
+import edu.georgetown.search.TextQuery;
+import edu.georgetown.search.Tokenizer;
+
+public class FullTextIndexTest {
+
+    private FullTextIndex index;
+    private Vector<ChirpCursor> cursors;
+
+    @BeforeEach
+    public void setUp() {
+        index = new FullTextIndex();
+        cursors = new Vector<>();
+        add("Good morning, Georgetown!");
+        add("Morning coffee is good");
+        add("Tea in the morning");
+        add("coffee coffee coffee");
+        add("!!!");
+    }
+
+    private void add(String content) {
+        ChirpCursor cursor = new ChirpCursor(1000 + cursors.size(), "user_" + (1000 + cursors.size()));
+        cursors.add(cursor);
+        index.add(content, cursor);
+    }
+
+    private Vector<ChirpCursor> search(String query, Order order) {
+        return index.search(TextQuery.parse(query), 10, order);
+    }
+
+    @Test
+    public void testTokenizer() {
+        assertEquals(List.of("hello", "world", "it", "s", "snake_case"),
+                Tokenizer.tokenize("Hello, #World! It's snake_case"));
+        assertTrue(Tokenizer.tokenize(null).isEmpty());
+    }
+
+    @Test
+    public void testParse() {
+        assertEquals("\"good morning\" coffee OR tea", TextQuery.parse("\"Good Morning\" coffee OR tea").toString());
+        assertEquals("\"e mail\"", TextQuery.parse("e-mail").toString());
+        assertTrue(TextQuery.parse(" OR !! ").isEmpty());
+    }
+
+    @Test
+    public void testAndOrAndPhrase() {
+        assertEquals(List.of(cursors.get(1), cursors.get(0)), search("good morning", Order.RECENCY));
+        assertEquals(List.of(cursors.get(0)), search("\"good morning\"", Order.RECENCY));
+        assertEquals(List.of(cursors.get(3), cursors.get(2), cursors.get(1)), search("tea OR coffee", Order.RECENCY));
+        assertEquals(List.of(cursors.get(2)), search("tea OR \"coffee morning\" OR \"the morning\"", Order.RECENCY));
+        assertTrue(search("morning unknown", Order.RECENCY).isEmpty());
+        assertTrue(search("", Order.RECENCY).isEmpty());
+    }
+
+    @Test
+    public void testRelevanceRanksRepeatedAndShorterFirst() {
+        // "coffee" three times in a short chirp beats once in a longer one
+        assertEquals(List.of(cursors.get(3), cursors.get(1)), search("coffee", Order.RELEVANCE));
+        // Matching both alternatives adds up, so a chirp with both beats one with "good" only
+        Vector<ChirpCursor> ranked = search("coffee OR good", Order.RELEVANCE);
+        assertEquals(3, ranked.size());
+        assertTrue(ranked.indexOf(cursors.get(1)) < ranked.indexOf(cursors.get(0)));
+    }
+
+    @Test
+    public void testTopKKeepsTheBest() {
+        Vector<ChirpCursor> newest = index.search(TextQuery.parse("morning"), 2, Order.RECENCY);
+        assertEquals(List.of(cursors.get(2), cursors.get(1)), newest);
+        assertEquals(4, index.getDocumentCount(), "A chirp without terms is not indexed");
+    }
+}
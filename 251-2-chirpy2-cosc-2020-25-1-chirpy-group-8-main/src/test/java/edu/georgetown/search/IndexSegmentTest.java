@@ -0,0 +1,116 @@
+package test.java.edu.georgetown.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Vector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.georgetown.model.ChirpCursor;
+import edu.georgetown.search.FullTextIndex;
+import edu.georgetown.search.FullTextIndex.Order;
+import edu.georgetown.search.IndexSegment;
+import edu.georgetown.search.TextQuery;
+
+public class IndexSegmentTest {
+
+    @TempDir
+    Path directory;
+
+    private static ChirpCursor cursor(long millis) {
+        return new ChirpCursor(millis, "user_" + millis);
+    }
+
+    private static FullTextIndex index(long... millis) {
+        FullTextIndex index = new FullTextIndex();
+        String[] contents = { "Good morning, Georgetown!", "Morning coffee is good", "Tea in the morning",
+                "coffee coffee coffee", "Good night" };
+        for (int i = 0; i < millis.length; i++) {
+            index.add(contents[i % contents.length], cursor(millis[i]));
+        }
+        return index;
+    }
+
+    private static Vector<ChirpCursor> search(List<? extends edu.georgetown.search.Segment> segments, String query,
+            Order order) {
+        return FullTextIndex.search(segments, TextQuery.parse(query), 10, order);
+    }
+
+    @Test
+    public void testSegmentSearchesLikeTheIndex() throws IOException {
+        // Added out of time order; the segment renumbers by time
+        FullTextIndex memory = index(5000, 1000, 3000, 2000, 4000);
+        IndexSegment segment = IndexSegment.write(directory.resolve("a.idx"), List.of(memory), new HashMap<>());
+
+        assertEquals(5, segment.getDocumentCount());
+        assertEquals(cursor(1000), segment.getCursor(0));
+        assertEquals(cursor(5000), segment.getNewestCursor());
+        for (String query : List.of("morning", "coffee OR tea", "\"good morning\"", "good", "missing")) {
+            for (Order order : Order.values()) {
+                assertEquals(memory.search(TextQuery.parse(query), 10, order), search(List.of(segment), query, order),
+                        query + " " + order);
+            }
+        }
+        assertTrue(segment.contains(cursor(3000)));
+        assertFalse(segment.contains(cursor(3001)));
+    }
+
+    @Test
+    public void testReopenedSegmentIsTheSame() throws IOException {
+        Path path = directory.resolve("a.idx");
+        HashMap<String, List<ChirpCursor>> tags = new HashMap<>();
+        tags.put("java", List.of(cursor(3000), cursor(1000), cursor(2000)));
+        IndexSegment written = IndexSegment.write(path, List.of(index(1000, 2000, 3000)), tags);
+        IndexSegment reopened = IndexSegment.open(path);
+
+        assertEquals(written.getDocumentCount(), reopened.getDocumentCount());
+        assertEquals(written.getTotalLength(), reopened.getTotalLength());
+        assertEquals(search(List.of(written), "morning", Order.RELEVANCE),
+                search(List.of(reopened), "morning", Order.RELEVANCE));
+        assertEquals(List.of(cursor(3000), cursor(2000), cursor(1000)), reopened.getTagCursorsBefore("java", null, 10));
+        assertEquals(List.of(cursor(1000)), reopened.getTagCursorsBefore("java", cursor(2000), 10));
+        assertEquals(List.of(cursor(3000)), reopened.getTagCursorsBefore("java", null, 1));
+        assertTrue(reopened.getTagCursorsBefore("python", null, 10).isEmpty());
+        // Only the finished file is left
+        assertEquals(List.of(path), List.copyOf(Files.list(directory).toList()));
+    }
+
+    @Test
+    public void testMergedSegmentsSearchAsOne() throws IOException {
+        FullTextIndex first = index(1000, 2000, 3000);
+        FullTextIndex second = index(4000, 5000, 6000, 7000);
+        HashMap<String, List<ChirpCursor>> firstTags = new HashMap<>();
+        firstTags.put("java", List.of(cursor(1000)));
+        HashMap<String, List<ChirpCursor>> secondTags = new HashMap<>();
+        secondTags.put("java", List.of(cursor(6000)));
+        IndexSegment a = IndexSegment.write(directory.resolve("a.idx"), List.of(first), firstTags);
+        IndexSegment b = IndexSegment.write(directory.resolve("b.idx"), List.of(second), secondTags);
+        IndexSegment merged = IndexSegment.merge(directory.resolve("c.idx"), List.of(a, b));
+
+        assertEquals(7, merged.getDocumentCount());
+        for (String query : List.of("morning", "coffee OR night", "\"good morning\"")) {
+            for (Order order : Order.values()) {
+                Vector<ChirpCursor> expected = search(List.of(first, second), query, order);
+                assertEquals(expected, search(List.of(a, b), query, order), query + " " + order);
+                assertEquals(expected, search(List.of(merged), query, order), query + " " + order);
+            }
+        }
+        assertEquals(List.of(cursor(6000), cursor(1000)), merged.getTagCursorsBefore("java", null, 10));
+    }
+
+    @Test
+    public void testTruncatedFileIsRejected() throws IOException {
+        Path path = directory.resolve("a.idx");
+        IndexSegment.write(path, List.of(index(1000, 2000)), new HashMap<>());
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, java.util.Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertThrows(IOException.class, () -> IndexSegment.open(path));
+    }
+}
@@ -0,0 +1,49 @@
+package test.java.edu.georgetown.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import edu.georgetown.search.PostingList;
+
+public class PostingListTest {
+
+    @Test
+    public void testRoundTrip() {
+        PostingList postings = new PostingList();
+        postings.add(0, new int[] { 3 });
+        postings.add(7, new int[] { 0, 2, 200 });
+        postings.add(1_000_000, new int[] { 5 });
+
+        PostingList.Reader reader = postings.reader();
+        assertTrue(reader.next());
+        assertEquals(0, reader.document());
+        assertArrayEquals(new int[] { 3 }, reader.positions());
+        assertTrue(reader.next());
+        assertEquals(7, reader.document());
+        assertEquals(3, reader.frequency());
+        assertArrayEquals(new int[] { 0, 2, 200 }, reader.positions());
+        assertTrue(reader.next());
+        assertEquals(1_000_000, reader.document());
+        assertFalse(reader.next());
+        assertEquals(3, postings.getDocumentCount());
+    }
+
+    @Test
+    public void testDeltasKeepConsecutiveDocumentsSmall() {
+        PostingList postings = new PostingList();
+        for (int document = 100_000; document < 101_000; document++) {
+            postings.add(document, new int[] { 1 });
+        }
+        // Apart from the first entry, each is three one-byte numbers
+        assertTrue(postings.getSizeInBytes() <= 3 * 1000 + 2);
+    }
+
+    @Test
+    public void testDocumentsMustIncrease() {
+        PostingList postings = new PostingList();
+        postings.add(5, new int[] { 0 });
+        assertThrows(IllegalArgumentException.class, () -> postings.add(5, new int[] { 1 }));
+        assertThrows(IllegalArgumentException.class, () -> postings.add(6, new int[0]));
+    }
+}
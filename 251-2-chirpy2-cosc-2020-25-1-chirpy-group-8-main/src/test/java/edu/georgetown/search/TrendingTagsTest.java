@@ -0,0 +1,127 @@
+package test.java.edu.georgetown.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import edu.georgetown.model.TrendingTag;
+import edu.georgetown.search.CountMinSketch;
+import edu.georgetown.search.SpaceSaving;
+import edu.georgetown.search.TrendingTags;
+import edu.georgetown.search.TrendingTags.Window;
+
+public class TrendingTagsTest {
+
+    private static final long NOW = TimeUnit.DAYS.toMillis(20000);
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+    private static List<String> tags(Vector<TrendingTag> trending) {
+        return trending.stream().map(TrendingTag::getTag).toList();
+    }
+
+    @Test
+    public void testTopTagsMostUsedFirst() {
+        TrendingTags trending = new TrendingTags();
+        for (int i = 0; i < 5; i++) {
+            trending.record(Set.of("java"), NOW - i * MINUTE);
+        }
+        for (int i = 0; i < 3; i++) {
+            trending.record(Set.of("coffee", "hoyas"), NOW - 20 * MINUTE);
+        }
+        trending.record(Set.of("tea"), NOW);
+
+        Vector<TrendingTag> top = trending.getTrending(Window.HOUR, 3, NOW);
+        // Equal counts are alphabetical
+        assertEquals(List.of("java", "coffee", "hoyas"), tags(top));
+        assertEquals(5, top.get(0).getCount());
+        assertEquals(3, top.get(1).getCount());
+        assertTrue(trending.getTrending(Window.HOUR, 0, NOW).isEmpty());
+    }
+
+    @Test
+    public void testOldChirpsLeaveTheWindow() {
+        TrendingTags trending = new TrendingTags();
+        trending.record(Set.of("old"), NOW - 3 * TimeUnit.HOURS.toMillis(1));
+        trending.record(Set.of("older"), NOW - 2 * TimeUnit.DAYS.toMillis(1));
+        trending.record(Set.of("new"), NOW);
+
+        assertEquals(List.of("new"), tags(trending.getTrending(Window.HOUR, 10, NOW)));
+        assertEquals(List.of("new", "old"), tags(trending.getTrending(Window.DAY, 10, NOW)));
+        // A day later, everything has left both windows
+        assertTrue(trending.getTrending(Window.DAY, 10, NOW + TimeUnit.DAYS.toMillis(1) + 1).isEmpty());
+    }
+
+    @Test
+    public void testBucketsAreReused() {
+        TrendingTags trending = new TrendingTags();
+        trending.record(Set.of("morning"), NOW - 2 * TimeUnit.HOURS.toMillis(1));
+        // Two hours later the same five-minute bucket of the hour window is reused
+        trending.record(Set.of("evening"), NOW);
+        // A chirp for the reused bucket's old span neither clears nor joins it
+        trending.record(Set.of("late"), NOW - 2 * TimeUnit.HOURS.toMillis(1));
+
+        assertEquals(List.of("evening"), tags(trending.getTrending(Window.HOUR, 10, NOW)));
+        // The day window's hourly bucket for it is still current, so it counts there
+        assertEquals(List.of("evening", "late", "morning"), tags(trending.getTrending(Window.DAY, 10, NOW)));
+    }
+
+    @Test
+    public void testHeavyHittersSurviveManyRareTags() {
+        TrendingTags trending = new TrendingTags();
+        for (int i = 0; i < 10000; i++) {
+            trending.record(Set.of("rare" + i), NOW);
+            if (i % 10 == 0)
+                trending.record(Set.of("popular"), NOW);
+            if (i % 20 == 0)
+                trending.record(Set.of("common"), NOW);
+        }
+
+        Vector<TrendingTag> top = trending.getTrending(Window.HOUR, 2, NOW);
+        assertEquals(List.of("popular", "common"), tags(top));
+        // Estimates may be high, never low
+        assertTrue(top.get(0).getCount() >= 1000);
+        assertTrue(top.get(1).getCount() >= 500);
+    }
+
+    @Test
+    public void testWindowParse() {
+        assertEquals(Window.HOUR, Window.parse("1h"));
+        assertEquals(Window.DAY, Window.parse("24H"));
+        assertEquals(Window.DAY, Window.parse("day"));
+        assertEquals(Window.HOUR, Window.parse(null));
+        assertEquals(Window.HOUR, Window.parse("week"));
+    }
+
+    @Test
+    public void testCountMinSketchNeverUnderestimates() {
+        CountMinSketch sketch = new CountMinSketch(100, 4);
+        for (int i = 0; i < 1000; i++) {
+            sketch.add("tag" + (i % 50), i % 50 + 1);
+        }
+        for (int t = 0; t < 50; t++) {
+            assertTrue(sketch.estimate("tag" + t) >= 20L * (t + 1));
+        }
+        sketch.clear();
+        assertEquals(0, sketch.estimate("tag1"));
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(0, 4));
+    }
+
+    @Test
+    public void testSpaceSavingKeepsFrequentItems() {
+        SpaceSaving summary = new SpaceSaving(3);
+        summary.offer("a", 10);
+        summary.offer("b", 5);
+        summary.offer("c", 1);
+        // Takes over the smallest counter, and its count
+        summary.offer("d", 1);
+        assertEquals(Set.of("a", "b", "d"), summary.getItems());
+        assertEquals(2, summary.getCount("d"));
+        assertEquals(0, summary.getCount("c"));
+        assertEquals(10, summary.getCount("a"));
+    }
+}
@@ -2,6 +2,7 @@ package test.java.edu.georgetown.service;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
+import java.util.List;
 import java.util.Vector;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -11,6 +12,9 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import edu.georgetown.dao.ChirpDAO;
 import edu.georgetown.model.Chirp;
+import edu.georgetown.model.ChirpCursor;
+import edu.georgetown.model.ChirpPage;
+import edu.georgetown.persistence.Serializer;
 import edu.georgetown.service.ChirpService;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,11 +31,19 @@ public class ChirpServiceTest {
         String username = "testUser";
         String content = "This is a test chirp";
 
-        chirpService.postChirp(username, content);
+        when(chirpDAO.addChirp(username, content)).thenReturn(new ChirpCursor(1, "testUser_1"));
 
+        assertTrue(chirpService.postChirp(username, content));
         verify(chirpDAO, times(1)).addChirp(username, content);
     }
 
+    @Test
+    public void testPostChirpReportsSaveFailure() {
+        when(chirpDAO.addChirp("testUser", "lost")).thenReturn(null);
+
+        assertFalse(chirpService.postChirp("testUser", "lost"));
+    }
+
     @Test
     public void testGetChirpsByUser() {
         String username = "testUser";
@@ -64,4 +76,51 @@ public class ChirpServiceTest {
         assertEquals("Chirp 2", chirps.get(1).getContent());
         verify(chirpDAO, times(1)).getAllChirps();
     }
+
+    @Test
+    public void testGetChirpsBeforeParsesCursor() {
+        ChirpPage mockPage = new ChirpPage(new Vector<>(), null);
+        when(chirpDAO.getChirpsBefore(new ChirpCursor(1000, "user1_1000"), 10)).thenReturn(mockPage);
+        when(chirpDAO.getChirpsBefore(null, 10)).thenReturn(mockPage);
+
+        assertSame(mockPage, chirpService.getChirpsBefore("1000-user1_1000", 10));
+        assertSame(mockPage, chirpService.getChirpsBefore("not a cursor", 10),
+                "An invalid cursor should start from the newest chirp");
+    }
+
+    /** Contents of the chirps on a page, in order */
+    private static Vector<String> contents(ChirpPage page) {
+        Vector<String> contents = new Vector<>();
+        for (Chirp chirp : page.getChirps()) {
+            contents.add(chirp.getContent());
+        }
+        return contents;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGetMergedTimelineMergesAuthorsNewestFirst() {
+        ChirpService merging = new ChirpService(new ChirpDAO(mock(Serializer.class)));
+        assertFalse(merging.hasHomeTimelines());
+        // More chirps than one batch, interleaved between authors, all in memory
+        for (int i = 0; i < 30; i++) {
+            merging.postChirp(i % 3 == 0 ? "bob" : "carol", "chirp " + i);
+            merging.postChirp("dave", "not followed " + i);
+        }
+
+        Vector<String> seen = new Vector<>();
+        String cursor = null;
+        do {
+            ChirpPage page = merging.getMergedTimeline(List.of("bob", "carol", "nobody"), cursor, 7);
+            assertTrue(page.getChirps().size() <= 7);
+            seen.addAll(contents(page));
+            cursor = page.hasMore() ? page.getNextCursor().toString() : null;
+        } while (cursor != null);
+
+        assertEquals(30, seen.size());
+        for (int i = 0; i < 30; i++) {
+            assertEquals("chirp " + (29 - i), seen.get(i));
+        }
+        assertTrue(merging.getMergedTimeline(List.of(), null, 7).getChirps().isEmpty());
+    }
 }
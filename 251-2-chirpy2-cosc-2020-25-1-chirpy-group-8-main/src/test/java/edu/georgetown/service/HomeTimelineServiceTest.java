@@ -0,0 +1,248 @@
+package test.java.edu.georgetown.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.Vector;
+
+import edu.georgetown.dao.ChirpDAO;
+import edu.georgetown.dao.FollowDAO;
+import edu.georgetown.model.Chirp;
+import edu.georgetown.model.ChirpPage;
+import edu.georgetown.model.Follow;
+import edu.georgetown.persistence.Serializer;
+import edu.georgetown.service.ChirpService;
+import edu.georgetown.service.FollowService;
+import edu.georgetown.service.HomeTimelineService;
+
+@ExtendWith(MockitoExtension.class)
+public class HomeTimelineServiceTest {
+
+    @Mock
+    private Serializer<Chirp> mockChirpSerializer;
+
+    @Mock
+    private Serializer<Follow> mockFollowSerializer;
+
+    private ChirpDAO chirpDAO;
+    private FollowDAO followDAO;
+    private HomeTimelineService homeTimelines;
+    private ChirpService chirpService;
+    private FollowService followService;
+
+    @BeforeEach
+    public void setUp() {
+        chirpDAO = new ChirpDAO(mockChirpSerializer);
+        followDAO = new FollowDAO(mockFollowSerializer);
+        useFanOutThreshold(HomeTimelineService.DEFAULT_FANOUT_THRESHOLD);
+    }
+
+    /** Rebuilds the services around the same DAOs with another threshold */
+    private void useFanOutThreshold(int fanOutThreshold) {
+        homeTimelines = new HomeTimelineService(chirpDAO, followDAO, fanOutThreshold);
+        chirpService = new ChirpService(chirpDAO, homeTimelines);
+        followService = new FollowService(followDAO, homeTimelines);
+    }
+
+    private static Vector<String> contents(ChirpPage page) {
+        Vector<String> contents = new Vector<>();
+        for (Chirp chirp : page.getChirps()) {
+            contents.add(chirp.getContent());
+        }
+        return contents;
+    }
+
+    @Test
+    public void testTimelineHoldsFollowedChirpsNewestFirst() {
+        chirpService.postChirp("bob", "bob 1");
+        chirpService.postChirp("carol", "carol 1");
+        chirpService.postChirp("dave", "dave 1");
+        chirpService.postChirp("bob", "bob 2");
+        followService.follow("alice", "bob");
+        followService.follow("alice", "carol");
+
+        ChirpPage page = chirpService.getHomeTimeline("alice", null, 10);
+        assertEquals(List.of("bob 2", "carol 1", "bob 1"), contents(page));
+        assertFalse(page.hasMore());
+    }
+
+    @Test
+    public void testNewChirpsAreFannedOutToBuiltTimelines() {
+        followService.follow("alice", "bob");
+        assertTrue(chirpService.getHomeTimeline("alice", null, 10).getChirps().isEmpty());
+
+        chirpService.postChirp("bob", "hello");
+        chirpService.postChirp("carol", "not followed");
+
+        assertEquals(List.of("hello"), contents(chirpService.getHomeTimeline("alice", null, 10)));
+    }
+
+    @Test
+    public void testFollowBackfillsAndUnfollowPurges() {
+        chirpService.postChirp("bob", "bob 1");
+        chirpService.postChirp("carol", "carol 1");
+        followService.follow("alice", "bob");
+        assertEquals(List.of("bob 1"), contents(chirpService.getHomeTimeline("alice", null, 10)));
+
+        followService.follow("alice", "carol");
+        assertEquals(List.of("carol 1", "bob 1"), contents(chirpService.getHomeTimeline("alice", null, 10)));
+
+        followService.unfollow("alice", "bob");
+        assertEquals(List.of("carol 1"), contents(chirpService.getHomeTimeline("alice", null, 10)));
+    }
+
+    @Test
+    public void testPagesFollowTheCursor() {
+        followService.follow("alice", "bob");
+        for (int i = 0; i < 5; i++) {
+            chirpService.postChirp("bob", "chirp " + i);
+        }
+
+        ChirpPage first = chirpService.getHomeTimeline("alice", null, 2);
+        assertEquals(List.of("chirp 4", "chirp 3"), contents(first));
+        ChirpPage second = chirpService.getHomeTimeline("alice", first.getNextCursor().toString(), 2);
+        assertEquals(List.of("chirp 2", "chirp 1"), contents(second));
+        ChirpPage last = chirpService.getHomeTimeline("alice", second.getNextCursor().toString(), 2);
+        assertEquals(List.of("chirp 0"), contents(last));
+        assertFalse(last.hasMore());
+    }
+
+    @Test
+    public void testTimelineIsBoundedAndHasNoGaps() throws Exception {
+        // Chirps that have left memory are read back from storage
+        lenient().when(mockChirpSerializer.readFile(anyString())).thenReturn(new Chirp("bob", "archived"));
+        chirpService.postChirp("carol", "too old");
+        followService.follow("alice", "bob");
+        chirpService.getHomeTimeline("alice", null, 1);
+        for (int i = 0; i < HomeTimelineService.TIMELINE_CAPACITY + 10; i++) {
+            chirpService.postChirp("bob", "bob " + i);
+        }
+
+        // Carol's chirp is older than everything the full timeline kept
+        followService.follow("alice", "carol");
+
+        ChirpPage page = chirpService.getHomeTimeline("alice", null, HomeTimelineService.TIMELINE_CAPACITY * 2);
+        assertEquals(HomeTimelineService.TIMELINE_CAPACITY, page.getChirps().size());
+        assertFalse(contents(page).contains("too old"));
+        assertEquals("bob " + (HomeTimelineService.TIMELINE_CAPACITY + 9), page.getChirps().get(0).getContent());
+    }
+
+    @Test
+    public void testTruncatedBackfillLeavesNoGapForMergedAuthors() throws Exception {
+        lenient().when(mockChirpSerializer.readFile(anyString())).thenReturn(new Chirp("bob", "archived"));
+        useFanOutThreshold(2);
+        followService.follow("carol", "dave");
+        chirpService.postChirp("bob", "bob oldest");
+        chirpService.postChirp("dave", "dave old");
+        for (int i = 0; i < HomeTimelineService.TIMELINE_CAPACITY; i++) {
+            chirpService.postChirp("bob", "bob " + i);
+        }
+        chirpService.postChirp("dave", "dave new");
+        followService.follow("alice", "bob");
+        followService.follow("alice", "dave");
+
+        // The backfill holds only Bob's newest chirps, so Dave's older chirp
+        // would sit past a gap where "bob oldest" is missing
+        Vector<String> seen = new Vector<>();
+        ChirpPage page = chirpService.getHomeTimeline("alice", null, 100);
+        seen.addAll(contents(page));
+        while (page.hasMore()) {
+            page = chirpService.getHomeTimeline("alice", page.getNextCursor().toString(), 100);
+            seen.addAll(contents(page));
+        }
+        assertEquals("dave new", seen.firstElement());
+        assertFalse(seen.contains("dave old"));
+        assertEquals(HomeTimelineService.TIMELINE_CAPACITY, seen.size());
+    }
+
+    @Test
+    public void testHighDegreeChirpsAreMergedAtReadTime() {
+        useFanOutThreshold(2);
+        followService.follow("alice", "bob");
+        followService.follow("carol", "bob");
+        followService.follow("alice", "dave");
+        assertTrue(homeTimelines.isHighDegree("bob"));
+        assertFalse(homeTimelines.isHighDegree("dave"));
+
+        chirpService.getHomeTimeline("alice", null, 10);
+        chirpService.postChirp("bob", "bob 1");
+        chirpService.postChirp("dave", "dave 1");
+        chirpService.postChirp("bob", "bob 2");
+        chirpService.postChirp("erin", "not followed");
+
+        ChirpPage page = chirpService.getHomeTimeline("alice", null, 10);
+        assertEquals(List.of("bob 2", "dave 1", "bob 1"), contents(page));
+        assertFalse(page.hasMore());
+
+        // Unfollowing stops the merge
+        followService.unfollow("alice", "bob");
+        assertEquals(List.of("dave 1"), contents(chirpService.getHomeTimeline("alice", null, 10)));
+    }
+
+    @Test
+    public void testOnlyFollowedHighDegreeAuthorsAreMerged() {
+        useFanOutThreshold(1);
+        for (String author : List.of("bob", "carol", "dave", "erin")) {
+            followService.follow("fan", author);
+            chirpService.postChirp(author, author + " 1");
+        }
+        followService.follow("alice", "carol");
+
+        // Alice follows fewer accounts than there are high-degree authors
+        assertEquals(List.of("carol 1"), contents(chirpService.getHomeTimeline("alice", null, 10)));
+        assertEquals(List.of("erin 1", "dave 1", "carol 1", "bob 1"),
+                contents(chirpService.getHomeTimeline("fan", null, 10)));
+    }
+
+    @Test
+    public void testMergedPagesFollowTheCursor() {
+        useFanOutThreshold(2);
+        followService.follow("alice", "bob");
+        followService.follow("carol", "bob");
+        followService.follow("alice", "dave");
+        for (int i = 0; i < 3; i++) {
+            chirpService.postChirp("bob", "bob " + i);
+            chirpService.postChirp("dave", "dave " + i);
+        }
+
+        Vector<String> seen = new Vector<>();
+        ChirpPage page = chirpService.getHomeTimeline("alice", null, 4);
+        seen.addAll(contents(page));
+        assertTrue(page.hasMore());
+        page = chirpService.getHomeTimeline("alice", page.getNextCursor().toString(), 4);
+        seen.addAll(contents(page));
+        assertFalse(page.hasMore());
+        assertEquals(List.of("dave 2", "bob 2", "dave 1", "bob 1", "dave 0", "bob 0"), seen);
+    }
+
+    @Test
+    public void testPromotedAuthorIsNotDuplicated() {
+        useFanOutThreshold(2);
+        followService.follow("alice", "bob");
+        chirpService.getHomeTimeline("alice", null, 10);
+        chirpService.postChirp("bob", "fanned out");
+
+        // Bob reaches the threshold: his older chirp is in the timeline and merged
+        followService.follow("carol", "bob");
+        chirpService.postChirp("bob", "merged");
+
+        assertEquals(List.of("merged", "fanned out"), contents(chirpService.getHomeTimeline("alice", null, 10)));
+    }
+
+    @Test
+    public void testExistingHighDegreeAuthorsAreFoundAtStartup() {
+        followDAO.createRelationship("alice", "bob");
+        followDAO.createRelationship("carol", "bob");
+        useFanOutThreshold(2);
+        assertTrue(homeTimelines.isHighDegree("bob"));
+        assertFalse(homeTimelines.isHighDegree("alice"));
+    }
+}
@@ -0,0 +1,154 @@
+package test.java.edu.georgetown.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.georgetown.model.Chirp;
+import edu.georgetown.model.ChirpCursor;
+import edu.georgetown.model.ChirpPage;
+import edu.georgetown.search.FullTextIndex.Order;
+import edu.georgetown.service.SearchResultCache;
+
+public class SearchResultCacheTest {
+
+    private SearchResultCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new SearchResultCache(SearchResultCache.DEFAULT_CAPACITY_BYTES);
+        loads = new AtomicInteger();
+    }
+
+    private Vector<Chirp> load(String... contents) {
+        loads.incrementAndGet();
+        Vector<Chirp> chirps = new Vector<Chirp>();
+        for (String content : contents) {
+            chirps.add(new Chirp("user1", content));
+        }
+        return chirps;
+    }
+
+    private ChirpPage tagPage(String tag, String cursor) {
+        return cache.getByTag(tag, cursor, 50, () -> new ChirpPage(load("A #java chirp"), null));
+    }
+
+    private Vector<Chirp> text(String query) {
+        return cache.getByText(query, 50, Order.RELEVANCE, () -> load("Good morning"));
+    }
+
+    @Test
+    public void testRepeatedSearchesAreHits() {
+        tagPage("#Java", null);
+        tagPage("java", null);
+        text("Good  Morning");
+        text("good morning");
+        cache.getByUser("user1", () -> load("Hello"));
+        cache.getByUser("user1", () -> load("Hello"));
+
+        assertEquals(3, loads.get(), "Normalized queries share an entry");
+        assertEquals(3, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(3, cache.size());
+        assertTrue(cache.toString().contains("50% hit rate"));
+    }
+
+    @Test
+    public void testCachedResultsAreCopies() {
+        tagPage("java", null).getChirps().clear();
+        text("morning").clear();
+
+        assertEquals(1, tagPage("java", null).getChirps().size());
+        assertEquals(1, text("morning").size());
+    }
+
+    @Test
+    public void testNewChirpEvictsOnlyItsTagsFirstPage() {
+        String older = new ChirpCursor(1000, "user1_1000").toString();
+        tagPage("java", null);
+        tagPage("java", older);
+        tagPage("python", null);
+
+        cache.chirpPosted("user2", "Learning #Java");
+
+        tagPage("java", null);
+        tagPage("java", older);
+        tagPage("python", null);
+        assertEquals(4, loads.get(), "Only the first #java page is run again");
+        assertEquals(1, cache.getInvalidationCount());
+    }
+
+    @Test
+    public void testNewChirpEvictsItsAuthor() {
+        cache.getByUser("user1", () -> load("Hello"));
+        cache.getByUser("user2", () -> load("Hi"));
+
+        cache.chirpPosted("user1", "Another chirp");
+
+        cache.getByUser("user1", () -> load("Hello"));
+        cache.getByUser("user2", () -> load("Hi"));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void testNewChirpEvictsTheQueriesItMatches() {
+        text("good morning");
+        text("coffee OR tea");
+        text("\"good night\"");
+
+        cache.chirpPosted("user2", "Morning tea is GOOD");
+
+        text("good morning");
+        text("coffee OR tea");
+        text("\"good night\"");
+        assertEquals(5, loads.get(), "Both matching queries are run again, the other is kept");
+        assertEquals(2, cache.getInvalidationCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedResultsAreEvicted() {
+        // Each result is about 400 bytes, and results over an eighth are skipped
+        cache = new SearchResultCache(8 * 500);
+        for (int i = 0; i < 20; i++) {
+            final int n = i;
+            cache.getByUser("user" + n, () -> load("chirp " + n));
+            cache.getByUser("user0", () -> load("chirp 0"));
+        }
+
+        assertTrue(cache.getWeight() <= 8 * 500);
+        assertTrue(cache.getEvictionCount() > 0);
+        int before = loads.get();
+        cache.getByUser("user0", () -> load("chirp 0"));
+        assertEquals(before, loads.get(), "The most used result stays");
+        cache.getByUser("user1", () -> load("chirp 1"));
+        assertEquals(before + 1, loads.get(), "An old result was evicted");
+    }
+
+    @Test
+    public void testLargeResultsAreNotCached() {
+        cache = new SearchResultCache(1024);
+        Vector<Chirp> result = cache.getByUser("user1", () -> load("x".repeat(200)));
+
+        assertEquals(1, result.size());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    public void testResultLoadedDuringAPostIsNotStored() {
+        cache.getByTag("java", null, 50, () -> {
+            // The chirp is posted after the search read the index
+            cache.chirpPosted("user2", "More #java");
+            return new ChirpPage(load("A #java chirp"), null);
+        });
+        tagPage("java", null);
+
+        assertEquals(2, loads.get(), "The stale page was not kept");
+        assertEquals(0, cache.getHitCount());
+    }
+}
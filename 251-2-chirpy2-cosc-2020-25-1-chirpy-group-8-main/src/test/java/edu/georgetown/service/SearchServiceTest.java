@@ -1,6 +1,7 @@
 package test.java.edu.georgetown.service;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import java.util.Vector;
 import org.junit.jupiter.api.BeforeEach;
@@ -9,6 +10,9 @@ import org.junit.jupiter.api.Test;
 import edu.georgetown.service.SearchService;
 import edu.georgetown.service.ChirpService;
 import edu.georgetown.model.Chirp;
+import edu.georgetown.model.ChirpCursor;
+import edu.georgetown.model.ChirpPage;
+import edu.georgetown.search.FullTextIndex;
 
 public class SearchServiceTest {
 
@@ -26,22 +30,40 @@ public class SearchServiceTest {
         // Arrange
         Vector<Chirp> chirps = new Vector<>();
         Chirp chirp1 = new Chirp("user1", "This is a #test chirp");
-        Chirp chirp2 = new Chirp("user2", "Another chirp without the tag");
         Chirp chirp3 = new Chirp("user3", "Yet another #test chirp");
-        chirps.add(chirp1);
-        chirps.add(chirp2);
         chirps.add(chirp3);
+        chirps.add(chirp1);
 
-        when(chirpServiceMock.getAllChirps()).thenReturn(chirps);
+        when(chirpServiceMock.getChirpsByTag("#test", null, 50)).thenReturn(new ChirpPage(chirps, null));
 
         // Act
-        Vector<Chirp> result = searchService.searchByTag("#test");
+        ChirpPage result = searchService.searchByTag("#test", null, 50);
 
         // Assert
+        assertEquals(2, result.getChirps().size());
+        assertTrue(result.getChirps().contains(chirp1));
+        assertTrue(result.getChirps().contains(chirp3));
+        assertFalse(result.hasMore());
+        verify(chirpServiceMock, never()).getAllChirps();
+    }
+
+    @Test
+    public void testSearchByTagReadsEveryPage() {
+        Vector<Chirp> newer = new Vector<>();
+        newer.add(new Chirp("user1", "Newer #test"));
+        Vector<Chirp> older = new Vector<>();
+        older.add(new Chirp("user2", "Older #test"));
+        ChirpCursor next = new ChirpCursor(1000, "user1_1000");
+
+        when(chirpServiceMock.getChirpsByTag(eq("#test"), isNull(), anyInt())).thenReturn(new ChirpPage(newer, next));
+        when(chirpServiceMock.getChirpsByTag(eq("#test"), eq(next.toString()), anyInt()))
+                .thenReturn(new ChirpPage(older, null));
+
+        Vector<Chirp> result = searchService.searchByTag("#test");
+
         assertEquals(2, result.size());
-        assertTrue(result.contains(chirp1));
-        assertFalse(result.contains(chirp2));
-        assertTrue(result.contains(chirp3));
+        assertEquals("Newer #test", result.get(0).getContent());
+        assertEquals("Older #test", result.get(1).getContent());
     }
 
     @Test
@@ -49,21 +71,31 @@ public class SearchServiceTest {
         // Arrange
         Vector<Chirp> chirps = new Vector<>();
         Chirp chirp1 = new Chirp("user1", "This is a chirp");
-        Chirp chirp2 = new Chirp("user2", "Another chirp");
         Chirp chirp3 = new Chirp("user1", "Yet another chirp");
         chirps.add(chirp1);
-        chirps.add(chirp2);
         chirps.add(chirp3);
 
-        when(chirpServiceMock.getAllChirps()).thenReturn(chirps);
+        when(chirpServiceMock.getChirpsByUser("user1")).thenReturn(chirps);
 
         // Act
         Vector<Chirp> result = searchService.searchByUser("user1");
 
-        // Assert
+        // Assert: the user's chirps are looked up directly, not by scanning all
         assertEquals(2, result.size());
-        assertTrue(result.contains(chirp1));
-        assertFalse(result.contains(chirp2));
-        assertTrue(result.contains(chirp3));
+        assertEquals(chirp1, result.get(0));
+        assertEquals(chirp3, result.get(1));
+        verify(chirpServiceMock, never()).getAllChirps();
+    }
+
+    @Test
+    public void testSearchText() {
+        Vector<Chirp> chirps = new Vector<>();
+        chirps.add(new Chirp("user1", "Good morning"));
+        when(chirpServiceMock.searchText("good morning", 10, FullTextIndex.Order.RELEVANCE)).thenReturn(chirps);
+
+        Vector<Chirp> result = searchService.searchText("good morning", 10, FullTextIndex.Order.RELEVANCE);
+
+        assertEquals(chirps, result);
+        verify(chirpServiceMock, never()).getAllChirps();
     }
 }
@@ -0,0 +1,128 @@
+package test.java.edu.georgetown.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.georgetown.service.SessionStore;
+
+public class SessionStoreTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private SessionStore sessions;
+
+    @BeforeEach
+    public void setUp() {
+        // 64 s idle timeout, so each of the 64 wheel slots covers one second
+        sessions = new SessionStore(64, TimeUnit.SECONDS, 1000, now::get);
+    }
+
+    private void advance(long seconds) {
+        now.addAndGet(TimeUnit.SECONDS.toMillis(seconds));
+    }
+
+    @Test
+    public void testTokensAreOpaqueAndUnique() {
+        Set<String> tokens = new HashSet<String>();
+        for (int i = 0; i < 500; i++) {
+            String token = sessions.create("alice").getToken();
+            assertFalse(token.contains("alice"));
+            assertTrue(token.matches("[A-Za-z0-9_-]{43}"), token);
+            tokens.add(token);
+        }
+
+        assertEquals(500, tokens.size());
+        assertEquals(500, sessions.size());
+    }
+
+    @Test
+    public void testGetFindsTheUser() {
+        String token = sessions.create("alice").getToken();
+
+        assertEquals("alice", sessions.get(token).getUsername());
+        assertNull(sessions.get("not-a-token"));
+        assertNull(sessions.get(null));
+    }
+
+    @Test
+    public void testExpirySlidesWithEachRequest() {
+        String token = sessions.create("alice").getToken();
+
+        // used every 40 s, so never idle for 64 s
+        for (int i = 0; i < 5; i++) {
+            advance(40);
+            assertEquals(0, sessions.expireSessions());
+            assertNotNull(sessions.get(token));
+        }
+
+        advance(64);
+        assertEquals(1, sessions.expireSessions());
+        assertNull(sessions.get(token));
+        assertEquals(0, sessions.size());
+        assertEquals(1, sessions.getExpiredCount());
+    }
+
+    @Test
+    public void testExpiredSessionIsNotReturnedBeforeTheSweep() {
+        String token = sessions.create("alice").getToken();
+
+        advance(64);
+
+        assertNull(sessions.get(token));
+        assertEquals(0, sessions.size());
+        // the wheel finds nothing left to expire
+        advance(2);
+        assertEquals(0, sessions.expireSessions());
+    }
+
+    @Test
+    public void testSweepOnlyRemovesIdleSessions() {
+        String idle = sessions.create("alice").getToken();
+        advance(30);
+        String active = sessions.create("bob").getToken();
+        advance(35);
+
+        assertEquals(1, sessions.expireSessions());
+        assertNull(sessions.get(idle));
+        assertEquals("bob", sessions.get(active).getUsername());
+
+        // a long pause turns the wheel more than once
+        advance(1000);
+        assertEquals(1, sessions.expireSessions());
+        assertEquals(0, sessions.size());
+    }
+
+    @Test
+    public void testInvalidateEndsTheSession() {
+        String token = sessions.create("alice").getToken();
+
+        assertTrue(sessions.invalidate(token));
+        assertFalse(sessions.invalidate(token));
+        assertNull(sessions.get(token));
+
+        advance(100);
+        assertEquals(0, sessions.expireSessions());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedAreEvictedOverTheLimit() {
+        // ten per shard
+        sessions = new SessionStore(64, TimeUnit.SECONDS, 160, now::get);
+        String first = sessions.create("first").getToken();
+        for (int i = 0; i < 1000; i++) {
+            sessions.create("user" + i);
+            // keep the first session in use
+            assertNotNull(sessions.get(first));
+        }
+
+        assertTrue(sessions.size() <= 160);
+        assertEquals(1001 - sessions.size(), sessions.getEvictedCount());
+        assertEquals("first", sessions.get(first).getUsername());
+    }
+}
@@ -1,7 +1,10 @@
 package test.java.edu.georgetown.service;
 
+import java.util.Comparator;
+import java.util.List;
 import java.util.Set;
 import java.util.Vector;
+import java.util.function.ToIntFunction;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,11 +13,14 @@ import static org.junit.jupiter.api.Assertions.*;
 import org.mockito.Mock;
 import org.mockito.InjectMocks;
 import org.mockito.junit.jupiter.MockitoExtension;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 import edu.georgetown.dao.ChirperDAO;
+import edu.georgetown.service.FollowService;
 import edu.georgetown.service.UserService;
 
 @ExtendWith(MockitoExtension.class)
@@ -23,6 +29,9 @@ public class UserServiceTest {
     @Mock
     private ChirperDAO mockChirperDao; // Mocked dependency
 
+    @Mock
+    private FollowService mockFollowService;
+
     @InjectMocks
     UserService userService;
 
@@ -141,4 +150,47 @@ public class UserServiceTest {
         // Simulate the situation where an incorrect password is provided and check for
         // IncorrectPassword exception (if applicable)
     }
-}
\ No newline at end of file
+
+    // Test suggestUsernames() ranks the matching usernames by follower count,
+    // then alphabetically
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSuggestUsernamesRanksByFollowers() {
+        when(mockFollowService.getFollowerCount("alice")).thenReturn(5);
+        when(mockFollowService.getFollowerCount("Alan")).thenReturn(1);
+        when(mockFollowService.getFollowerCount("albert")).thenReturn(5);
+        when(mockChirperDao.findUsernamesByPrefix(eq("al"), eq(10), any())).thenAnswer(invocation -> {
+            ToIntFunction<String> score = invocation.getArgument(2, ToIntFunction.class);
+            Vector<String> matches = new Vector<>(Set.of("alice", "Alan", "albert"));
+            matches.sort(Comparator.<String>comparingInt(score).reversed()
+                    .thenComparing(String.CASE_INSENSITIVE_ORDER));
+            return matches;
+        });
+
+        assertEquals(new Vector<>(List.of("albert", "alice", "Alan")), userService.suggestUsernames("al", 10),
+                "Most followed first, alphabetical among equals");
+    }
+
+    // Test suggestUsernames() falls back to alphabetical order without a
+    // FollowService
+    @Test
+    public void testSuggestUsernamesWithoutFollowService() {
+        UserService alphabetical = new UserService(mockChirperDao);
+        Vector<String> matches = new Vector<>(List.of("Alan", "alice"));
+        when(mockChirperDao.findUsernamesByPrefix("al", 10, null)).thenReturn(matches);
+
+        assertEquals(matches, alphabetical.suggestUsernames("al", 10));
+    }
+
+    // Test that logging in issues a token that names the user only on the server
+    @Test
+    public void testSessionLifecycle() {
+        String token = userService.logIn("alice");
+
+        assertNotEquals("alice", token);
+        assertEquals("alice", userService.getSessionUser(token));
+        assertTrue(userService.logOut(token));
+        assertNull(userService.getSessionUser(token), "Logged out token should not log in");
+        assertFalse(userService.logOut(token));
+    }
+}